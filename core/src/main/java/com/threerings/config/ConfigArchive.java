@@ -0,0 +1,225 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.threerings.io.ByteBufferInputStream;
+
+import com.threerings.export.BinaryExporter;
+import com.threerings.export.BinaryImporter;
+
+/**
+ * A single file containing the configurations of any number of groups, each exported
+ * individually and located through an index of names and offsets.  Archives are memory-mapped
+ * when opened, and the configurations are only read when they're first requested, so the cost
+ * of loading (and the memory required) depends on the configurations actually used.
+ *
+ * <p> The archive consists of a header, the index (for each group, its name followed by the
+ * names, offsets, and lengths of its configurations), and the configurations themselves, each
+ * written as a separate {@link BinaryExporter} stream.
+ */
+public class ConfigArchive
+{
+    /**
+     * The location of a configuration in the archive.
+     */
+    public static class Entry
+    {
+        /** The offset of the configuration's data from the start of the data section. */
+        public final int offset;
+
+        /** The length of the configuration's data. */
+        public final int length;
+
+        public Entry (int offset, int length)
+        {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Writes an archive containing the supplied groups of configurations.
+     *
+     * @param groups the configurations, mapped by group name.
+     * @param compress whether or not to compress the individual configurations.
+     */
+    public static void write (
+        Map<String, ? extends Iterable<? extends ManagedConfig>> groups, File file,
+        boolean compress)
+        throws IOException
+    {
+        // export the configurations, noting their positions
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream iout = new DataOutputStream(index);
+        iout.writeInt(groups.size());
+        for (Map.Entry<String, ? extends Iterable<? extends ManagedConfig>> entry :
+                groups.entrySet()) {
+            List<ManagedConfig> configs = Lists.newArrayList(entry.getValue());
+            iout.writeUTF(entry.getKey());
+            iout.writeInt(configs.size());
+            for (ManagedConfig config : configs) {
+                int offset = data.size();
+                BinaryExporter out = new BinaryExporter(data, compress);
+                out.writeObject(config);
+                out.finish();
+                iout.writeUTF(config.getName());
+                iout.writeInt(offset);
+                iout.writeInt(data.size() - offset);
+            }
+        }
+        iout.flush();
+
+        // write the header, the index, and the data
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(MAGIC_NUMBER);
+            out.writeShort(VERSION);
+            out.writeInt(index.size());
+            index.writeTo(out);
+            data.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Maps the specified archive file and reads its index.
+     */
+    public ConfigArchive (File file)
+        throws IOException
+    {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            _buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+        } finally {
+            in.close(); // the mapping remains valid
+        }
+
+        // read the header
+        DataInputStream din = new DataInputStream(new ByteBufferInputStream(_buffer.duplicate()));
+        int magic = din.readInt();
+        if (magic != MAGIC_NUMBER) {
+            throw new IOException("Invalid magic number [magic=" +
+                Integer.toHexString(magic) + "].");
+        }
+        short version = din.readShort();
+        if (version != VERSION) {
+            throw new IOException("Invalid version [version=" +
+                Integer.toHexString(version) + "].");
+        }
+        int isize = din.readInt();
+        _dataOffset = HEADER_SIZE + isize;
+
+        // read the index
+        for (int ii = 0, nn = din.readInt(); ii < nn; ii++) {
+            String group = din.readUTF();
+            int count = din.readInt();
+            HashMap<String, Entry> entries = Maps.newHashMapWithExpectedSize(count);
+            for (int jj = 0; jj < count; jj++) {
+                entries.put(din.readUTF(), new Entry(din.readInt(), din.readInt()));
+            }
+            _groups.put(group, entries);
+        }
+    }
+
+    /**
+     * Returns the names of the groups in the archive.
+     */
+    public Iterable<String> getGroupNames ()
+    {
+        return _groups.keySet();
+    }
+
+    /**
+     * Returns the entries of the named group, mapped by configuration name.  The map is empty if
+     * the group isn't in the archive.
+     */
+    public Map<String, Entry> getEntries (String group)
+    {
+        Map<String, Entry> entries = _groups.get(group);
+        return (entries == null) ? Collections.<String, Entry>emptyMap() : entries;
+    }
+
+    /**
+     * Reads the configuration at the specified entry.
+     */
+    public ManagedConfig readConfig (Entry entry)
+        throws IOException
+    {
+        ByteBuffer buf = _buffer.duplicate();
+        buf.position(_dataOffset + entry.offset);
+        buf.limit(_dataOffset + entry.offset + entry.length);
+        BinaryImporter in = new BinaryImporter(new ByteBufferInputStream(buf.slice()));
+        try {
+            return (ManagedConfig)in.readObject();
+        } catch (ClassCastException e) {
+            throw (IOException)new IOException("Entry is not a config.").initCause(e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /** The mapped archive. */
+    protected MappedByteBuffer _buffer;
+
+    /** The offset of the data section. */
+    protected int _dataOffset;
+
+    /** The configuration entries of each group, mapped by group name. */
+    protected HashMap<String, HashMap<String, Entry>> _groups = Maps.newHashMap();
+
+    /** Identifies the file as a config archive. */
+    protected static final int MAGIC_NUMBER = 0xFACEA4C1;
+
+    /** The archive format version. */
+    protected static final short VERSION = 0x1000;
+
+    /** The size of the header (magic number, version, and index size). */
+    protected static final int HEADER_SIZE = 4 + 2 + 4;
+}
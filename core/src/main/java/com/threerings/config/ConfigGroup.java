@@ -38,6 +38,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
@@ -45,6 +46,7 @@ import com.google.common.io.Closer;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import com.samskivert.util.ObserverList;
 import com.samskivert.util.StringUtil;
@@ -56,8 +58,8 @@ import com.threerings.export.BinaryImporter;
 import com.threerings.export.Exportable;
 import com.threerings.export.Exporter;
 import com.threerings.export.Importer;
+import com.threerings.export.StreamingXMLImporter;
 import com.threerings.export.XMLExporter;
-import com.threerings.export.XMLImporter;
 import com.threerings.export.util.LazyFileOutputStream;
 import com.threerings.util.Copyable;
 
@@ -96,19 +98,37 @@ public class ConfigGroup<T extends ManagedConfig>
     }
 
     /**
-     * Initializes this group.
+     * Reads this group's existing configurations without initializing them.  Unlike
+     * {@link #init}, this touches nothing outside of the group, so different groups may be
+     * preloaded concurrently.  A subsequent call to {@link #init} with the same manager
+     * initializes the preloaded configurations.
      */
-    public void init (ConfigManager cfgmgr)
+    public void preload (ConfigManager cfgmgr)
     {
         _cfgmgr = cfgmgr;
 
-        // load the existing configurations (first checking for an xml file, then a binary file)
-        if (_cfgmgr.getConfigPath() != null && (readConfigs(true) || readConfigs(false))) {
+        // load the existing configurations (first checking for an xml file, then the archive,
+        // then a binary file)
+        if (_cfgmgr.getConfigPath() != null &&
+                (readConfigs(true) || readArchive() || readConfigs(false))) {
             log.debug("Read configurations for group " + _name + ".");
         }
+        _preloaded = true;
+    }
 
-        // provide the configurations with a reference to the manager
-        for (ManagedConfig config : getRawConfigs()) {
+    /**
+     * Initializes this group.
+     */
+    public void init (ConfigManager cfgmgr)
+    {
+        if (!(_preloaded && _cfgmgr == cfgmgr)) {
+            preload(cfgmgr);
+        }
+        _preloaded = false;
+
+        // provide the configurations with a reference to the manager (those still in the
+        // archive will be initialized as they're read)
+        for (ManagedConfig config : _configsByName.values()) {
             initConfig(config);
         }
     }
@@ -156,7 +176,13 @@ public class ConfigGroup<T extends ManagedConfig>
      */
     public ManagedConfig getRawConfig (String name)
     {
-        return _configsByName.get(name);
+        if (_archived == null) {
+            return _configsByName.get(name);
+        }
+        synchronized (this) {
+            ManagedConfig config = _configsByName.get(name);
+            return (config == null) ? readArchived(name) : config;
+        }
     }
 
     /**
@@ -179,6 +205,7 @@ public class ConfigGroup<T extends ManagedConfig>
      */
     public Iterable<ManagedConfig> getRawConfigs ()
     {
+        readAllArchived();
         return _configsByName.values();
     }
 
@@ -225,6 +252,7 @@ public class ConfigGroup<T extends ManagedConfig>
             Class<?> clazz = (config == null) ? null : config.getClass();
             throw new IllegalArgumentException(clazz + " is not of type " + _cclass);
         }
+        readAllArchived();
         ManagedConfig oldCfg = _configsByName.put(config.getName(), config);
         initConfig(config);
         if (oldCfg != null) {
@@ -241,6 +269,7 @@ public class ConfigGroup<T extends ManagedConfig>
      */
     public void removeConfig (ManagedConfig config)
     {
+        readAllArchived();
         ManagedConfig oldCfg = _configsByName.remove(config.getName());
         if (oldCfg != null) {
             // notify listeners that the config has "changed" and then remove it
@@ -356,7 +385,7 @@ public class ConfigGroup<T extends ManagedConfig>
         // read in the array of configurations
         ManagedConfig[] array;
         try {
-            Importer in = new XMLImporter(new FileInputStream(file));
+            Importer in = new StreamingXMLImporter(new FileInputStream(file));
             array = (ManagedConfig[])in.readObject();
             in.close();
 
@@ -446,7 +475,7 @@ public class ConfigGroup<T extends ManagedConfig>
         }
         ManagedConfig[] configs;
         try {
-            Importer in = xml ? new XMLImporter(stream) : new BinaryImporter(stream);
+            Importer in = xml ? new StreamingXMLImporter(stream) : new BinaryImporter(stream);
             configs = (ManagedConfig[])in.readObject();
             in.close();
 
@@ -458,10 +487,75 @@ public class ConfigGroup<T extends ManagedConfig>
         if (xml) {
             validateOuters(configs);
         }
-        initConfigs(configs);
+        for (ManagedConfig config : configs) {
+            _configsByName.put(config.getName(), config);
+        }
         return true;
     }
 
+    /**
+     * Attempts to find the initial set of configurations in the config manager's archive.  The
+     * configurations themselves are only read when first requested.
+     *
+     * @return true if the archive contains the group, false otherwise.
+     */
+    protected boolean readArchive ()
+    {
+        ConfigArchive archive = _cfgmgr.getArchive();
+        if (archive == null) {
+            return false;
+        }
+        Map<String, ConfigArchive.Entry> entries = archive.getEntries(_name);
+        if (entries.isEmpty()) {
+            return false;
+        }
+        _archive = archive;
+        _archived = Maps.newHashMap(entries);
+        return true;
+    }
+
+    /**
+     * Reads, initializes, and stores the named configuration from the archive.
+     *
+     * @return the configuration, or <code>null</code> if it isn't in the archive (or couldn't
+     * be read).
+     */
+    protected synchronized ManagedConfig readArchived (String name)
+    {
+        if (_archived == null) {
+            return _configsByName.get(name);
+        }
+        ConfigArchive.Entry entry = _archived.remove(name);
+        if (entry == null) {
+            return null;
+        }
+        ManagedConfig config = null;
+        try {
+            config = _archive.readConfig(entry);
+            initConfig(config);
+            _configsByName.put(name, config);
+
+        } catch (IOException e) {
+            log.warning("Error reading archived configuration.",
+                "group", _name, "name", name, e);
+        }
+        if (_archived.isEmpty()) {
+            _archived = null;
+            _archive = null;
+        }
+        return config;
+    }
+
+    /**
+     * Reads all of the configurations remaining in the archive.
+     */
+    protected synchronized void readAllArchived ()
+    {
+        while (_archived != null) {
+            readArchived(_archived.keySet().iterator().next());
+        }
+    }
+
     /**
      * Returns the configuration stream, or <code>null</code> if it doesn't exist.
      */
@@ -627,6 +721,15 @@ public class ConfigGroup<T extends ManagedConfig>
     /** Configurations mapped by name. */
     protected HashMap<String, ManagedConfig> _configsByName = new HashMap<String, ManagedConfig>();
 
+    /** The archive containing the configurations not yet read, if any. */
+    protected ConfigArchive _archive;
+
+    /** The archive entries of the configurations not yet read, mapped by name. */
+    protected volatile HashMap<String, ConfigArchive.Entry> _archived;
+
+    /** Set when the configurations have been preloaded, but not yet initialized. */
+    protected boolean _preloaded;
+
     /** Configuration event listeners. */
     protected ObserverList<ConfigGroupListener> _listeners;
 }
@@ -39,9 +39,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import com.samskivert.util.ArrayUtil;
 import com.samskivert.util.ListUtil;
@@ -113,11 +119,25 @@ public class ConfigManager
         // create the resource cache
         _resources = CacheUtil.softValues();
 
+        // map the config archive, if there is one
+        File file = _rsrcmgr.getResourceFile(_configPath + ARCHIVE_NAME);
+        if (file != null && file.isFile()) {
+            try {
+                _archive = new ConfigArchive(file);
+            } catch (IOException e) {
+                log.warning("Failed to open config archive.", "file", file, e);
+            }
+        }
+
         // register the global groups
         Class<?>[] classes = _classes.get("global");
         if (classes == null) {
             return;
         }
+        if (_parallelLoading && classes.length > 1) {
+            registerGroupsInParallel(classes);
+            return;
+        }
         for (Class<?> clazz : classes) {
             @SuppressWarnings("unchecked") Class<? extends ManagedConfig> cclass =
                     (Class<? extends ManagedConfig>)clazz;
@@ -125,6 +145,16 @@ public class ConfigManager
         }
     }
 
+    /**
+     * Sets whether the global manager should read its groups in parallel when initialized.  If
+     * so, the groups are read concurrently by a pool of threads, then initialized and registered
+     * in order on the calling thread, exactly as they would be if read sequentially.
+     */
+    public void setParallelLoading (boolean parallel)
+    {
+        _parallelLoading = parallel;
+    }
+
     /**
      * Initialization method for child configuration managers.
      */
@@ -205,6 +235,15 @@ public class ConfigManager
         return _configPath;
     }
 
+    /**
+     * Returns the archive from which the global groups load their configurations, or
+     * <code>null</code> if there isn't one.
+     */
+    public ConfigArchive getArchive ()
+    {
+        return _archive;
+    }
+
     /**
      * Determines whether configurations of the specified class are loaded from individual
      * resources.
@@ -732,6 +771,50 @@ public class ConfigManager
         _groups.put(clazz, group);
     }
 
+    /**
+     * Registers new config groups for the specified classes, reading them in parallel.
+     */
+    protected void registerGroupsInParallel (Class<?>[] classes)
+    {
+        // create the groups and read them on the pool
+        List<ConfigGroup<ManagedConfig>> groups = Lists.newArrayList();
+        List<Future<?>> futures = Lists.newArrayList();
+        int threads = Math.min(classes.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Class<?> clazz : classes) {
+                @SuppressWarnings("unchecked") Class<ManagedConfig> cclass =
+                    (Class<ManagedConfig>)clazz;
+                final ConfigGroup<ManagedConfig> group = new ConfigGroup<ManagedConfig>(cclass);
+                groups.add(group);
+                futures.add(executor.submit(new Runnable() {
+                    public void run () {
+                        group.preload(ConfigManager.this);
+                    }
+                }));
+            }
+            // wait for all of them (even if interrupted, since we can't touch the groups while
+            // they're being read)
+            for (int ii = 0; ii < futures.size(); ii++) {
+                try {
+                    Uninterruptibles.getUninterruptibly(futures.get(ii));
+                } catch (ExecutionException e) {
+                    log.warning("Error reading group.", "class", classes[ii], e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // initialize and register them in order (any group that failed to preload will simply
+        // be read here)
+        for (int ii = 0; ii < classes.length; ii++) {
+            ConfigGroup<ManagedConfig> group = groups.get(ii);
+            group.init(this);
+            _groups.put(classes[ii], group);
+        }
+    }
+
     /**
      * Refreshes the specified configuration by simulating an update without firing a global
      * update event.
@@ -808,6 +891,9 @@ public class ConfigManager
     /** Resource-loaded configs mapped by path. */
     protected Map<String, ManagedConfig> _resources;
 
+    /** The mapped config archive, if any. */
+    protected ConfigArchive _archive;
+
     /** Maps manager types to their classes (as read from the manager properties). */
     protected HashMap<String, Class<?>[]> _classes;
 
@@ -816,4 +902,10 @@ public class ConfigManager
 
     /** Set when we should ignore config updates because we're refreshing. */
     protected boolean _ignoreUpdates;
+
+    /** Whether the global groups should be read in parallel. */
+    protected boolean _parallelLoading;
+
+    /** The name of the config archive within the config directory. */
+    protected static final String ARCHIVE_NAME = "configs.archive";
 }
@@ -31,13 +31,21 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import com.threerings.editor.Editable;
 import com.threerings.editor.Property;
 import com.threerings.editor.util.Validator;
 import com.threerings.expr.Scope;
-import com.threerings.util.CacheUtil;
 import com.threerings.util.DeepOmit;
 import com.threerings.util.DeepUtil;
 
@@ -96,19 +104,22 @@ public class ParameterizedConfig extends ManagedConfig
                 break;
             }
         }
-        if (_derived == null) {
-            _derived = CacheUtil.softValues(1);
-        }
-        ParameterizedConfig instance = _derived.get(filteredArgs);
-        if (instance == null) {
-            if (derivedArgs == null) {
-                derivedArgs = filteredArgs.clone();
-            }
-            _derived.put(derivedArgs, instance = (ParameterizedConfig)clone());
-            instance.init(_cfgmgr);
-            instance._base = this;
-            instance._args = derivedArgs;
-            applyArguments(instance, derivedArgs);
+        // the key is stored in the cache, so it mustn't share (or later change) the caller's map
+        final ArgumentMap key = (derivedArgs == null) ? filteredArgs.clone() : derivedArgs;
+        ParameterizedConfig instance;
+        try {
+            // only one thread creates the instance for a given key; any others wait for it
+            instance = getDerivedCache().get(key, new Callable<ParameterizedConfig>() {
+                public ParameterizedConfig call () {
+                    return createDerived(key);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to create derived instance.", e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (ExecutionError e) {
+            throw Throwables.propagate(e.getCause());
         }
         return instance.getBound(scope);
     }
@@ -125,19 +136,27 @@ public class ParameterizedConfig extends ManagedConfig
         super.wasUpdated();
 
         // update derived instances
-        if (_derived != null) {
-            for (Map.Entry<ArgumentMap, ParameterizedConfig> entry : _derived.entrySet()) {
+        Cache<ArgumentMap, ParameterizedConfig> derived = _derived;
+        if (derived != null) {
+            for (Map.Entry<ArgumentMap, ParameterizedConfig> entry :
+                    derived.asMap().entrySet()) {
                 ParameterizedConfig instance = entry.getValue();
                 copy(instance);
                 applyArguments(instance, entry.getKey());
                 instance.wasUpdated();
             }
-            if (_derived.isEmpty()) {
-                _derived = null;
-            }
         }
     }
 
+    /**
+     * Returns the hit/miss/eviction statistics of this config's cache of derived instances.
+     */
+    public CacheStats getDerivedStats ()
+    {
+        Cache<ArgumentMap, ParameterizedConfig> derived = _derived;
+        return (derived == null) ? new CacheStats(0, 0, 0, 0, 0, 0) : derived.stats();
+    }
+
     /**
      * Is the specified parameter path blacklisted for this config?
      * If this method returns false that is no guarantee that the path is valid.
@@ -190,6 +209,39 @@ public class ParameterizedConfig extends ManagedConfig
         return this;
     }
 
+    /**
+     * Returns the cache of derived instances, creating it if necessary.
+     */
+    protected Cache<ArgumentMap, ParameterizedConfig> getDerivedCache ()
+    {
+        Cache<ArgumentMap, ParameterizedConfig> derived = _derived;
+        if (derived == null) {
+            synchronized (this) {
+                if ((derived = _derived) == null) {
+                    _derived = derived = CacheBuilder.newBuilder()
+                        .maximumSize(MAX_DERIVED_INSTANCES)
+                        .softValues()
+                        .recordStats()
+                        .<ArgumentMap, ParameterizedConfig>build();
+                }
+            }
+        }
+        return derived;
+    }
+
+    /**
+     * Creates a new instance derived from this one with the supplied arguments.
+     */
+    protected ParameterizedConfig createDerived (ArgumentMap args)
+    {
+        ParameterizedConfig instance = (ParameterizedConfig)clone();
+        instance.init(_cfgmgr);
+        instance._base = this;
+        instance._args = args;
+        applyArguments(instance, args);
+        return instance;
+    }
+
     /**
      * Applies the arguments in the provided map to the specified instance.
      */
@@ -241,7 +293,11 @@ public class ParameterizedConfig extends ManagedConfig
     @DeepOmit
     protected transient ArgumentMap _args;
 
-    /** Maps arguments to derived instances. */
+    /** Maps arguments to derived instances.  Created on first use; the keys are never
+     * modified once stored. */
     @DeepOmit
-    protected transient Map<ArgumentMap, ParameterizedConfig> _derived;
+    protected transient volatile Cache<ArgumentMap, ParameterizedConfig> _derived;
+
+    /** The maximum number of derived instances cached for each config. */
+    protected static final int MAX_DERIVED_INSTANCES = 256;
 }
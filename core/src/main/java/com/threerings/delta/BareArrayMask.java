@@ -27,6 +27,8 @@ package com.threerings.delta;
 
 import java.io.IOException;
 
+import java.util.Arrays;
+
 import com.threerings.io.ArrayMask;
 import com.threerings.io.ObjectInputStream;
 import com.threerings.io.ObjectOutputStream;
@@ -44,6 +46,14 @@ public class BareArrayMask extends ArrayMask
         super(length);
     }
 
+    /**
+     * Clears all bits in the mask.
+     */
+    public void clear ()
+    {
+        Arrays.fill(_mask, (byte)0);
+    }
+
     @Override
     public void writeTo (ObjectOutputStream out)
         throws IOException
@@ -27,25 +27,31 @@ package com.threerings.delta;
 
 import java.io.IOException;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
-import com.threerings.io.ArrayMask;
 import com.threerings.io.ObjectInputStream;
 import com.threerings.io.ObjectOutputStream;
-import com.threerings.expr.MutableInteger;
+
+import com.threerings.util.DeepUtil;
 
 /**
  * A delta object that uses reflection to compare and modify the objects' fields.  Note that
  * unchanged object fields will be preserved by reference.
+ *
+ * <p>Changed primitive values are stored unboxed in per-kind slabs (<code>int</code> for the
+ * integral types and booleans, <code>long</code> for longs and doubles, <code>float</code> for
+ * floats), each holding the changed values of that kind in mask order.
  */
 public class ReflectiveDelta extends Delta
 {
@@ -55,22 +61,7 @@ public class ReflectiveDelta extends Delta
      */
     public ReflectiveDelta (Object original, Object revised)
     {
-        // compare the fields
-        ClassMapping cmap = getClassMapping(_clazz = original.getClass());
-        _mask = new BareArrayMask(cmap.getMaskLength());
-        Field[] fields = cmap.getFields();
-        FieldHandler[] handlers = cmap.getHandlers();
-        List<Object> values = Lists.newArrayList();
-        MutableInteger midx = new MutableInteger();
-        for (int ii = 0; ii < fields.length; ii++) {
-            try {
-                handlers[ii].populate(fields[ii], original, revised, _mask, midx, values);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Failed to access " + fields[ii] +
-                    " for delta computation", e);
-            }
-        }
-        _values = values.toArray();
+        populate(original, revised);
     }
 
     /**
@@ -85,7 +76,7 @@ public class ReflectiveDelta extends Delta
      */
     public boolean isEmpty ()
     {
-        return (_values.length == 0);
+        return (_count == 0);
     }
 
     /**
@@ -101,9 +92,28 @@ public class ReflectiveDelta extends Delta
         _mask.writeTo(out);
 
         // write the changed fields
-        MutableInteger midx = new MutableInteger(), vidx = new MutableInteger();
-        for (FieldHandler handler : getClassMapping(_clazz).getHandlers()) {
-            handler.write(_mask, midx, _values, vidx, out);
+        ClassMapping cmap = getClassMapping(_clazz);
+        FieldHandler[] handlers = cmap.getHandlers();
+        byte[] kinds = cmap.getKinds();
+        for (int ii = 0, vidx = 0, iidx = 0, lidx = 0, fidx = 0, nn = cmap.getMaskLength();
+                ii < nn; ii++) {
+            if (!_mask.isSet(ii)) {
+                continue;
+            }
+            switch (kinds[ii]) {
+                case INT_KIND:
+                    ((IntFieldHandler)handlers[ii]).write(_ints[iidx++], out);
+                    break;
+                case LONG_KIND:
+                    ((LongFieldHandler)handlers[ii]).write(_longs[lidx++], out);
+                    break;
+                case FLOAT_KIND:
+                    ((FloatFieldHandler)handlers[ii]).write(_floats[fidx++], out);
+                    break;
+                default:
+                    ((ObjectFieldHandler)handlers[ii]).write(_values[vidx++], out);
+                    break;
+            }
         }
     }
 
@@ -118,16 +128,33 @@ public class ReflectiveDelta extends Delta
 
         // read the bitmask
         ClassMapping cmap = getClassMapping(_clazz);
-        _mask = new BareArrayMask(cmap.getMaskLength());
+        int mlength = cmap.getMaskLength();
+        _mask = new BareArrayMask(mlength);
         _mask.readFrom(in);
 
         // read the changed fields
-        List<Object> values = Lists.newArrayList();
-        MutableInteger midx = new MutableInteger();
-        for (FieldHandler handler : cmap.getHandlers()) {
-            handler.read(_mask, midx, values, in);
+        FieldHandler[] handlers = cmap.getHandlers();
+        byte[] kinds = cmap.getKinds();
+        clearValues();
+        for (int ii = 0; ii < mlength; ii++) {
+            if (!_mask.isSet(ii)) {
+                continue;
+            }
+            switch (kinds[ii]) {
+                case INT_KIND:
+                    addInt(cmap, ((IntFieldHandler)handlers[ii]).read(in));
+                    break;
+                case LONG_KIND:
+                    addLong(cmap, ((LongFieldHandler)handlers[ii]).read(in));
+                    break;
+                case FLOAT_KIND:
+                    addFloat(cmap, ((FloatFieldHandler)handlers[ii]).read(in));
+                    break;
+                default:
+                    addObject(cmap, ((ObjectFieldHandler)handlers[ii]).read(in));
+                    break;
+            }
         }
-        _values = values.toArray();
     }
 
     @Override
@@ -140,24 +167,40 @@ public class ReflectiveDelta extends Delta
         }
 
         // create a new instance
-        Object revised;
-        try {
-            revised = _clazz.newInstance();
-        } catch (Exception e) { // InstantiationException, IllegalAccessException
-            throw new RuntimeException("Failed to instantiate " + _clazz +
-                " for delta application", e);
-        }
+        ClassMapping cmap = getClassMapping(_clazz);
+        Object revised = cmap.newInstance();
 
         // set the fields
-        ClassMapping cmap = getClassMapping(_clazz);
         Field[] fields = cmap.getFields();
         FieldHandler[] handlers = cmap.getHandlers();
-        MutableInteger midx = new MutableInteger(), vidx = new MutableInteger();
+        byte[] kinds = cmap.getKinds();
+        int mlength = cmap.getMaskLength();
+        int vidx = 0, iidx = 0, lidx = 0, fidx = 0;
         for (int ii = 0; ii < fields.length; ii++) {
+            Field field = fields[ii];
+            FieldHandler handler = handlers[ii];
             try {
-                handlers[ii].apply(fields[ii], original, revised, _mask, midx, _values, vidx);
+                if (!(ii < mlength && _mask.isSet(ii))) {
+                    handler.copy(field, original, revised);
+                    continue;
+                }
+                switch (kinds[ii]) {
+                    case INT_KIND:
+                        ((IntFieldHandler)handler).set(field, revised, _ints[iidx++]);
+                        break;
+                    case LONG_KIND:
+                        ((LongFieldHandler)handler).set(field, revised, _longs[lidx++]);
+                        break;
+                    case FLOAT_KIND:
+                        ((FloatFieldHandler)handler).set(field, revised, _floats[fidx++]);
+                        break;
+                    default:
+                        ((ObjectFieldHandler)handler).apply(
+                            field, original, revised, _values[vidx++]);
+                        break;
+                }
             } catch (IllegalAccessException e) {
-                throw new RuntimeException("Failed to access " + fields[ii] +
+                throw new RuntimeException("Failed to access " + field +
                     " for delta application", e);
             }
         }
@@ -183,13 +226,140 @@ public class ReflectiveDelta extends Delta
         ClassMapping cmap = getClassMapping(_clazz);
         Field[] fields = cmap.getFields();
         FieldHandler[] handlers = cmap.getHandlers();
-        MutableInteger midx = new MutableInteger(), vidx = new MutableInteger();
-        for (int ii = 0; ii < fields.length; ii++) {
-            handlers[ii].toString(fields[ii], _mask, midx, _values, vidx, buf);
+        byte[] kinds = cmap.getKinds();
+        for (int ii = 0, vidx = 0, iidx = 0, lidx = 0, fidx = 0, nn = cmap.getMaskLength();
+                ii < nn; ii++) {
+            if (!_mask.isSet(ii)) {
+                continue;
+            }
+            Object value;
+            switch (kinds[ii]) {
+                case INT_KIND:
+                    value = ((IntFieldHandler)handlers[ii]).toObject(_ints[iidx++]);
+                    break;
+                case LONG_KIND:
+                    value = ((LongFieldHandler)handlers[ii]).toObject(_longs[lidx++]);
+                    break;
+                case FLOAT_KIND:
+                    value = _floats[fidx++];
+                    break;
+                default:
+                    value = _values[vidx++];
+                    break;
+            }
+            buf.append(", " + fields[ii].getName() + "=" + value);
         }
         return buf.append("]").toString();
     }
 
+    /**
+     * Returns the index within the field mask of the named field declared by the specified class,
+     * or -1 if the field is not masked (because it is final, transient, etc.)  Because the fields
+     * of superclasses come first, the index is the same for all subclasses of the declaring class.
+     */
+    public static int getFieldIndex (Class<?> clazz, String name)
+    {
+        ClassMapping cmap = getClassMapping(clazz);
+        Field[] fields = cmap.getFields();
+        for (int ii = 0, nn = cmap.getMaskLength(); ii < nn; ii++) {
+            Field field = fields[ii];
+            if (field.getDeclaringClass() == clazz && field.getName().equals(name)) {
+                return ii;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * (Re)populates this delta with the changes that transform the original object into the
+     * revised object, reusing the existing value slabs where possible.
+     */
+    protected void populate (Object original, Object revised)
+    {
+        populate(original, revised, -1L, false);
+    }
+
+    /**
+     * (Re)populates this delta with the changes that transform the original object into the
+     * revised object, reusing the existing value slabs where possible.
+     *
+     * @param candidates a mask indicating which of the first 64 masked fields may have changed.
+     * Fields whose bits are clear are assumed to be unchanged and are not compared; fields past
+     * the first 64 are always compared.
+     * @param copyValues if true, deep-copy the new values of changed object fields (before
+     * computing any nested deltas from them) so that the delta shares no mutable state with the
+     * revised object.
+     */
+    protected void populate (
+        Object original, Object revised, long candidates, boolean copyValues)
+    {
+        // compare the fields
+        Class<?> clazz = original.getClass();
+        ClassMapping cmap = getClassMapping(clazz);
+        int mlength = cmap.getMaskLength();
+        if (_clazz == clazz) {
+            _mask.clear();
+        } else {
+            _clazz = clazz;
+            _mask = new BareArrayMask(mlength);
+            _ints = null;
+            _longs = null;
+            _floats = null;
+            _values = null;
+        }
+        clearValues();
+        Field[] fields = cmap.getFields();
+        FieldHandler[] handlers = cmap.getHandlers();
+        byte[] kinds = cmap.getKinds();
+        for (int ii = 0; ii < mlength; ii++) {
+            if (ii < Long.SIZE && (candidates & (1L << ii)) == 0L) {
+                continue;
+            }
+            Field field = fields[ii];
+            FieldHandler handler = handlers[ii];
+            try {
+                switch (kinds[ii]) {
+                    case INT_KIND: {
+                        IntFieldHandler ihandler = (IntFieldHandler)handler;
+                        if (ihandler.changed(field, original, revised)) {
+                            _mask.set(ii);
+                            addInt(cmap, ihandler.get(field, revised));
+                        }
+                        break;
+                    }
+                    case LONG_KIND: {
+                        LongFieldHandler lhandler = (LongFieldHandler)handler;
+                        if (lhandler.changed(field, original, revised)) {
+                            _mask.set(ii);
+                            addLong(cmap, lhandler.get(field, revised));
+                        }
+                        break;
+                    }
+                    case FLOAT_KIND: {
+                        FloatFieldHandler fhandler = (FloatFieldHandler)handler;
+                        if (fhandler.changed(field, original, revised)) {
+                            _mask.set(ii);
+                            addFloat(cmap, fhandler.get(field, revised));
+                        }
+                        break;
+                    }
+                    default: {
+                        Object value = ((ObjectFieldHandler)handler).populate(
+                            field, original, revised, copyValues);
+                        if (value != UNCHANGED) {
+                            _mask.set(ii);
+                            addObject(cmap, value);
+                        }
+                        break;
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Failed to access " + field +
+                    " for delta computation", e);
+            }
+        }
+    }
+
     /**
      * Populates the merged delta.
      */
@@ -200,36 +370,118 @@ public class ReflectiveDelta extends Delta
                 other._clazz + ", expected " + _clazz);
         }
         merged._clazz = _clazz;
-        int mlength = getClassMapping(_clazz).getMaskLength();
+        ClassMapping cmap = getClassMapping(_clazz);
+        int mlength = cmap.getMaskLength();
+        byte[] kinds = cmap.getKinds();
         merged._mask = new BareArrayMask(mlength);
-        List<Object> values = Lists.newArrayList();
-        for (int ii = 0, oidx = 0, nidx = 0; ii < mlength; ii++) {
-            Object value;
-            if (_mask.isSet(ii)) {
-                Object ovalue = _values[oidx++];
-                if (other._mask.isSet(ii)) {
-                    Object nvalue = other._values[nidx++];
-                    if (nvalue instanceof Delta) {
-                        Delta ndelta = (Delta)nvalue;
-                        value = (ovalue instanceof Delta) ?
-                            ((Delta)ovalue).merge(ndelta) : ndelta.apply(ovalue);
+        merged.clearValues();
+        int ovidx = 0, oiidx = 0, olidx = 0, ofidx = 0;
+        int nvidx = 0, niidx = 0, nlidx = 0, nfidx = 0;
+        for (int ii = 0; ii < mlength; ii++) {
+            boolean oset = _mask.isSet(ii), nset = other._mask.isSet(ii);
+            if (!(oset || nset)) {
+                continue;
+            }
+            merged._mask.set(ii);
+            switch (kinds[ii]) {
+                case INT_KIND: {
+                    int ovalue = oset ? _ints[oiidx++] : 0;
+                    merged.addInt(cmap, nset ? other._ints[niidx++] : ovalue);
+                    break;
+                }
+                case LONG_KIND: {
+                    long ovalue = oset ? _longs[olidx++] : 0L;
+                    merged.addLong(cmap, nset ? other._longs[nlidx++] : ovalue);
+                    break;
+                }
+                case FLOAT_KIND: {
+                    float ovalue = oset ? _floats[ofidx++] : 0f;
+                    merged.addFloat(cmap, nset ? other._floats[nfidx++] : ovalue);
+                    break;
+                }
+                default: {
+                    Object value;
+                    if (oset) {
+                        Object ovalue = _values[ovidx++];
+                        if (nset) {
+                            Object nvalue = other._values[nvidx++];
+                            if (nvalue instanceof Delta) {
+                                Delta ndelta = (Delta)nvalue;
+                                value = (ovalue instanceof Delta) ?
+                                    ((Delta)ovalue).merge(ndelta) : ndelta.apply(ovalue);
+                            } else {
+                                value = nvalue;
+                            }
+                        } else {
+                            value = ovalue;
+                        }
                     } else {
-                        value = nvalue;
+                        value = other._values[nvidx++];
                     }
-                } else {
-                    value = ovalue;
-                }
-            } else {
-                if (other._mask.isSet(ii)) {
-                    value = other._values[nidx++];
-                } else {
-                    continue;
+                    merged.addObject(cmap, value);
+                    break;
                 }
             }
-            merged._mask.set(ii);
-            values.add(value);
         }
-        merged._values = values.toArray();
+    }
+
+    /**
+     * Resets the value counts (but retains the slabs for reuse).
+     */
+    protected void clearValues ()
+    {
+        if (_values != null) {
+            Arrays.fill(_values, 0, _vcount, null);
+        }
+        _count = _vcount = _icount = _lcount = _fcount = 0;
+    }
+
+    /**
+     * Appends a value to the int slab.
+     */
+    protected void addInt (ClassMapping cmap, int value)
+    {
+        if (_ints == null) {
+            _ints = new int[cmap.getKindCount(INT_KIND)];
+        }
+        _ints[_icount++] = value;
+        _count++;
+    }
+
+    /**
+     * Appends a value to the long slab.
+     */
+    protected void addLong (ClassMapping cmap, long value)
+    {
+        if (_longs == null) {
+            _longs = new long[cmap.getKindCount(LONG_KIND)];
+        }
+        _longs[_lcount++] = value;
+        _count++;
+    }
+
+    /**
+     * Appends a value to the float slab.
+     */
+    protected void addFloat (ClassMapping cmap, float value)
+    {
+        if (_floats == null) {
+            _floats = new float[cmap.getKindCount(FLOAT_KIND)];
+        }
+        _floats[_fcount++] = value;
+        _count++;
+    }
+
+    /**
+     * Appends a value to the object slab.
+     */
+    protected void addObject (ClassMapping cmap, Object value)
+    {
+        if (_values == null) {
+            _values = new Object[cmap.getKindCount(OBJECT_KIND)];
+        }
+        _values[_vcount++] = value;
+        _count++;
     }
 
     /**
@@ -239,7 +491,10 @@ public class ReflectiveDelta extends Delta
     {
         ClassMapping cmap = _classes.get(clazz);
         if (cmap == null) {
-            _classes.put(clazz, cmap = new ClassMapping(clazz));
+            ClassMapping omap = _classes.putIfAbsent(clazz, cmap = new ClassMapping(clazz));
+            if (omap != null) {
+                cmap = omap;
+            }
         }
         return cmap;
     }
@@ -267,7 +522,41 @@ public class ReflectiveDelta extends Delta
     }
 
     /**
-     * Contains cached information about a class.
+     * Compares two field values in the same manner as {@link Arrays#deepEquals}.
+     */
+    protected static boolean deepEquals (Object v1, Object v2)
+    {
+        if (v1 == v2) {
+            return true;
+        } else if (v1 == null || v2 == null) {
+            return false;
+        } else if (v1 instanceof Object[] && v2 instanceof Object[]) {
+            return Arrays.deepEquals((Object[])v1, (Object[])v2);
+        } else if (v1 instanceof byte[] && v2 instanceof byte[]) {
+            return Arrays.equals((byte[])v1, (byte[])v2);
+        } else if (v1 instanceof short[] && v2 instanceof short[]) {
+            return Arrays.equals((short[])v1, (short[])v2);
+        } else if (v1 instanceof int[] && v2 instanceof int[]) {
+            return Arrays.equals((int[])v1, (int[])v2);
+        } else if (v1 instanceof long[] && v2 instanceof long[]) {
+            return Arrays.equals((long[])v1, (long[])v2);
+        } else if (v1 instanceof char[] && v2 instanceof char[]) {
+            return Arrays.equals((char[])v1, (char[])v2);
+        } else if (v1 instanceof float[] && v2 instanceof float[]) {
+            return Arrays.equals((float[])v1, (float[])v2);
+        } else if (v1 instanceof double[] && v2 instanceof double[]) {
+            return Arrays.equals((double[])v1, (double[])v2);
+        } else if (v1 instanceof boolean[] && v2 instanceof boolean[]) {
+            return Arrays.equals((boolean[])v1, (boolean[])v2);
+        } else {
+            return v1.equals(v2);
+        }
+    }
+
+    /**
+     * Contains cached information about a class.  The fields are ordered so that the
+     * non-final fields come first, in mask order, followed by the final fields (which are
+     * simply copied on application).
      */
     protected static class ClassMapping
     {
@@ -276,25 +565,47 @@ public class ReflectiveDelta extends Delta
          */
         public ClassMapping (Class<?> clazz)
         {
+            _clazz = clazz;
             List<Field> fields = Lists.newArrayList();
             collectFields(clazz, fields);
-            _fields = fields.toArray(new Field[fields.size()]);
-            _handlers = new FieldHandler[_fields.length];
 
-            // get the handlers and count the non-final fields
-            for (int ii = 0; ii < _fields.length; ii++) {
-                Field field = _fields[ii];
+            // partition the fields into non-final and final and get the handlers
+            List<Field> finalFields = Lists.newArrayList();
+            List<FieldHandler> handlers = Lists.newArrayList(), finalHandlers = Lists.newArrayList();
+            for (int ii = 0, nn = fields.size(); ii < nn; ii++) {
+                Field field = fields.get(ii);
                 Class<?> type = field.getType();
+                FieldHandler handler = type.isPrimitive() ?
+                    PRIMITIVE_FIELD_HANDLERS.get(type) : OBJECT_FIELD_HANDLER;
                 if (Modifier.isFinal(field.getModifiers()) ||
                         field.isAnnotationPresent(DeltaFinal.class)) {
-                    _handlers[ii] = type.isPrimitive() ?
-                        FINAL_PRIMITIVE_FIELD_HANDLERS.get(type) : FINAL_OBJECT_FIELD_HANDLER;
+                    finalFields.add(field);
+                    finalHandlers.add(handler);
+                    fields.remove(ii--);
+                    nn--;
                 } else {
-                    _maskLength++;
-                    _handlers[ii] = type.isPrimitive() ?
-                        PRIMITIVE_FIELD_HANDLERS.get(type) : OBJECT_FIELD_HANDLER;
+                    handlers.add(handler);
                 }
             }
+            _maskLength = fields.size();
+            fields.addAll(finalFields);
+            handlers.addAll(finalHandlers);
+            _fields = fields.toArray(new Field[fields.size()]);
+            _handlers = handlers.toArray(new FieldHandler[handlers.size()]);
+
+            // note the kinds of the masked fields and count them
+            _kinds = new byte[_maskLength];
+            for (int ii = 0; ii < _maskLength; ii++) {
+                _kindCounts[_kinds[ii] = _handlers[ii].getKind()]++;
+            }
+
+            // look up the no-arg constructor once rather than on every application
+            try {
+                _constructor = clazz.getDeclaredConstructor();
+                _constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                _constructor = null; // we'll fail on application
+            }
         }
 
         /**
@@ -313,6 +624,22 @@ public class ReflectiveDelta extends Delta
             return _handlers;
         }
 
+        /**
+         * Returns a reference to the array of value kinds for the masked fields.
+         */
+        public byte[] getKinds ()
+        {
+            return _kinds;
+        }
+
+        /**
+         * Returns the number of masked fields of the specified kind.
+         */
+        public int getKindCount (int kind)
+        {
+            return _kindCounts[kind];
+        }
+
         /**
          * Returns the number of elements in the field mask (the number of non-transient, non-final
          * fields).
@@ -322,14 +649,39 @@ public class ReflectiveDelta extends Delta
             return _maskLength;
         }
 
-        /** The array of non-transient fields. */
+        /**
+         * Creates a new instance of the class.
+         */
+        public Object newInstance ()
+        {
+            try {
+                return _constructor.newInstance();
+            } catch (Exception e) { // InstantiationException, IllegalAccessException, etc.
+                throw new RuntimeException("Failed to instantiate " + _clazz +
+                    " for delta application", e);
+            }
+        }
+
+        /** The mapped class. */
+        protected Class<?> _clazz;
+
+        /** The array of non-transient fields: first the non-final, then the final. */
         protected Field[] _fields;
 
         /** Handlers for each field. */
         protected FieldHandler[] _handlers;
 
+        /** The value kinds of the masked fields. */
+        protected byte[] _kinds;
+
+        /** The number of masked fields of each kind. */
+        protected int[] _kindCounts = new int[KIND_COUNT];
+
         /** The number of elements in the field mask. */
         protected int _maskLength;
+
+        /** The no-arg constructor used to create new instances. */
+        protected Constructor<?> _constructor;
     }
 
     /**
@@ -338,97 +690,371 @@ public class ReflectiveDelta extends Delta
     protected static abstract class FieldHandler
     {
         /**
-         * Compares the field in the original and revised objects and, if they differ, populates
-         * the supplied mask and values list with the delta values.
-         *
-         * @param midx an in/out parameter representing the index in the mask.
+         * Returns the kind of slab in which the field's delta values are stored.
          */
-        public abstract void populate (
-            Field field, Object original, Object revised,
-            ArrayMask mask, MutableInteger midx, List<Object> values)
-                throws IllegalAccessException;
+        public abstract byte getKind ();
 
         /**
-         * Writes the delta value for the field (if any) to the stream.
-         *
-         * @param midx an in/out parameter representing the index in the mask.
-         * @param vidx an in/out parameter representing the index in the value array.
+         * Copies the (unchanged) value of the field from the original object to the revised.
          */
-        public abstract void write (
-            ArrayMask mask, MutableInteger midx, Object[] values,
-            MutableInteger vidx, ObjectOutputStream out)
-                throws IOException;
+        public abstract void copy (Field field, Object original, Object revised)
+            throws IllegalAccessException;
+    }
 
+    /**
+     * Handles the boolean, byte, char, short and int fields, whose values are stored in the int
+     * slab.
+     */
+    protected static class IntFieldHandler extends FieldHandler
+    {
         /**
-         * Reads the delta value for the field (if any) from the stream.
-         *
-         * @param midx an in/out parameter representing the index in the mask.
+         * Creates a handler for fields of the specified primitive type.
+         */
+        public IntFieldHandler (Class<?> type)
+        {
+            _type = type;
+        }
+
+        /**
+         * Checks whether the field differs between the original and revised objects.
          */
-        public abstract void read (
-            ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                throws IOException, ClassNotFoundException;
+        public boolean changed (Field field, Object original, Object revised)
+            throws IllegalAccessException
+        {
+            return get(field, original) != get(field, revised);
+        }
 
         /**
-         * Applies the delta value (if any) to the provided objects.
-         *
-         * @param midx an in/out parameter representing the index in the mask.
-         * @param vidx an in/out parameter representing the index in the value array.
+         * Returns the value of the field as an int.
          */
-        public abstract void apply (
-            Field field, Object original, Object revised, ArrayMask mask,
-            MutableInteger midx, Object[] values, MutableInteger vidx)
-                throws IllegalAccessException;
+        public int get (Field field, Object object)
+            throws IllegalAccessException
+        {
+            // getInt widens bytes, chars and shorts
+            return (_type == Boolean.TYPE) ?
+                (field.getBoolean(object) ? 1 : 0) : field.getInt(object);
+        }
 
         /**
-         * Writes the delta value (if any) to the specified string.
-         *
-         * @param midx an in/out parameter representing the index in the mask.
-         * @param vidx an in/out parameter representing the index in the value array.
+         * Sets the value of the field from an int.
+         */
+        public void set (Field field, Object object, int value)
+            throws IllegalAccessException
+        {
+            if (_type == Integer.TYPE) {
+                field.setInt(object, value);
+            } else if (_type == Boolean.TYPE) {
+                field.setBoolean(object, value != 0);
+            } else if (_type == Byte.TYPE) {
+                field.setByte(object, (byte)value);
+            } else if (_type == Character.TYPE) {
+                field.setChar(object, (char)value);
+            } else {
+                field.setShort(object, (short)value);
+            }
+        }
+
+        /**
+         * Writes a value to the stream in the field's native format.
+         */
+        public void write (int value, ObjectOutputStream out)
+            throws IOException
+        {
+            if (_type == Integer.TYPE) {
+                out.writeInt(value);
+            } else if (_type == Boolean.TYPE) {
+                out.writeBoolean(value != 0);
+            } else if (_type == Byte.TYPE) {
+                out.writeByte(value);
+            } else if (_type == Character.TYPE) {
+                out.writeChar(value);
+            } else {
+                out.writeShort(value);
+            }
+        }
+
+        /**
+         * Reads a value in the field's native format from the stream.
+         */
+        public int read (ObjectInputStream in)
+            throws IOException
+        {
+            if (_type == Integer.TYPE) {
+                return in.readInt();
+            } else if (_type == Boolean.TYPE) {
+                return in.readBoolean() ? 1 : 0;
+            } else if (_type == Byte.TYPE) {
+                return in.readByte();
+            } else if (_type == Character.TYPE) {
+                return in.readChar();
+            } else {
+                return in.readShort();
+            }
+        }
+
+        /**
+         * Converts a value to an object of the field's type (for debugging).
+         */
+        public Object toObject (int value)
+        {
+            if (_type == Integer.TYPE) {
+                return value;
+            } else if (_type == Boolean.TYPE) {
+                return value != 0;
+            } else if (_type == Byte.TYPE) {
+                return (byte)value;
+            } else if (_type == Character.TYPE) {
+                return (char)value;
+            } else {
+                return (short)value;
+            }
+        }
+
+        @Override
+        public byte getKind ()
+        {
+            return INT_KIND;
+        }
+
+        @Override
+        public void copy (Field field, Object original, Object revised)
+            throws IllegalAccessException
+        {
+            set(field, revised, get(field, original));
+        }
+
+        /** The primitive type of the fields handled. */
+        protected Class<?> _type;
+    }
+
+    /**
+     * Handles the long and double fields, whose values (the raw bits, for doubles) are stored in
+     * the long slab.
+     */
+    protected static class LongFieldHandler extends FieldHandler
+    {
+        /**
+         * Creates a handler for fields of the specified primitive type.
          */
-        public void toString (
-            Field field, ArrayMask mask, MutableInteger midx,
-            Object[] values, MutableInteger vidx, StringBuilder buf)
+        public LongFieldHandler (Class<?> type)
         {
-            if (mask.isSet(midx.value++)) {
-                buf.append(", " + field.getName() + "=" + values[vidx.value++]);
+            _double = (type == Double.TYPE);
+        }
+
+        /**
+         * Checks whether the field differs between the original and revised objects.
+         */
+        public boolean changed (Field field, Object original, Object revised)
+            throws IllegalAccessException
+        {
+            return _double ?
+                (field.getDouble(original) != field.getDouble(revised)) :
+                (field.getLong(original) != field.getLong(revised));
+        }
+
+        /**
+         * Returns the value of the field as a long.
+         */
+        public long get (Field field, Object object)
+            throws IllegalAccessException
+        {
+            return _double ?
+                Double.doubleToRawLongBits(field.getDouble(object)) : field.getLong(object);
+        }
+
+        /**
+         * Sets the value of the field from a long.
+         */
+        public void set (Field field, Object object, long value)
+            throws IllegalAccessException
+        {
+            if (_double) {
+                field.setDouble(object, Double.longBitsToDouble(value));
+            } else {
+                field.setLong(object, value);
+            }
+        }
+
+        /**
+         * Writes a value to the stream in the field's native format.
+         */
+        public void write (long value, ObjectOutputStream out)
+            throws IOException
+        {
+            if (_double) {
+                out.writeDouble(Double.longBitsToDouble(value));
+            } else {
+                out.writeLong(value);
             }
         }
+
+        /**
+         * Reads a value in the field's native format from the stream.
+         */
+        public long read (ObjectInputStream in)
+            throws IOException
+        {
+            return _double ? Double.doubleToRawLongBits(in.readDouble()) : in.readLong();
+        }
+
+        /**
+         * Converts a value to an object of the field's type (for debugging).
+         */
+        public Object toObject (long value)
+        {
+            return _double ? (Object)Double.longBitsToDouble(value) : (Object)value;
+        }
+
+        @Override
+        public byte getKind ()
+        {
+            return LONG_KIND;
+        }
+
+        @Override
+        public void copy (Field field, Object original, Object revised)
+            throws IllegalAccessException
+        {
+            set(field, revised, get(field, original));
+        }
+
+        /** Whether the fields handled are doubles rather than longs. */
+        protected boolean _double;
     }
 
     /**
-     * Base class for final field handlers.
+     * Handles float fields, whose values are stored in the float slab.
      */
-    protected static abstract class FinalFieldHandler extends FieldHandler
+    protected static class FloatFieldHandler extends FieldHandler
     {
+        /**
+         * Checks whether the field differs between the original and revised objects.
+         */
+        public boolean changed (Field field, Object original, Object revised)
+            throws IllegalAccessException
+        {
+            return field.getFloat(original) != field.getFloat(revised);
+        }
+
+        /**
+         * Returns the value of the field.
+         */
+        public float get (Field field, Object object)
+            throws IllegalAccessException
+        {
+            return field.getFloat(object);
+        }
+
+        /**
+         * Sets the value of the field.
+         */
+        public void set (Field field, Object object, float value)
+            throws IllegalAccessException
+        {
+            field.setFloat(object, value);
+        }
+
+        /**
+         * Writes a value to the stream.
+         */
+        public void write (float value, ObjectOutputStream out)
+            throws IOException
+        {
+            out.writeFloat(value);
+        }
+
+        /**
+         * Reads a value from the stream.
+         */
+        public float read (ObjectInputStream in)
+            throws IOException
+        {
+            return in.readFloat();
+        }
+
         @Override
-        public void populate (
-            Field field, Object original, Object revised,
-            ArrayMask mask, MutableInteger midx, List<Object> values)
+        public byte getKind ()
         {
-            // no-op
+            return FLOAT_KIND;
         }
 
         @Override
-        public void write (
-            ArrayMask mask, MutableInteger midx, Object[] values,
-            MutableInteger vidx, ObjectOutputStream out)
+        public void copy (Field field, Object original, Object revised)
+            throws IllegalAccessException
         {
-            // no-op
+            set(field, revised, get(field, original));
+        }
+    }
+
+    /**
+     * Handles object fields.
+     */
+    protected static class ObjectFieldHandler extends FieldHandler
+    {
+        /**
+         * Compares the field in the original and revised objects.
+         *
+         * @param copy if true, deep-copy the new value so that the delta value (or the nested
+         * delta's values) will not reference the revised object's state.
+         * @return the delta value for the field (either the new value or a {@link Delta}), or
+         * {@link #UNCHANGED} if the field is the same in both objects.
+         */
+        public Object populate (Field field, Object original, Object revised, boolean copy)
+            throws IllegalAccessException
+        {
+            Object ovalue = field.get(original);
+            Object nvalue = field.get(revised);
+            if (deepEquals(ovalue, nvalue)) {
+                return UNCHANGED;
+            }
+            if (copy) {
+                nvalue = DeepUtil.copy(nvalue);
+            }
+            return Delta.checkDeltable(ovalue, nvalue) ?
+                Delta.createDelta(ovalue, nvalue) : nvalue;
+        }
+
+        /**
+         * Writes a delta value to the stream.
+         */
+        public void write (Object value, ObjectOutputStream out)
+            throws IOException
+        {
+            out.writeObject(value);
+        }
+
+        /**
+         * Reads a delta value from the stream.
+         */
+        public Object read (ObjectInputStream in)
+            throws IOException, ClassNotFoundException
+        {
+            return in.readObject();
+        }
+
+        /**
+         * Applies a delta value to the field of the revised object.
+         */
+        public void apply (Field field, Object original, Object revised, Object value)
+            throws IllegalAccessException
+        {
+            if (value instanceof Delta) {
+                value = ((Delta)value).apply(field.get(original));
+            }
+            field.set(revised, value);
         }
 
         @Override
-        public void read (
-            ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
+        public byte getKind ()
         {
-            // no-op
+            return OBJECT_KIND;
         }
 
         @Override
-        public void toString (
-            Field field, ArrayMask mask, MutableInteger midx,
-            Object[] values, MutableInteger vidx, StringBuilder buf)
+        public void copy (Field field, Object original, Object revised)
+            throws IllegalAccessException
         {
-            // no-op
+            field.set(revised, field.get(original));
         }
     }
 
@@ -438,464 +1064,50 @@ public class ReflectiveDelta extends Delta
     /** The mask indicating which fields have changed. */
     protected BareArrayMask _mask;
 
-    /** The values for each of the object's changed fields (either a new value or a {@link Delta}
-     * object). */
+    /** The new values of the changed object fields (either a new value or a {@link Delta}
+     * object), in mask order. */
     protected Object[] _values;
 
+    /** The new values of the changed boolean, byte, char, short and int fields, in mask order. */
+    protected int[] _ints;
+
+    /** The new values of the changed long and double (as raw bits) fields, in mask order. */
+    protected long[] _longs;
+
+    /** The new values of the changed float fields, in mask order. */
+    protected float[] _floats;
+
+    /** The number of values in each slab. */
+    protected int _vcount, _icount, _lcount, _fcount;
+
+    /** The total number of changed fields. */
+    protected int _count;
+
     /** Cached mappings for deltable classes. */
-    protected static Map<Class<?>, ClassMapping> _classes = Maps.newHashMap();
+    protected static ConcurrentMap<Class<?>, ClassMapping> _classes = Maps.newConcurrentMap();
+
+    /** Returned by {@link ObjectFieldHandler#populate} to indicate that a field has not changed. */
+    protected static final Object UNCHANGED = new Object();
+
+    /** Value kinds, each of which is stored in its own slab. */
+    protected static final byte OBJECT_KIND = 0, INT_KIND = 1, LONG_KIND = 2, FLOAT_KIND = 3;
+
+    /** The number of value kinds. */
+    protected static final int KIND_COUNT = 4;
 
     /** Field handlers for primitive fields mapped by class. */
     protected static final Map<Class<?>, FieldHandler> PRIMITIVE_FIELD_HANDLERS =
         ImmutableMap.<Class<?>, FieldHandler>builder()
-            .put(Boolean.TYPE, new FieldHandler() {
-                @Override public void populate (
-                    Field field, Object original, Object revised,
-                    ArrayMask mask, MutableInteger midx, List<Object> values)
-                        throws IllegalAccessException {
-                    int idx = midx.value++;
-                    boolean nvalue = field.getBoolean(revised);
-                    if (field.getBoolean(original) != nvalue) {
-                        mask.set(idx);
-                        values.add(nvalue);
-                    }
-                }
-                @Override public void write (
-                   ArrayMask mask, MutableInteger midx, Object[] values,
-                   MutableInteger vidx, ObjectOutputStream out)
-                       throws IOException {
-                   if (mask.isSet(midx.value++)) {
-                       out.writeBoolean((Boolean)values[vidx.value++]);
-                   }
-                }
-                @Override public void read (
-                    ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                        throws IOException, ClassNotFoundException {
-                    if (mask.isSet(midx.value++)) {
-                        values.add(in.readBoolean());
-                    }
-                }
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    boolean value;
-                    if (mask.isSet(midx.value++)) {
-                        value = (Boolean)values[vidx.value++];
-                    } else {
-                        value = field.getBoolean(original);
-                    }
-                    field.setBoolean(revised, value);
-                }
-            })
-            .put(Byte.TYPE, new FieldHandler() {
-                @Override public void populate (
-                    Field field, Object original, Object revised,
-                    ArrayMask mask, MutableInteger midx, List<Object> values)
-                        throws IllegalAccessException {
-                    int idx = midx.value++;
-                    byte nvalue = field.getByte(revised);
-                    if (field.getByte(original) != nvalue) {
-                        mask.set(idx);
-                        values.add(nvalue);
-                    }
-                }
-                @Override public void write (
-                   ArrayMask mask, MutableInteger midx, Object[] values,
-                   MutableInteger vidx, ObjectOutputStream out)
-                       throws IOException {
-                   if (mask.isSet(midx.value++)) {
-                       out.writeByte((Byte)values[vidx.value++]);
-                   }
-                }
-                @Override public void read (
-                    ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                        throws IOException, ClassNotFoundException {
-                    if (mask.isSet(midx.value++)) {
-                        values.add(in.readByte());
-                    }
-                }
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    byte value;
-                    if (mask.isSet(midx.value++)) {
-                        value = (Byte)values[vidx.value++];
-                    } else {
-                        value = field.getByte(original);
-                    }
-                    field.setByte(revised, value);
-                }
-            })
-            .put(Character.TYPE, new FieldHandler() {
-                @Override public void populate (
-                    Field field, Object original, Object revised,
-                    ArrayMask mask, MutableInteger midx, List<Object> values)
-                        throws IllegalAccessException {
-                    int idx = midx.value++;
-                    char nvalue = field.getChar(revised);
-                    if (field.getChar(original) != nvalue) {
-                        mask.set(idx);
-                        values.add(nvalue);
-                    }
-                }
-                @Override public void write (
-                   ArrayMask mask, MutableInteger midx, Object[] values,
-                   MutableInteger vidx, ObjectOutputStream out)
-                       throws IOException {
-                   if (mask.isSet(midx.value++)) {
-                       out.writeChar((Character)values[vidx.value++]);
-                   }
-                }
-                @Override public void read (
-                    ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                        throws IOException, ClassNotFoundException {
-                    if (mask.isSet(midx.value++)) {
-                        values.add(in.readChar());
-                    }
-                }
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    char value;
-                    if (mask.isSet(midx.value++)) {
-                        value = (Character)values[vidx.value++];
-                    } else {
-                        value = field.getChar(original);
-                    }
-                    field.setChar(revised, value);
-                }
-            })
-            .put(Double.TYPE, new FieldHandler() {
-                @Override public void populate (
-                    Field field, Object original, Object revised,
-                    ArrayMask mask, MutableInteger midx, List<Object> values)
-                        throws IllegalAccessException {
-                    int idx = midx.value++;
-                    double nvalue = field.getDouble(revised);
-                    if (field.getDouble(original) != nvalue) {
-                        mask.set(idx);
-                        values.add(nvalue);
-                    }
-                }
-                @Override public void write (
-                   ArrayMask mask, MutableInteger midx, Object[] values,
-                   MutableInteger vidx, ObjectOutputStream out)
-                       throws IOException {
-                   if (mask.isSet(midx.value++)) {
-                       out.writeDouble((Double)values[vidx.value++]);
-                   }
-                }
-                @Override public void read (
-                    ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                        throws IOException, ClassNotFoundException {
-                    if (mask.isSet(midx.value++)) {
-                        values.add(in.readDouble());
-                    }
-                }
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    double value;
-                    if (mask.isSet(midx.value++)) {
-                        value = (Double)values[vidx.value++];
-                    } else {
-                        value = field.getDouble(original);
-                    }
-                    field.setDouble(revised, value);
-                }
-            })
-            .put(Float.TYPE, new FieldHandler() {
-                @Override public void populate (
-                    Field field, Object original, Object revised,
-                    ArrayMask mask, MutableInteger midx, List<Object> values)
-                        throws IllegalAccessException {
-                    int idx = midx.value++;
-                    float nvalue = field.getFloat(revised);
-                    if (field.getFloat(original) != nvalue) {
-                        mask.set(idx);
-                        values.add(nvalue);
-                    }
-                }
-                @Override public void write (
-                   ArrayMask mask, MutableInteger midx, Object[] values,
-                   MutableInteger vidx, ObjectOutputStream out)
-                       throws IOException {
-                   if (mask.isSet(midx.value++)) {
-                       out.writeFloat((Float)values[vidx.value++]);
-                   }
-                }
-                @Override public void read (
-                    ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                        throws IOException, ClassNotFoundException {
-                    if (mask.isSet(midx.value++)) {
-                        values.add(in.readFloat());
-                    }
-                }
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    float value;
-                    if (mask.isSet(midx.value++)) {
-                        value = (Float)values[vidx.value++];
-                    } else {
-                        value = field.getFloat(original);
-                    }
-                    field.setFloat(revised, value);
-                }
-            })
-            .put(Integer.TYPE, new FieldHandler() {
-                @Override public void populate (
-                    Field field, Object original, Object revised,
-                    ArrayMask mask, MutableInteger midx, List<Object> values)
-                        throws IllegalAccessException {
-                    int idx = midx.value++;
-                    int nvalue = field.getInt(revised);
-                    if (field.getInt(original) != nvalue) {
-                        mask.set(idx);
-                        values.add(nvalue);
-                    }
-                }
-                @Override public void write (
-                   ArrayMask mask, MutableInteger midx, Object[] values,
-                   MutableInteger vidx, ObjectOutputStream out)
-                       throws IOException {
-                   if (mask.isSet(midx.value++)) {
-                       out.writeInt((Integer)values[vidx.value++]);
-                   }
-                }
-                @Override public void read (
-                    ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                        throws IOException, ClassNotFoundException {
-                    if (mask.isSet(midx.value++)) {
-                        values.add(in.readInt());
-                    }
-                }
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    int value;
-                    if (mask.isSet(midx.value++)) {
-                        value = (Integer)values[vidx.value++];
-                    } else {
-                        value = field.getInt(original);
-                    }
-                    field.setInt(revised, value);
-                }
-            })
-            .put(Long.TYPE, new FieldHandler() {
-                @Override public void populate (
-                    Field field, Object original, Object revised,
-                    ArrayMask mask, MutableInteger midx, List<Object> values)
-                        throws IllegalAccessException {
-                    int idx = midx.value++;
-                    long nvalue = field.getLong(revised);
-                    if (field.getLong(original) != nvalue) {
-                        mask.set(idx);
-                        values.add(nvalue);
-                    }
-                }
-                @Override public void write (
-                   ArrayMask mask, MutableInteger midx, Object[] values,
-                   MutableInteger vidx, ObjectOutputStream out)
-                       throws IOException {
-                   if (mask.isSet(midx.value++)) {
-                       out.writeLong((Long)values[vidx.value++]);
-                   }
-                }
-                @Override public void read (
-                    ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                        throws IOException, ClassNotFoundException {
-                    if (mask.isSet(midx.value++)) {
-                        values.add(in.readLong());
-                    }
-                }
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    long value;
-                    if (mask.isSet(midx.value++)) {
-                        value = (Long)values[vidx.value++];
-                    } else {
-                        value = field.getLong(original);
-                    }
-                    field.setLong(revised, value);
-                }
-            })
-            .put(Short.TYPE, new FieldHandler() {
-                @Override public void populate (
-                    Field field, Object original, Object revised,
-                    ArrayMask mask, MutableInteger midx, List<Object> values)
-                        throws IllegalAccessException {
-                    int idx = midx.value++;
-                    short nvalue = field.getShort(revised);
-                    if (field.getShort(original) != nvalue) {
-                        mask.set(idx);
-                        values.add(nvalue);
-                    }
-                }
-                @Override public void write (
-                   ArrayMask mask, MutableInteger midx, Object[] values,
-                   MutableInteger vidx, ObjectOutputStream out)
-                       throws IOException {
-                   if (mask.isSet(midx.value++)) {
-                       out.writeShort((Short)values[vidx.value++]);
-                   }
-                }
-                @Override public void read (
-                    ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                        throws IOException, ClassNotFoundException {
-                    if (mask.isSet(midx.value++)) {
-                        values.add(in.readShort());
-                    }
-                }
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    short value;
-                    if (mask.isSet(midx.value++)) {
-                        value = (Short)values[vidx.value++];
-                    } else {
-                        value = field.getShort(original);
-                    }
-                    field.setShort(revised, value);
-                }
-            })
-            .build();
-
-    /** Field handlers for final primitive fields mapped by class. */
-    protected static final Map<Class<?>, FieldHandler> FINAL_PRIMITIVE_FIELD_HANDLERS =
-        ImmutableMap.<Class<?>, FieldHandler>builder()
-            .put(Boolean.TYPE, new FinalFieldHandler() {
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    field.setBoolean(revised, field.getBoolean(original));
-                }
-            })
-            .put(Byte.TYPE, new FinalFieldHandler() {
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    field.setByte(revised, field.getByte(original));
-                }
-            })
-            .put(Character.TYPE, new FinalFieldHandler() {
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    field.setChar(revised, field.getChar(original));
-                }
-            })
-            .put(Double.TYPE, new FinalFieldHandler() {
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    field.setDouble(revised, field.getDouble(original));
-                }
-            })
-            .put(Float.TYPE, new FinalFieldHandler() {
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    field.setFloat(revised, field.getFloat(original));
-                }
-            })
-            .put(Integer.TYPE, new FinalFieldHandler() {
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    field.setInt(revised, field.getInt(original));
-                }
-            })
-            .put(Long.TYPE, new FinalFieldHandler() {
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    field.setLong(revised, field.getLong(original));
-                }
-            })
-            .put(Short.TYPE, new FinalFieldHandler() {
-                @Override public void apply (
-                    Field field, Object original, Object revised, ArrayMask mask,
-                    MutableInteger midx, Object[] values, MutableInteger vidx)
-                        throws IllegalAccessException {
-                    field.setShort(revised, field.getShort(original));
-                }
-            })
+            .put(Boolean.TYPE, new IntFieldHandler(Boolean.TYPE))
+            .put(Byte.TYPE, new IntFieldHandler(Byte.TYPE))
+            .put(Character.TYPE, new IntFieldHandler(Character.TYPE))
+            .put(Short.TYPE, new IntFieldHandler(Short.TYPE))
+            .put(Integer.TYPE, new IntFieldHandler(Integer.TYPE))
+            .put(Long.TYPE, new LongFieldHandler(Long.TYPE))
+            .put(Double.TYPE, new LongFieldHandler(Double.TYPE))
+            .put(Float.TYPE, new FloatFieldHandler())
             .build();
 
     /** Handler for object fields. */
-    protected static final FieldHandler OBJECT_FIELD_HANDLER = new FieldHandler() {
-        @Override public void populate (
-            Field field, Object original, Object revised,
-            ArrayMask mask, MutableInteger midx, List<Object> values)
-                throws IllegalAccessException {
-            int idx = midx.value++;
-            Object ovalue = _oarray[0] = field.get(original);
-            Object nvalue = _narray[0] = field.get(revised);
-            if (!Arrays.deepEquals(_oarray, _narray)) {
-                if (Delta.checkDeltable(ovalue, nvalue)) {
-                    nvalue = Delta.createDelta(ovalue, nvalue);
-                }
-                mask.set(idx);
-                values.add(nvalue);
-            }
-        }
-        @Override public void write (
-            ArrayMask mask, MutableInteger midx, Object[] values,
-            MutableInteger vidx, ObjectOutputStream out)
-                throws IOException {
-            if (mask.isSet(midx.value++)) {
-                out.writeObject(values[vidx.value++]);
-            }
-        }
-        @Override public void read (
-            ArrayMask mask, MutableInteger midx, List<Object> values, ObjectInputStream in)
-                throws IOException, ClassNotFoundException {
-            if (mask.isSet(midx.value++)) {
-                values.add(in.readObject());
-            }
-        }
-        @Override public void apply (
-            Field field, Object original, Object revised, ArrayMask mask,
-            MutableInteger midx, Object[] values, MutableInteger vidx)
-                throws IllegalAccessException {
-            Object value;
-            if (mask.isSet(midx.value++)) {
-                value = values[vidx.value++];
-                if (value instanceof Delta) {
-                    value = ((Delta)value).apply(field.get(original));
-                }
-            } else {
-                value = field.get(original);
-            }
-            field.set(revised, value);
-        }
-        protected Object[] _oarray = new Object[1], _narray = new Object[1];
-    };
-
-    /** Handler for final object fields. */
-    protected static final FieldHandler FINAL_OBJECT_FIELD_HANDLER = new FinalFieldHandler() {
-        @Override public void apply (
-            Field field, Object original, Object revised, ArrayMask mask,
-            MutableInteger midx, Object[] values, MutableInteger vidx)
-                throws IllegalAccessException {
-            field.set(revised, field.get(original));
-        }
-    };
+    protected static final FieldHandler OBJECT_FIELD_HANDLER = new ObjectFieldHandler();
 }
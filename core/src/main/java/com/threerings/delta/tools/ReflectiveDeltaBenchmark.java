@@ -0,0 +1,264 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.delta.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.Random;
+
+import com.threerings.io.ObjectInputStream;
+import com.threerings.io.ObjectOutputStream;
+import com.threerings.io.Streamable;
+
+import com.threerings.math.Vector2f;
+import com.threerings.util.DeepUtil;
+
+import com.threerings.delta.Delta;
+import com.threerings.delta.Deltable;
+import com.threerings.delta.ReflectiveDelta;
+
+/**
+ * Compares the time taken to compute, apply, merge, and stream deltas between successive states
+ * of a set of actor-like objects using the {@link ReflectiveDelta} and using the per-call
+ * reflective path that it replaced ({@link LegacyReflectiveDelta}), checking that both produce
+ * the same revised objects.  On each tick,
+ * every object moves and turns, and a few change their flags or are destroyed, as in a typical
+ * scene.
+ */
+public class ReflectiveDeltaBenchmark
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+    {
+        int[] sizes = (args.length > 0) ? new int[args.length] : DEFAULT_SIZES;
+        for (int ii = 0; ii < args.length; ii++) {
+            sizes[ii] = Integer.parseInt(args[ii]);
+        }
+        for (int size : sizes) {
+            Sample[][] ticks = createTicks(size, new Random(1L));
+            checkResults(ticks);
+            double[] legacy = time(ticks, true), planned = time(ticks, false);
+            System.out.println(size + " objects:");
+            for (int ii = 0; ii < OPERATIONS.length; ii++) {
+                System.out.printf("  %-7s %8.3f ms/tick legacy %8.3f ms/tick planned (%.2fx)%n",
+                    OPERATIONS[ii], legacy[ii], planned[ii], legacy[ii] / planned[ii]);
+            }
+        }
+    }
+
+    /**
+     * Creates the successive states of the objects.
+     */
+    protected static Sample[][] createTicks (int size, Random random)
+    {
+        Sample[][] ticks = new Sample[TICKS][size];
+        for (int ii = 0; ii < size; ii++) {
+            Sample sample = ticks[0][ii] = new Sample();
+            sample.id = ii + 1;
+            sample.config = "actor/" + random.nextInt(20);
+            sample.translation.set(random.nextFloat() * 100f, random.nextFloat() * 100f);
+            sample.rotation = random.nextFloat() * 6f;
+            sample.speed = 4f;
+        }
+        for (int tt = 1; tt < TICKS; tt++) {
+            for (int ii = 0; ii < size; ii++) {
+                Sample sample = ticks[tt][ii] = (Sample)ticks[tt - 1][ii].clone();
+                sample.translation.addLocal(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+                sample.rotation += random.nextFloat() * 0.1f;
+                if (random.nextInt(10) == 0) {
+                    sample.flags ^= 1 << random.nextInt(4);
+                }
+                if (random.nextInt(100) == 0) {
+                    sample.destroyed = tt * 100;
+                }
+            }
+        }
+        return ticks;
+    }
+
+    /**
+     * Makes sure that both paths transform each state into the next, also through merges and
+     * after streaming.
+     */
+    protected static void checkResults (Sample[][] ticks)
+    {
+        for (int tt = 2; tt < TICKS; tt++) {
+            for (int ii = 0; ii < ticks[tt].length; ii++) {
+                Sample s0 = ticks[tt - 2][ii], s1 = ticks[tt - 1][ii], s2 = ticks[tt][ii];
+                for (boolean legacy : new boolean[] { false, true }) {
+                    Delta merged = createDelta(s0, s1, legacy).merge(
+                        createDelta(s1, s2, legacy));
+                    if (!DeepUtil.equals(s2, merged.apply(s0)) ||
+                            !DeepUtil.equals(s2, ((Delta)read(write(merged))).apply(s0))) {
+                        throw new IllegalStateException("Mismatched result [tick=" + tt +
+                            ", index=" + ii + ", legacy=" + legacy + "].");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the average times in milliseconds taken per tick to compute, apply, merge, and
+     * stream the deltas.
+     *
+     * @param legacy whether to use the per-call reflective path.
+     */
+    protected static double[] time (Sample[][] ticks, boolean legacy)
+    {
+        int size = ticks[0].length;
+        Delta[] deltas = new Delta[size], previous = new Delta[size];
+        long[] elapsed = new long[OPERATIONS.length];
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bout);
+        for (int ii = 0; ii < WARMUP_PASSES + PASSES; ii++) {
+            for (int tt = 1; tt < TICKS; tt++) {
+                Sample[] originals = ticks[tt - 1], revised = ticks[tt];
+                long start = System.nanoTime();
+                for (int jj = 0; jj < size; jj++) {
+                    deltas[jj] = createDelta(originals[jj], revised[jj], legacy);
+                }
+                long computed = System.nanoTime();
+                for (int jj = 0; jj < size; jj++) {
+                    deltas[jj].apply(originals[jj]);
+                }
+                long applied = System.nanoTime();
+                for (int jj = 0; jj < size; jj++) {
+                    previous[jj] = (tt == 1) ? deltas[jj] : previous[jj].merge(deltas[jj]);
+                }
+                long merged = System.nanoTime();
+                bout.reset();
+                try {
+                    for (int jj = 0; jj < size; jj++) {
+                        out.writeObject(deltas[jj]);
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                long written = System.nanoTime();
+                if (ii >= WARMUP_PASSES) {
+                    elapsed[0] += computed - start;
+                    elapsed[1] += applied - computed;
+                    elapsed[2] += merged - applied;
+                    elapsed[3] += written - merged;
+                }
+            }
+        }
+        double[] times = new double[elapsed.length];
+        for (int ii = 0; ii < times.length; ii++) {
+            times[ii] = elapsed[ii] / 1e6 / PASSES / (TICKS - 1);
+        }
+        return times;
+    }
+
+    /**
+     * Creates a delta between the two objects.
+     *
+     * @param legacy whether to use the per-call reflective path.
+     */
+    protected static Delta createDelta (Object original, Object revised, boolean legacy)
+    {
+        return legacy ? new LegacyReflectiveDelta(original, revised) :
+            new ReflectiveDelta(original, revised);
+    }
+
+    /**
+     * Writes an object to a byte array.
+     */
+    protected static byte[] write (Object object)
+    {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(bout);
+            out.writeObject(object);
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bout.toByteArray();
+    }
+
+    /**
+     * Reads an object from a byte array.
+     */
+    protected static Object read (byte[] bytes)
+    {
+        try {
+            return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+        } catch (Exception e) { // IOException, ClassNotFoundException
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * An object with the fields of a typical mobile actor.
+     */
+    public static class Sample
+        implements Deltable, Streamable, Cloneable
+    {
+        public String config;
+        public int id;
+        public int created;
+        public int destroyed = Integer.MAX_VALUE;
+        public Vector2f translation = new Vector2f();
+        public float rotation;
+        public int flags;
+        public float direction;
+        public float speed;
+
+        @Override
+        public Object clone ()
+        {
+            try {
+                Sample other = (Sample)super.clone();
+                other.translation = new Vector2f(translation);
+                return other;
+            } catch (CloneNotSupportedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /** The default numbers of objects to test. */
+    protected static final int[] DEFAULT_SIZES = { 100, 1000 };
+
+    /** The names of the timed operations. */
+    protected static final String[] OPERATIONS = { "compute", "apply", "merge", "write" };
+
+    /** The number of successive states of each object. */
+    protected static final int TICKS = 20;
+
+    /** The number of passes over the states to make before timing. */
+    protected static final int WARMUP_PASSES = 50;
+
+    /** The number of passes over the states to time. */
+    protected static final int PASSES = 100;
+}
@@ -25,12 +25,16 @@
 
 package com.threerings.export;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -110,9 +114,11 @@ public class BinaryImporter extends Importer
             short flags = _in.readShort();
             boolean compressed = (flags & BinaryExporter.COMPRESSED_FORMAT_FLAG) != 0;
 
-            // the rest of the stream may be compressed
+            // the rest of the stream may be compressed (buffer the inflated data, since the
+            // stream is mostly read a few bytes at a time)
             if (compressed) {
-                _in = new DataInputStream(new InflaterInputStream(_base));
+                _in = new DataInputStream(
+                    new BufferedInputStream(new InflaterInputStream(_base)));
             }
 
             // initialize mapping
@@ -371,11 +377,16 @@ public class BinaryImporter extends Importer
             if (cdata == null) {
                 _classData.put(cclazz, cdata = new ClassData());
             }
-            _fields = cdata.readFields();
-            if (value instanceof Exportable) {
-                readFields((Exportable)value);
+            ImportPlan plan = (value instanceof Exportable) ? cdata.getPlan(value) : null;
+            if (plan != null) {
+                plan.readFields(value);
+            } else {
+                _fields = cdata.readFields();
+                if (value instanceof Exportable) {
+                    readFields((Exportable)value);
+                }
+                _fields = null;
             }
-            _fields = null;
         }
         return value;
     }
@@ -691,19 +702,54 @@ public class BinaryImporter extends Importer
         }
 
         /**
-         * Reads in a single field value.
+         * Returns the plan with which to read the fields of the specified object, or
+         * <code>null</code> if they must be read through the field map.
          */
-        protected void readField (HashMap<String, Object> fields)
+        public ImportPlan getPlan (Object object)
+        {
+            if (!_planned) {
+                ObjectMarshaller marshaller =
+                    ObjectMarshaller.getObjectMarshaller(object.getClass());
+                if (!marshaller.hasReader() &&
+                        countPrimitiveFields(marshaller) <= Long.SIZE) {
+                    _plan = new ImportPlan(this, marshaller);
+                }
+                _planned = true;
+            }
+            return _plan;
+        }
+
+        /**
+         * Reads in a field id, along with the name and class of the field if it hasn't been
+         * seen before.
+         */
+        public int readFieldId ()
             throws IOException
         {
             int fieldId = _fieldIdReader.read();
-            Tuple<String, ClassWrapper> fieldData = _fieldData.get(fieldId);
-            if (fieldData == null) {
+            if (!_fieldData.containsKey(fieldId)) {
                 String name = (String)read(_stringClass);
                 ClassWrapper clazz = readClass();
-                _fieldData.put(fieldId, fieldData = new Tuple<String, ClassWrapper>(
-                    name, clazz));
+                _fieldData.put(fieldId, new Tuple<String, ClassWrapper>(name, clazz));
             }
+            return fieldId;
+        }
+
+        /**
+         * Returns the name and class of the identified field.
+         */
+        public Tuple<String, ClassWrapper> getFieldData (int fieldId)
+        {
+            return _fieldData.get(fieldId);
+        }
+
+        /**
+         * Reads in a single field value.
+         */
+        protected void readField (HashMap<String, Object> fields)
+            throws IOException
+        {
+            Tuple<String, ClassWrapper> fieldData = _fieldData.get(readFieldId());
             fields.put(fieldData.left, read(fieldData.right));
         }
 
@@ -713,6 +759,255 @@ public class BinaryImporter extends Importer
 
         /** Used to read field ids. */
         protected IDReader _fieldIdReader = new IDReader();
+
+        /** The plan for reading the class's fields, if any. */
+        protected ImportPlan _plan;
+
+        /** Whether or not we've tried to create the plan. */
+        protected boolean _planned;
+    }
+
+    /**
+     * A plan for reading the fields of a class without a custom read method directly into the
+     * fields of its instances, compiled from the field metadata in the stream and the class's
+     * {@link ObjectMarshaller}.  Primitive values are read straight from the stream into the
+     * fields (avoiding the field map and the boxing of the values), and the defaults are restored
+     * for any primitive fields absent from the stream, just as the marshaller would do.
+     */
+    protected class ImportPlan
+    {
+        public ImportPlan (ClassData cdata, ObjectMarshaller marshaller)
+        {
+            _cdata = cdata;
+            _marshaller = marshaller;
+
+            // note the defaults of the primitive fields
+            Object prototype = marshaller.getPrototype();
+            ArrayList<Field> primitives = Lists.newArrayList();
+            ArrayList<Object> defaults = Lists.newArrayList();
+            for (ObjectMarshaller.FieldData field : marshaller.getFieldData()) {
+                Field rfield = field.getField();
+                if (rfield.getType().isPrimitive()) {
+                    primitives.add(rfield);
+                    try {
+                        defaults.add(rfield.get(prototype));
+                    } catch (IllegalAccessException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+            _primitives = primitives.toArray(new Field[primitives.size()]);
+            _defaults = defaults.toArray();
+        }
+
+        /**
+         * Reads the fields of the specified object.
+         */
+        public void readFields (Object target)
+            throws IOException
+        {
+            long present = 0L;
+            try {
+                for (int ii = 0, nn = _in.readInt(); ii < nn; ii++) {
+                    FieldStep step = getStep(_cdata.readFieldId());
+                    present |= step.bit;
+                    switch (step.type) {
+                        case BOOLEAN_STEP:
+                            step.field.setBoolean(target, _in.readBoolean());
+                            break;
+                        case BYTE_STEP:
+                            step.field.setByte(target, _in.readByte());
+                            break;
+                        case CHAR_STEP:
+                            step.field.setChar(target, _in.readChar());
+                            break;
+                        case DOUBLE_STEP:
+                            step.field.setDouble(target, _in.readDouble());
+                            break;
+                        case FLOAT_STEP:
+                            step.field.setFloat(target, _in.readFloat());
+                            break;
+                        case INT_STEP:
+                            step.field.setInt(target, _in.readInt());
+                            break;
+                        case LONG_STEP:
+                            step.field.setLong(target, _in.readLong());
+                            break;
+                        case SHORT_STEP:
+                            step.field.setShort(target, _in.readShort());
+                            break;
+                        case OBJECT_STEP: {
+                            Object value = read(step.clazz);
+                            if (value == null || value == step.defvalue) {
+                                break; // leave the field alone, as the marshaller would
+                            }
+                            if (step.field.getType().isInstance(value)) {
+                                step.field.set(target, value);
+                            } else {
+                                convert(step, value, target);
+                            }
+                            break;
+                        }
+                        case CONVERT_STEP:
+                            convert(step, read(step.clazz), target);
+                            break;
+                        default:
+                            read(step.clazz); // no such field; skip the value
+                            break;
+                    }
+                }
+                // restore the defaults of the primitive fields not in the stream
+                for (int ii = 0; ii < _primitives.length; ii++) {
+                    if ((present & (1L << ii)) == 0L) {
+                        _primitives[ii].set(target, _defaults[ii]);
+                    }
+                }
+            } catch (IllegalAccessException iae) {
+                throw (IOException)new IOException("Error reading field.").initCause(iae);
+            }
+        }
+
+        /**
+         * Returns the step for the specified field, compiling it if necessary.
+         */
+        protected FieldStep getStep (int fieldId)
+        {
+            if (fieldId >= _steps.length) {
+                FieldStep[] osteps = _steps;
+                _steps = new FieldStep[Math.max(fieldId + 1, osteps.length * 2)];
+                System.arraycopy(osteps, 0, _steps, 0, osteps.length);
+            }
+            FieldStep step = _steps[fieldId];
+            if (step == null) {
+                Tuple<String, ClassWrapper> fieldData = _cdata.getFieldData(fieldId);
+                _steps[fieldId] = step = new FieldStep(fieldData.right);
+                ObjectMarshaller.FieldData field = _marshaller.getFieldData(fieldData.left);
+                if (field != null) {
+                    step.data = field;
+                    step.field = field.getField();
+                    Class<?> type = step.field.getType();
+                    if (type.isPrimitive()) {
+                        step.bit = 1L << Arrays.asList(_primitives).indexOf(step.field);
+                        step.type = (type == step.clazz.getWrappedClass() &&
+                            step.clazz.isFinal()) ? getPrimitiveStepType(type) : CONVERT_STEP;
+                    } else {
+                        try {
+                            step.defvalue = step.field.get(_marshaller.getPrototype());
+                        } catch (IllegalAccessException e) {
+                            throw new RuntimeException(e);
+                        }
+                        step.type = OBJECT_STEP;
+                    }
+                }
+            }
+            return step;
+        }
+
+        /**
+         * Sets a field whose value in the stream doesn't match its type by passing the value
+         * through the field marshaller, which performs the conversion (or logs the failure).
+         */
+        protected void convert (FieldStep step, Object value, Object target)
+            throws IOException, IllegalAccessException
+        {
+            HashMap<String, Object> ofields = _fields;
+            _fields = _convertFields;
+            _convertFields.put(step.data.getName(), value);
+            try {
+                step.data.read(target, BinaryImporter.this);
+            } finally {
+                _convertFields.clear();
+                _fields = ofields;
+            }
+        }
+
+        /** The class data for the stream. */
+        protected ClassData _cdata;
+
+        /** The marshaller for the class. */
+        protected ObjectMarshaller _marshaller;
+
+        /** The compiled steps for the fields encountered so far, indexed by field id. */
+        protected FieldStep[] _steps = new FieldStep[16];
+
+        /** The class's primitive fields. */
+        protected Field[] _primitives;
+
+        /** The default values of the primitive fields. */
+        protected Object[] _defaults;
+
+        /** Holds the value being converted. */
+        protected HashMap<String, Object> _convertFields = new HashMap<String, Object>(1);
+    }
+
+    /**
+     * The compiled step for reading a single field.
+     */
+    protected static class FieldStep
+    {
+        /** The type of step. */
+        public int type = SKIP_STEP;
+
+        /** The class of the value in the stream. */
+        public ClassWrapper clazz;
+
+        /** The data for the field to set, if any. */
+        public ObjectMarshaller.FieldData data;
+
+        /** The field to set, if any. */
+        public Field field;
+
+        /** The presence bit of a primitive field. */
+        public long bit;
+
+        /** The default value of an object field. */
+        public Object defvalue;
+
+        public FieldStep (ClassWrapper clazz)
+        {
+            this.clazz = clazz;
+        }
+    }
+
+    /**
+     * Counts the primitive fields of the marshaller's class.  An import plan can only track the
+     * presence of up to {@link Long#SIZE} such fields.
+     */
+    protected static int countPrimitiveFields (ObjectMarshaller marshaller)
+    {
+        int count = 0;
+        for (ObjectMarshaller.FieldData field : marshaller.getFieldData()) {
+            if (field.getField().getType().isPrimitive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the step type that reads values of the specified primitive type directly.
+     */
+    protected static int getPrimitiveStepType (Class<?> type)
+    {
+        if (type == Boolean.TYPE) {
+            return BOOLEAN_STEP;
+        } else if (type == Byte.TYPE) {
+            return BYTE_STEP;
+        } else if (type == Character.TYPE) {
+            return CHAR_STEP;
+        } else if (type == Double.TYPE) {
+            return DOUBLE_STEP;
+        } else if (type == Float.TYPE) {
+            return FLOAT_STEP;
+        } else if (type == Integer.TYPE) {
+            return INT_STEP;
+        } else if (type == Long.TYPE) {
+            return LONG_STEP;
+        } else if (type == Short.TYPE) {
+            return SHORT_STEP;
+        } else {
+            return CONVERT_STEP;
+        }
     }
 
     /**
@@ -782,6 +1077,11 @@ public class BinaryImporter extends Importer
     /** Class<?> data. */
     protected Map<ClassWrapper, ClassData> _classData = Maps.newHashMap();
 
+    /** Field step types. */
+    protected static final int SKIP_STEP = 0, BOOLEAN_STEP = 1, BYTE_STEP = 2, CHAR_STEP = 3,
+        DOUBLE_STEP = 4, FLOAT_STEP = 5, INT_STEP = 6, LONG_STEP = 7, SHORT_STEP = 8,
+        OBJECT_STEP = 9, CONVERT_STEP = 10;
+
     /** Signifies a null entry in the object map. */
     protected static final Object NULL = new Object();
 
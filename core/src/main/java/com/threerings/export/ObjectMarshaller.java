@@ -32,9 +32,10 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import com.threerings.util.ReflectionUtil;
@@ -64,6 +65,36 @@ public class ObjectMarshaller
         return _prototype;
     }
 
+    /**
+     * Checks whether objects of the class have a custom read method.
+     */
+    public boolean hasReader ()
+    {
+        return _reader != null;
+    }
+
+    /**
+     * Returns the data for the field with the specified export name, or <code>null</code> if
+     * there's no such field.
+     */
+    public FieldData getFieldData (String name)
+    {
+        for (FieldData field : _fields) {
+            if (field._name.equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the data for all of the exportable fields, in export order.
+     */
+    public FieldData[] getFieldData ()
+    {
+        return _fields;
+    }
+
     /**
      * Reads the fields of an object from the specified importer.
      */
@@ -197,6 +228,22 @@ public class ObjectMarshaller
             _marshaller = FieldMarshaller.getFieldMarshaller(field);
         }
 
+        /**
+         * Returns a reference to the field.
+         */
+        public Field getField ()
+        {
+            return _field;
+        }
+
+        /**
+         * Returns the field's modified name.
+         */
+        public String getName ()
+        {
+            return _name;
+        }
+
         /**
          * Reads the field from the importer and sets it in the target object.
          */
@@ -237,7 +284,6 @@ public class ObjectMarshaller
     /** The prototype object. */
     protected Object _prototype;
 
-    /** Maps classes to created marshallers. */
-    protected static HashMap<Class<?>, ObjectMarshaller> _marshallers =
-        new HashMap<Class<?>, ObjectMarshaller>();
+    /** Maps classes to created marshallers (concurrent, since groups may be read in parallel). */
+    protected static Map<Class<?>, ObjectMarshaller> _marshallers = Maps.newConcurrentMap();
 }
@@ -38,10 +38,12 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
 
-import java.util.HashMap;
+import java.util.Map;
 
 import org.lwjgl.BufferUtils;
 
+import com.google.common.collect.Maps;
+
 import static com.threerings.export.Log.log;
 
 /**
@@ -105,8 +107,7 @@ public abstract class Streamer<T>
         throws IOException, ClassNotFoundException;
 
     /** Registered streamers. */
-    protected static HashMap<Class<?>, Streamer<?>> _streamers =
-            new HashMap<Class<?>, Streamer<?>>();
+    protected static Map<Class<?>, Streamer<?>> _streamers = Maps.newConcurrentMap();
     static {
         // register basic streamers for wrapper types, primitive arrays
         Streamer<?> streamer = new Streamer<Boolean>() {
@@ -0,0 +1,929 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+package com.threerings.export;
+
+import java.lang.reflect.Array;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+
+import com.threerings.util.ReflectionUtil;
+
+import static com.threerings.export.Log.log;
+
+/**
+ * Imports from the XML format generated by {@link XMLExporter} in a single pass over a StAX
+ * stream, rather than by building a DOM of the entire document as {@link XMLImporter} does.
+ *
+ * <p> Since fields are generally read in the order in which they were written, most elements
+ * can be decoded directly from the stream.  Elements that are skipped while looking for a
+ * requested field are buffered (as lightweight trees) until the end of the object that contains
+ * them, so the memory required is bounded by the size of the largest object read out of order
+ * rather than that of the document.  When reading the default fields of an object, we use the
+ * field order to determine that a field is absent as soon as we reach the element of a later
+ * field, which requires that custom write methods not write any of the default fields before
+ * calling {@link Exporter#defaultWriteFields}.
+ */
+public class StreamingXMLImporter extends Importer
+{
+    /**
+     * Creates an importer to read from the specified stream.
+     */
+    public StreamingXMLImporter (InputStream in)
+    {
+        _in = in;
+    }
+
+    @Override
+    public Object readObject ()
+        throws IOException
+    {
+        if (_reader == null) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            try {
+                _reader = factory.createXMLStreamReader(_in);
+                while (_reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                    _reader.next();
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to parse input [error=" + e + "].");
+            }
+            Element top = open();
+            if (!top.name.equals("java")) {
+                throw new IOException("Invalid top-level element [name=" + top.name + "].");
+            }
+            String vstr = top.getAttribute("version");
+            if (!vstr.equals(XMLExporter.VERSION)) {
+                throw new IOException("Invalid version [version=" + vstr + ", expected=" +
+                    XMLExporter.VERSION + "].");
+            }
+            String cstr = top.getAttribute("class");
+            if (!cstr.equals(XMLImporter.class.getName())) {
+                throw new IOException("Invalid importer class [class=" + cstr + ", expected=" +
+                    XMLImporter.class.getName() + "].");
+            }
+            _frame = new Frame(top);
+        }
+        for (Element child; (child = _frame.nextChild()) != null; ) {
+            if (child.name.equals("object")) {
+                return read(child, Object.class);
+            }
+            skip(child);
+        }
+        throw new EOFException();
+    }
+
+    @Override
+    public void defaultReadFields ()
+        throws IOException
+    {
+        // the default fields are read in order, so we can tell when one is absent
+        Frame frame = _frame;
+        ObjectMarshaller ofields = frame.fields;
+        frame.fields = _marshaller;
+        frame.fieldIdx = 0;
+        try {
+            super.defaultReadFields();
+        } finally {
+            frame.fields = ofields;
+        }
+    }
+
+    @Override
+    public boolean read (String name, boolean defvalue)
+        throws IOException
+    {
+        String value = getValue(name);
+        return (value == null) ? defvalue : Boolean.parseBoolean(value);
+    }
+
+    @Override
+    public byte read (String name, byte defvalue)
+        throws IOException
+    {
+        String value = getValue(name);
+        try {
+            return (value == null) ? defvalue : Byte.parseByte(value);
+        } catch (NumberFormatException e) {
+            log.warning("Couldn't parse value as byte [value=" + value + "].", e);
+            return defvalue;
+        }
+    }
+
+    @Override
+    public char read (String name, char defvalue)
+        throws IOException
+    {
+        String value = getValue(name);
+        return (value == null) ? defvalue : value.charAt(0);
+    }
+
+    @Override
+    public double read (String name, double defvalue)
+        throws IOException
+    {
+        String value = getValue(name);
+        try {
+            return (value == null) ? defvalue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            log.warning("Couldn't parse value as double [value=" + value + "].", e);
+            return defvalue;
+        }
+    }
+
+    @Override
+    public float read (String name, float defvalue)
+        throws IOException
+    {
+        String value = getValue(name);
+        try {
+            return (value == null) ? defvalue : Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            log.warning("Couldn't parse value as float [value=" + value + "].", e);
+            return defvalue;
+        }
+    }
+
+    @Override
+    public int read (String name, int defvalue)
+        throws IOException
+    {
+        String value = getValue(name);
+        try {
+            return (value == null) ? defvalue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warning("Couldn't parse value as int [value=" + value + "].", e);
+            return defvalue;
+        }
+    }
+
+    @Override
+    public long read (String name, long defvalue)
+        throws IOException
+    {
+        String value = getValue(name);
+        try {
+            return (value == null) ? defvalue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warning("Couldn't parse value as long [value=" + value + "].", e);
+            return defvalue;
+        }
+    }
+
+    @Override
+    public short read (String name, short defvalue)
+        throws IOException
+    {
+        String value = getValue(name);
+        try {
+            return (value == null) ? defvalue : Short.parseShort(value);
+        } catch (NumberFormatException e) {
+            log.warning("Couldn't parse value as short [value=" + value + "].", e);
+            return defvalue;
+        }
+    }
+
+    @Override
+    public <T> T read (String name, T defvalue, Class<T> clazz)
+        throws IOException
+    {
+        Element child = _frame.findChild(name);
+        if (child == null) {
+            return defvalue;
+        }
+        return clazz.cast(read(child, clazz));
+    }
+
+    @Override
+    public void close ()
+        throws IOException
+    {
+        if (_reader != null) {
+            try {
+                _reader.close();
+            } catch (XMLStreamException e) {
+                // no matter; we're closing the underlying stream anyway
+            }
+        }
+        _in.close();
+    }
+
+    @Override
+    protected void readFields (Exportable object)
+        throws IOException
+    {
+        // without a custom read method, the fields are read in order
+        ObjectMarshaller marshaller = ObjectMarshaller.getObjectMarshaller(object.getClass());
+        if (!marshaller.hasReader()) {
+            _frame.fields = marshaller;
+            _frame.fieldIdx = 0;
+        }
+        super.readFields(object);
+    }
+
+    /**
+     * Reads an object of the supplied type from the given element, consuming the element.
+     */
+    protected Object read (Element element, Class<?> clazz)
+        throws IOException
+    {
+        String ref = element.getAttribute("ref");
+        String rdepth = element.getAttribute("rdepth");
+        Object value;
+        if (rdepth.length() > 0) {
+            value = _depths.get(rdepth);
+        } else if (ref.length() > 0) {
+            value = _objects.get(ref);
+        } else if (isEmpty(element)) {
+            value = null;
+        } else {
+            value = readValue(element, clazz);
+        }
+        skip(element);
+        return value;
+    }
+
+    /**
+     * Returns the named class, or null if not found.
+     */
+    protected Class<?> getClassByName (String cstr, Class<?> defval)
+    {
+        if (cstr.length() > 0) {
+            try {
+                return Class.forName(cstr);
+            } catch (ClassNotFoundException e) {
+                log.warning("Class not found.", e);
+                return null;
+            }
+        }
+        return defval;
+    }
+
+    /**
+     * Reads an object value of the specified class from the given element.
+     */
+    protected Object readValue (Element element, Class<?> clazz)
+        throws IOException
+    {
+        // see if we can read the value from a string
+        String id = element.getAttribute("id");
+        String depth = element.getAttribute("depth");
+        Class<?> cclazz = getClassByName(element.getAttribute("class"), clazz);
+        @SuppressWarnings("unchecked")
+        Stringifier<Object> stringifier = (Stringifier<Object>)Stringifier.getStringifier(cclazz);
+        if (stringifier != null) {
+            String string = getTextContent(element);
+            Object value = null;
+            try {
+                if ((value = stringifier.fromString(string)) == null) {
+                    log.warning("Failed to parse string.", "string", string, "class", cclazz);
+                }
+            } catch (Exception e) {
+                log.warning("Failed to parse string.", "string", string, "class", cclazz, e);
+            }
+            if (value != null) {
+                if (depth.length() > 0) {
+                    putObjectDepth(depth, value);
+                }
+                if (id.length() > 0) {
+                    putObject(id, value);
+                }
+            }
+            return value;
+        }
+        // otherwise, process the element
+        Frame oframe = _frame;
+        _frame = new Frame(element);
+        try {
+            Object value;
+            boolean wasRead = false;
+            if (cclazz.isArray()) {
+                Class<?> ctype = cclazz.getComponentType();
+                if (depth.length() > 0) {
+                    // the entries may refer to the array itself, so we must create it before
+                    // reading them, which means buffering them in order to count them
+                    _frame.buffer();
+                    value = Array.newInstance(ctype, _frame.countChildren("entry"));
+                } else {
+                    List<Object> entries = readEntries(Lists.newArrayList(), ctype);
+                    value = Array.newInstance(ctype, entries.size());
+                    for (int ii = 0, nn = entries.size(); ii < nn; ii++) {
+                        Array.set(value, ii, entries.get(ii));
+                    }
+                    wasRead = true;
+                }
+
+            } else if (cclazz == ImmutableList.class) {
+                value = ImmutableList.copyOf(readEntries(Lists.newArrayList(), Object.class));
+                wasRead = true;
+
+            } else if (cclazz == ImmutableSet.class) {
+                value = ImmutableSet.copyOf(readEntries(Lists.newArrayList(), Object.class));
+                wasRead = true;
+
+            } else if (cclazz == ImmutableMap.class) {
+                value = ImmutableMap.copyOf(readEntries(Maps.newHashMap()));
+                wasRead = true;
+
+            } else if (cclazz == ImmutableMultiset.class) {
+                value = ImmutableMultiset.copyOf(readEntries(HashMultiset.create()));
+                wasRead = true;
+
+            } else if (EnumSet.class.isAssignableFrom(cclazz)) {
+                @SuppressWarnings("unchecked") Class<Exporter.DummyEnum> eclazz =
+                    (Class<Exporter.DummyEnum>)getClassByName(element.getAttribute("eclass"), null);
+                value = EnumSet.noneOf(eclazz);
+
+            } else {
+                value = ReflectionUtil.newInstance(cclazz,
+                    ReflectionUtil.isInner(cclazz) ? read("outer", null, Object.class) : null);
+            }
+            if (depth.length() > 0 && value != null) {
+                putObjectDepth(depth, value);
+            }
+            if (id.length() > 0) {
+                putObject(id, value);
+            }
+            if (wasRead) {
+                return value;
+            }
+            if (value instanceof Exportable) {
+                readFields((Exportable)value);
+            } else if (value instanceof Object[]) {
+                Object[] array = (Object[])value;
+                Class<?> ctype = cclazz.getComponentType();
+                int idx = 0;
+                for (Element child; (child = _frame.nextChild()) != null; ) {
+                    if (child.name.equals("entry")) {
+                        array[idx++] = read(child, ctype);
+                    } else {
+                        skip(child);
+                    }
+                }
+            } else if (value instanceof Collection) {
+                if (value instanceof Multiset) {
+                    @SuppressWarnings("unchecked") Multiset<Object> multiset =
+                        (Multiset<Object>)value;
+                    readEntries(multiset);
+                } else {
+                    @SuppressWarnings("unchecked") Collection<Object> collection =
+                        (Collection<Object>)value;
+                    readEntries(collection, Object.class);
+                }
+            } else if (value instanceof Map) {
+                @SuppressWarnings("unchecked") Map<Object, Object> map =
+                    (Map<Object, Object>)value;
+                readEntries(map);
+            }
+            return value;
+
+        } finally {
+            _frame = oframe;
+            if (depth.length() > 0) {
+                _depths.remove(depth);
+            }
+        }
+    }
+
+    /**
+     * Stores an object in the map, logging a warning if we overwrite an existing entry.
+     */
+    protected void putObject (String id, Object value)
+    {
+        Object ovalue = _objects.put(id, value);
+        if (ovalue != null) {
+            log.warning("Duplicate id detected.", "id", id, "ovalue", ovalue, "nvalue", value);
+        }
+    }
+
+    /**
+     * Stores an object in the map, logging a warning if we overwrite an existing entry.
+     */
+    protected void putObjectDepth (String depth, Object value)
+    {
+        Object ovalue = _depths.put(depth, value);
+        if (ovalue != null) {
+            log.warning("Duplicate depth detected.",
+                    "depth", depth, "ovalue", ovalue, "nvalue", value);
+        }
+    }
+
+    /**
+     * Populates the supplied collection with the remaining entries of the current element.
+     *
+     * @return a reference to the collection passed, for chaining.
+     */
+    protected <T extends Collection<Object>> T readEntries (T collection, Class<?> clazz)
+        throws IOException
+    {
+        for (Element child; (child = _frame.nextChild()) != null; ) {
+            if (child.name.equals("entry")) {
+                collection.add(read(child, clazz));
+            } else {
+                skip(child);
+            }
+        }
+        return collection;
+    }
+
+    /**
+     * Populates the supplied multiset with the remaining entries of the current element.
+     *
+     * @return a reference to the multiset passed, for chaining.
+     */
+    protected Multiset<Object> readEntries (Multiset<Object> multiset)
+        throws IOException
+    {
+        Object element = null;
+        boolean haveElement = false;
+        for (Element child; (child = _frame.nextChild()) != null; ) {
+            if (child.name.equals("element")) {
+                element = read(child, Object.class);
+                haveElement = true;
+            } else if (haveElement && child.name.equals("count")) {
+                multiset.setCount(element, (Integer)read(child, Integer.class));
+                haveElement = false;
+            } else {
+                skip(child);
+            }
+        }
+        return multiset;
+    }
+
+    /**
+     * Populates the supplied map with the remaining entries of the current element.
+     *
+     * @return a reference to the map passed, for chaining.
+     */
+    protected Map<Object, Object> readEntries (Map<Object, Object> map)
+        throws IOException
+    {
+        Object key = null;
+        boolean haveKey = false;
+        for (Element child; (child = _frame.nextChild()) != null; ) {
+            if (child.name.equals("key")) {
+                key = read(child, Object.class);
+                haveKey = true;
+            } else if (haveKey && child.name.equals("value")) {
+                map.put(key, read(child, Object.class));
+                haveKey = false;
+            } else {
+                skip(child);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * For simple text fields, retrieves the value from a child element.
+     */
+    protected String getValue (String name)
+        throws IOException
+    {
+        Element child = _frame.findChild(name);
+        if (child == null) {
+            return null;
+        }
+        if (!child.live) {
+            return child.getFirstText();
+        }
+        // find the first text node directly under the element
+        String text = null;
+        for (int depth = 0;; next()) {
+            switch (_reader.getEventType()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (depth == 0 && text == null) {
+                        text = _reader.getText();
+                    }
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth-- == 0) {
+                        next();
+                        child.live = false;
+                        return text;
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the concatenated text of all descendants of the specified element, consuming it.
+     */
+    protected String getTextContent (Element element)
+        throws IOException
+    {
+        if (!element.live) {
+            StringBuilder buf = new StringBuilder();
+            element.appendTextContent(buf);
+            return buf.toString();
+        }
+        String text = null;
+        StringBuilder buf = null;
+        for (int depth = 0;; next()) {
+            switch (_reader.getEventType()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (text == null) {
+                        text = _reader.getText();
+                    } else {
+                        if (buf == null) {
+                            buf = new StringBuilder(text);
+                        }
+                        buf.append(_reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth-- == 0) {
+                        next();
+                        element.live = false;
+                        return (buf == null) ? (text == null ? "" : text) : buf.toString();
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the specified element has no child nodes (which means its value is null).
+     */
+    protected boolean isEmpty (Element element)
+    {
+        return element.live ?
+            (_reader.getEventType() == XMLStreamConstants.END_ELEMENT) : element.empty;
+    }
+
+    /**
+     * Consumes the remainder of the specified element, if it's still in the stream.
+     */
+    protected void skip (Element element)
+        throws IOException
+    {
+        if (!element.live) {
+            return;
+        }
+        for (int depth = 0;; next()) {
+            int event = _reader.getEventType();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT && depth-- == 0) {
+                next();
+                element.live = false;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Creates a live element for the start tag at the current position and moves to its content.
+     */
+    protected Element open ()
+        throws IOException
+    {
+        Element element = new Element(_reader);
+        element.live = true;
+        next();
+        return element;
+    }
+
+    /**
+     * Reads the element whose start tag is at the current position into a buffered tree.
+     */
+    protected Element buffer ()
+        throws IOException
+    {
+        Element element = new Element(_reader);
+        element.empty = true;
+        next();
+        while (true) {
+            switch (_reader.getEventType()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    element.addContent(_reader.getText());
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    element.addContent(buffer()); // leaves us past the end of the child
+                    continue;
+                case XMLStreamConstants.END_ELEMENT:
+                    next();
+                    return element;
+                default:
+                    element.empty = false; // comments, processing instructions
+                    break;
+            }
+            next();
+        }
+    }
+
+    /**
+     * Advances the reader to the next event.
+     */
+    protected int next ()
+        throws IOException
+    {
+        try {
+            return _reader.next();
+        } catch (XMLStreamException e) {
+            throw (IOException)new IOException("Failed to parse input.").initCause(e);
+        }
+    }
+
+    /**
+     * The children of an element that we are reading as an object.
+     */
+    protected class Frame
+    {
+        /** The marshaller whose fields are being read in order, if any. */
+        public ObjectMarshaller fields;
+
+        /** The index of the last field requested from the marshaller. */
+        public int fieldIdx;
+
+        public Frame (Element element)
+        {
+            _element = element;
+            if (!element.live && element.content != null) {
+                for (Object node : element.content) {
+                    if (node instanceof Element) {
+                        _pending.add((Element)node);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the next unconsumed child element, or <code>null</code> if there are no more.
+         * The caller is responsible for consuming the element.
+         */
+        public Element nextChild ()
+            throws IOException
+        {
+            if (!_pending.isEmpty()) {
+                return _pending.remove(0);
+            }
+            return toChild() ? open() : null;
+        }
+
+        /**
+         * Finds and returns the first unconsumed child element with the given name, buffering
+         * any elements skipped along the way.
+         */
+        public Element findChild (String name)
+            throws IOException
+        {
+            for (int ii = 0, nn = _pending.size(); ii < nn; ii++) {
+                if (_pending.get(ii).name.equals(name)) {
+                    return _pending.remove(ii);
+                }
+            }
+            while (toChild()) {
+                String cname = _reader.getLocalName();
+                if (cname.equals(name)) {
+                    return open();
+                }
+                if (fields != null && isLaterField(name, cname)) {
+                    return null;
+                }
+                _pending.add(StreamingXMLImporter.this.buffer());
+            }
+            return null;
+        }
+
+        /**
+         * Buffers all of the remaining children.
+         */
+        public void buffer ()
+            throws IOException
+        {
+            while (toChild()) {
+                _pending.add(StreamingXMLImporter.this.buffer());
+            }
+        }
+
+        /**
+         * Counts the unconsumed children with the given name.  Only valid after a call to
+         * {@link #buffer}.
+         */
+        public int countChildren (String name)
+        {
+            int count = 0;
+            for (int ii = 0, nn = _pending.size(); ii < nn; ii++) {
+                if (_pending.get(ii).name.equals(name)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Moves the reader to the start tag of the next child element, if any.  If we reach the
+         * end of our element instead, consumes the end tag and returns false.
+         */
+        protected boolean toChild ()
+            throws IOException
+        {
+            if (!_element.live) {
+                return false;
+            }
+            for (;; next()) {
+                int event = _reader.getEventType();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    return true;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    next();
+                    _element.live = false;
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Determines whether the specified found field comes after the requested one in the
+         * order of the fields being read, meaning that the requested field is absent.
+         */
+        protected boolean isLaterField (String requested, String found)
+        {
+            ObjectMarshaller.FieldData[] data = fields.getFieldData();
+            for (int ii = fieldIdx; ii < data.length; ii++) {
+                if (data[ii].getName().equals(requested)) {
+                    fieldIdx = ii;
+                    for (int jj = ii + 1; jj < data.length; jj++) {
+                        if (data[jj].getName().equals(found)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /** The element whose children we're reading. */
+        protected Element _element;
+
+        /** Buffered children not yet consumed, in document order. */
+        protected ArrayList<Element> _pending = Lists.newArrayList();
+    }
+
+    /**
+     * A lightweight element, either still in the stream (in which case the reader is positioned
+     * within its content) or buffered in memory.
+     */
+    protected static class Element
+    {
+        /** The element name. */
+        public String name;
+
+        /** Whether the remainder of the element is still in the stream. */
+        public boolean live;
+
+        /** For buffered elements, whether the element has no child nodes. */
+        public boolean empty;
+
+        /** For buffered elements, the text strings and child elements, in document order. */
+        public ArrayList<Object> content;
+
+        public Element (XMLStreamReader reader)
+        {
+            name = reader.getLocalName();
+            int count = reader.getAttributeCount();
+            if (count > 0) {
+                _attributes = new String[count * 2];
+                for (int ii = 0; ii < count; ii++) {
+                    _attributes[ii*2] = reader.getAttributeLocalName(ii);
+                    _attributes[ii*2 + 1] = reader.getAttributeValue(ii);
+                }
+            }
+        }
+
+        /**
+         * Returns the value of the named attribute, or the empty string if it's not present.
+         */
+        public String getAttribute (String aname)
+        {
+            if (_attributes != null) {
+                for (int ii = 0; ii < _attributes.length; ii += 2) {
+                    if (_attributes[ii].equals(aname)) {
+                        return _attributes[ii + 1];
+                    }
+                }
+            }
+            return "";
+        }
+
+        /**
+         * Adds a text string or child element to the content.
+         */
+        public void addContent (Object node)
+        {
+            if (content == null) {
+                content = new ArrayList<Object>(1);
+            }
+            content.add(node);
+            empty = false;
+        }
+
+        /**
+         * Returns the first text string directly under the element, or <code>null</code> for
+         * none.
+         */
+        public String getFirstText ()
+        {
+            if (content != null) {
+                for (Object node : content) {
+                    if (node instanceof String) {
+                        return (String)node;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Appends the concatenated text of all descendants to the supplied buffer.
+         */
+        public void appendTextContent (StringBuilder buf)
+        {
+            if (content != null) {
+                for (Object node : content) {
+                    if (node instanceof String) {
+                        buf.append((String)node);
+                    } else {
+                        ((Element)node).appendTextContent(buf);
+                    }
+                }
+            }
+        }
+
+        /** Alternating attribute names and values. */
+        protected String[] _attributes;
+    }
+
+    /** The source stream. */
+    protected InputStream _in;
+
+    /** The stream reader. */
+    protected XMLStreamReader _reader;
+
+    /** The children of the element associated with the current object. */
+    protected Frame _frame;
+
+    /** Mappings from ids to referenced objects. */
+    protected HashMap<String, Object> _objects = new HashMap<String, Object>();
+    protected HashMap<String, Object> _depths = new HashMap<String, Object>();
+}
@@ -35,11 +35,13 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
 
-import java.util.HashMap;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import org.lwjgl.BufferUtils;
 
+import com.google.common.collect.Maps;
+
 import com.samskivert.util.StringUtil;
 
 /**
@@ -96,8 +98,7 @@ public abstract class Stringifier<T>
         throws Exception;
 
     /** Registered stringifiers. */
-    protected static HashMap<Class<?>, Stringifier<?>> _stringifiers =
-        new HashMap<Class<?>, Stringifier<?>>();
+    protected static Map<Class<?>, Stringifier<?>> _stringifiers = Maps.newConcurrentMap();
     static {
         // register basic stringifiers for wrapper types, primitive arrays
         _stringifiers.put(Boolean.class, new Stringifier<Boolean>() {
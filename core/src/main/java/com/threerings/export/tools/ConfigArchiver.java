@@ -0,0 +1,139 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.export.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import com.samskivert.util.ArrayUtil;
+
+import com.threerings.config.ConfigArchive;
+import com.threerings.config.ManagedConfig;
+import com.threerings.export.BinaryImporter;
+import com.threerings.export.Importer;
+import com.threerings.export.StreamingXMLImporter;
+
+import static com.threerings.export.Log.log;
+
+/**
+ * Writes the config groups in a directory (the <code>.xml</code> or <code>.dat</code> files
+ * that {@link com.threerings.config.ConfigGroup} would otherwise load individually) into a
+ * single {@link ConfigArchive}.
+ */
+public class ConfigArchiver
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+        throws Exception
+    {
+        // consume the options
+        boolean compress = true;
+        while (args.length > 0 && args[0].startsWith("-")) {
+            String options = args[0];
+            args = ArrayUtil.splice(args, 0, 1);
+            for (int ii = 1, nn = options.length(); ii < nn; ii++) {
+                char option = options.charAt(ii);
+                switch (option) {
+                    case 'u':
+                        compress = false;
+                        break;
+                    default:
+                        System.err.println("Unrecognized option: -" + option);
+                        System.exit(1);
+                }
+            }
+        }
+
+        if (args.length == 2) {
+            archive(new File(args[0]), new File(args[1]), compress);
+        } else if (args.length == 1) {
+            archive(new File(args[0]), new File(args[0], "configs.archive"), compress);
+        } else {
+            System.err.println(
+                "Usage: ConfigArchiver [-options] <config directory> [<archive file>]");
+            System.err.println();
+            System.err.println(
+                "where options include:");
+            System.err.println(
+                "    -u            do not compress the configs");
+        }
+    }
+
+    /**
+     * Archives the groups in the specified directory.  As with the groups themselves, XML
+     * files take precedence over binary files.
+     */
+    public static void archive (File dir, File dest, boolean compress)
+        throws IOException
+    {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + dir);
+        }
+        Arrays.sort(files);
+        Map<String, Iterable<ManagedConfig>> groups = Maps.newTreeMap();
+        for (File file : files) {
+            String name = file.getName();
+            boolean xml = name.endsWith(".xml");
+            if (!(xml || name.endsWith(".dat"))) {
+                continue;
+            }
+            String group = name.substring(0, name.length() - 4);
+            if (!xml && new File(dir, group + ".xml").exists()) {
+                continue;
+            }
+            try {
+                groups.put(group, Arrays.asList(readConfigs(file, xml)));
+            } catch (Exception e) { // IOException, ClassCastException
+                log.warning("Error reading group.", "file", file, e);
+            }
+        }
+        ConfigArchive.write(groups, dest, compress);
+    }
+
+    /**
+     * Reads the configurations of a single group.
+     */
+    protected static ManagedConfig[] readConfigs (File file, boolean xml)
+        throws IOException
+    {
+        FileInputStream stream = new FileInputStream(file);
+        Importer in = xml ? new StreamingXMLImporter(stream) : new BinaryImporter(stream);
+        try {
+            return (ManagedConfig[])in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+package com.threerings.export.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import com.google.common.io.Files;
+
+import com.threerings.export.Importer;
+import com.threerings.export.StreamingXMLImporter;
+import com.threerings.export.XMLImporter;
+
+/**
+ * Compares the throughput and peak heap usage of the DOM-based {@link XMLImporter} and the
+ * {@link StreamingXMLImporter} on a set of XML export files.  Since the peak heap usage includes
+ * garbage that has yet to be collected, run with a small young generation (for instance,
+ * <code>-Xmn4m</code>) to get figures closer to the working set of each importer.
+ */
+public class XMLImportBenchmark
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+        throws Exception
+    {
+        if (args.length < 1) {
+            System.err.println("Usage: XMLImportBenchmark <xml file> [<xml file> ...]");
+            return;
+        }
+        for (String arg : args) {
+            byte[] data = Files.toByteArray(new File(arg));
+            System.out.println(arg + " (" + data.length + " bytes):");
+            for (boolean streaming : new boolean[] { false, true }) {
+                // warm up, then measure the peak heap over a single import
+                importAll(data, streaming, ITERATIONS);
+                long peak = measurePeakHeap(data, streaming);
+
+                long start = System.nanoTime();
+                importAll(data, streaming, ITERATIONS);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("  %-10s %8.2f MB/s %8.2f ms/import %8d KB peak heap%n",
+                    streaming ? "streaming" : "dom", data.length * ITERATIONS / seconds / 1e6,
+                    seconds * 1000 / ITERATIONS, peak / 1024);
+            }
+        }
+    }
+
+    /**
+     * Imports all of the objects in the data the specified number of times.
+     */
+    protected static void importAll (byte[] data, boolean streaming, int iterations)
+        throws IOException
+    {
+        for (int ii = 0; ii < iterations; ii++) {
+            InputStream stream = new ByteArrayInputStream(data);
+            Importer in = streaming ? new StreamingXMLImporter(stream) : new XMLImporter(stream);
+            try {
+                while (true) {
+                    in.readObject();
+                }
+            } catch (EOFException e) {
+                // no problem
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the peak heap usage (above that at the start) over a single import of the data.
+     */
+    protected static long measurePeakHeap (byte[] data, boolean streaming)
+        throws IOException
+    {
+        System.gc();
+        long base = 0L;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                base += pool.getUsage().getUsed();
+            }
+        }
+        importAll(data, streaming, 1);
+        long peak = 0L;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak - base;
+    }
+
+    /** The number of imports over which we measure throughput. */
+    protected static final int ITERATIONS = 20;
+}
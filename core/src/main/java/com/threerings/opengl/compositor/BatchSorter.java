@@ -0,0 +1,283 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+package com.threerings.opengl.compositor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.threerings.opengl.renderer.Batch;
+
+import com.threerings.opengl.compositor.config.RenderQueueConfig.SortMode;
+
+/**
+ * Sorts lists of batches by packing the sort criteria of each batch into a single 64-bit key and
+ * running a (stable) least-significant-digit radix sort over the keys.  The buffers used for
+ * sorting are retained between calls, so a sorter should be reused from frame to frame (and
+ * should only be used by one thread at a time).
+ *
+ * <p> State keys can't be packed into 64 bits directly, so when sorting by state we first rank
+ * the distinct state keys in the list (ranking equal keys, as defined by
+ * {@link Batch#compareKeys}, equally) and pack the ranks.
+ */
+public class BatchSorter
+{
+    /**
+     * Returns the bits of the specified float in a form that, treated as an unsigned integer,
+     * orders the same way as the float values themselves (as per {@link Float#compare}).
+     */
+    public static int getSortableBits (float value)
+    {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+    }
+
+    /**
+     * Sorts the supplied list of batches as specified by the given mode.
+     */
+    public void sort (List<Batch> batches, SortMode mode)
+    {
+        int size = batches.size();
+        if (size < 2) {
+            return;
+        }
+        ensureCapacity(size);
+        Batch[] sorted = _batches;
+        for (int ii = 0; ii < size; ii++) {
+            sorted[ii] = batches.get(ii);
+        }
+        if (mode.usesStates()) {
+            rankStates(size);
+        }
+        long[] keys = _keys;
+        int[] indices = _indices, states = _states;
+        for (int ii = 0; ii < size; ii++) {
+            keys[ii] = mode.getSortKey(states[ii], sorted[ii].depth);
+            indices[ii] = ii;
+        }
+        radixSort(size);
+        indices = _indices; // the sort may have swapped the buffers
+        for (int ii = 0; ii < size; ii++) {
+            batches.set(ii, sorted[indices[ii]]);
+        }
+        Arrays.fill(sorted, 0, size, null);
+    }
+
+    /**
+     * Makes sure that the buffers can hold the specified number of batches.
+     */
+    protected void ensureCapacity (int size)
+    {
+        if (_keys.length >= size) {
+            return;
+        }
+        int capacity = Math.max(size, _keys.length * 2);
+        _batches = new Batch[capacity];
+        _keys = new long[capacity];
+        _tkeys = new long[capacity];
+        _indices = new int[capacity];
+        _tindices = new int[capacity];
+        _states = new int[capacity];
+        _slots = new int[capacity];
+        _distinct = new int[capacity][];
+        _table = new int[Integer.highestOneBit(capacity) * 4][];
+        _ranks = new int[_table.length];
+    }
+
+    /**
+     * Populates the state array with the ranks of the batches' state keys.
+     */
+    protected void rankStates (int size)
+    {
+        // find the distinct keys and the table slot of each batch's key
+        int[][] table = _table;
+        int mask = table.length - 1, count = 0;
+        for (int ii = 0; ii < size; ii++) {
+            int[] key = _batches[ii].key;
+            int length = getSignificantLength(key);
+            int slot = hashKey(key, length) & mask;
+            for (int[] tkey; (tkey = table[slot]) != null; slot = (slot + 1) & mask) {
+                if (tkey == key || keysEqual(tkey, key, length)) {
+                    break;
+                }
+            }
+            if (table[slot] == null) {
+                table[slot] = (key == null) ? NULL_KEY : key;
+                _distinct[count++] = table[slot];
+            }
+            _slots[ii] = slot;
+        }
+
+        // sort the distinct keys and record the rank of each
+        Arrays.sort(_distinct, 0, count, KEY_COMPARATOR);
+        for (int ii = 0; ii < count; ii++) {
+            int[] key = _distinct[ii];
+            int length = getSignificantLength(key);
+            int slot = hashKey(key, length) & mask;
+            while (table[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            _ranks[slot] = ii;
+        }
+        for (int ii = 0; ii < size; ii++) {
+            _states[ii] = _ranks[_slots[ii]];
+        }
+
+        // clear the table for next time
+        for (int ii = 0; ii < size; ii++) {
+            table[_slots[ii]] = null;
+        }
+        Arrays.fill(_distinct, 0, count, null);
+    }
+
+    /**
+     * Sorts the keys (and the corresponding indices) in ascending unsigned order.
+     */
+    protected void radixSort (int size)
+    {
+        // compute the histograms for all digits in one pass
+        int[] counts = _counts;
+        Arrays.fill(counts, 0);
+        long[] keys = _keys;
+        for (int ii = 0; ii < size; ii++) {
+            long key = keys[ii];
+            for (int dd = 0; dd < DIGITS; dd++) {
+                counts[(dd << 8) | (int)((key >>> (dd << 3)) & 0xFF)]++;
+            }
+        }
+
+        // sort by each digit in turn, skipping those that are the same for every key
+        int[] indices = _indices, tindices = _tindices;
+        long[] tkeys = _tkeys;
+        for (int dd = 0; dd < DIGITS; dd++) {
+            int base = dd << 8, shift = dd << 3;
+            if (counts[base | (int)((keys[0] >>> shift) & 0xFF)] == size) {
+                continue;
+            }
+            for (int ii = 0, offset = 0; ii < 256; ii++) {
+                int count = counts[base | ii];
+                counts[base | ii] = offset;
+                offset += count;
+            }
+            for (int ii = 0; ii < size; ii++) {
+                long key = keys[ii];
+                int idx = counts[base | (int)((key >>> shift) & 0xFF)]++;
+                tkeys[idx] = key;
+                tindices[idx] = indices[ii];
+            }
+            long[] okeys = keys;
+            keys = tkeys;
+            tkeys = okeys;
+            int[] oindices = indices;
+            indices = tindices;
+            tindices = oindices;
+        }
+        _keys = keys;
+        _tkeys = tkeys;
+        _indices = indices;
+        _tindices = tindices;
+    }
+
+    /**
+     * Returns the length of the specified key excluding any trailing zeros (which don't affect
+     * its comparison with other keys).
+     */
+    protected static int getSignificantLength (int[] key)
+    {
+        int length = (key == null) ? 0 : key.length;
+        while (length > 0 && key[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Computes the hash of the significant part of a key.
+     */
+    protected static int hashKey (int[] key, int length)
+    {
+        int hash = 1;
+        for (int ii = 0; ii < length; ii++) {
+            hash = 31*hash + key[ii];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Determines whether the first key equals the significant part of the second.
+     */
+    protected static boolean keysEqual (int[] k1, int[] k2, int length)
+    {
+        if (getSignificantLength(k1) != length) {
+            return false;
+        }
+        for (int ii = 0; ii < length; ii++) {
+            if (k1[ii] != k2[ii]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The batches being sorted. */
+    protected Batch[] _batches = new Batch[0];
+
+    /** The sort keys and the temporary buffer for the radix sort. */
+    protected long[] _keys = new long[0], _tkeys = new long[0];
+
+    /** The indices of the batches and the temporary buffer for the radix sort. */
+    protected int[] _indices = new int[0], _tindices = new int[0];
+
+    /** The state ranks of the batches. */
+    protected int[] _states = new int[0];
+
+    /** The hash table slots of the batches' state keys. */
+    protected int[] _slots = new int[0];
+
+    /** The distinct state keys. */
+    protected int[][] _distinct = new int[0][];
+
+    /** The open-addressed hash table of state keys. */
+    protected int[][] _table = new int[0][];
+
+    /** The ranks of the keys in each slot of the table. */
+    protected int[] _ranks = new int[0];
+
+    /** The digit histograms. */
+    protected int[] _counts = new int[DIGITS << 8];
+
+    /** The number of (eight-bit) digits in the sort keys. */
+    protected static final int DIGITS = 8;
+
+    /** Stands in for null state keys in the table. */
+    protected static final int[] NULL_KEY = new int[0];
+
+    /** Compares state keys. */
+    protected static final Comparator<int[]> KEY_COMPARATOR = new Comparator<int[]>() {
+        public int compare (int[] k1, int[] k2) {
+            return Batch.compareKeys(k1, k2);
+        }
+    };
+}
@@ -39,6 +39,8 @@ import com.samskivert.util.QuickSort;
 
 import com.threerings.opengl.camera.Camera;
 import com.threerings.opengl.compositor.config.RenderEffectConfig;
+import com.threerings.opengl.geometry.SkinningEngine;
+import com.threerings.opengl.model.PoseCache;
 import com.threerings.opengl.renderer.Color4f;
 import com.threerings.opengl.renderer.Renderer;
 import com.threerings.opengl.renderer.state.ColorMaskState;
@@ -154,6 +156,22 @@ public class Compositor
         return _backgroundColor;
     }
 
+    /**
+     * Returns a reference to the engine that skins geometry in software.
+     */
+    public SkinningEngine getSkinningEngine ()
+    {
+        return _skinningEngine;
+    }
+
+    /**
+     * Returns a reference to the cache of poses shared between articulated models.
+     */
+    public PoseCache getPoseCache ()
+    {
+        return _poseCache;
+    }
+
     /**
      * Adds an element to the list of view roots.
      */
@@ -381,6 +399,9 @@ public class Compositor
             _enqueueables.get(ii).enqueue();
         }
         _enqueueables.clear();
+
+        // finish any skinning started by the enqueueables
+        _skinningEngine.finish();
     }
 
     /**
@@ -520,6 +541,12 @@ public class Compositor
     /** The base render queue group. */
     protected RenderQueue.Group _group;
 
+    /** Skins geometry in software. */
+    protected SkinningEngine _skinningEngine = new SkinningEngine();
+
+    /** Shares poses between articulated models. */
+    protected PoseCache _poseCache = new PoseCache();
+
     /** The current subrender depth. */
     protected int _subrenderDepth;
 
@@ -239,7 +239,7 @@ public class RenderQueue
 
         // sort each list
         for (int ii = 0, nn = _lists.size(); ii < nn; ii++) {
-            _config.sortMode.sort(_lists.get(ii));
+            _config.sortMode.sort(_lists.get(ii), _sorter);
         }
     }
 
@@ -468,4 +468,7 @@ public class RenderQueue
 
     /** The set of group batches. */
     protected ArrayList<GroupBatch> _batches = Lists.newArrayList();
+
+    /** Sorts the batch lists, retaining its buffers between frames. */
+    protected BatchSorter _sorter = new BatchSorter();
 }
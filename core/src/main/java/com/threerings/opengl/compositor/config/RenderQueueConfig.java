@@ -40,6 +40,7 @@ import com.threerings.math.FloatMath;
 import com.threerings.math.Vector3f;
 import com.threerings.util.DeepObject;
 
+import com.threerings.opengl.compositor.BatchSorter;
 import com.threerings.opengl.compositor.RenderQueue;
 import com.threerings.opengl.gui.util.Rectangle;
 import com.threerings.opengl.renderer.Batch;
@@ -60,6 +61,9 @@ public class RenderQueueConfig extends ManagedConfig
             public void sort (List<Batch> batches) {
                 // no-op
             }
+            public void sort (List<Batch> batches, BatchSorter sorter) {
+                // no-op
+            }
         },
 
         /** Sorts batches by state, then front-to-back. */
@@ -68,30 +72,73 @@ public class RenderQueueConfig extends ManagedConfig
                 int comp = Batch.compareKeys(b1.key, b2.key);
                 return (comp == 0) ? Float.compare(b2.depth, b1.depth) : comp;
             }
-        }),
+        }) {
+            public boolean usesStates () {
+                return true;
+            }
+            public long getSortKey (int state, float depth) {
+                return ((long)state << 32) | (~BatchSorter.getSortableBits(depth) & 0xFFFFFFFFL);
+            }
+        },
 
         /** Sorts batches by depth, back-to-front. */
         BACK_TO_FRONT(new Comparator<Batch>() {
             public int compare (Batch b1, Batch b2) {
                 return Float.compare(b1.depth, b2.depth);
             }
-        }),
+        }) {
+            public long getSortKey (int state, float depth) {
+                return BatchSorter.getSortableBits(depth) & 0xFFFFFFFFL;
+            }
+        },
 
         /** Sorts batches by depth, front-to-back. */
         FRONT_TO_BACK(new Comparator<Batch>() {
             public int compare (Batch b1, Batch b2) {
                 return Float.compare(b2.depth, b1.depth);
             }
-        });
+        }) {
+            public long getSortKey (int state, float depth) {
+                return ~BatchSorter.getSortableBits(depth) & 0xFFFFFFFFL;
+            }
+        };
 
         /**
-         * Sorts the supplied list of batches.
+         * Sorts the supplied list of batches using the comparator.
          */
         public void sort (List<Batch> batches)
         {
             QuickSort.sort(batches, _comparator);
         }
 
+        /**
+         * Sorts the supplied list of batches using the given sorter, which orders them as the
+         * comparator would (except that batches that compare as equal retain their order).
+         */
+        public void sort (List<Batch> batches, BatchSorter sorter)
+        {
+            sorter.sort(batches, this);
+        }
+
+        /**
+         * Checks whether the sort keys depend on the ranks of the batches' state keys.
+         */
+        public boolean usesStates ()
+        {
+            return false;
+        }
+
+        /**
+         * Returns the packed key by which to sort a batch.
+         *
+         * @param state the rank of the batch's state key, if {@link #usesStates}.
+         * @param depth the depth of the batch.
+         */
+        public long getSortKey (int state, float depth)
+        {
+            return 0L;
+        }
+
         SortMode (Comparator<Batch> comparator)
         {
             _comparator = comparator;
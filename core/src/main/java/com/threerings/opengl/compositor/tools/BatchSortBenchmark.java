@@ -0,0 +1,162 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.compositor.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+
+import com.threerings.opengl.compositor.BatchSorter;
+import com.threerings.opengl.compositor.config.RenderQueueConfig.SortMode;
+import com.threerings.opengl.renderer.Batch;
+import com.threerings.opengl.renderer.Renderer;
+
+/**
+ * Compares the time taken to sort render queues of various sizes using the sort modes'
+ * comparators and using the {@link BatchSorter}, checking that the sorter produces valid
+ * orderings.  The batches have random depths and state keys drawn from a limited pool, as in a
+ * typical scene.
+ */
+public class BatchSortBenchmark
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+    {
+        int[] sizes = (args.length > 0) ? new int[args.length] : DEFAULT_SIZES;
+        for (int ii = 0; ii < args.length; ii++) {
+            sizes[ii] = Integer.parseInt(args[ii]);
+        }
+        Random random = new Random(1L);
+        BatchSorter sorter = new BatchSorter();
+        for (int size : sizes) {
+            List<Batch> batches = createBatches(size, random);
+            System.out.println(size + " batches:");
+            for (SortMode mode : SORT_MODES) {
+                checkOrder(batches, mode, sorter);
+                double comparator = time(batches, mode, null);
+                double radix = time(batches, mode, sorter);
+                System.out.printf("  %-14s %8.3f ms/frame comparator %8.3f ms/frame radix " +
+                    "(%.1fx)%n", mode, comparator, radix, comparator / radix);
+            }
+        }
+    }
+
+    /**
+     * Creates a list of batches with random depths and states.
+     */
+    protected static List<Batch> createBatches (int size, Random random)
+    {
+        int[][] keys = new int[STATE_COUNT][];
+        for (int ii = 0; ii < keys.length; ii++) {
+            int[] key = keys[ii] = new int[1 + random.nextInt(6)];
+            for (int jj = 0; jj < key.length; jj++) {
+                key[jj] = random.nextInt(64);
+            }
+        }
+        ArrayList<Batch> batches = Lists.newArrayListWithCapacity(size);
+        for (int ii = 0; ii < size; ii++) {
+            Batch batch = new Batch() {
+                public boolean draw (Renderer renderer) {
+                    return false;
+                }
+            };
+            batch.depth = -random.nextFloat() * 1000f;
+            batch.key = keys[random.nextInt(keys.length)].clone();
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Sorts a shuffled copy of the batches with the sorter and makes sure that the result is
+     * ordered as the mode's comparator requires.
+     */
+    protected static void checkOrder (List<Batch> batches, SortMode mode, BatchSorter sorter)
+    {
+        List<Batch> sorted = Lists.newArrayList(batches);
+        Collections.shuffle(sorted, new Random(2L));
+        mode.sort(sorted, sorter);
+        List<Batch> expected = Lists.newArrayList(sorted);
+        mode.sort(expected);
+        for (int ii = 0, nn = sorted.size(); ii < nn; ii++) {
+            Batch b1 = sorted.get(ii), b2 = expected.get(ii);
+            if ((mode == SortMode.BY_STATE && Batch.compareKeys(b1.key, b2.key) != 0) ||
+                    Float.compare(b1.depth, b2.depth) != 0) {
+                throw new IllegalStateException("Misordered batch [mode=" + mode +
+                    ", index=" + ii + "].");
+            }
+        }
+    }
+
+    /**
+     * Returns the average time in milliseconds taken to sort the batches, starting from the
+     * same shuffled order each time.
+     *
+     * @param sorter the sorter to use, or <code>null</code> to use the comparator.
+     */
+    protected static double time (List<Batch> batches, SortMode mode, BatchSorter sorter)
+    {
+        List<Batch> shuffled = Lists.newArrayList(batches);
+        Collections.shuffle(shuffled, new Random(3L));
+        ArrayList<Batch> list = Lists.newArrayListWithCapacity(batches.size());
+        long elapsed = 0L;
+        for (int ii = 0; ii < WARMUP_FRAMES + FRAMES; ii++) {
+            list.clear();
+            list.addAll(shuffled);
+            long start = System.nanoTime();
+            if (sorter == null) {
+                mode.sort(list);
+            } else {
+                mode.sort(list, sorter);
+            }
+            if (ii >= WARMUP_FRAMES) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        return elapsed / 1e6 / FRAMES;
+    }
+
+    /** The default list sizes to test. */
+    protected static final int[] DEFAULT_SIZES = { 10000, 50000 };
+
+    /** The modes to test. */
+    protected static final SortMode[] SORT_MODES = {
+        SortMode.BY_STATE, SortMode.BACK_TO_FRONT, SortMode.FRONT_TO_BACK };
+
+    /** The number of distinct states from which to choose. */
+    protected static final int STATE_COUNT = 200;
+
+    /** The number of frames to sort before timing. */
+    protected static final int WARMUP_FRAMES = 200;
+
+    /** The number of frames to time. */
+    protected static final int FRAMES = 200;
+}
@@ -176,33 +176,9 @@ public abstract class BaseParticleSystem extends Model.Implementation
                 influence.tick(elapsed);
             }
 
-            // update the living particles and the bounds
-            _bounds.setToEmpty();
-            float msize = 0f;
-            float scale = 1f;
-            if (!_config.moveParticlesWithEmitter) {
-                scale = _worldTransform.approximateUniformScale();
-            }
+            // update the living particles, moving the dead ones out of the living range
             for (int ii = 0; ii < _living.value; ii++) {
-                Particle particle = _particles[ii];
-                if (particle.tick(elapsed)) {
-                    // apply the influences
-                    for (Influence influence : _influences) {
-                        influence.apply(particle);
-                    }
-                    // modulate by the inherited color, if any
-                    if (_colorState != null) {
-                        particle.getColor().multLocal(_colorState.getColor());
-                    }
-                    // multiply by the inherited scale, if any
-                    if (!_config.moveParticlesWithEmitter) {
-                        particle.setSize(particle.getSize() * scale);
-                    }
-                    // add to bounds
-                    _bounds.addLocal(particle.getPosition());
-                    msize = Math.max(msize, particle.getSize());
-
-                } else {
+                if (!_particles[ii].tick(elapsed)) {
                     killParticle(ii);
 
                     // move this particle to the end of the list
@@ -217,6 +193,30 @@ public abstract class BaseParticleSystem extends Model.Implementation
                 }
             }
 
+            // apply the influences to the survivors, one influence at a time
+            int living = _living.value;
+            for (Influence influence : _influences) {
+                applyInfluence(influence, living);
+            }
+
+            // modulate by the inherited color and scale, if any, and compute the bounds
+            _bounds.setToEmpty();
+            float msize = 0f;
+            Color4f color = (_colorState == null) ? null : _colorState.getColor();
+            boolean scaled = !_config.moveParticlesWithEmitter;
+            float scale = scaled ? _worldTransform.approximateUniformScale() : 1f;
+            for (int ii = 0; ii < living; ii++) {
+                Particle particle = _particles[ii];
+                if (color != null) {
+                    particle.getColor().multLocal(color);
+                }
+                if (scaled) {
+                    particle.setSize(particle.getSize() * scale);
+                }
+                _bounds.addLocal(particle.getPosition());
+                msize = Math.max(msize, particle.getSize());
+            }
+
             // check for completion
             if (_living.value == 0 && _preliving == 0 && !_config.respawnDeadParticles) {
                 return (_completed = true);
@@ -324,6 +324,21 @@ public abstract class BaseParticleSystem extends Model.Implementation
             return "layer";
         }
 
+        /**
+         * Applies an influence to the first <code>count</code> particles, over the whole range
+         * at once if the influence supports it.
+         */
+        protected void applyInfluence (Influence influence, int count)
+        {
+            if (influence instanceof BaseInfluence) {
+                ((BaseInfluence)influence).apply(_particles, 0, count);
+            } else {
+                for (int ii = 0; ii < count; ii++) {
+                    influence.apply(_particles[ii]);
+                }
+            }
+        }
+
         /**
          * Swaps the two particles at the specified indices.
          */
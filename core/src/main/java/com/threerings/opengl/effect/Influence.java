@@ -26,7 +26,8 @@
 package com.threerings.opengl.effect;
 
 /**
- * Represents an influence on a particle system.
+ * Represents an influence on a particle system.  Influences that extend {@link BaseInfluence}
+ * can also be applied to whole ranges of particles at once.
  */
 public interface Influence
 {
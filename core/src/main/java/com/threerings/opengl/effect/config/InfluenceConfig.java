@@ -35,6 +35,7 @@ import com.threerings.math.Vector3f;
 import com.threerings.util.DeepObject;
 import com.threerings.util.NoiseUtil;
 
+import com.threerings.opengl.effect.BaseInfluence;
 import com.threerings.opengl.effect.BaseParticleSystem.Layer;
 import com.threerings.opengl.effect.Influence;
 import com.threerings.opengl.effect.Particle;
@@ -67,13 +68,19 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (final Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     layer.vectorToLayer(acceleration.mult(elapsed, _delta), rotateWithEmitter);
                 }
                 public void apply (Particle particle) {
                     particle.getVelocity().addLocal(_delta);
                 }
+                public void apply (Particle[] particles, int start, int end) {
+                    float dx = _delta.x, dy = _delta.y, dz = _delta.z;
+                    for (int ii = start; ii < end; ii++) {
+                        particles[ii].getVelocity().addLocal(dx, dy, dz);
+                    }
+                }
                 protected Vector3f _delta = new Vector3f();
             };
         }
@@ -99,7 +106,7 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (final Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     layer.vectorToLayer(direction.mult(strength * elapsed, _delta),
                         rotateWithEmitter);
@@ -107,6 +114,12 @@ public abstract class InfluenceConfig extends DeepObject
                 public void apply (Particle particle) {
                     particle.getVelocity().addLocal(_delta);
                 }
+                public void apply (Particle[] particles, int start, int end) {
+                    float dx = _delta.x, dy = _delta.y, dz = _delta.z;
+                    for (int ii = start; ii < end; ii++) {
+                        particles[ii].getVelocity().addLocal(dx, dy, dz);
+                    }
+                }
                 protected Vector3f _delta = new Vector3f();
             };
         }
@@ -124,13 +137,19 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     _drag = Math.max(0f, 1f - amount*elapsed);
                 }
                 public void apply (Particle particle) {
                     particle.getVelocity().multLocal(_drag);
                 }
+                public void apply (Particle[] particles, int start, int end) {
+                    float drag = _drag;
+                    for (int ii = start; ii < end; ii++) {
+                        particles[ii].getVelocity().multLocal(drag);
+                    }
+                }
                 protected float _drag;
             };
         }
@@ -149,7 +168,7 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     _drag = amount * elapsed;
                 }
@@ -157,6 +176,13 @@ public abstract class InfluenceConfig extends DeepObject
                     Vector3f velocity = particle.getVelocity();
                     velocity.multLocal(Math.max(0f, 1f - _drag*velocity.length()));
                 }
+                public void apply (Particle[] particles, int start, int end) {
+                    float drag = _drag;
+                    for (int ii = start; ii < end; ii++) {
+                        Vector3f velocity = particles[ii].getVelocity();
+                        velocity.multLocal(Math.max(0f, 1f - drag*velocity.length()));
+                    }
+                }
                 protected float _drag;
             };
         }
@@ -186,7 +212,7 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (final Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     // compute the delta amount
                     _delta = strength * elapsed;
@@ -250,7 +276,7 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (final Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     // compute the delta amount
                     _delta = strength * elapsed;
@@ -315,7 +341,7 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     // the unscaled strength was based on an expected frame rate of sixty
                     // frames per second
@@ -354,7 +380,7 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     _time += elapsed * frequency;
                     _sstrength = strength * elapsed * 60f;
@@ -385,13 +411,19 @@ public abstract class InfluenceConfig extends DeepObject
         @Override
         public Influence createInfluence (final Layer layer)
         {
-            return new Influence() {
+            return new BaseInfluence() {
                 public void tick (float elapsed) {
                     acceleration.mult(elapsed, _delta);
                 }
                 public void apply (Particle particle) {
                     particle.getAngularVelocity().addLocal(_delta);
                 }
+                public void apply (Particle[] particles, int start, int end) {
+                    float dx = _delta.x, dy = _delta.y, dz = _delta.z;
+                    for (int ii = start; ii < end; ii++) {
+                        particles[ii].getAngularVelocity().addLocal(dx, dy, dz);
+                    }
+                }
                 protected Vector3f _delta = new Vector3f();
             };
         }
@@ -0,0 +1,261 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.effect.tools;
+
+import java.util.Random;
+
+import com.threerings.math.Vector3f;
+
+import com.threerings.opengl.effect.BaseParticleSystem;
+import com.threerings.opengl.effect.Influence;
+import com.threerings.opengl.effect.Particle;
+import com.threerings.opengl.effect.config.InfluenceConfig;
+import com.threerings.opengl.effect.config.ParticleSystemConfig;
+
+/**
+ * Compares the time taken to apply sets of influences to layers of particles of various sizes
+ * one particle at a time (applying every influence to each particle in turn, as layers once did)
+ * and one influence at a time (as layers do now, using the influences' range methods where
+ * available), checking that both give identical results.
+ */
+public class InfluenceBenchmark
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+    {
+        int[] sizes = (args.length > 0) ? new int[args.length] : DEFAULT_SIZES;
+        for (int ii = 0; ii < args.length; ii++) {
+            sizes[ii] = Integer.parseInt(args[ii]);
+        }
+        Random random = new Random(1L);
+        for (int size : sizes) {
+            TestLayer layer = new TestLayer(size, random);
+            System.out.println(size + " particles:");
+            for (int ii = 0; ii < INFLUENCE_SETS.length; ii++) {
+                InfluenceConfig[] configs = INFLUENCE_SETS[ii];
+                checkResults(layer, configs);
+                double particle = time(layer, createInfluences(configs, layer), false);
+                double range = time(layer, createInfluences(configs, layer), true);
+                System.out.printf("  %-6s %8.3f ms/frame by particle %8.3f ms/frame by range " +
+                    "(%.1fx)%n", INFLUENCE_SET_NAMES[ii], particle, range, particle / range);
+            }
+        }
+    }
+
+    /**
+     * Creates the influences described by the specified configs for the layer.
+     */
+    protected static Influence[] createInfluences (
+        InfluenceConfig[] configs, BaseParticleSystem.Layer layer)
+    {
+        Influence[] influences = new Influence[configs.length];
+        for (int ii = 0; ii < configs.length; ii++) {
+            influences[ii] = configs[ii].createInfluence(layer);
+        }
+        return influences;
+    }
+
+    /**
+     * Makes sure that both ways of applying the influences give identical results, starting
+     * from fresh influences each time (since some keep time of their own).
+     */
+    protected static void checkResults (TestLayer layer, InfluenceConfig[] configs)
+    {
+        Influence[] influences = createInfluences(configs, layer);
+        layer.restore();
+        for (int ii = 0; ii < CHECK_FRAMES; ii++) {
+            layer.apply(influences, false);
+        }
+        float[] expected = layer.getState();
+        influences = createInfluences(configs, layer);
+        layer.restore();
+        for (int ii = 0; ii < CHECK_FRAMES; ii++) {
+            layer.apply(influences, true);
+        }
+        float[] actual = layer.getState();
+        for (int ii = 0; ii < expected.length; ii++) {
+            if (Float.floatToIntBits(expected[ii]) != Float.floatToIntBits(actual[ii])) {
+                throw new IllegalStateException("Mismatched state [index=" + ii + "].");
+            }
+        }
+    }
+
+    /**
+     * Returns the average time in milliseconds taken to apply the influences to the layer's
+     * particles.
+     *
+     * @param range if true, apply the influences one at a time; otherwise, one particle at a
+     * time.
+     */
+    protected static double time (TestLayer layer, Influence[] influences, boolean range)
+    {
+        long elapsed = 0L;
+        for (int ii = 0; ii < WARMUP_FRAMES + FRAMES; ii++) {
+            if (ii % RESTORE_INTERVAL == 0) {
+                layer.restore();
+            }
+            long start = System.nanoTime();
+            layer.apply(influences, range);
+            if (ii >= WARMUP_FRAMES) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        return elapsed / 1e6 / FRAMES;
+    }
+
+    /**
+     * A layer holding particles with random positions and velocities, which can be restored to
+     * their initial state.
+     */
+    protected static class TestLayer extends BaseParticleSystem.Layer
+    {
+        /**
+         * Creates a new layer with the specified number of particles.
+         */
+        public TestLayer (int size, Random random)
+        {
+            super(null, null);
+            _config = new ParticleSystemConfig.Layer();
+            _particles = new Particle[size];
+            _initial = new float[size * STATE_SIZE];
+            for (int ii = 0, idx = 0; ii < size; ii++) {
+                _particles[ii] = new Particle();
+                for (int jj = 0; jj < STATE_SIZE; jj++) {
+                    _initial[idx++] = random.nextFloat() * 10f - 5f;
+                }
+            }
+        }
+
+        /**
+         * Ticks the influences and applies them to all of the particles.
+         *
+         * @param range if true, apply the influences one at a time; otherwise, one particle at a
+         * time.
+         */
+        public void apply (Influence[] influences, boolean range)
+        {
+            for (Influence influence : influences) {
+                influence.tick(ELAPSED);
+            }
+            if (range) {
+                for (Influence influence : influences) {
+                    applyInfluence(influence, _particles.length);
+                }
+            } else {
+                for (Particle particle : _particles) {
+                    for (Influence influence : influences) {
+                        influence.apply(particle);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Restores the particles to their initial state.
+         */
+        public void restore ()
+        {
+            for (int ii = 0, idx = 0; ii < _particles.length; ii++) {
+                Particle particle = _particles[ii];
+                particle.getPosition().set(_initial[idx++], _initial[idx++], _initial[idx++]);
+                particle.getVelocity().set(_initial[idx++], _initial[idx++], _initial[idx++]);
+                particle.getAngularVelocity().set(
+                    _initial[idx++], _initial[idx++], _initial[idx++]);
+            }
+        }
+
+        /**
+         * Returns a copy of the particles' current state.
+         */
+        public float[] getState ()
+        {
+            float[] state = new float[_initial.length];
+            int idx = 0;
+            for (Particle particle : _particles) {
+                idx = getState(particle.getPosition(), state, idx);
+                idx = getState(particle.getVelocity(), state, idx);
+                idx = getState(particle.getAngularVelocity(), state, idx);
+            }
+            return state;
+        }
+
+        @Override
+        public void composite ()
+        {
+            // never rendered
+        }
+
+        /**
+         * Stores a vector in the state array.
+         *
+         * @return the index after the stored vector.
+         */
+        protected int getState (Vector3f vector, float[] state, int idx)
+        {
+            state[idx++] = vector.x;
+            state[idx++] = vector.y;
+            state[idx++] = vector.z;
+            return idx;
+        }
+
+        /** The initial positions, velocities, and angular velocities of the particles. */
+        protected float[] _initial;
+    }
+
+    /** The default particle counts to test. */
+    protected static final int[] DEFAULT_SIZES = { 500, 2000, 10000 };
+
+    /** The influence sets to test: cheap per-particle work only, and a typical mixed set. */
+    protected static final InfluenceConfig[][] INFLUENCE_SETS = {
+        { new InfluenceConfig.Gravity(), new InfluenceConfig.LinearDrag(),
+            new InfluenceConfig.AngularAcceleration() },
+        { new InfluenceConfig.Gravity(), new InfluenceConfig.Wind(),
+            new InfluenceConfig.QuadraticDrag(), new InfluenceConfig.Wander(),
+            new InfluenceConfig.CylindricalVortex(), new InfluenceConfig.AngularAcceleration() } };
+
+    /** The names of the influence sets. */
+    protected static final String[] INFLUENCE_SET_NAMES = { "cheap", "mixed" };
+
+    /** The number of floats of state stored for each particle. */
+    protected static final int STATE_SIZE = 9;
+
+    /** The simulated time elapsed in each frame. */
+    protected static final float ELAPSED = 1f / 60f;
+
+    /** The number of frames for which to compare the results. */
+    protected static final int CHECK_FRAMES = 20;
+
+    /** The number of frames between restorations of the initial state. */
+    protected static final int RESTORE_INTERVAL = 50;
+
+    /** The number of frames to run before timing. */
+    protected static final int WARMUP_FRAMES = 2000;
+
+    /** The number of frames to time. */
+    protected static final int FRAMES = 200;
+}
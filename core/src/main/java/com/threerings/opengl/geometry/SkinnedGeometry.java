@@ -0,0 +1,173 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.geometry;
+
+import java.nio.FloatBuffer;
+
+import com.threerings.math.Matrix4f;
+import com.threerings.math.Transform3D;
+
+import com.threerings.opengl.renderer.BufferObject;
+
+/**
+ * Base class for geometry skinned in software by a {@link SkinningEngine}.
+ */
+public abstract class SkinnedGeometry extends DynamicGeometry
+    implements SkinningEngine.Job
+{
+    /**
+     * Creates a new skinned geometry.
+     *
+     * @param skeleton the skeleton to which the bone matrices belong, if they all belong to one
+     * that may share its skinned data (otherwise <code>null</code>).
+     * @param data the array into which the skinned vertex data will be written, which may be
+     * shared with other instances (in which case it will be copied if the engine is parallel).
+     * @param arrayBuffer the VBO into which the vertex data will be copied, or <code>null</code>
+     * for none.
+     * @param floatArray the buffer into which vertex data will be copied, or <code>null</code>
+     * if using a VBO.
+     * @param tidx the index of the first tangent in the data array.
+     * @param nidx the index of the first normal in the data array.
+     * @param vidx the index of the first vertex in the data array.
+     * @param dinc the stride between adjacent vertices in the data array.
+     */
+    public SkinnedGeometry (
+        SkinningEngine engine, SkinningEngine.Mesh mesh, Matrix4f[] boneMatrices,
+        SkinningEngine.Skeleton skeleton, float[] data, BufferObject arrayBuffer,
+        FloatBuffer floatArray, int tidx, int nidx, int vidx, int dinc)
+    {
+        super(data, arrayBuffer, floatArray);
+        _engine = engine;
+        _mesh = mesh;
+        _boneMatrices = boneMatrices;
+        _skeleton = skeleton;
+        _tidx = tidx;
+        _nidx = nidx;
+        _vidx = vidx;
+        _dinc = dinc;
+    }
+
+    @Override
+    public void update ()
+    {
+        if (_pending) {
+            return; // already submitted for this frame
+        }
+        if (_engine.isParallel() && !_ownData) {
+            _data = _data.clone();
+            _ownData = true;
+        }
+        _pending = true;
+        _engine.submit(this);
+    }
+
+    // documentation inherited from interface SkinningEngine.Job
+    public int getScratchSize ()
+    {
+        return _mesh.getScratchSize();
+    }
+
+    // documentation inherited from interface SkinningEngine.Job
+    public void skin (float[] scratch)
+    {
+        _bones = SkinningEngine.flatten(_boneMatrices, _bones);
+        SkinningEngine.SharedSkins skins = (_skeleton == null) ?
+            null : _skeleton.getSharedSkins();
+        if (skins == null) {
+            _mesh.skin(_bones, _data, _tidx, _nidx, _vidx, _dinc, scratch);
+            return;
+        }
+
+        // if no other model in the pose has skinned the mesh, skin it in model space (that is,
+        // with the bone matrices premultiplied by the inverse of the view transform)
+        Transform3D view = _skeleton.getViewTransform();
+        float[] skin = skins.getSkin(_mesh);
+        if (skin == null) {
+            SkinningEngine.flatten(
+                view.invert(_xform).update(Transform3D.AFFINE).getMatrix(), _matrix, 0);
+            _modelBones = SkinningEngine.compose(
+                _matrix, _bones, _boneMatrices.length, _modelBones);
+            _mesh.skin(_modelBones, skin = new float[_mesh.getSourceSize()], scratch);
+            skin = skins.putSkin(_mesh, skin);
+        }
+
+        // transform the shared data into eye space
+        SkinningEngine.flatten(
+            _xform.set(view).update(Transform3D.AFFINE).getMatrix(), _matrix, 0);
+        _mesh.transformSkin(skin, _matrix, _data, _tidx, _nidx, _vidx, _dinc);
+    }
+
+    // documentation inherited from interface SkinningEngine.Job
+    public void finish ()
+    {
+        // clear the flag first so that a failed upload can't keep us from being submitted again
+        _pending = false;
+        uploadData();
+    }
+
+    @Override
+    protected void updateData ()
+    {
+        // not called by update, which goes through the engine
+        skin(new float[_mesh.getScratchSize()]);
+    }
+
+    /** The engine that performs the skinning. */
+    protected SkinningEngine _engine;
+
+    /** The mesh to skin. */
+    protected SkinningEngine.Mesh _mesh;
+
+    /** The bone matrices. */
+    protected Matrix4f[] _boneMatrices;
+
+    /** The skeleton to which the bones belong, if it may share its skinned data. */
+    protected SkinningEngine.Skeleton _skeleton;
+
+    /** The flattened bone matrices. */
+    protected float[] _bones;
+
+    /** The flattened bone matrices in model space. */
+    protected float[] _modelBones;
+
+    /** Holds a flattened view transform or its inverse. */
+    protected float[] _matrix = new float[12];
+
+    /** A temporary transform. */
+    protected Transform3D _xform = new Transform3D();
+
+    /** The indices of the first tangent, normal, and vertex in the data array. */
+    protected int _tidx, _nidx, _vidx;
+
+    /** The stride between adjacent vertices in the data array. */
+    protected int _dinc;
+
+    /** Whether we have our own copy of the data array. */
+    protected boolean _ownData;
+
+    /** Set when we've been submitted to the engine and have yet to be finished. */
+    protected boolean _pending;
+}
@@ -0,0 +1,739 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.geometry;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+import com.threerings.math.Matrix4f;
+import com.threerings.math.Transform3D;
+
+/**
+ * Performs software skinning.  Skinning jobs submitted during a frame are normally run as they are
+ * submitted, but if the engine has an executor, they are collected and run in parallel (on the
+ * executor's threads and the calling thread) when {@link #finish} is called.
+ *
+ * <p> The skinning itself works on flattened arrays: the bone matrices are copied into a
+ * contiguous array of 3x4 affine matrices, a blended matrix is computed for each vertex by a
+ * kernel specialized for the number of bones that influence it (so that we don't waste time on
+ * zero weights), and the vertex attributes are transformed by the blended matrices in a single
+ * pass.
+ *
+ * <p> Models in the same pose may share their skinned data.  The data is shared in model space,
+ * so each model need only transform it by its view transform.
+ */
+public class SkinningEngine
+{
+    /**
+     * A skinning operation.
+     */
+    public interface Job
+    {
+        /**
+         * Returns the number of floats of scratch space required by the job.
+         */
+        public int getScratchSize ();
+
+        /**
+         * Performs the skinning.  If the engine is parallel, this may be called from any thread,
+         * concurrently with other jobs.
+         */
+        public void skin (float[] scratch);
+
+        /**
+         * Completes the job on the thread that submitted it.  This is called even if the
+         * skinning failed.
+         */
+        public void finish ();
+    }
+
+    /**
+     * Provides access to the skeleton whose bones a mesh is skinned to.
+     */
+    public interface Skeleton
+    {
+        /**
+         * Returns the skinned data shared by the skeletons in the same pose as this one, or
+         * <code>null</code> if the current pose isn't shared.
+         */
+        public SharedSkins getSharedSkins ();
+
+        /**
+         * Returns the transform from the model space of the skeleton to eye space.
+         */
+        public Transform3D getViewTransform ();
+    }
+
+    /**
+     * Skinned data (in model space) shared by skeletons in the same pose.  Implementations must
+     * be thread-safe.
+     */
+    public interface SharedSkins
+    {
+        /**
+         * Returns the skinned data for the specified mesh, or <code>null</code> if none has been
+         * stored.  The data is laid out like the source data of the mesh.
+         */
+        public float[] getSkin (Mesh mesh);
+
+        /**
+         * Stores the skinned data for the specified mesh.
+         *
+         * @return the data to use, which will differ from that supplied if another skeleton
+         * stored the data first.
+         */
+        public float[] putSkin (Mesh mesh, float[] skin);
+    }
+
+    /**
+     * The immutable skinning data for a mesh: its source attributes and its bone influences,
+     * with the vertices grouped by the number of bones that influence them.
+     */
+    public static class Mesh
+    {
+        /**
+         * Creates a new mesh.
+         *
+         * @param source the interleaved source tangents (if any), normals (if any), and vertices.
+         * @param boneIndices the indices of the four bones influencing each vertex.
+         * @param boneWeights the weights of the four bones influencing each vertex.
+         */
+        public Mesh (
+            float[] source, int[] boneIndices, float[] boneWeights,
+            boolean tangents, boolean normals)
+        {
+            _source = source;
+            _boneIndices = boneIndices;
+            _boneWeights = boneWeights;
+            _tangents = tangents;
+            _normals = normals;
+
+            // count the vertices with each number of (nonzero) influences
+            int vertexCount = boneWeights.length / 4;
+            int[] counts = new int[vertexCount];
+            _starts = new int[6];
+            for (int ii = 0; ii < vertexCount; ii++) {
+                int count = 0;
+                for (int jj = ii * 4, nn = jj + 4; jj < nn; jj++) {
+                    if (boneWeights[jj] != 0f) {
+                        count++;
+                    }
+                }
+                counts[ii] = count;
+                _starts[count + 1]++;
+            }
+            int influenceCount = 0;
+            int[] offsets = new int[5];
+            for (int ii = 0; ii < 5; ii++) {
+                offsets[ii] = influenceCount;
+                influenceCount += _starts[ii + 1] * ii;
+                _starts[ii + 1] += _starts[ii];
+            }
+
+            // store the vertices and their influences in group order
+            _vertices = new int[vertexCount];
+            _bones = new int[influenceCount];
+            _weights = new float[influenceCount];
+            int[] positions = _starts.clone();
+            for (int ii = 0; ii < vertexCount; ii++) {
+                int count = counts[ii];
+                _vertices[positions[count]++] = ii;
+                int offset = offsets[count];
+                for (int jj = ii * 4, nn = jj + 4; jj < nn; jj++) {
+                    if (boneWeights[jj] != 0f) {
+                        _bones[offset] = boneIndices[jj] * 12;
+                        _weights[offset++] = boneWeights[jj];
+                    }
+                }
+                offsets[count] = offset;
+            }
+        }
+
+        /**
+         * Checks whether this mesh was created from the specified data.
+         */
+        public boolean matches (float[] source, int[] boneIndices, float[] boneWeights)
+        {
+            return _source == source && _boneIndices == boneIndices && _boneWeights == boneWeights;
+        }
+
+        /**
+         * Returns the number of vertices in the mesh.
+         */
+        public int getVertexCount ()
+        {
+            return _vertices.length;
+        }
+
+        /**
+         * Returns the number of floats in the source data (and thus in the shared skinned data).
+         */
+        public int getSourceSize ()
+        {
+            return _source.length;
+        }
+
+        /**
+         * Returns the number of floats of scratch space required to skin the mesh.
+         */
+        public int getScratchSize ()
+        {
+            return _vertices.length * 12;
+        }
+
+        /**
+         * Skins the mesh.
+         *
+         * @param bones the flattened bone matrices, as returned by {@link #flatten}.
+         * @param tidx the index of the first tangent in the destination array.
+         * @param nidx the index of the first normal in the destination array.
+         * @param vidx the index of the first vertex in the destination array.
+         * @param dinc the stride between adjacent vertices in the destination array.
+         * @param scratch an array of at least {@link #getScratchSize} floats.
+         */
+        public void skin (
+            float[] bones, float[] dest, int tidx, int nidx, int vidx, int dinc, float[] scratch)
+        {
+            // compute the blended matrix for each vertex
+            int offset = 0;
+            blend0(_vertices, _starts[0], _starts[1], scratch);
+            blend1(_vertices, _starts[1], _starts[2], _bones, _weights, offset, bones, scratch);
+            offset += (_starts[2] - _starts[1]);
+            blend2(_vertices, _starts[2], _starts[3], _bones, _weights, offset, bones, scratch);
+            offset += (_starts[3] - _starts[2]) * 2;
+            blend3(_vertices, _starts[3], _starts[4], _bones, _weights, offset, bones, scratch);
+            offset += (_starts[4] - _starts[3]) * 3;
+            blend4(_vertices, _starts[4], _starts[5], _bones, _weights, offset, bones, scratch);
+
+            // transform the attributes
+            if (_tangents && _normals) {
+                transform(_source, scratch, dest, tidx, nidx, vidx, dinc);
+            } else if (_normals) {
+                transform(_source, scratch, dest, nidx, vidx, dinc);
+            } else {
+                transform(_source, scratch, dest, vidx, dinc);
+            }
+        }
+
+        /**
+         * Skins the mesh into an array laid out like the source data.
+         *
+         * @param bones the flattened bone matrices, as returned by {@link #flatten}.
+         * @param dest an array of at least {@link #getSourceSize} floats.
+         * @param scratch an array of at least {@link #getScratchSize} floats.
+         */
+        public void skin (float[] bones, float[] dest, float[] scratch)
+        {
+            int nidx = _tangents && _normals ? 3 : 0;
+            int vidx = _normals ? nidx + 3 : 0;
+            skin(bones, dest, 0, nidx, vidx, vidx + 3, scratch);
+        }
+
+        /**
+         * Transforms skinned data (laid out like the source data) by a single matrix.
+         *
+         * @param skin the skinned data.
+         * @param matrix the flattened matrix.
+         * @param tidx the index of the first tangent in the destination array.
+         * @param nidx the index of the first normal in the destination array.
+         * @param vidx the index of the first vertex in the destination array.
+         * @param dinc the stride between adjacent vertices in the destination array.
+         */
+        public void transformSkin (
+            float[] skin, float[] matrix, float[] dest, int tidx, int nidx, int vidx, int dinc)
+        {
+            int count = _vertices.length, sidx = 0;
+            int sinc = (_tangents && _normals) ? 9 : (_normals ? 6 : 3);
+            if (_tangents && _normals) {
+                transform(skin, sidx, sinc, matrix, false, dest, tidx, dinc, count);
+                sidx += 3;
+            }
+            if (_normals) {
+                transform(skin, sidx, sinc, matrix, false, dest, nidx, dinc, count);
+                sidx += 3;
+            }
+            transform(skin, sidx, sinc, matrix, true, dest, vidx, dinc, count);
+        }
+
+        /** The source data. */
+        protected float[] _source;
+
+        /** The original bone indices. */
+        protected int[] _boneIndices;
+
+        /** The original bone weights. */
+        protected float[] _boneWeights;
+
+        /** Whether the source data includes tangents and normals. */
+        protected boolean _tangents, _normals;
+
+        /** The indices of the vertices, grouped by influence count. */
+        protected int[] _vertices;
+
+        /** The start of each group (and the end of the last). */
+        protected int[] _starts;
+
+        /** The offsets of the influencing bone matrices in the flattened array, in group order. */
+        protected int[] _bones;
+
+        /** The weights of the influencing bones, in group order. */
+        protected float[] _weights;
+    }
+
+    /**
+     * Flattens the supplied bone matrices into an array of 3x4 matrices (the upper three rows
+     * of each matrix, stored in column-major order).
+     *
+     * @param result an array to reuse, if large enough.
+     * @return the result array, or a new array if it was too small.
+     */
+    public static float[] flatten (Matrix4f[] matrices, float[] result)
+    {
+        int length = matrices.length * 12;
+        if (result == null || result.length < length) {
+            result = new float[length];
+        }
+        for (int ii = 0; ii < matrices.length; ii++) {
+            flatten(matrices[ii], result, ii * 12);
+        }
+        return result;
+    }
+
+    /**
+     * Flattens a single matrix into the supplied array at the specified index.
+     */
+    public static void flatten (Matrix4f m, float[] result, int idx)
+    {
+        result[idx++] = m.m00;
+        result[idx++] = m.m01;
+        result[idx++] = m.m02;
+        result[idx++] = m.m10;
+        result[idx++] = m.m11;
+        result[idx++] = m.m12;
+        result[idx++] = m.m20;
+        result[idx++] = m.m21;
+        result[idx++] = m.m22;
+        result[idx++] = m.m30;
+        result[idx++] = m.m31;
+        result[idx] = m.m32;
+    }
+
+    /**
+     * Composes a flattened matrix with each of a set of flattened matrices (that is, computes
+     * <code>matrix * matrices[i]</code>).
+     *
+     * @param result an array to reuse, if large enough.
+     * @return the result array, or a new array if it was too small.
+     */
+    public static float[] compose (float[] matrix, float[] matrices, int count, float[] result)
+    {
+        int length = count * 12;
+        if (result == null || result.length < length) {
+            result = new float[length];
+        }
+        float a00 = matrix[0], a01 = matrix[1], a02 = matrix[2];
+        float a10 = matrix[3], a11 = matrix[4], a12 = matrix[5];
+        float a20 = matrix[6], a21 = matrix[7], a22 = matrix[8];
+        float a30 = matrix[9], a31 = matrix[10], a32 = matrix[11];
+        for (int idx = 0; idx < length; idx += 12) {
+            // each column of the result is the first matrix applied to a column of the second
+            for (int cc = 0; cc < 12; cc += 3) {
+                float x = matrices[idx + cc], y = matrices[idx + cc + 1];
+                float z = matrices[idx + cc + 2];
+                float w = (cc == 9) ? 1f : 0f;
+                result[idx + cc] = a00*x + a10*y + a20*z + a30*w;
+                result[idx + cc + 1] = a01*x + a11*y + a21*z + a31*w;
+                result[idx + cc + 2] = a02*x + a12*y + a22*z + a32*w;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the executor on which to run jobs in parallel.
+     *
+     * @param executor the executor to use, or <code>null</code> to run jobs as they are submitted.
+     */
+    public void setExecutor (Executor executor)
+    {
+        finish();
+        _executor = executor;
+    }
+
+    /**
+     * Checks whether jobs are collected to run in parallel (in which case they must not share
+     * their output arrays).
+     */
+    public boolean isParallel ()
+    {
+        return _executor != null;
+    }
+
+    /**
+     * Submits a job to the engine.
+     */
+    public void submit (Job job)
+    {
+        if (_executor == null) {
+            try {
+                job.skin(getScratch(0, job.getScratchSize()));
+            } finally {
+                job.finish();
+            }
+        } else {
+            _jobs.add(job);
+        }
+    }
+
+    /**
+     * Runs any jobs submitted since the last call and waits for them to complete.
+     */
+    public void finish ()
+    {
+        final int count = _jobs.size();
+        if (count == 0) {
+            return;
+        }
+        final Job[] jobs = _jobArray = _jobs.toArray(_jobArray);
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(count);
+        int workers = Math.min(count, PROCESSORS);
+        while (_scratch.size() < workers) {
+            _scratch.add(new float[0]);
+        }
+        for (int ii = 1; ii < workers; ii++) {
+            final int worker = ii;
+            try {
+                _executor.execute(new Runnable() {
+                    public void run () {
+                        runJobs(jobs, count, worker, next, latch);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                break; // this thread will pick up the slack
+            }
+        }
+        runJobs(jobs, count, 0, next, latch);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // complete the jobs in order, finishing the rest even if one fails
+        Throwable error = _error;
+        _error = null;
+        try {
+            for (int ii = 0; ii < count; ii++) {
+                try {
+                    jobs[ii].finish();
+                } catch (Throwable t) {
+                    if (error == null) {
+                        error = t;
+                    }
+                }
+                jobs[ii] = null;
+            }
+        } finally {
+            _jobs.clear();
+        }
+        if (error != null) {
+            throw Throwables.propagate(error);
+        }
+    }
+
+    /**
+     * Runs jobs until there are none left to claim.
+     *
+     * @param worker the index of the worker's scratch array.
+     */
+    protected void runJobs (
+        Job[] jobs, int count, int worker, AtomicInteger next, CountDownLatch latch)
+    {
+        for (int idx; (idx = next.getAndIncrement()) < count; ) {
+            try {
+                Job job = jobs[idx];
+                job.skin(getScratch(worker, job.getScratchSize()));
+            } catch (Throwable t) {
+                synchronized (this) {
+                    if (_error == null) {
+                        _error = t;
+                    }
+                }
+            } finally {
+                latch.countDown();
+            }
+        }
+    }
+
+    /**
+     * Returns the specified worker's scratch array, (re)creating it if necessary to provide the
+     * supplied size.
+     */
+    protected float[] getScratch (int worker, int size)
+    {
+        if (_scratch.isEmpty()) {
+            _scratch.add(new float[0]);
+        }
+        float[] scratch = _scratch.get(worker);
+        if (scratch.length < size) {
+            _scratch.set(worker, scratch = new float[size]);
+        }
+        return scratch;
+    }
+
+    /**
+     * Writes zero matrices for vertices with no influences.
+     */
+    protected static void blend0 (int[] vertices, int start, int end, float[] result)
+    {
+        for (int ii = start; ii < end; ii++) {
+            for (int rr = vertices[ii] * 12, nn = rr + 12; rr < nn; rr++) {
+                result[rr] = 0f;
+            }
+        }
+    }
+
+    /**
+     * Computes the blended matrices for vertices with one influence.
+     */
+    protected static void blend1 (
+        int[] vertices, int start, int end, int[] bones, float[] weights, int offset,
+        float[] matrices, float[] result)
+    {
+        for (int ii = start; ii < end; ii++, offset++) {
+            int b0 = bones[offset];
+            float w0 = weights[offset];
+            int rr = vertices[ii] * 12;
+            for (int jj = 0; jj < 12; jj++) {
+                result[rr + jj] = matrices[b0 + jj] * w0;
+            }
+        }
+    }
+
+    /**
+     * Computes the blended matrices for vertices with two influences.
+     */
+    protected static void blend2 (
+        int[] vertices, int start, int end, int[] bones, float[] weights, int offset,
+        float[] matrices, float[] result)
+    {
+        for (int ii = start; ii < end; ii++, offset += 2) {
+            int b0 = bones[offset], b1 = bones[offset + 1];
+            float w0 = weights[offset], w1 = weights[offset + 1];
+            int rr = vertices[ii] * 12;
+            for (int jj = 0; jj < 12; jj++) {
+                result[rr + jj] = matrices[b0 + jj] * w0 + matrices[b1 + jj] * w1;
+            }
+        }
+    }
+
+    /**
+     * Computes the blended matrices for vertices with three influences.
+     */
+    protected static void blend3 (
+        int[] vertices, int start, int end, int[] bones, float[] weights, int offset,
+        float[] matrices, float[] result)
+    {
+        for (int ii = start; ii < end; ii++, offset += 3) {
+            int b0 = bones[offset], b1 = bones[offset + 1], b2 = bones[offset + 2];
+            float w0 = weights[offset], w1 = weights[offset + 1], w2 = weights[offset + 2];
+            int rr = vertices[ii] * 12;
+            for (int jj = 0; jj < 12; jj++) {
+                result[rr + jj] = matrices[b0 + jj] * w0 + matrices[b1 + jj] * w1 +
+                    matrices[b2 + jj] * w2;
+            }
+        }
+    }
+
+    /**
+     * Computes the blended matrices for vertices with four influences.
+     */
+    protected static void blend4 (
+        int[] vertices, int start, int end, int[] bones, float[] weights, int offset,
+        float[] matrices, float[] result)
+    {
+        for (int ii = start; ii < end; ii++, offset += 4) {
+            int b0 = bones[offset], b1 = bones[offset + 1];
+            int b2 = bones[offset + 2], b3 = bones[offset + 3];
+            float w0 = weights[offset], w1 = weights[offset + 1];
+            float w2 = weights[offset + 2], w3 = weights[offset + 3];
+            int rr = vertices[ii] * 12;
+            for (int jj = 0; jj < 12; jj++) {
+                result[rr + jj] = matrices[b0 + jj] * w0 + matrices[b1 + jj] * w1 +
+                    matrices[b2 + jj] * w2 + matrices[b3 + jj] * w3;
+            }
+        }
+    }
+
+    /**
+     * Transforms a set of vertices, normals, and tangents by their blended matrices.
+     *
+     * @param tidx the index of the first tangent in the destination array.
+     * @param nidx the index of the first normal in the destination array.
+     * @param vidx the index of the first vertex in the destination array.
+     * @param dinc the stride between adjacent vertices in the destination array.
+     */
+    protected static void transform (
+        float[] source, float[] matrices, float[] dest, int tidx, int nidx, int vidx, int dinc)
+    {
+        for (int sidx = 0, midx = 0; sidx < source.length; sidx += 9, midx += 12) {
+            float m00 = matrices[midx], m01 = matrices[midx + 1], m02 = matrices[midx + 2];
+            float m10 = matrices[midx + 3], m11 = matrices[midx + 4], m12 = matrices[midx + 5];
+            float m20 = matrices[midx + 6], m21 = matrices[midx + 7], m22 = matrices[midx + 8];
+
+            float stx = source[sidx], sty = source[sidx + 1], stz = source[sidx + 2];
+            dest[tidx] = m00*stx + m10*sty + m20*stz;
+            dest[tidx + 1] = m01*stx + m11*sty + m21*stz;
+            dest[tidx + 2] = m02*stx + m12*sty + m22*stz;
+            tidx += dinc;
+
+            float snx = source[sidx + 3], sny = source[sidx + 4], snz = source[sidx + 5];
+            dest[nidx] = m00*snx + m10*sny + m20*snz;
+            dest[nidx + 1] = m01*snx + m11*sny + m21*snz;
+            dest[nidx + 2] = m02*snx + m12*sny + m22*snz;
+            nidx += dinc;
+
+            float svx = source[sidx + 6], svy = source[sidx + 7], svz = source[sidx + 8];
+            dest[vidx] = m00*svx + m10*svy + m20*svz + matrices[midx + 9];
+            dest[vidx + 1] = m01*svx + m11*svy + m21*svz + matrices[midx + 10];
+            dest[vidx + 2] = m02*svx + m12*svy + m22*svz + matrices[midx + 11];
+            vidx += dinc;
+        }
+    }
+
+    /**
+     * Transforms a set of vertices and normals by their blended matrices.
+     *
+     * @param nidx the index of the first normal in the destination array.
+     * @param vidx the index of the first vertex in the destination array.
+     * @param dinc the stride between adjacent vertices in the destination array.
+     */
+    protected static void transform (
+        float[] source, float[] matrices, float[] dest, int nidx, int vidx, int dinc)
+    {
+        for (int sidx = 0, midx = 0; sidx < source.length; sidx += 6, midx += 12) {
+            float m00 = matrices[midx], m01 = matrices[midx + 1], m02 = matrices[midx + 2];
+            float m10 = matrices[midx + 3], m11 = matrices[midx + 4], m12 = matrices[midx + 5];
+            float m20 = matrices[midx + 6], m21 = matrices[midx + 7], m22 = matrices[midx + 8];
+
+            float snx = source[sidx], sny = source[sidx + 1], snz = source[sidx + 2];
+            dest[nidx] = m00*snx + m10*sny + m20*snz;
+            dest[nidx + 1] = m01*snx + m11*sny + m21*snz;
+            dest[nidx + 2] = m02*snx + m12*sny + m22*snz;
+            nidx += dinc;
+
+            float svx = source[sidx + 3], svy = source[sidx + 4], svz = source[sidx + 5];
+            dest[vidx] = m00*svx + m10*svy + m20*svz + matrices[midx + 9];
+            dest[vidx + 1] = m01*svx + m11*svy + m21*svz + matrices[midx + 10];
+            dest[vidx + 2] = m02*svx + m12*svy + m22*svz + matrices[midx + 11];
+            vidx += dinc;
+        }
+    }
+
+    /**
+     * Transforms a set of vertices by their blended matrices.
+     *
+     * @param vidx the index of the first vertex in the destination array.
+     * @param dinc the stride between adjacent vertices in the destination array.
+     */
+    protected static void transform (
+        float[] source, float[] matrices, float[] dest, int vidx, int dinc)
+    {
+        for (int sidx = 0, midx = 0; sidx < source.length; sidx += 3, midx += 12) {
+            float svx = source[sidx], svy = source[sidx + 1], svz = source[sidx + 2];
+            dest[vidx] = matrices[midx]*svx + matrices[midx + 3]*svy +
+                matrices[midx + 6]*svz + matrices[midx + 9];
+            dest[vidx + 1] = matrices[midx + 1]*svx + matrices[midx + 4]*svy +
+                matrices[midx + 7]*svz + matrices[midx + 10];
+            dest[vidx + 2] = matrices[midx + 2]*svx + matrices[midx + 5]*svy +
+                matrices[midx + 8]*svz + matrices[midx + 11];
+            vidx += dinc;
+        }
+    }
+
+    /**
+     * Transforms one attribute of a set of vertices by a single matrix.
+     *
+     * @param sidx the index of the first value in the source array.
+     * @param sinc the stride between adjacent vertices in the source array.
+     * @param translate whether to apply the translation (that is, whether the values are
+     * points rather than vectors).
+     * @param didx the index of the first value in the destination array.
+     * @param dinc the stride between adjacent vertices in the destination array.
+     */
+    protected static void transform (
+        float[] source, int sidx, int sinc, float[] matrix, boolean translate,
+        float[] dest, int didx, int dinc, int count)
+    {
+        float m00 = matrix[0], m01 = matrix[1], m02 = matrix[2];
+        float m10 = matrix[3], m11 = matrix[4], m12 = matrix[5];
+        float m20 = matrix[6], m21 = matrix[7], m22 = matrix[8];
+        float m30 = 0f, m31 = 0f, m32 = 0f;
+        if (translate) {
+            m30 = matrix[9];
+            m31 = matrix[10];
+            m32 = matrix[11];
+        }
+        for (int ii = 0; ii < count; ii++, sidx += sinc, didx += dinc) {
+            float sx = source[sidx], sy = source[sidx + 1], sz = source[sidx + 2];
+            dest[didx] = m00*sx + m10*sy + m20*sz + m30;
+            dest[didx + 1] = m01*sx + m11*sy + m21*sz + m31;
+            dest[didx + 2] = m02*sx + m12*sy + m22*sz + m32;
+        }
+    }
+
+    /** The executor on which to run jobs, if any. */
+    protected Executor _executor;
+
+    /** The jobs awaiting completion. */
+    protected ArrayList<Job> _jobs = Lists.newArrayList();
+
+    /** Holds the jobs while we're running them. */
+    protected Job[] _jobArray = new Job[0];
+
+    /** The scratch arrays of the workers (the calling thread being the first). */
+    protected ArrayList<float[]> _scratch = Lists.newArrayList();
+
+    /** The first error thrown by a job, if any. */
+    protected Throwable _error;
+
+    /** The number of available processors. */
+    protected static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+}
@@ -36,13 +36,16 @@ import com.samskivert.util.ListUtil;
 
 import com.threerings.editor.EditorTypes;
 import com.threerings.export.Exportable;
+import com.threerings.expr.Function;
 import com.threerings.expr.Scope;
+import com.threerings.expr.util.ScopeUtil;
 import com.threerings.math.Matrix4f;
 import com.threerings.math.Vector3f;
 import com.threerings.util.DeepObject;
 
-import com.threerings.opengl.geometry.DynamicGeometry;
 import com.threerings.opengl.geometry.Geometry;
+import com.threerings.opengl.geometry.SkinnedGeometry;
+import com.threerings.opengl.geometry.SkinningEngine;
 import com.threerings.opengl.renderer.BufferObject;
 import com.threerings.opengl.renderer.ClientArray;
 import com.threerings.opengl.renderer.SimpleBatch.DrawCommand;
@@ -68,7 +71,7 @@ public abstract class DeformerConfig extends DeepObject
             GlContext ctx, Scope scope, GeometryConfig.Stored config, PassDescriptor[] passes)
         {
             // get the array of bone matrices
-            final Matrix4f[] boneMatrices = config.getBoneMatrices(scope);
+            Matrix4f[] boneMatrices = config.getBoneMatrices(scope);
 
             // get the index and weight arrays; if we're missing anything, fall back to static
             ClientArrayConfig boneIndexArray = config.getVertexAttribArray("boneIndices");
@@ -76,24 +79,24 @@ public abstract class DeformerConfig extends DeepObject
             if (boneMatrices == null || boneIndexArray == null || boneWeightArray == null) {
                 return config.createStaticGeometry(ctx, scope, passes);
             }
-            final int[] boneIndices = config.getIntArray(false, boneIndexArray);
-            final float[] boneWeights = config.getFloatArray(false, boneWeightArray);
+            int[] boneIndices = config.getIntArray(false, boneIndexArray);
+            float[] boneWeights = config.getFloatArray(false, boneWeightArray);
 
             // get the source data (tangents, normals, and vertices)
             PassSummary summary = new PassSummary(passes);
             ArrayList<ClientArrayConfig> sourceArrays = new ArrayList<ClientArrayConfig>();
             ClientArrayConfig tangentArray = summary.vertexAttribs.contains("tangents") ?
                 config.getVertexAttribArray("tangents") : null;
-            final boolean tangents = (tangentArray != null);
+            boolean tangents = (tangentArray != null);
             if (tangents) {
                 sourceArrays.add(tangentArray);
             }
-            final boolean normals = (summary.normals && config.normalArray != null);
+            boolean normals = (summary.normals && config.normalArray != null);
             if (normals) {
                 sourceArrays.add(config.normalArray);
             }
             sourceArrays.add(config.vertexArray);
-            final float[] source = config.getFloatArray(
+            float[] source = config.getFloatArray(
                 false, sourceArrays.toArray(new ClientArrayConfig[sourceArrays.size()]));
 
             // get the dest data (shared between instances)
@@ -131,16 +134,24 @@ public abstract class DeformerConfig extends DeepObject
             }
             final ArrayState[] arrayStates = config.createArrayStates(
                 ctx, passes, summary, false, vbos, arrayBuffer, floatArray);
-            final int tangentOffset = tangents ? getTangentOffset(passes, arrayStates) : 0;
-            final int normalOffset = normals ? getNormalOffset(arrayStates) : 0;
+            int tangentOffset = tangents ? getTangentOffset(passes, arrayStates) : 0;
+            int normalOffset = normals ? getNormalOffset(arrayStates) : 0;
             ClientArray vertexArray = arrayStates[0].getVertexArray();
-            final int vertexOffset = (int)(vertexArray.offset / 4);
-            final int vertexStride = vertexArray.stride / 4;
+            int vertexOffset = (int)(vertexArray.offset / 4);
+            int vertexStride = vertexArray.stride / 4;
 
             // finally, create the draw command and the geometry itself
             final Vector3f center = config.bounds.getCenter();
             final DrawCommand drawCommand = config.createDrawCommand(vbos);
-            return new DynamicGeometry(dest, arrayBuffer, floatArray) {
+            SkinningEngine.Mesh mesh = config.getSkinningMesh(
+                source, boneIndices, boneWeights, tangents, normals);
+            Function getSkeleton = ScopeUtil.resolve(scope, "getSkeleton", Function.NULL);
+            SkinningEngine.Skeleton skeleton =
+                (SkinningEngine.Skeleton)getSkeleton.call((Object)boneMatrices);
+            return new SkinnedGeometry(
+                    ctx.getCompositor().getSkinningEngine(), mesh, boneMatrices, skeleton, dest,
+                    arrayBuffer, floatArray, tangentOffset, normalOffset, vertexOffset,
+                    vertexStride) {
                 public CoordSpace getCoordSpace (int pass) {
                     return CoordSpace.EYE;
                 }
@@ -153,22 +164,6 @@ public abstract class DeformerConfig extends DeepObject
                 public DrawCommand getDrawCommand (int pass) {
                     return drawCommand;
                 }
-                protected void updateData () {
-                    // skin based on attributes
-                    if (tangents && normals) {
-                        skinVertices(
-                            source, _data, boneMatrices, boneIndices, boneWeights,
-                            tangentOffset, normalOffset, vertexOffset, vertexStride);
-                    } else if (normals) {
-                        skinVertices(
-                            source, _data, boneMatrices, boneIndices, boneWeights,
-                            normalOffset, vertexOffset, vertexStride);
-                    } else {
-                        skinVertices(
-                            source, _data, boneMatrices, boneIndices,
-                            boneWeights, vertexOffset, vertexStride);
-                    }
-                }
             };
         }
 
@@ -214,7 +209,10 @@ public abstract class DeformerConfig extends DeepObject
      * @param nidx the index of the first normal in the destination array.
      * @param vidx the index of the first vertex in the destination array.
      * @param dinc the stride between adjacent vertices in the destination array.
+     * @deprecated skinning now goes through {@link SkinningEngine.Mesh}, which skips zero weights
+     * and works on flattened bone matrices.
      */
+    @Deprecated
     protected static void skinVertices (
         float[] source, float[] dest, Matrix4f[] boneMatrices, int[] boneIndices,
         float[] boneWeights, int tidx, int nidx, int vidx, int dinc)
@@ -275,7 +273,10 @@ public abstract class DeformerConfig extends DeepObject
      * @param nidx the index of the first normal in the destination array.
      * @param vidx the index of the first vertex in the destination array.
      * @param dinc the stride between adjacent vertices in the destination array.
+     * @deprecated skinning now goes through {@link SkinningEngine.Mesh}, which skips zero weights
+     * and works on flattened bone matrices.
      */
+    @Deprecated
     protected static void skinVertices (
         float[] source, float[] dest, Matrix4f[] boneMatrices,
         int[] boneIndices, float[] boneWeights, int nidx, int vidx, int dinc)
@@ -323,7 +324,10 @@ public abstract class DeformerConfig extends DeepObject
      *
      * @param vidx the index of the first vertex in the destination array.
      * @param dinc the stride between adjacent vertices in the destination array.
+     * @deprecated skinning now goes through {@link SkinningEngine.Mesh}, which skips zero weights
+     * and works on flattened bone matrices.
      */
+    @Deprecated
     protected static void skinVertices (
         float[] source, float[] dest, Matrix4f[] boneMatrices,
         int[] boneIndices, float[] boneWeights, int vidx, int dinc)
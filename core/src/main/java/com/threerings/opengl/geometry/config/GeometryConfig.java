@@ -59,6 +59,7 @@ import com.threerings.util.IdentityKey;
 import com.threerings.util.Shallow;
 
 import com.threerings.opengl.geometry.Geometry;
+import com.threerings.opengl.geometry.SkinningEngine;
 import com.threerings.opengl.geometry.util.GeometryUtil;
 import com.threerings.opengl.renderer.config.ClientArrayConfig;
 import com.threerings.opengl.renderer.config.CoordSpace;
@@ -209,6 +210,22 @@ public abstract class GeometryConfig extends DeepObject
             return array;
         }
 
+        /**
+         * Returns the skinning mesh for the specified source data and bone influences, creating
+         * it if necessary.
+         */
+        public SkinningEngine.Mesh getSkinningMesh (
+            float[] source, int[] boneIndices, float[] boneWeights,
+            boolean tangents, boolean normals)
+        {
+            SkinningEngine.Mesh mesh = (_skinningMesh == null) ? null : _skinningMesh.get();
+            if (mesh == null || !mesh.matches(source, boneIndices, boneWeights)) {
+                _skinningMesh = new SoftReference<SkinningEngine.Mesh>(mesh =
+                    new SkinningEngine.Mesh(source, boneIndices, boneWeights, tangents, normals));
+            }
+            return mesh;
+        }
+
         /**
          * Returns an int array containing the interleaved contents of the specified arrays.
          *
@@ -698,6 +715,9 @@ public abstract class GeometryConfig extends DeepObject
 
         /** Cached int arrays. */
         protected transient Map<IdentityKey, int[]> _intArrays;
+
+        /** The cached skinning mesh. */
+        protected transient SoftReference<SkinningEngine.Mesh> _skinningMesh;
     }
 
     /**
@@ -0,0 +1,257 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.geometry.tools;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.threerings.math.Matrix4f;
+import com.threerings.math.Quaternion;
+import com.threerings.math.Vector3f;
+
+import com.threerings.opengl.geometry.SkinningEngine;
+
+/**
+ * Measures the time taken to skin a frame's worth of meshes of various sizes (with normals) using
+ * the original per-bone loop, the {@link SkinningEngine} on a single thread, and the engine on a
+ * pool with a thread per processor, checking that the results agree.  The vertices have a
+ * typical mix of one to four influences.
+ */
+public class SkinningBenchmark
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+    {
+        int[] sizes = (args.length > 0) ? new int[args.length] : DEFAULT_SIZES;
+        for (int ii = 0; ii < args.length; ii++) {
+            sizes[ii] = Integer.parseInt(args[ii]);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors());
+        Random random = new Random(1L);
+        for (int size : sizes) {
+            Job[] jobs = new Job[MESH_COUNT];
+            for (int ii = 0; ii < jobs.length; ii++) {
+                jobs[ii] = new Job(size, random);
+            }
+            SkinningEngine serial = new SkinningEngine(), parallel = new SkinningEngine();
+            parallel.setExecutor(executor);
+            double legacy = time(jobs, null);
+            double single = time(jobs, serial);
+            float error = 0f;
+            for (Job job : jobs) {
+                error = Math.max(error, job.getError());
+            }
+            double multi = time(jobs, parallel);
+            System.out.printf("%d vertices x %d meshes: %8.3f ms/frame per-bone %8.3f " +
+                "ms/frame flattened %8.3f ms/frame parallel (max error %g)%n",
+                size, MESH_COUNT, legacy, single, multi, error);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the average time in milliseconds taken to skin all of the jobs.
+     *
+     * @param engine the engine to use, or <code>null</code> to use the per-bone loop.
+     */
+    protected static double time (Job[] jobs, SkinningEngine engine)
+    {
+        long elapsed = 0L;
+        for (int ii = 0; ii < WARMUP_FRAMES + FRAMES; ii++) {
+            long start = System.nanoTime();
+            for (Job job : jobs) {
+                if (engine == null) {
+                    job.skinPerBone();
+                } else {
+                    engine.submit(job);
+                }
+            }
+            if (engine != null) {
+                engine.finish();
+            }
+            if (ii >= WARMUP_FRAMES) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        return elapsed / 1e6 / FRAMES;
+    }
+
+    /**
+     * A skinned mesh with random influences.
+     */
+    protected static class Job
+        implements SkinningEngine.Job
+    {
+        /**
+         * Creates a new job.
+         */
+        public Job (int size, Random random)
+        {
+            // create the bones
+            _boneMatrices = new Matrix4f[BONE_COUNT];
+            for (int ii = 0; ii < BONE_COUNT; ii++) {
+                _boneMatrices[ii] = new Matrix4f().setToTransform(
+                    new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat()),
+                    new Quaternion().fromAngles(
+                        random.nextFloat(), random.nextFloat(), random.nextFloat()));
+            }
+
+            // and the normals, vertices, and influences
+            _source = new float[size * 6];
+            for (int ii = 0; ii < _source.length; ii++) {
+                _source[ii] = random.nextFloat() * 2f - 1f;
+            }
+            _boneIndices = new int[size * 4];
+            _boneWeights = new float[size * 4];
+            for (int ii = 0; ii < size; ii++) {
+                float roll = random.nextFloat();
+                int count = (roll < 0.4f) ? 1 : (roll < 0.7f ? 2 : (roll < 0.9f ? 3 : 4));
+                float total = 0f;
+                for (int jj = 0; jj < count; jj++) {
+                    _boneIndices[ii*4 + jj] = random.nextInt(BONE_COUNT);
+                    total += (_boneWeights[ii*4 + jj] = random.nextFloat() + 0.1f);
+                }
+                for (int jj = 0; jj < count; jj++) {
+                    _boneWeights[ii*4 + jj] /= total;
+                }
+            }
+            _mesh = new SkinningEngine.Mesh(_source, _boneIndices, _boneWeights, false, true);
+            _dest = new float[size * 8];
+            _expected = new float[_dest.length];
+        }
+
+        /**
+         * Skins the mesh using the original per-bone loop.
+         */
+        public void skinPerBone ()
+        {
+            float[] source = _source, dest = _expected;
+            Matrix4f[] boneMatrices = _boneMatrices;
+            int[] boneIndices = _boneIndices;
+            float[] boneWeights = _boneWeights;
+            for (int sidx = 0, bidx = 0, nidx = 0, vidx = 4; sidx < source.length; ) {
+                float snx = source[sidx++], sny = source[sidx++], snz = source[sidx++];
+                float svx = source[sidx++], svy = source[sidx++], svz = source[sidx++];
+                float dnx = 0f, dny = 0f, dnz = 0f;
+                float dvx = 0f, dvy = 0f, dvz = 0f;
+                for (int ii = 0; ii < 4; ii++) {
+                    Matrix4f m = boneMatrices[boneIndices[bidx]];
+                    float weight = boneWeights[bidx++];
+
+                    float m00 = m.m00, m10 = m.m10, m20 = m.m20;
+                    float m01 = m.m01, m11 = m.m11, m21 = m.m21;
+                    float m02 = m.m02, m12 = m.m12, m22 = m.m22;
+                    dnx += (m00*snx + m10*sny + m20*snz) * weight;
+                    dny += (m01*snx + m11*sny + m21*snz) * weight;
+                    dnz += (m02*snx + m12*sny + m22*snz) * weight;
+
+                    dvx += (m00*svx + m10*svy + m20*svz + m.m30) * weight;
+                    dvy += (m01*svx + m11*svy + m21*svz + m.m31) * weight;
+                    dvz += (m02*svx + m12*svy + m22*svz + m.m32) * weight;
+                }
+                dest[nidx] = dnx;
+                dest[nidx + 1] = dny;
+                dest[nidx + 2] = dnz;
+                nidx += 8;
+                dest[vidx] = dvx;
+                dest[vidx + 1] = dvy;
+                dest[vidx + 2] = dvz;
+                vidx += 8;
+            }
+        }
+
+        /**
+         * Returns the largest difference between the results of the engine and the per-bone loop.
+         */
+        public float getError ()
+        {
+            float error = 0f;
+            for (int ii = 0; ii < _dest.length; ii++) {
+                error = Math.max(error, Math.abs(_dest[ii] - _expected[ii]));
+            }
+            return error;
+        }
+
+        // documentation inherited from interface SkinningEngine.Job
+        public int getScratchSize ()
+        {
+            return _mesh.getScratchSize();
+        }
+
+        // documentation inherited from interface SkinningEngine.Job
+        public void skin (float[] scratch)
+        {
+            _bones = SkinningEngine.flatten(_boneMatrices, _bones);
+            _mesh.skin(_bones, _dest, 0, 0, 4, 8, scratch);
+        }
+
+        // documentation inherited from interface SkinningEngine.Job
+        public void finish ()
+        {
+            // nothing to upload
+        }
+
+        /** The bone matrices and their flattened form. */
+        protected Matrix4f[] _boneMatrices;
+
+        /** The flattened bone matrices. */
+        protected float[] _bones;
+
+        /** The source normals and vertices. */
+        protected float[] _source;
+
+        /** The bone influences. */
+        protected int[] _boneIndices;
+
+        /** The bone weights. */
+        protected float[] _boneWeights;
+
+        /** The skinning mesh. */
+        protected SkinningEngine.Mesh _mesh;
+
+        /** The results of the engine and of the per-bone loop. */
+        protected float[] _dest, _expected;
+    }
+
+    /** The default mesh sizes to test. */
+    protected static final int[] DEFAULT_SIZES = { 500, 2000, 8000 };
+
+    /** The number of meshes to skin per frame. */
+    protected static final int MESH_COUNT = 64;
+
+    /** The number of bones in each mesh's skeleton. */
+    protected static final int BONE_COUNT = 40;
+
+    /** The number of frames to skin before timing. */
+    protected static final int WARMUP_FRAMES = 300;
+
+    /** The number of frames to time. */
+    protected static final int FRAMES = 200;
+}
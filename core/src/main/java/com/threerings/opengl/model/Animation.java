@@ -170,6 +170,18 @@ public class Animation extends SimpleScope
             // nothing by default
         }
 
+        /**
+         * Adds the state that determines this animation's influence to the supplied pose key.
+         *
+         * @param weighted whether the weight of the animation affects the pose.
+         * @return true if the state was added, false if the influence can't be shared with other
+         * models.
+         */
+        public boolean getPoseKey (PoseCache.Key key, boolean weighted)
+        {
+            return false;
+        }
+
         /**
          * Dumps some information about the animation to the standard output.
          */
@@ -438,6 +450,18 @@ public class Animation extends SimpleScope
             }
         }
 
+        @Override
+        public boolean getPoseKey (PoseCache.Key key, boolean weighted)
+        {
+            // the transition snapshot is particular to this model, as are the frames when they
+            // have been modified relative to its nodes' defaults
+            if (_transitioning || _config.modifiers.length > 0) {
+                return false;
+            }
+            key.add(_transforms, _fidx, _accum, weighted ? _weight : 1f);
+            return true;
+        }
+
         @Override
         protected void blendToWeight (float weight, float interval)
         {
@@ -854,6 +878,12 @@ public class Animation extends SimpleScope
             _animations[_aidx].blendTransforms(update);
         }
 
+        @Override
+        public boolean getPoseKey (PoseCache.Key key, boolean weighted)
+        {
+            return _animations[_aidx].getPoseKey(key, weighted);
+        }
+
         /** The implementation configuration. */
         protected AnimationConfig.Sequential _config;
 
@@ -1081,6 +1111,18 @@ public class Animation extends SimpleScope
         _impl.blendTransforms(update);
     }
 
+    /**
+     * Adds the state that determines this animation's influence to the supplied pose key.
+     *
+     * @param weighted whether the weight of the animation affects the pose.
+     * @return true if the state was added, false if the influence can't be shared with other
+     * models.
+     */
+    public boolean getPoseKey (PoseCache.Key key, boolean weighted)
+    {
+        return _impl.getPoseKey(key, weighted);
+    }
+
     /**
      * Dumps some information about the animation to the standard output.
      */
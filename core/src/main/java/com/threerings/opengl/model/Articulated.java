@@ -49,6 +49,7 @@ import com.threerings.math.Transform3D;
 import com.threerings.math.Vector3f;
 
 import com.threerings.opengl.compositor.Enqueueable;
+import com.threerings.opengl.geometry.SkinningEngine;
 import com.threerings.opengl.material.Surface;
 import com.threerings.opengl.material.config.MaterialConfig;
 import com.threerings.opengl.model.config.ArticulatedConfig;
@@ -427,6 +428,28 @@ public class Articulated extends Model.Implementation
         return (node == null) ? (Matrix4f)_parentGetBoneMatrix.call(name) : node.getBoneMatrix();
     }
 
+    /**
+     * Returns the skeleton to which the specified bone matrices belong, or <code>null</code> if
+     * they don't all belong to our nodes.
+     */
+    @Scoped
+    public SkinningEngine.Skeleton getSkeleton (Matrix4f[] boneMatrices)
+    {
+        for (Matrix4f matrix : boneMatrices) {
+            boolean found = false;
+            for (Node node : _nodes) {
+                if (node._boneTransform != null && node._boneTransform.getMatrix() == matrix) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return null;
+            }
+        }
+        return _skeleton;
+    }
+
     /**
      * Returns a reference to the node with the specified name.
      */
@@ -1002,8 +1025,15 @@ public class Articulated extends Model.Implementation
      */
     protected void updateTransforms ()
     {
-        // handle the special (but likely common) case of a single animation
+        // use a shared pose if possible
         int nn = _playing.size();
+        _pose = null;
+        PoseCache cache = _ctx.getCompositor().getPoseCache();
+        if (nn > 0 && cache.isEnabled() && updateSharedTransforms(cache)) {
+            return;
+        }
+
+        // handle the special (but likely common) case of a single animation
         if (nn == 1) {
             _playing.get(0).updateTransforms();
             return;
@@ -1018,6 +1048,44 @@ public class Articulated extends Model.Implementation
         }
     }
 
+    /**
+     * Attempts to update the node transforms from a pose shared with other models, blending the
+     * animations and storing the result if the pose isn't in the cache.
+     *
+     * @return true if successful, false if the animation state can't be shared.
+     */
+    protected boolean updateSharedTransforms (PoseCache cache)
+    {
+        int nn = _playing.size();
+        _poseKey.reset(_config);
+        for (int ii = 0; ii < nn; ii++) {
+            // the weight of a lone animation doesn't affect the pose
+            if (!_playing.get(ii).getPoseKey(_poseKey, nn > 1)) {
+                return false;
+            }
+        }
+        PoseCache.Pose pose = cache.getPose(_poseKey);
+        if (pose == null || !pose.apply(_nodes)) {
+            _update++;
+            for (int ii = 0; ii < nn; ii++) {
+                _playing.get(ii).blendTransforms(_update);
+            }
+            pose = cache.putPose(_poseKey, _nodes, _update);
+        }
+
+        // the skinned data may be shared if the pose determines all of the bone transforms
+        if (pose.isComplete()) {
+            _pose = pose;
+            for (Node node : _nodes) {
+                if (node._updater != null) {
+                    _pose = null;
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Checks for an intersection with the skin mesh.
      */
@@ -1127,4 +1195,20 @@ public class Articulated extends Model.Implementation
 
     /** If true, the model has completed. */
     protected boolean _completed;
+
+    /** Used to look up shared poses. */
+    protected PoseCache.Key _poseKey = new PoseCache.Key();
+
+    /** The current pose, if it may be used to share skinned data. */
+    protected PoseCache.Pose _pose;
+
+    /** Provides the skinned surfaces with access to the shared pose. */
+    protected SkinningEngine.Skeleton _skeleton = new SkinningEngine.Skeleton() {
+        public SkinningEngine.SharedSkins getSharedSkins () {
+            return _pose;
+        }
+        public Transform3D getViewTransform () {
+            return _viewTransform;
+        }
+    };
 }
@@ -0,0 +1,445 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.model;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.threerings.math.Transform3D;
+
+import com.threerings.opengl.geometry.SkinningEngine;
+
+/**
+ * A cache of poses shared between articulated models.  Models with the same configuration whose
+ * animations are at the same (quantized) frames with the same (quantized) weights have the same
+ * node transforms, so only the first such model to update in a given state need blend its
+ * animations; the rest copy the result.  If a pose determines all of the nodes of a model, the
+ * skinned vertex data (in model space) may be shared as well.
+ *
+ * <p> Quantization means that models sharing a pose may be up to a fraction of a frame apart,
+ * so the cache is disabled by default and is best suited to crowds of background characters.
+ * Animations whose frames are modified per model (or that are transitioning from a per-model
+ * snapshot) are never shared.
+ */
+public class PoseCache
+{
+    /**
+     * Identifies a pose: the model configuration along with the frames, progress, and weights of
+     * the animations that determine it.
+     */
+    public static class Key
+    {
+        /**
+         * Creates an empty key.
+         */
+        public Key ()
+        {
+            _frames = new Object[2];
+            _values = new int[4];
+        }
+
+        /**
+         * Creates a copy of the specified key.
+         */
+        public Key (Key other)
+        {
+            _config = other._config;
+            _frames = Arrays.copyOf(other._frames, other._size);
+            _values = Arrays.copyOf(other._values, other._size * 2);
+            _size = other._size;
+            _hash = other._hash;
+        }
+
+        /**
+         * Resets the key for the specified model configuration.
+         */
+        public void reset (Object config)
+        {
+            Arrays.fill(_frames, 0, _size, null);
+            _config = config;
+            _size = 0;
+            _hash = System.identityHashCode(config);
+        }
+
+        /**
+         * Adds the state of an animation to the key.
+         *
+         * @param frames the animation frames (compared by identity).
+         * @param frame the index of the current frame.
+         * @param progress the progress towards the next frame.
+         * @param weight the weight of the animation.
+         */
+        public void add (Object frames, int frame, float progress, float weight)
+        {
+            if (_size == _frames.length) {
+                _frames = Arrays.copyOf(_frames, _size * 2);
+                _values = Arrays.copyOf(_values, _size * 4);
+            }
+            int time = frame * TIME_STEPS + (int)(progress * TIME_STEPS);
+            int qweight = Math.round(weight * WEIGHT_STEPS);
+            _frames[_size] = frames;
+            _values[_size * 2] = time;
+            _values[_size * 2 + 1] = qweight;
+            _size++;
+            _hash = ((_hash * 31 + System.identityHashCode(frames)) * 31 + time) * 31 + qweight;
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals (Object other)
+        {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key okey = (Key)other;
+            if (_hash != okey._hash || _config != okey._config || _size != okey._size) {
+                return false;
+            }
+            for (int ii = 0; ii < _size; ii++) {
+                if (_frames[ii] != okey._frames[ii]) {
+                    return false;
+                }
+            }
+            for (int ii = 0, nn = _size * 2; ii < nn; ii++) {
+                if (_values[ii] != okey._values[ii]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** The model configuration. */
+        protected Object _config;
+
+        /** The frames of each animation. */
+        protected Object[] _frames;
+
+        /** The quantized time and weight of each animation. */
+        protected int[] _values;
+
+        /** The number of animations in the key. */
+        protected int _size;
+
+        /** The hash code of the key. */
+        protected int _hash;
+    }
+
+    /**
+     * A shared pose, along with any skinned data computed for it.
+     */
+    public class Pose
+        implements SkinningEngine.SharedSkins
+    {
+        /**
+         * Checks whether the pose determines the transforms of all of the nodes.
+         */
+        public boolean isComplete ()
+        {
+            return _complete;
+        }
+
+        /**
+         * Applies the pose to the supplied nodes.
+         *
+         * @return true if successful, false if the nodes don't match those of the pose.
+         */
+        public boolean apply (Articulated.Node[] nodes)
+        {
+            if (nodes.length != _transforms.length) {
+                return false;
+            }
+            for (int ii = 0; ii < nodes.length; ii++) {
+                Transform3D transform = _transforms[ii];
+                if (transform != null) {
+                    nodes[ii].getLocalTransform().set(transform);
+                }
+            }
+            return true;
+        }
+
+        // documentation inherited from interface SkinningEngine.SharedSkins
+        public float[] getSkin (SkinningEngine.Mesh mesh)
+        {
+            synchronized (PoseCache.this) {
+                float[] skin = (_skins == null) ? null : _skins.get(mesh);
+                if (skin == null) {
+                    _skinMisses++;
+                } else {
+                    _skinHits++;
+                }
+                return skin;
+            }
+        }
+
+        // documentation inherited from interface SkinningEngine.SharedSkins
+        public float[] putSkin (SkinningEngine.Mesh mesh, float[] skin)
+        {
+            synchronized (PoseCache.this) {
+                if (_skins == null) {
+                    _skins = new IdentityHashMap<SkinningEngine.Mesh, float[]>(1);
+                }
+                float[] oskin = _skins.get(mesh);
+                if (oskin != null) {
+                    return oskin; // another model got there first
+                }
+                _skins.put(mesh, skin);
+                if (_evicted) {
+                    return skin; // no longer counted against the limit
+                }
+                long bytes = skin.length * 4L;
+                _memory += bytes;
+                _memoryUsage += bytes;
+                evict();
+                return skin;
+            }
+        }
+
+        /**
+         * Creates a pose from the current transforms of the supplied nodes.
+         *
+         * @param update the update counter value marking the nodes touched by the animations.
+         */
+        protected Pose (Articulated.Node[] nodes, int update)
+        {
+            _transforms = new Transform3D[nodes.length];
+            _complete = true;
+            int count = 0;
+            for (int ii = 0; ii < nodes.length; ii++) {
+                Articulated.Node node = nodes[ii];
+                if (node.lastUpdate == update) {
+                    _transforms[ii] = new Transform3D(node.getLocalTransform());
+                    count++;
+                } else {
+                    _complete = false;
+                }
+            }
+            _memory = (nodes.length + 1) * REFERENCE_BYTES + count * TRANSFORM_BYTES;
+        }
+
+        /** The node transforms (<code>null</code> for nodes not determined by the pose). */
+        protected Transform3D[] _transforms;
+
+        /** Whether the pose determines all of the node transforms. */
+        protected boolean _complete;
+
+        /** The skinned data computed for the pose, mapped by mesh. */
+        protected IdentityHashMap<SkinningEngine.Mesh, float[]> _skins;
+
+        /** The approximate memory used by the pose, in bytes. */
+        protected long _memory;
+
+        /** Set when the pose has been evicted from the cache. */
+        protected boolean _evicted;
+    }
+
+    /**
+     * Enables or disables the cache.  Disabling the cache clears it.
+     */
+    public synchronized void setEnabled (boolean enabled)
+    {
+        if (!(_enabled = enabled)) {
+            clear();
+        }
+    }
+
+    /**
+     * Checks whether the cache is enabled.
+     */
+    public boolean isEnabled ()
+    {
+        return _enabled;
+    }
+
+    /**
+     * Sets the approximate amount of memory that the cache may use, in bytes.  The least recently
+     * used poses are evicted when the limit is exceeded.
+     */
+    public synchronized void setMaxMemory (long maxMemory)
+    {
+        _maxMemory = maxMemory;
+        evict();
+    }
+
+    /**
+     * Returns the approximate amount of memory that the cache may use, in bytes.
+     */
+    public long getMaxMemory ()
+    {
+        return _maxMemory;
+    }
+
+    /**
+     * Returns the pose with the specified key, or <code>null</code> if it isn't in the cache.
+     */
+    public synchronized Pose getPose (Key key)
+    {
+        Pose pose = _poses.get(key);
+        if (pose == null) {
+            _poseMisses++;
+        } else {
+            _poseHits++;
+        }
+        return pose;
+    }
+
+    /**
+     * Stores the pose with the specified key.
+     *
+     * @param nodes the nodes from which to take the pose.
+     * @param update the update counter value marking the nodes touched by the animations.
+     * @return the stored pose.
+     */
+    public synchronized Pose putPose (Key key, Articulated.Node[] nodes, int update)
+    {
+        Pose pose = new Pose(nodes, update);
+        Pose opose = _poses.put(new Key(key), pose);
+        if (opose != null) {
+            removed(opose);
+        }
+        _memoryUsage += pose._memory;
+        evict();
+        return pose;
+    }
+
+    /**
+     * Removes all poses from the cache.
+     */
+    public synchronized void clear ()
+    {
+        for (Pose pose : _poses.values()) {
+            pose._evicted = true;
+        }
+        _poses.clear();
+        _memoryUsage = 0L;
+    }
+
+    /**
+     * Returns the number of poses in the cache.
+     */
+    public synchronized int getPoseCount ()
+    {
+        return _poses.size();
+    }
+
+    /**
+     * Returns the approximate amount of memory used by the cache, in bytes.
+     */
+    public synchronized long getMemoryUsage ()
+    {
+        return _memoryUsage;
+    }
+
+    /**
+     * Returns the total number of pose lookups that found a pose.
+     */
+    public synchronized long getPoseHits ()
+    {
+        return _poseHits;
+    }
+
+    /**
+     * Returns the total number of pose lookups that didn't find a pose.
+     */
+    public synchronized long getPoseMisses ()
+    {
+        return _poseMisses;
+    }
+
+    /**
+     * Returns the total number of skin lookups that found skinned data.
+     */
+    public synchronized long getSkinHits ()
+    {
+        return _skinHits;
+    }
+
+    /**
+     * Returns the total number of skin lookups that didn't find skinned data.
+     */
+    public synchronized long getSkinMisses ()
+    {
+        return _skinMisses;
+    }
+
+    /**
+     * Evicts the least recently used poses until we're within the memory limit.
+     */
+    protected void evict ()
+    {
+        for (Iterator<Pose> it = _poses.values().iterator();
+                _memoryUsage > _maxMemory && it.hasNext(); ) {
+            Pose pose = it.next();
+            it.remove();
+            removed(pose);
+        }
+    }
+
+    /**
+     * Notes that a pose has been removed from the cache.
+     */
+    protected void removed (Pose pose)
+    {
+        pose._evicted = true;
+        _memoryUsage -= pose._memory;
+    }
+
+    /** Whether or not the cache is enabled. */
+    protected boolean _enabled;
+
+    /** The cached poses, in order of access. */
+    protected LinkedHashMap<Key, Pose> _poses = new LinkedHashMap<Key, Pose>(16, 0.75f, true);
+
+    /** The approximate amount of memory that the cache may use. */
+    protected long _maxMemory = 16L * 1024 * 1024;
+
+    /** The approximate amount of memory used by the cache. */
+    protected long _memoryUsage;
+
+    /** The pose lookup statistics. */
+    protected long _poseHits, _poseMisses;
+
+    /** The skin lookup statistics. */
+    protected long _skinHits, _skinMisses;
+
+    /** The number of steps into which we quantize the time between frames. */
+    protected static final int TIME_STEPS = 4;
+
+    /** The number of steps into which we quantize animation weights. */
+    protected static final int WEIGHT_STEPS = 16;
+
+    /** The approximate size of an object reference, in bytes. */
+    protected static final int REFERENCE_BYTES = 8;
+
+    /** The approximate size of a uniform transform, in bytes. */
+    protected static final int TRANSFORM_BYTES = 96;
+}
@@ -208,90 +208,91 @@ public class HashScene extends Scene
     }
 
     @Override
-    public void boundsWillChange (SceneElement element)
+    protected void boundsWillChange (SceneElement element, Box bounds)
     {
-        super.boundsWillChange(element);
-        removeFromSpatial(element);
+        super.boundsWillChange(element, bounds);
+        remove(_elements, _oversizedElements, element, bounds);
     }
 
     @Override
-    public void boundsDidChange (SceneElement element)
+    protected void boundsDidChange (SceneElement element, Box bounds)
     {
-        super.boundsDidChange(element);
-        addToSpatial(element);
+        super.boundsDidChange(element, bounds);
+        add(_elements, _oversizedElements, element, bounds);
     }
 
     @Override
-    public void boundsWillChange (SceneInfluence influence)
+    protected void boundsWillChange (SceneInfluence influence, Box bounds)
     {
-        super.boundsWillChange(influence);
-        removeFromSpatial(influence);
+        super.boundsWillChange(influence, bounds);
+        remove(_influences, _oversizedInfluences, influence, bounds);
     }
 
     @Override
-    public void boundsDidChange (SceneInfluence influence)
+    protected void boundsDidChange (SceneInfluence influence, Box bounds)
     {
-        super.boundsDidChange(influence);
-        addToSpatial(influence);
+        super.boundsDidChange(influence, bounds);
+        add(_influences, _oversizedInfluences, influence, bounds);
     }
 
     @Override
-    public void boundsWillChange (ViewerEffect effect)
+    protected void boundsWillChange (ViewerEffect effect, Box bounds)
     {
-        super.boundsWillChange(effect);
-        removeFromSpatial(effect);
+        super.boundsWillChange(effect, bounds);
+        remove(_effects, _oversizedEffects, effect, bounds);
     }
 
     @Override
-    public void boundsDidChange (ViewerEffect effect)
+    protected void boundsDidChange (ViewerEffect effect, Box bounds)
     {
-        super.boundsDidChange(effect);
-        addToSpatial(effect);
+        super.boundsDidChange(effect, bounds);
+        add(_effects, _oversizedEffects, effect, bounds);
     }
 
     @Override
     protected void addToSpatial (SceneElement element)
     {
-        add(_elements, _oversizedElements, element);
+        add(_elements, _oversizedElements, element, element.getBounds());
     }
 
     @Override
     protected void removeFromSpatial (SceneElement element)
     {
-        remove(_elements, _oversizedElements, element);
+        remove(_elements, _oversizedElements, element, element.getBounds());
     }
 
     @Override
     protected void addToSpatial (SceneInfluence influence)
     {
-        add(_influences, _oversizedInfluences, influence);
+        add(_influences, _oversizedInfluences, influence, influence.getBounds());
     }
 
     @Override
     protected void removeFromSpatial (SceneInfluence influence)
     {
-        remove(_influences, _oversizedInfluences, influence);
+        remove(_influences, _oversizedInfluences, influence, influence.getBounds());
     }
 
     @Override
     protected void addToSpatial (ViewerEffect effect)
     {
-        add(_effects, _oversizedEffects, effect);
+        add(_effects, _oversizedEffects, effect, effect.getBounds());
     }
 
     @Override
     protected void removeFromSpatial (ViewerEffect effect)
     {
-        remove(_effects, _oversizedEffects, effect);
+        remove(_effects, _oversizedEffects, effect, effect.getBounds());
     }
 
     /**
      * Adds the specified object to the provided map.
+     *
+     * @param bounds the bounds of the object.
      */
     protected <T extends SceneObject> void add (
-        HashMap<Coord, Node<T>> roots, ArrayList<T> oversized, T object)
+        HashMap<Coord, Node<T>> roots, ArrayList<T> oversized, T object, Box bounds)
     {
-        Box bounds = object.getBounds();
         if (areOversized(bounds)) {
             oversized.add(object);
             return;
@@ -313,7 +314,7 @@ public class HashScene extends Scene
                         roots.put(_coord.clone(), root = createRoot(xx, yy, zz));
                         addBounds(_coord, root);
                     }
-                    root.add(object, level);
+                    root.add(object, bounds, level);
                 }
             }
         }
@@ -321,11 +322,12 @@ public class HashScene extends Scene
 
     /**
      * Removes the specified object from the provided map.
+     *
+     * @param bounds the bounds with which the object was added.
      */
     protected <T extends SceneObject> void remove (
-        HashMap<Coord, Node<T>> roots, ArrayList<T> oversized, T object)
+        HashMap<Coord, Node<T>> roots, ArrayList<T> oversized, T object, Box bounds)
     {
-        Box bounds = object.getBounds();
         if (areOversized(bounds)) {
             oversized.remove(object);
             return;
@@ -346,7 +348,7 @@ public class HashScene extends Scene
                     if (root == null) {
                         continue;
                     }
-                    root.remove(object, level);
+                    root.remove(object, bounds, level);
                     if (root.isEmpty()) {
                         roots.remove(_coord);
                         recomputeBounds();
@@ -534,7 +536,7 @@ public class HashScene extends Scene
         /**
          * Adds an object to this node.
          */
-        public void add (T object, int level)
+        public void add (T object, Box bounds, int level)
         {
             _objects.add(object);
         }
@@ -542,7 +544,7 @@ public class HashScene extends Scene
         /**
          * Removes an object from this node.
          */
-        public void remove (T object, int level)
+        public void remove (T object, Box bounds, int level)
         {
             _objects.remove(object);
         }
@@ -691,14 +693,13 @@ public class HashScene extends Scene
         }
 
         @Override
-        public void add (T object, int level)
+        public void add (T object, Box bounds, int level)
         {
             if (level == 0) {
-                super.add(object, level);
+                super.add(object, bounds, level);
                 return;
             }
             level--;
-            Box bounds = object.getBounds();
             for (int ii = 0; ii < _children.length; ii++) {
                 Node<T> child = _children[ii];
                 if (child == null) {
@@ -706,27 +707,26 @@ public class HashScene extends Scene
                     if (_box.intersects(bounds)) {
                         _children[ii] = child = getFromNodePool(_levels);
                         child.getBounds().set(_box);
-                        child.add(object, level);
+                        child.add(object, bounds, level);
                     }
                 } else if (child.getBounds().intersects(bounds)) {
-                    child.add(object, level);
+                    child.add(object, bounds, level);
                 }
             }
         }
 
         @Override
-        public void remove (T object, int level)
+        public void remove (T object, Box bounds, int level)
         {
             if (level == 0) {
-                super.remove(object, level);
+                super.remove(object, bounds, level);
                 return;
             }
             level--;
-            Box bounds = object.getBounds();
             for (int ii = 0; ii < _children.length; ii++) {
                 Node<T> child = _children[ii];
                 if (child != null && child.getBounds().intersects(bounds)) {
-                    child.remove(object, level);
+                    child.remove(object, bounds, level);
                     if (child.isEmpty()) {
                         child.returnToPool();
                         _children[ii] = null;
@@ -32,10 +32,21 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import com.threerings.config.ConfigReference;
 import com.threerings.expr.DynamicScope;
@@ -157,20 +168,40 @@ public abstract class Scene extends DynamicScope
      * Returns an instance of the referenced model from the transient pool.
      */
     @Scoped
-    public Transient getFromTransientPool (ConfigReference<ModelConfig> ref)
-    {
-        ArrayList<SoftReference<Transient>> list = _transientPool.get(ref);
-        if (list != null) {
-            for (int ii = list.size() - 1; ii >= 0; ii--) {
-                Transient model = list.remove(ii).get();
-                if (model != null) {
-                    model.reset();
-                    return model;
+    public Transient getFromTransientPool (final ConfigReference<ModelConfig> ref)
+    {
+        if (_deferring && Thread.currentThread() != _tickThread) {
+            // creating (or resetting) a model resolves configs and GL resources, so have the
+            // ticking thread do it and wait for the result
+            FutureTask<Transient> task = new FutureTask<Transient>(new Callable<Transient>() {
+                public Transient call () {
+                    return getFromTransientPool(ref);
+                }
+            });
+            _tickThreadTasks.add(task);
+            try {
+                return Uninterruptibles.getUninterruptibly(task);
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+        Transient model = null;
+        synchronized (_transientPool) {
+            ArrayList<SoftReference<Transient>> list = _transientPool.get(ref);
+            if (list != null) {
+                for (int ii = list.size() - 1; ii >= 0 && model == null; ii--) {
+                    model = list.remove(ii).get();
+                }
+                if (model == null) {
+                    _transientPool.remove(ref);
                 }
             }
-            _transientPool.remove(ref);
         }
-        Transient model = new Transient(_ctx, ref);
+        if (model != null) {
+            model.reset();
+            return model;
+        }
+        model = new Transient(_ctx, ref);
         model.setParentScope(this);
         model.setUserObject(ref);
         model.addObserver(_transientObserver);
@@ -181,17 +212,30 @@ public abstract class Scene extends DynamicScope
      * Returns a model to the transient pool.
      */
     @Scoped
-    public void returnToTransientPool (Transient model)
+    public void returnToTransientPool (final Transient model)
     {
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            // the model's removal will have been deferred as well
+            buffer.defer(new Runnable() {
+                public void run () {
+                    returnToTransientPool(model);
+                }
+            });
+            return;
+        }
+
         // clear out the model's updater, if any
         model.setUpdater(null);
 
         ConfigReference<?> ref = (ConfigReference<?>)model.getUserObject();
-        ArrayList<SoftReference<Transient>> list = _transientPool.get(ref);
-        if (list == null) {
-            _transientPool.put(ref, list = new ArrayList<SoftReference<Transient>>());
+        synchronized (_transientPool) {
+            ArrayList<SoftReference<Transient>> list = _transientPool.get(ref);
+            if (list == null) {
+                _transientPool.put(ref, list = new ArrayList<SoftReference<Transient>>());
+            }
+            list.add(new SoftReference<Transient>(model));
         }
-        list.add(new SoftReference<Transient>(model));
     }
 
     /**
@@ -207,8 +251,18 @@ public abstract class Scene extends DynamicScope
     /**
      * Adds an element to this scene.
      */
-    public void add (SceneElement element)
+    public void add (final SceneElement element)
     {
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            buffer.defer(new Runnable() {
+                public void run () {
+                    add(element);
+                }
+            });
+            return;
+        }
+
         // set the parent scope if appropriate
         if (element instanceof DynamicScope) {
             ((DynamicScope)element).setParentScope(this);
@@ -262,11 +316,20 @@ public abstract class Scene extends DynamicScope
      * @param clearParentScope if true and the element is an instance of {@link DynamicScope},
      * set the element's parent scope to <code>null</code>.
      */
-    public void remove (SceneElement element, boolean clearParentScope)
+    public void remove (final SceneElement element, final boolean clearParentScope)
     {
         if (_disposed) {
             return; // don't bother with the extra computation
         }
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            buffer.defer(new Runnable() {
+                public void run () {
+                    remove(element, clearParentScope);
+                }
+            });
+            return;
+        }
 
         // notify element
         element.willBeRemoved();
@@ -289,8 +352,18 @@ public abstract class Scene extends DynamicScope
     /**
      * Adds an influence to this scene.
      */
-    public void add (SceneInfluence influence)
+    public void add (final SceneInfluence influence)
     {
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            buffer.defer(new Runnable() {
+                public void run () {
+                    add(influence);
+                }
+            });
+            return;
+        }
+
         // add to spatial data structure
         addToSpatial(influence);
 
@@ -303,11 +376,20 @@ public abstract class Scene extends DynamicScope
     /**
      * Removes an influence from this scene.
      */
-    public void remove (SceneInfluence influence)
+    public void remove (final SceneInfluence influence)
     {
         if (_disposed) {
             return; // don't bother with the extra computation
         }
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            buffer.defer(new Runnable() {
+                public void run () {
+                    remove(influence);
+                }
+            });
+            return;
+        }
 
         // add any intersecting elements to the update list
         int count = _updateInfluences.size();
@@ -321,8 +403,18 @@ public abstract class Scene extends DynamicScope
     /**
      * Adds a viewer effect to this scene.
      */
-    public void add (ViewerEffect effect)
+    public void add (final ViewerEffect effect)
     {
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            buffer.defer(new Runnable() {
+                public void run () {
+                    add(effect);
+                }
+            });
+            return;
+        }
+
         // add to spatial data structure
         addToSpatial(effect);
     }
@@ -330,12 +422,23 @@ public abstract class Scene extends DynamicScope
     /**
      * Removes a viewer effect from this scene.
      */
-    public void remove (ViewerEffect effect)
+    public void remove (final ViewerEffect effect)
     {
-        // remove from spatial data structure
-        if (!_disposed) {
-            removeFromSpatial(effect);
+        if (_disposed) {
+            return;
+        }
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            buffer.defer(new Runnable() {
+                public void run () {
+                    remove(effect);
+                }
+            });
+            return;
         }
+
+        // remove from spatial data structure
+        removeFromSpatial(effect);
     }
 
     /**
@@ -379,6 +482,46 @@ public abstract class Scene extends DynamicScope
      */
     public abstract void getEffects (Box bounds, Collection<ViewerEffect> results);
 
+    /**
+     * Enables or disables parallel ticking.  When enabled, the elements to be ticked that satisfy
+     * the supplied filter are divided into chunks and ticked on the executor's threads (and on
+     * the calling thread) before the remaining elements are ticked on the calling thread.  While
+     * the parallel elements are ticking, any changes they make to the scene (adding or removing
+     * elements, influences and effects, and changing their bounds or tick policies) are buffered
+     * and then applied on the calling thread, in order, once every chunk has finished.  Transient
+     * models requested from the pool by the other threads are fetched or created on the calling
+     * thread, which the requesting thread waits for.
+     *
+     * <p> The filter must only accept elements whose ticks are independent of one another and of
+     * the rest of the application: they may not touch objects shared with other elements (except
+     * through the scene methods described above), make OpenGL or OpenAL calls, or query the
+     * scene's spatial data structures.
+     *
+     * @param executor the executor on which to tick elements, or <code>null</code> to tick all
+     * elements on the calling thread.
+     */
+    public void setParallelTicking (Executor executor, Predicate<? super SceneElement> filter)
+    {
+        _tickExecutor = executor;
+        _parallelFilter = filter;
+    }
+
+    /**
+     * Returns the number of elements ticked in parallel on the last frame.
+     */
+    public int getParallelTickSize ()
+    {
+        return _parallelTickSize;
+    }
+
+    /**
+     * Returns the time elapsed to tick the parallel elements and apply their changes.
+     */
+    public long getParallelTickTime ()
+    {
+        return _parallelTickTime;
+    }
+
     /**
      * Returns the size of the list of elements that we tick on every frame.
      */
@@ -455,16 +598,36 @@ public abstract class Scene extends DynamicScope
      * Notes that the specified scene element's tick policy is about to change.  Will be followed
      * by a call to {@link #tickPolicyDidChange} when the change has been effected.
      */
-    public void tickPolicyWillChange (SceneElement element)
+    public void tickPolicyWillChange (final SceneElement element)
     {
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            final TickPolicy policy = element.getTickPolicy();
+            buffer.defer(new Runnable() {
+                public void run () {
+                    removeFromTick(element, policy);
+                }
+            });
+            return;
+        }
         removeFromTick(element);
     }
 
     /**
      * Notes that the specified scene element's tick policy has changed.
      */
-    public void tickPolicyDidChange (SceneElement element)
+    public void tickPolicyDidChange (final SceneElement element)
     {
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            final TickPolicy policy = element.getTickPolicy();
+            buffer.defer(new Runnable() {
+                public void run () {
+                    addToTick(element, policy);
+                }
+            });
+            return;
+        }
         addToTick(element);
     }
 
@@ -472,57 +635,111 @@ public abstract class Scene extends DynamicScope
      * Notes that the specified scene element's bounds are about to change.  Will be followed by a
      * call to {@link #boundsDidChange(SceneElement)} when the change has been effected.
      */
-    public void boundsWillChange (SceneElement element)
+    public void boundsWillChange (final SceneElement element)
     {
-        // nothing by default
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            final Box bounds = new Box(element.getBounds());
+            buffer.defer(new Runnable() {
+                public void run () {
+                    boundsWillChange(element, bounds);
+                }
+            });
+            return;
+        }
+        boundsWillChange(element, element.getBounds());
     }
 
     /**
      * Notes that the specified scene element's bounds have changed.
      */
-    public void boundsDidChange (SceneElement element)
+    public void boundsDidChange (final SceneElement element)
     {
-        // add to update list
-        _updateInfluences.add(element);
-        dumpInfluence(element, "bounds did change", 1);
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            final Box bounds = new Box(element.getBounds());
+            buffer.defer(new Runnable() {
+                public void run () {
+                    boundsDidChange(element, bounds);
+                }
+            });
+            return;
+        }
+        boundsDidChange(element, element.getBounds());
     }
 
     /**
      * Notes that the specified influence's bounds are about to change.  Will be followed by a call
      * to {@link #boundsDidChange(SceneInfluence)} when the change has been effected.
      */
-    public void boundsWillChange (SceneInfluence influence)
+    public void boundsWillChange (final SceneInfluence influence)
     {
-        // add any intersecting elements to the update list
-        int count = _updateInfluences.size();
-        getElements(influence.getBounds(), _updateInfluences);
-        dumpInfluence(influence, "influence bounds will change", _updateInfluences.size() - count);
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            final Box bounds = new Box(influence.getBounds());
+            buffer.defer(new Runnable() {
+                public void run () {
+                    boundsWillChange(influence, bounds);
+                }
+            });
+            return;
+        }
+        boundsWillChange(influence, influence.getBounds());
     }
 
     /**
      * Notes that the specified influence's bounds have changed.
      */
-    public void boundsDidChange (SceneInfluence influence)
+    public void boundsDidChange (final SceneInfluence influence)
     {
-        // add any intersecting elements to the update list
-        int count = _updateInfluences.size();
-        getElements(influence.getBounds(), _updateInfluences);
-        dumpInfluence(influence, "influence bounds did change", _updateInfluences.size() - count);
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            final Box bounds = new Box(influence.getBounds());
+            buffer.defer(new Runnable() {
+                public void run () {
+                    boundsDidChange(influence, bounds);
+                }
+            });
+            return;
+        }
+        boundsDidChange(influence, influence.getBounds());
     }
 
     /**
      * Notes that the specified effect's bounds are about to change.  Will be followed by a call
      * to {@link #boundsDidChange(ViewerEffect)} when the change has been effected.
      */
-    public void boundsWillChange (ViewerEffect effect)
+    public void boundsWillChange (final ViewerEffect effect)
     {
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            final Box bounds = new Box(effect.getBounds());
+            buffer.defer(new Runnable() {
+                public void run () {
+                    boundsWillChange(effect, bounds);
+                }
+            });
+            return;
+        }
+        boundsWillChange(effect, effect.getBounds());
     }
 
     /**
      * Notes that the specified effect's bounds have changed.
      */
-    public void boundsDidChange (ViewerEffect effect)
+    public void boundsDidChange (final ViewerEffect effect)
     {
+        TickBuffer buffer = getTickBuffer();
+        if (buffer != null) {
+            final Box bounds = new Box(effect.getBounds());
+            buffer.defer(new Runnable() {
+                public void run () {
+                    boundsDidChange(effect, bounds);
+                }
+            });
+            return;
+        }
+        boundsDidChange(effect, effect.getBounds());
     }
 
     /**
@@ -547,24 +764,33 @@ public abstract class Scene extends DynamicScope
         if (_dumpInfluences) {
             log.info("INFLUENCES!!!");
         }
-        // tick the elements that we always tick (in reverse order,
-        // so that they can remove themselves)
-        long tick = System.nanoTime();
-        for (int ii = _alwaysTick.size() - 1; ii >= 0; ii--) {
-            _alwaysTick.get(ii).tick(elapsed);
-        }
-        long tock = System.nanoTime();
-        _alwaysTickTime = tock - tick;
+        long tick, tock;
+        if (_tickExecutor == null) {
+            // tick the elements that we always tick (in reverse order,
+            // so that they can remove themselves)
+            tick = System.nanoTime();
+            for (int ii = _alwaysTick.size() - 1; ii >= 0; ii--) {
+                _alwaysTick.get(ii).tick(elapsed);
+            }
+            tock = System.nanoTime();
+            _alwaysTickTime = tock - tick;
 
-        // tick the visible tick-when-visible elements
-        if (!_visible.isEmpty()) {
-            for (SceneElement element : _visible.toArray(new SceneElement[_visible.size()])) {
-                element.tick(elapsed);
+            // tick the visible tick-when-visible elements
+            if (!_visible.isEmpty()) {
+                for (SceneElement element : _visible.toArray(new SceneElement[_visible.size()])) {
+                    element.tick(elapsed);
+                }
+                _visible.clear();
             }
-            _visible.clear();
+            tick = System.nanoTime();
+            _visibleTickTime = tick - tock;
+            _parallelTickSize = 0;
+            _parallelTickTime = 0L;
+
+        } else {
+            tickParallel(elapsed);
+            tick = System.nanoTime();
         }
-        tick = System.nanoTime();
-        _visibleTickTime = tick - tock;
 
         // find the effects acting on the viewer
         Vector3f location = _ctx.getCameraHandler().getViewerTranslation();
@@ -624,6 +850,148 @@ public abstract class Scene extends DynamicScope
         _disposed = true;
     }
 
+    /**
+     * Ticks the elements, those accepted by the parallel filter on the tick executor.
+     */
+    protected void tickParallel (final float elapsed)
+    {
+        // divide the elements between the parallel and serial lists, taking the always tickers
+        // in reverse order as in the serial tick
+        long tick = System.nanoTime();
+        for (int ii = _alwaysTick.size() - 1; ii >= 0; ii--) {
+            SceneElement element = _alwaysTick.get(ii);
+            (_parallelFilter.apply(element) ? _parallelTick : _serialTick).add(element);
+        }
+        int always = _serialTick.size();
+        for (SceneElement element : _visible) {
+            (_parallelFilter.apply(element) ? _parallelTick : _serialTick).add(element);
+        }
+        _visible.clear();
+
+        // tick the parallel elements in chunks claimed by the executor's threads and this one
+        final int count = _parallelTickSize = _parallelTick.size();
+        if (count > 0) {
+            final SceneElement[] elements = _parallelArray = _parallelTick.toArray(_parallelArray);
+            final int chunks = (count + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+            while (_tickBuffers.size() < chunks) {
+                _tickBuffers.add(new TickBuffer());
+            }
+            final AtomicInteger next = new AtomicInteger(), remaining = new AtomicInteger(chunks);
+            final Thread tickThread = _tickThread = Thread.currentThread();
+            Runnable task = new Runnable() {
+                public void run () {
+                    boolean worker = (Thread.currentThread() != tickThread);
+                    for (int chunk; (chunk = next.getAndIncrement()) < chunks; ) {
+                        if (!worker) {
+                            runTickThreadTasks();
+                        }
+                        tickChunk(elements, chunk * PARALLEL_CHUNK_SIZE,
+                            Math.min((chunk + 1) * PARALLEL_CHUNK_SIZE, count),
+                            _tickBuffers.get(chunk), elapsed);
+                        if (remaining.decrementAndGet() == 0 && worker) {
+                            _tickThreadTasks.add(NOOP); // wake the ticking thread
+                        }
+                    }
+                }
+            };
+            _deferring = true;
+            for (int ii = Math.min(chunks, PROCESSORS) - 1; ii > 0; ii--) {
+                try {
+                    _tickExecutor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    break; // this thread will pick up the slack
+                }
+            }
+            task.run();
+
+            // wait for the other threads, running any tasks they hand to this one meanwhile
+            while (remaining.get() > 0) {
+                Uninterruptibles.takeUninterruptibly(_tickThreadTasks).run();
+            }
+            _deferring = false;
+            _tickThread = null;
+
+            // apply the buffered changes in chunk order; a failure in one buffer doesn't keep
+            // the others from being applied, and the first error is rethrown once all are done
+            Throwable error = null;
+            for (int ii = 0; ii < chunks; ii++) {
+                TickBuffer buffer = _tickBuffers.get(ii);
+                if (error == null) {
+                    error = buffer.error;
+                }
+                buffer.error = null;
+                try {
+                    buffer.apply();
+                } catch (Throwable t) {
+                    if (error == null) {
+                        error = t;
+                    }
+                }
+            }
+            Arrays.fill(elements, 0, count, null);
+            if (error != null) {
+                _parallelTick.clear();
+                _serialTick.clear();
+                throw Throwables.propagate(error);
+            }
+        }
+        long tock = System.nanoTime();
+        _parallelTickTime = tock - tick;
+
+        // tick the remaining elements on this thread
+        for (int ii = 0; ii < always; ii++) {
+            _serialTick.get(ii).tick(elapsed);
+        }
+        tick = System.nanoTime();
+        _alwaysTickTime = tick - tock;
+        for (int ii = always, nn = _serialTick.size(); ii < nn; ii++) {
+            _serialTick.get(ii).tick(elapsed);
+        }
+        tock = System.nanoTime();
+        _visibleTickTime = tock - tick;
+
+        // make sure we don't retain any references
+        _parallelTick.clear();
+        _serialTick.clear();
+    }
+
+    /**
+     * Ticks a range of elements, deferring their changes to the scene to the given buffer.
+     */
+    protected void tickChunk (
+        SceneElement[] elements, int start, int end, TickBuffer buffer, float elapsed)
+    {
+        _tickBuffer.set(buffer);
+        try {
+            for (int ii = start; ii < end; ii++) {
+                elements[ii].tick(elapsed);
+            }
+        } catch (Throwable t) {
+            buffer.error = t;
+        } finally {
+            _tickBuffer.remove();
+        }
+    }
+
+    /**
+     * Returns the buffer in which to record changes to the scene made by the current thread, or
+     * <code>null</code> if the changes should be applied immediately.
+     */
+    protected TickBuffer getTickBuffer ()
+    {
+        return _deferring ? _tickBuffer.get() : null;
+    }
+
+    /**
+     * Runs the tasks handed to the ticking thread by the other threads ticking in parallel.
+     */
+    protected void runTickThreadTasks ()
+    {
+        for (Runnable task; (task = _tickThreadTasks.poll()) != null; ) {
+            task.run();
+        }
+    }
+
     /**
      * Sets the effects acting on the viewer.
      */
@@ -656,7 +1024,15 @@ public abstract class Scene extends DynamicScope
      */
     protected void addToTick (SceneElement element)
     {
-        if (element.getTickPolicy() == TickPolicy.ALWAYS) {
+        addToTick(element, element.getTickPolicy());
+    }
+
+    /**
+     * Adds an element with the specified tick policy to the scene's tick data structure.
+     */
+    protected void addToTick (SceneElement element, TickPolicy policy)
+    {
+        if (policy == TickPolicy.ALWAYS) {
             _alwaysTick.add(element);
         }
     }
@@ -666,11 +1042,88 @@ public abstract class Scene extends DynamicScope
      */
     protected void removeFromTick (SceneElement element)
     {
-        if (element.getTickPolicy() == TickPolicy.ALWAYS) {
+        removeFromTick(element, element.getTickPolicy());
+    }
+
+    /**
+     * Removes an element that was added with the specified tick policy from the scene's tick
+     * data structure.
+     */
+    protected void removeFromTick (SceneElement element, TickPolicy policy)
+    {
+        if (policy == TickPolicy.ALWAYS) {
             _alwaysTick.remove(element);
         }
     }
 
+    /**
+     * Notes that the specified element's bounds are about to change.
+     *
+     * @param bounds the element's current bounds.
+     */
+    protected void boundsWillChange (SceneElement element, Box bounds)
+    {
+        // nothing by default
+    }
+
+    /**
+     * Notes that the specified element's bounds have changed.
+     *
+     * @param bounds the element's new bounds.
+     */
+    protected void boundsDidChange (SceneElement element, Box bounds)
+    {
+        // add to update list
+        _updateInfluences.add(element);
+        dumpInfluence(element, "bounds did change", 1);
+    }
+
+    /**
+     * Notes that the specified influence's bounds are about to change.
+     *
+     * @param bounds the influence's current bounds.
+     */
+    protected void boundsWillChange (SceneInfluence influence, Box bounds)
+    {
+        // add any intersecting elements to the update list
+        int count = _updateInfluences.size();
+        getElements(bounds, _updateInfluences);
+        dumpInfluence(influence, "influence bounds will change", _updateInfluences.size() - count);
+    }
+
+    /**
+     * Notes that the specified influence's bounds have changed.
+     *
+     * @param bounds the influence's new bounds.
+     */
+    protected void boundsDidChange (SceneInfluence influence, Box bounds)
+    {
+        // add any intersecting elements to the update list
+        int count = _updateInfluences.size();
+        getElements(bounds, _updateInfluences);
+        dumpInfluence(influence, "influence bounds did change", _updateInfluences.size() - count);
+    }
+
+    /**
+     * Notes that the specified effect's bounds are about to change.
+     *
+     * @param bounds the effect's current bounds.
+     */
+    protected void boundsWillChange (ViewerEffect effect, Box bounds)
+    {
+        // nothing by default
+    }
+
+    /**
+     * Notes that the specified effect's bounds have changed.
+     *
+     * @param bounds the effect's new bounds.
+     */
+    protected void boundsDidChange (ViewerEffect effect, Box bounds)
+    {
+        // nothing by default
+    }
+
     /**
      * Adds an element to the scene's spatial data structure.
      */
@@ -783,6 +1236,51 @@ public abstract class Scene extends DynamicScope
     }
 
 
+    /**
+     * Records the changes to the scene made while ticking a chunk of elements in parallel.
+     */
+    protected static class TickBuffer
+    {
+        /** The first error thrown while ticking the chunk, if any. */
+        public Throwable error;
+
+        /**
+         * Defers a change until the buffer is applied.
+         */
+        public void defer (Runnable change)
+        {
+            _changes.add(change);
+        }
+
+        /**
+         * Applies and clears the deferred changes.  If any changes fail, the rest are still
+         * applied and the first error is then rethrown.
+         */
+        public void apply ()
+        {
+            Throwable error = null;
+            try {
+                for (int ii = 0, nn = _changes.size(); ii < nn; ii++) {
+                    try {
+                        _changes.get(ii).run();
+                    } catch (Throwable t) {
+                        if (error == null) {
+                            error = t;
+                        }
+                    }
+                }
+            } finally {
+                _changes.clear();
+            }
+            if (error != null) {
+                throw Throwables.propagate(error);
+            }
+        }
+
+        /** The deferred changes. */
+        protected ArrayList<Runnable> _changes = new ArrayList<Runnable>();
+    }
+
     /** The application context. */
     protected GlContext _ctx;
 
@@ -849,6 +1347,53 @@ public abstract class Scene extends DynamicScope
     /** If transient policies are enabled. */
     protected boolean _transientPolicy;
 
+    /** The executor on which to tick elements in parallel, if any. */
+    protected Executor _tickExecutor;
+
+    /** Selects the elements that may be ticked in parallel. */
+    protected Predicate<? super SceneElement> _parallelFilter = Predicates.alwaysFalse();
+
+    /** The elements to tick in parallel and on the calling thread. */
+    protected ArrayList<SceneElement> _parallelTick = Lists.newArrayList(),
+        _serialTick = Lists.newArrayList();
+
+    /** Holds the elements while we're ticking them in parallel. */
+    protected SceneElement[] _parallelArray = new SceneElement[0];
+
+    /** The buffers for each chunk of parallel elements. */
+    protected ArrayList<TickBuffer> _tickBuffers = Lists.newArrayList();
+
+    /** The buffer for the chunk being ticked by the current thread. */
+    protected ThreadLocal<TickBuffer> _tickBuffer = new ThreadLocal<TickBuffer>();
+
+    /** Set while we're ticking elements in parallel. */
+    protected boolean _deferring;
+
+    /** The thread ticking the scene while we're ticking elements in parallel. */
+    protected Thread _tickThread;
+
+    /** Tasks that the other threads ticking in parallel must have run on the ticking thread. */
+    protected BlockingQueue<Runnable> _tickThreadTasks = new LinkedBlockingQueue<Runnable>();
+
+    /** The number of elements ticked in parallel on the last frame. */
+    protected int _parallelTickSize;
+
+    /** The time taken to tick the parallel elements. */
+    protected long _parallelTickTime;
+
     /** The default number of sound sources to allow. */
     protected static final int DEFAULT_SOURCES = 10;
+
+    /** The number of elements in each chunk ticked in parallel. */
+    protected static final int PARALLEL_CHUNK_SIZE = 8;
+
+    /** Does nothing (used to wake the ticking thread). */
+    protected static final Runnable NOOP = new Runnable() {
+        public void run () {
+            // no-op
+        }
+    };
+
+    /** The number of available processors. */
+    protected static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
 }
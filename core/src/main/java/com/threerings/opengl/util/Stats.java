@@ -30,6 +30,7 @@ import java.awt.Font;
 import com.threerings.opengl.compositor.Compositor;
 import com.threerings.opengl.gui.text.CharacterTextFactory;
 import com.threerings.opengl.gui.text.Text;
+import com.threerings.opengl.model.PoseCache;
 import com.threerings.opengl.renderer.Color4f;
 import com.threerings.opengl.renderer.Renderer;
 
@@ -71,13 +72,45 @@ public class Stats extends SimpleOverlay
                 renderer.getPrimitiveCount() + "; tc: " + renderer.getTextureChangeCount() +
                 ") [bo: " + renderer.getBufferObjectCount() + "/" +
                 renderer.getBufferObjectBytes()/1024 + "k, tx: " + renderer.getTextureCount() +
-                "/" + renderer.getTextureBytes()/1024 + "k]",
+                "/" + renderer.getTextureBytes()/1024 + "k]" +
+                getPoseCacheStats(compositor.getPoseCache()),
                 Color4f.WHITE, 0, 0, Color4f.BLACK, true);
             _lastUpdate = now;
             _frameCount = 0;
         }
     }
 
+    /**
+     * Returns a description of the pose cache hit rates over the last interval and its memory
+     * usage, or an empty string if the cache is disabled.
+     */
+    protected String getPoseCacheStats (PoseCache cache)
+    {
+        if (!cache.isEnabled()) {
+            return "";
+        }
+        long poseHits = cache.getPoseHits(), poseMisses = cache.getPoseMisses();
+        long skinHits = cache.getSkinHits(), skinMisses = cache.getSkinMisses();
+        String stats = " {pc: " + cache.getPoseCount() + ", " +
+            getHitRate(poseHits - _poseHits, poseMisses - _poseMisses) + "%/" +
+            getHitRate(skinHits - _skinHits, skinMisses - _skinMisses) + "%, " +
+            cache.getMemoryUsage()/1024 + "k}";
+        _poseHits = poseHits;
+        _poseMisses = poseMisses;
+        _skinHits = skinHits;
+        _skinMisses = skinMisses;
+        return stats;
+    }
+
+    /**
+     * Returns the hit rate as a percentage.
+     */
+    protected static int getHitRate (long hits, long misses)
+    {
+        long total = hits + misses;
+        return (total == 0L) ? 0 : (int)((hits * 100) / total);
+    }
+
     @Override
     protected void draw ()
     {
@@ -104,6 +137,9 @@ public class Stats extends SimpleOverlay
     /** The number of frames rendered since the last update. */
     protected int _frameCount;
 
+    /** The pose cache lookup statistics as of the last update. */
+    protected long _poseHits, _poseMisses, _skinHits, _skinMisses;
+
     /** The interval at which we update the stats. */
     protected static final long REPORT_INTERVAL = 1000L;
 }
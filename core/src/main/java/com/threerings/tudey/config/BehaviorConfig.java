@@ -127,6 +127,19 @@ public class BehaviorConfig extends ParameterizedConfig
         public FloatVariable evaluationInterval = new FloatVariable.Constant(2f);
     }
 
+    /**
+     * The ways in which pathing behaviors may find their paths to targets.
+     */
+    public enum PathSource
+    {
+        /** Search for a path for each agent. */
+        SEARCH,
+
+        /** Follow a flow field shared by all agents heading for the same target, falling back to
+         * searching when the agent is outside the field. */
+        FLOW_FIELD
+    }
+
     /**
      * Base class for pathing behaviors.
      */
@@ -252,6 +265,10 @@ public class BehaviorConfig extends ParameterizedConfig
         @Editable(min=0.0, step=0.1, hgroup="d")
         public float maximumDistance = 5f;
 
+        /** How we find paths to the target. */
+        @Editable
+        public PathSource pathSource = PathSource.SEARCH;
+
         @Override
         public String getLogicClassName ()
         {
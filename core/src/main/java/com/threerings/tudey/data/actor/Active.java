@@ -76,7 +76,7 @@ public class Active extends Mobile
     public void setActivity (int activity)
     {
         _activity = activity;
-        setDirty(true);
+        setDirtyFields(ACTIVITY_FIELD);
     }
 
     /**
@@ -93,7 +93,7 @@ public class Active extends Mobile
     public void setActivityStarted (int started)
     {
         _activityStarted = started;
-        setDirty(true);
+        setDirtyFields(ACTIVITY_STARTED_FIELD);
     }
 
     /**
@@ -152,6 +152,12 @@ public class Active extends Mobile
         return hash;
     }
 
+    @Override
+    protected long getTrackedFields ()
+    {
+        return super.getTrackedFields() | ACTIVITY_FIELD | ACTIVITY_STARTED_FIELD;
+    }
+
     /** Identifies the activity being performed by the actor. */
     @DeepOmit
     protected int _activity;
@@ -159,4 +165,9 @@ public class Active extends Mobile
     /** The time at which the current activity started. */
     @DeepOmit
     protected int _activityStarted;
+
+    /** Dirty field bits for the activity fields. */
+    protected static final long ACTIVITY_FIELD = getFieldBit(Active.class, "_activity");
+    protected static final long ACTIVITY_STARTED_FIELD =
+        getFieldBit(Active.class, "_activityStarted");
 }
@@ -31,6 +31,7 @@ import com.threerings.config.ConfigManager;
 import com.threerings.config.ConfigReference;
 import com.threerings.delta.DeltaFinal;
 import com.threerings.delta.Deltable;
+import com.threerings.delta.ReflectiveDelta;
 import com.threerings.math.FloatMath;
 import com.threerings.math.Vector2f;
 import com.threerings.util.DeepObject;
@@ -107,7 +108,7 @@ public class Actor extends DeepObject
     public void setConfig (ConfigReference<ActorConfig> config)
     {
         _config = config;
-        setDirty(true);
+        setDirtyFields(CONFIG_FIELD);
     }
 
     /**
@@ -148,7 +149,7 @@ public class Actor extends DeepObject
     public void setDestroyed (int destroyed)
     {
         _destroyed = destroyed;
-        setDirty(true);
+        setDirtyFields(DESTROYED_FIELD);
     }
 
     /**
@@ -166,7 +167,7 @@ public class Actor extends DeepObject
     public void setTranslation (float x, float y)
     {
         _translation.set(x, y);
-        setDirty(true);
+        setDirtyFields(TRANSLATION_FIELD);
     }
 
     /**
@@ -183,7 +184,7 @@ public class Actor extends DeepObject
     public void setRotation (float rotation)
     {
         _rotation = rotation;
-        setDirty(true);
+        setDirtyFields(ROTATION_FIELD);
     }
 
     /**
@@ -200,7 +201,7 @@ public class Actor extends DeepObject
     public void setFlags (int flags)
     {
         _flags = flags;
-        setDirty(true);
+        setDirtyFields(FLAGS_FIELD);
     }
 
     /**
@@ -217,7 +218,7 @@ public class Actor extends DeepObject
     public void set (int flag, boolean value)
     {
         _flags = value ? (_flags | flag) : (_flags & ~flag);
-        setDirty(true);
+        setDirtyFields(FLAGS_FIELD);
     }
 
     /**
@@ -226,7 +227,7 @@ public class Actor extends DeepObject
     public void set (int flag)
     {
         _flags |= flag;
-        setDirty(true);
+        setDirtyFields(FLAGS_FIELD);
     }
 
     /**
@@ -235,7 +236,7 @@ public class Actor extends DeepObject
     public void clear (int flag)
     {
         _flags &= ~flag;
-        setDirty(true);
+        setDirtyFields(FLAGS_FIELD);
     }
 
     /**
@@ -345,11 +346,13 @@ public class Actor extends DeepObject
     }
 
     /**
-     * Sets the state of the actor's dirty flag.
+     * Sets the state of the actor's dirty flag.  Setting the flag marks all fields as
+     * potentially changed; clearing it clears the changed field mask as well.
      */
     public void setDirty (boolean dirty)
     {
         _dirty = dirty;
+        _dirtyFields = dirty ? -1L : 0L;
     }
 
     /**
@@ -360,6 +363,45 @@ public class Actor extends DeepObject
         return _dirty;
     }
 
+    /**
+     * Returns the mask (with bits in {@link ReflectiveDelta} field order) of the fields that may
+     * have changed since the dirty flag was last cleared, for use in computing snapshot deltas.
+     * Fields not covered by {@link #getTrackedFields} are always included.
+     */
+    public long getDirtyFields ()
+    {
+        return _dirty ? (_dirtyFields | ~getTrackedFields()) : 0L;
+    }
+
+    /**
+     * Sets the dirty flag and notes that the specified fields have changed.
+     */
+    protected void setDirtyFields (long fields)
+    {
+        _dirty = true;
+        _dirtyFields |= fields;
+    }
+
+    /**
+     * Returns the mask of fields whose every modification is recorded through
+     * {@link #setDirtyFields}.  The translation isn't included, since callers modify the vector
+     * returned by {@link #getTranslation} in place.
+     */
+    protected long getTrackedFields ()
+    {
+        return CONFIG_FIELD | DESTROYED_FIELD | ROTATION_FIELD | FLAGS_FIELD;
+    }
+
+    /**
+     * Returns the dirty field bit for the named field of the specified class, or zero if the
+     * field has no bit (in which case it will always be considered dirty).
+     */
+    protected static long getFieldBit (Class<?> clazz, String name)
+    {
+        int idx = ReflectiveDelta.getFieldIndex(clazz, name);
+        return (idx >= 0 && idx < Long.SIZE) ? (1L << idx) : 0L;
+    }
+
     @Override
     public Object copy (Object dest)
     {
@@ -454,6 +496,17 @@ public class Actor extends DeepObject
     @DeepOmit
     protected transient boolean _dirty = true;
 
+    /** The mask of fields changed since the dirty flag was last cleared. */
+    @DeepOmit
+    protected transient long _dirtyFields = -1L;
+
+    /** Dirty field bits for the base class fields. */
+    protected static final long CONFIG_FIELD = getFieldBit(Actor.class, "_config");
+    protected static final long DESTROYED_FIELD = getFieldBit(Actor.class, "_destroyed");
+    protected static final long TRANSLATION_FIELD = getFieldBit(Actor.class, "_translation");
+    protected static final long ROTATION_FIELD = getFieldBit(Actor.class, "_rotation");
+    protected static final long FLAGS_FIELD = getFieldBit(Actor.class, "_flags");
+
     /** Used when we can't resolve the actor config. */
     protected static final ActorConfig.Original NULL_ORIGINAL = new ActorConfig.Original();
 }
@@ -61,7 +61,7 @@ public class EntryState extends Actor
     public void setKey (Object key)
     {
         _key = key;
-        setDirty(true);
+        setDirtyFields(KEY_FIELD);
     }
 
     /**
@@ -79,7 +79,7 @@ public class EntryState extends Actor
     {
         _state = state;
         _stateEntered = entered;
-        setDirty(true);
+        setDirtyFields(STATE_FIELD | STATE_ENTERED_FIELD);
     }
 
     /**
@@ -98,6 +98,12 @@ public class EntryState extends Actor
         return _stateEntered;
     }
 
+    @Override
+    protected long getTrackedFields ()
+    {
+        return super.getTrackedFields() | KEY_FIELD | STATE_FIELD | STATE_ENTERED_FIELD;
+    }
+
     /** The key identifying the entry to which this actor corresponds. */
     protected Object _key;
 
@@ -106,4 +112,10 @@ public class EntryState extends Actor
 
     /** The time at which the entry entered its current state. */
     protected int _stateEntered;
+
+    /** Dirty field bits for the entry state fields. */
+    protected static final long KEY_FIELD = getFieldBit(EntryState.class, "_key");
+    protected static final long STATE_FIELD = getFieldBit(EntryState.class, "_state");
+    protected static final long STATE_ENTERED_FIELD =
+        getFieldBit(EntryState.class, "_stateEntered");
 }
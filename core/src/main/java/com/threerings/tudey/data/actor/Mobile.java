@@ -71,7 +71,7 @@ public class Mobile extends Actor
     public void setDirection (float direction)
     {
         _direction = direction;
-        setDirty(true);
+        setDirtyFields(DIRECTION_FIELD);
     }
 
     /**
@@ -89,7 +89,7 @@ public class Mobile extends Actor
     {
         if (maxStep != _maxStep) {
             _maxStep = maxStep;
-            setDirty(true);
+            setDirtyFields(MAX_STEP_FIELD);
         }
     }
 
@@ -148,7 +148,7 @@ public class Mobile extends Actor
                 length * FloatMath.sin(_direction));
             if (DirectionUtil.alterStep(step, directions)) {
                 _translation.addLocal(step);
-                setDirty(true);
+                setDirtyFields(TRANSLATION_FIELD);
             }
         }
     }
@@ -196,10 +196,20 @@ public class Mobile extends Actor
         return hash;
     }
 
+    @Override
+    protected long getTrackedFields ()
+    {
+        return super.getTrackedFields() | MAX_STEP_FIELD | DIRECTION_FIELD;
+    }
+
     /** The maximum translation we allow in a substep. */
     protected float _maxStep;
 
     /** The direction of motion. */
     @DeepOmit
     protected float _direction;
+
+    /** Dirty field bits for the mobile fields. */
+    protected static final long MAX_STEP_FIELD = getFieldBit(Mobile.class, "_maxStep");
+    protected static final long DIRECTION_FIELD = getFieldBit(Mobile.class, "_direction");
 }
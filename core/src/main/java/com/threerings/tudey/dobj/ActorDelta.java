@@ -41,6 +41,21 @@ import com.threerings.tudey.data.actor.Actor;
  */
 public final class ActorDelta extends ReflectiveDelta
 {
+    /**
+     * Creates a delta that transforms the original actor into the revised one, comparing only
+     * the fields indicated by the revised actor's {@link Actor#getDirtyFields} mask.  The new
+     * values of changed object fields (including arrays and nested deltable objects) are
+     * deep-copied before comparison, so the delta shares no state with the revised actor and may
+     * safely be applied to the original actor to produce a snapshot of the revised one.
+     */
+    public static ActorDelta createFromDirty (Actor original, Actor revised)
+    {
+        ActorDelta delta = new ActorDelta();
+        delta.populate(original, revised, revised.getDirtyFields(), true);
+        delta._id = original.getId();
+        return delta;
+    }
+
     /**
      * Creates a new actor delta.
      */
@@ -53,6 +53,7 @@ import com.threerings.tudey.dobj.ActorDelta;
 import com.threerings.tudey.dobj.SceneDeltaEvent;
 import com.threerings.tudey.server.logic.ActorLogic;
 import com.threerings.tudey.server.logic.PawnLogic;
+import com.threerings.tudey.server.util.ActorDeltaCache;
 import com.threerings.tudey.util.TruncatedAverage;
 import com.threerings.tudey.util.TudeySceneMetrics;
 
@@ -296,7 +297,9 @@ public class ClientLiaison
         // the last acknowledged tick is the reference
         TickRecord reference = _records.get(0);
 
-        // merge actor updates and get all effects fired (not expired)
+        // merge actor updates and get all effects fired (not expired).  other clients will be
+        // performing most of the same operations, so we share the results through the cache
+        ActorDeltaCache cache = _scenemgr.getDeltaCache();
         for (int ii = 1, nn = _records.size(); ii < nn; ii++) {
             TickRecord orecord = _records.get(ii);
             for (Actor actor : orecord.getActorsAdded()) {
@@ -305,7 +308,7 @@ public class ClientLiaison
                 if (removed == null) {
                     _added.put(id, actor);
                 } else {
-                    ActorDelta delta = new ActorDelta(removed, actor);
+                    ActorDelta delta = cache.diff(removed, actor);
                     if (!delta.isEmpty()) {
                         _updated.put(id, delta);
                     }
@@ -315,11 +318,11 @@ public class ClientLiaison
                 int id = delta.getId();
                 Actor added = _added.get(id);
                 if (added != null) {
-                    _added.put(id, (Actor)delta.apply(added));
+                    _added.put(id, cache.apply(delta, added));
                 } else {
                     ActorDelta odelta = _updated.put(id, delta);
                     if (odelta != null) {
-                        _updated.put(id, (ActorDelta)odelta.merge(delta));
+                        _updated.put(id, cache.merge(odelta, delta));
                     }
                 }
             }
@@ -89,12 +89,18 @@ import com.threerings.tudey.server.logic.EffectLogic;
 import com.threerings.tudey.server.logic.EntryLogic;
 import com.threerings.tudey.server.logic.Logic;
 import com.threerings.tudey.server.logic.PawnLogic;
+import com.threerings.tudey.server.util.ActorDeltaCache;
+import com.threerings.tudey.server.util.BroadPhase;
+import com.threerings.tudey.server.util.PathService;
 import com.threerings.tudey.server.util.Pathfinder;
 import com.threerings.tudey.server.util.SceneTicker;
+import com.threerings.tudey.server.util.TimerWheel;
 import com.threerings.tudey.shape.Segment;
 import com.threerings.tudey.shape.Shape;
 import com.threerings.tudey.shape.ShapeElement;
 import com.threerings.tudey.space.HashSpace;
+import com.threerings.tudey.space.LooseGridSpace;
+import com.threerings.tudey.space.Space;
 import com.threerings.tudey.space.SpaceElement;
 import com.threerings.tudey.util.ActorAdvancer;
 import com.threerings.tudey.util.TudeySceneMetrics;
@@ -177,6 +183,39 @@ public class TudeySceneManager extends SceneManager
     {
     }
 
+    /**
+     * A shape element for the sensor space.  Sensor queries with multiple shapes use its visit
+     * stamp to skip sensors already found with earlier shapes.  The space's own visit stamp
+     * can't serve, since the space updates it during each query.
+     */
+    public static class SensorElement extends ShapeElement
+    {
+        /**
+         * Creates a new sensor element with the specified local shape.
+         */
+        public SensorElement (Shape localShape)
+        {
+            super(localShape);
+        }
+
+        /**
+         * Updates the sensor visit stamp.
+         *
+         * @return true if the element had not yet been visited with the specified stamp.
+         */
+        public boolean updateLastSensorVisit (int visit)
+        {
+            if (_lastSensorVisit == visit) {
+                return false;
+            }
+            _lastSensorVisit = visit;
+            return true;
+        }
+
+        /** The stamp of the last sensor query that found the element. */
+        protected int _lastSensorVisit;
+    }
+
     /**
      * Enables or disables tick participant profiling.
      */
@@ -215,8 +254,10 @@ public class TudeySceneManager extends SceneManager
     public static void dumpTickProfiles ()
     {
         StringBuilder buf = new StringBuilder();
-        for (Map.Entry<String, TickProfile> entry : _profiles.entrySet()) {
-            buf.append(entry.getKey()).append(" => ").append(entry.getValue()).append('\n');
+        synchronized (_profiles) {
+            for (Map.Entry<String, TickProfile> entry : _profiles.entrySet()) {
+                buf.append(entry.getKey()).append(" => ").append(entry.getValue()).append('\n');
+            }
         }
         log.info(buf.toString());
     }
@@ -226,7 +267,9 @@ public class TudeySceneManager extends SceneManager
      */
     public static void clearTickProfiles ()
     {
-        _profiles.clear();
+        synchronized (_profiles) {
+            _profiles.clear();
+        }
     }
 
     /**
@@ -392,7 +435,7 @@ public class TudeySceneManager extends SceneManager
     /**
      * Returns a reference to the actor space.
      */
-    public HashSpace getActorSpace ()
+    public Space getActorSpace ()
     {
         return _actorSpace;
     }
@@ -413,6 +456,31 @@ public class TudeySceneManager extends SceneManager
         return _pathfinder;
     }
 
+    /**
+     * Returns a reference to the service that batches and caches path requests.
+     */
+    public PathService getPathService ()
+    {
+        return _pathService;
+    }
+
+    /**
+     * Returns a reference to the cache that the client liaisons use to share delta computation.
+     */
+    public ActorDeltaCache getDeltaCache ()
+    {
+        return _deltaCache;
+    }
+
+    /**
+     * Returns a reference to the wheel on which logic timers are scheduled.  Timers fire within
+     * the tick, after the tick participants.
+     */
+    public TimerWheel getTimerWheel ()
+    {
+        return _timerWheel;
+    }
+
     /**
      * Sets the default untransformed area of interest region for clients.
      */
@@ -740,13 +808,40 @@ public class TudeySceneManager extends SceneManager
             actor.getActor().getCollisionFlags(), actor);
     }
 
+    /**
+     * Notes that the specified actor has moved and should trigger the intersection sensors that
+     * it intersects.  While the participants are ticking, the actor is queued and its sensors
+     * resolved along with those of all other moved actors once the participants are done;
+     * otherwise, the sensors are triggered immediately.
+     *
+     * <p> Note that queued sensors no longer fire in the middle of the participant stage, as
+     * they did when each actor triggered its sensors as it moved.  They fire after every
+     * participant has ticked (including those after the actor in the tick order), in the order
+     * in which the actors were queued, and they test each actor's shape as it stands at the end
+     * of the stage.  An actor that is removed before the end of the stage triggers nothing.
+     */
+    public void queueIntersectionSensors (ActorLogic actor)
+    {
+        if (_tickingParticipants) {
+            _sensorQueue.add(actor);
+        } else {
+            triggerIntersectionSensors(_timestamp, actor);
+        }
+    }
+
     /**
      * Triggers any sensors of the specified type intersecting the specified shape.
      */
     public int triggerSensors (
         Class<? extends Sensor> type, int timestamp, Shape shape, int flags, ActorLogic actor)
     {
-        return triggerSensors(type, timestamp, ImmutableList.of(shape), flags, actor);
+        if (flags == 0) {
+            return 0;
+        }
+        ArrayList<SpaceElement> elements = getSensorElements();
+        _sensorFilter.init(type, flags);
+        _sensorSpace.getIntersecting(shape, _sensorFilter, elements);
+        return triggerSensors(elements, timestamp, actor);
     }
 
     /**
@@ -758,19 +853,27 @@ public class TudeySceneManager extends SceneManager
         if (flags == 0) {
             return 0;
         }
-        Set<SpaceElement> elements = Sets.newHashSet();
+        ArrayList<SpaceElement> elements = getSensorElements();
+        _sensorFilter.init(type, flags);
+        int visit = ++_sensorVisit;
         for (Shape shape : shapes) {
-            _sensorSpace.getIntersecting(shape, elements);
-        }
-        int count = 0;
-        for (SpaceElement element : elements) {
-            Sensor sensor = (Sensor)element.getUserObject();
-            if (type.isInstance(sensor) && (flags & sensor.getMask()) != 0) {
-                sensor.trigger(timestamp, actor);
-                count++;
+            int osize = elements.size();
+            _sensorSpace.getIntersecting(shape, _sensorFilter, elements);
+
+            // compact away anything already found with the previous shapes
+            int size = osize;
+            for (int ii = osize, nn = elements.size(); ii < nn; ii++) {
+                SpaceElement element = elements.get(ii);
+                boolean found = (element instanceof SensorElement) ?
+                    !((SensorElement)element).updateLastSensorVisit(visit) :
+                    elements.subList(0, osize).contains(element);
+                if (!found) {
+                    elements.set(size++, element);
+                }
             }
+            elements.subList(size, elements.size()).clear();
         }
-        return count;
+        return triggerSensors(elements, timestamp, actor);
     }
 
     /**
@@ -808,7 +911,9 @@ public class TudeySceneManager extends SceneManager
         }
 
         // look for intersecting elements
-        _actorSpace.getIntersecting(shape, _elements);
+        if (!_broadPhase.getIntersecting(actor, shape, _elements)) {
+            _actorSpace.getIntersecting(shape, _elements);
+        }
         try {
             for (int ii = 0, nn = _elements.size(); ii < nn; ii++) {
                 SpaceElement element = _elements.get(ii);
@@ -1209,7 +1314,9 @@ public class TudeySceneManager extends SceneManager
         ((TudeySceneModel)_scene.getSceneModel()).getPenetration(actor, shape, result);
 
         // get the intersecting elements
-        _actorSpace.getIntersecting(shape, _elements);
+        if (!_broadPhase.getIntersecting(actor, shape, _elements)) {
+            _actorSpace.getIntersecting(shape, _elements);
+        }
         for (int ii = 0, nn = _elements.size(); ii < nn; ii++) {
             SpaceElement element = _elements.get(ii);
             Actor oactor = ((ActorLogic)element.getUserObject()).getActor();
@@ -1273,8 +1380,12 @@ public class TudeySceneManager extends SceneManager
         TudeySceneModel sceneModel = (TudeySceneModel)_scene.getSceneModel();
         _cfgmgr = sceneModel.getConfigManager();
 
-        // create the pathfinder
+        // create the pathfinder and the service that batches requests to it
         _pathfinder = new Pathfinder(this);
+        _pathService = new PathService(_pathfinder, pathfindingBudget());
+
+        // create the broad phase for actor collision queries
+        _broadPhase = new BroadPhase(this);
 
         // get a reference to the ticker
         _ticker = getTicker();
@@ -1334,8 +1445,20 @@ public class TudeySceneManager extends SceneManager
         _ticker = null;
 
         // shut down the pathfinder
+        _pathService.shutdown();
+        _pathService = null;
         _pathfinder.shutdown();
         _pathfinder = null;
+
+        // shut down the broad phase
+        _broadPhase.shutdown();
+        _broadPhase = null;
+
+        // release any cached deltas
+        _deltaCache.clear();
+
+        // cancel any outstanding timers
+        _timerWheel.clear();
     }
 
     @Override
@@ -1523,10 +1646,35 @@ public class TudeySceneManager extends SceneManager
             _runnables.clear();
         }
         _ticking = true;
+        float elapsed = (_timestamp - _previousTimestamp) / 1000f;
         if (_tickProfEnabled) {
-            // tick the participants
-            _profileTickOp.init(_timestamp);
-            _tickParticipants.apply(_profileTickOp);
+            // find the candidates for collisions during the tick
+            if (_actors.size() > 0) {
+                long started = System.nanoTime();
+                _broadPhase.update(elapsed);
+                updateTickProfile(_broadPhase, started);
+            } else {
+                _broadPhase.update(elapsed);
+            }
+
+            // tick the participants and trigger the sensors of the actors that moved
+            tickParticipants(_profileTickOp);
+
+            // fire any expired timers
+            if (_timerWheel.getCount() > 0) {
+                long started = System.nanoTime();
+                _timerWheel.advance(_timestamp);
+                updateTickProfile(_timerWheel, started);
+            } else {
+                _timerWheel.advance(_timestamp);
+            }
+
+            // process any pending path requests
+            if (_pathService.hasPendingRequests()) {
+                long started = System.nanoTime();
+                _pathService.processRequests();
+                updateTickProfile(_pathService, started);
+            }
 
             // process the runnables in the list
             for (int ii = 0, nn = _runlist.size(); ii < nn; ii++) {
@@ -1562,9 +1710,17 @@ public class TudeySceneManager extends SceneManager
                 }
             }
         } else {
-            // tick the participants
-            _tickOp.init(_timestamp);
-            _tickParticipants.apply(_tickOp);
+            // find the candidates for collisions during the tick
+            _broadPhase.update(elapsed);
+
+            // tick the participants and trigger the sensors of the actors that moved
+            tickParticipants(_tickOp);
+
+            // fire any expired timers
+            _timerWheel.advance(_timestamp);
+
+            // process any pending path requests
+            _pathService.processRequests();
 
             // process the runnables in the list
             for (int ii = 0, nn = _runlist.size(); ii < nn; ii++) {
@@ -1595,6 +1751,11 @@ public class TudeySceneManager extends SceneManager
         _staticActorsUpdated.clear();
         _staticActorsRemoved.clear();
         _effectsFired.clear();
+        _deltaCache.advance();
+        if (_tickProfEnabled && _clients.size() > 0) {
+            updateCacheProfile(
+                DELTA_CACHE_PROFILE, _deltaCache.getHits(), _deltaCache.getMisses());
+        }
 
         // note how long the tick took
         _tickDuration = (RunAnywhere.currentTimeMillis() - _lastTick);
@@ -1618,6 +1779,15 @@ public class TudeySceneManager extends SceneManager
         return 5 * 1000L;
     }
 
+    /**
+     * Returns the maximum number of milliseconds to spend processing path requests on each
+     * tick.
+     */
+    protected float pathfindingBudget ()
+    {
+        return 2f;
+    }
+
     /**
      * Returns the ticker with which to tick the scene.
      */
@@ -1626,12 +1796,90 @@ public class TudeySceneManager extends SceneManager
         return ((TudeySceneRegistry)_screg).getDefaultTicker();
     }
 
+    /**
+     * Ticks the participants with the specified op, then triggers the intersection sensors of the
+     * actors queued while they ticked.
+     */
+    protected void tickParticipants (TickOp op)
+    {
+        op.init(_timestamp);
+        _tickingParticipants = true;
+        try {
+            _tickParticipants.apply(op);
+        } finally {
+            _tickingParticipants = false;
+        }
+        if (_tickProfEnabled && _sensorQueue.size() > 0) {
+            long started = System.nanoTime();
+            triggerQueuedSensors();
+            updateTickProfile(SENSOR_STAGE_PROFILE, started);
+        } else {
+            triggerQueuedSensors();
+        }
+    }
+
+    /**
+     * Triggers the intersection sensors of the actors queued during the participant stage of the
+     * tick, in the order in which they were queued.
+     */
+    protected void triggerQueuedSensors ()
+    {
+        for (int ii = 0, nn = _sensorQueue.size(); ii < nn; ii++) {
+            ActorLogic actor = _sensorQueue.get(ii);
+            if (actor.isRemoved()) {
+                continue;
+            }
+            try {
+                triggerIntersectionSensors(_timestamp, actor);
+            } catch (Throwable t) {
+                log.warning("Caught throwable triggering sensors.",
+                    "where", where(), "actor", actor, t);
+            }
+        }
+        _sensorQueue.clear();
+    }
+
+    /**
+     * Returns a list to hold the results of a sensor query.  The shared list is returned unless
+     * it's already in use (because a sensor triggered another query).
+     */
+    protected ArrayList<SpaceElement> getSensorElements ()
+    {
+        if (_sensorElementsInUse) {
+            return Lists.newArrayList();
+        }
+        _sensorElementsInUse = true;
+        return _sensorElements;
+    }
+
+    /**
+     * Triggers the sensors of the specified elements (which have already been filtered by type
+     * and mask) and clears the list.
+     *
+     * @return the number of sensors triggered.
+     */
+    protected int triggerSensors (
+        ArrayList<SpaceElement> elements, int timestamp, ActorLogic actor)
+    {
+        int count = elements.size();
+        try {
+            for (int ii = 0; ii < count; ii++) {
+                ((Sensor)elements.get(ii).getUserObject()).trigger(timestamp, actor);
+            }
+        } finally {
+            elements.clear();
+            if (elements == _sensorElements) {
+                _sensorElementsInUse = false;
+            }
+        }
+        return count;
+    }
+
     /**
      * Updates the tick profile for the specified participant.
      */
     protected static void updateTickProfile (Object participant, long started)
     {
-        long elapsed = (System.nanoTime() - started) / 1000L;
         String cname;
         if (participant instanceof Interval.RunBuddy) {
             cname = StringUtil.shortClassName(
@@ -1653,11 +1901,66 @@ public class TudeySceneManager extends SceneManager
             String rname = ref.getName();
             cname += ":" + rname.substring(rname.lastIndexOf('/') + 1);
         }
-        TickProfile tprof = _profiles.get(cname);
-        if (tprof == null) {
-            _profiles.put(cname, tprof = new TickProfile());
+        updateTickProfile(cname, started);
+    }
+
+    /**
+     * Updates the tick profile with the specified name.
+     */
+    protected static void updateTickProfile (String cname, long started)
+    {
+        long elapsed = (System.nanoTime() - started) / 1000L;
+        // scenes may be ticked in parallel (see SceneTicker.WorkerPool)
+        synchronized (_profiles) {
+            TickProfile tprof = _profiles.get(cname);
+            if (tprof == null) {
+                _profiles.put(cname, tprof = new TickProfile());
+            }
+            tprof.record(elapsed);
+        }
+    }
+
+    /**
+     * Adds the lookups made in a cache over one tick to the tick profile with the specified name.
+     */
+    protected static void updateCacheProfile (String cname, int hits, int misses)
+    {
+        synchronized (_profiles) {
+            TickProfile tprof = _profiles.get(cname);
+            if (tprof == null) {
+                _profiles.put(cname, tprof = new TickProfile());
+            }
+            tprof.recordLookups(hits, misses);
+        }
+    }
+
+    /**
+     * (Re)used to select the sensors of a given type whose masks match a set of flags.
+     */
+    protected static class SensorFilter
+        implements Predicate<SpaceElement>
+    {
+        /**
+         * (Re)initializes the filter with the sensor type and flags.
+         */
+        public void init (Class<? extends Sensor> type, int flags)
+        {
+            _type = type;
+            _flags = flags;
+        }
+
+        // documentation inherited from interface Predicate
+        public boolean apply (SpaceElement element)
+        {
+            Object sensor = element.getUserObject();
+            return (_flags & ((Sensor)sensor).getMask()) != 0 && _type.isInstance(sensor);
         }
-        tprof.record(elapsed);
+
+        /** The type of sensor to select. */
+        protected Class<? extends Sensor> _type;
+
+        /** The flags to match against the sensor masks. */
+        protected int _flags;
     }
 
     /**
@@ -1727,15 +2030,29 @@ public class TudeySceneManager extends SceneManager
             _longest = Math.max(elapsed, _longest);
         }
 
+        public void recordLookups (int hits, int misses)
+        {
+            _hits += hits;
+            _misses += misses;
+        }
+
         @Override
         public String toString ()
         {
+            long lookups = _hits + _misses;
+            String cache = (lookups == 0) ? "" :
+                _hits + "/" + lookups + " = " + (_hits*100/lookups) + "% hits";
             int count = _histo.size();
+            if (count == 0) {
+                return cache;
+            }
             return _totalElapsed + "us/" + count + " = " + (_totalElapsed/count) + "us avg " +
-                StringUtil.toString(_histo.getBuckets()) + " " + _longest + "us longest";
+                StringUtil.toString(_histo.getBuckets()) + " " + _longest + "us longest" +
+                (lookups == 0 ? "" : ", " + cache);
         }
 
         protected long _totalElapsed, _longest;
+        protected long _hits, _misses;
         protected Histogram _histo = new Histogram(0, 20000, 10);
     }
 
@@ -1806,7 +2123,7 @@ public class TudeySceneManager extends SceneManager
     protected ArrayList<Logic> _defaultEntrances = Lists.newArrayList();
 
     /** The actor space.  Used to find the actors within a client's area of interest. */
-    protected HashSpace _actorSpace = new HashSpace(64f, 6);
+    protected LooseGridSpace _actorSpace = new LooseGridSpace(8f);
 
     /** The sensor space.  Used to detect mobile objects. */
     protected HashSpace _sensorSpace = new HashSpace(64f, 6);
@@ -1814,6 +2131,18 @@ public class TudeySceneManager extends SceneManager
     /** The pathfinder used for path computation. */
     protected Pathfinder _pathfinder;
 
+    /** Batches and caches path requests. */
+    protected PathService _pathService;
+
+    /** Finds the candidates for actor collisions during each tick. */
+    protected BroadPhase _broadPhase;
+
+    /** Shares delta computation between the client liaisons. */
+    protected ActorDeltaCache _deltaCache = new ActorDeltaCache();
+
+    /** The wheel on which logic timers are scheduled. */
+    protected TimerWheel _timerWheel = new TimerWheel();
+
     /** The logic for static actors added on the current tick. */
     protected Set<ActorLogic> _staticActorsAdded = Sets.newHashSet();
 
@@ -1835,6 +2164,24 @@ public class TudeySceneManager extends SceneManager
     /** Holds collected elements during queries. */
     protected ArrayList<SpaceElement> _elements = Lists.newArrayList();
 
+    /** Holds collected sensor elements during queries. */
+    protected ArrayList<SpaceElement> _sensorElements = Lists.newArrayList();
+
+    /** Whether the shared sensor element list is in use. */
+    protected boolean _sensorElementsInUse;
+
+    /** The stamp of the last multi-shape sensor query. */
+    protected int _sensorVisit;
+
+    /** Selects sensors by type and mask during queries. */
+    protected SensorFilter _sensorFilter = new SensorFilter();
+
+    /** The actors whose intersection sensors are to be triggered after the participants tick. */
+    protected ArrayList<ActorLogic> _sensorQueue = Lists.newArrayList();
+
+    /** Whether we're currently ticking the participants. */
+    protected boolean _tickingParticipants;
+
     /** Holds collected effects during queries. */
     protected ArrayList<Effect> _effects = Lists.newArrayList();
 
@@ -1862,6 +2209,12 @@ public class TudeySceneManager extends SceneManager
     /** Incremented on each participant tick when profiling. */
     protected static long _tickParticipantCount;
 
+    /** The name under which the sensor resolution stage is profiled. */
+    protected static final String SENSOR_STAGE_PROFILE = "SensorStage";
+
+    /** The name under which the hits and misses of the delta cache are profiled. */
+    protected static final String DELTA_CACHE_PROFILE = "ActorDeltaCache";
+
     /** Shutdown observer op. */
     protected static final ObserverList.ObserverOp<ShutdownObserver> _shutdownOp =
         new ObserverList.ObserverOp<ShutdownObserver>() {
@@ -683,11 +683,13 @@ public class ActorLogic extends Logic
             _previousSnapshot = _snapshot;
             _snapshotDelta = null;
             if (_actor.isDirty()) {
-                _snapshotDelta = new ActorDelta(_snapshot, _actor);
+                _snapshotDelta = ActorDelta.createFromDirty(_snapshot, _actor);
                 if (_snapshotDelta.isEmpty()) {
                     _snapshotDelta = null;
                 } else {
-                    _snapshot = (Actor)_actor.clone();
+                    // snapshots are never modified, so the new one can share the unchanged
+                    // state of the old one rather than cloning the actor
+                    _snapshot = (Actor)_snapshotDelta.apply(_snapshot);
                 }
                 _actor.setDirty(false);
             }
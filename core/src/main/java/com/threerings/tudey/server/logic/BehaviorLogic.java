@@ -43,6 +43,7 @@ import com.threerings.tudey.data.EntityKey;
 import com.threerings.tudey.data.actor.Actor;
 import com.threerings.tudey.data.actor.Mobile;
 import com.threerings.tudey.server.TudeySceneManager;
+import com.threerings.tudey.server.util.PathService;
 
 import static com.threerings.tudey.Log.log;
 
@@ -664,13 +665,40 @@ public abstract class BehaviorLogic extends Logic
      * Handles the follow behavior.
      */
     public static class Follow extends Pathing
+        implements PathService.Listener
     {
+        @Override
+        public void suspend ()
+        {
+            cancelPathRequest();
+        }
+
+        @Override
+        public void shutdown ()
+        {
+            cancelPathRequest();
+        }
+
         @Override
         public Logic getCurrentTarget ()
         {
             return _currentTarget;
         }
 
+        // documentation inherited from interface PathService.Listener
+        public void pathComputed (Vector2f[] path)
+        {
+            _pathRequest = null;
+            if (path != null) {
+                setPath(path);
+                return;
+            }
+            clearPath();
+            if (_currentTarget != null) {
+                _agent.face(_currentTarget);
+            }
+        }
+
         @Override
         public void transfer (Logic source, Map<Object, Object> refs)
         {
@@ -689,6 +717,7 @@ public abstract class BehaviorLogic extends Logic
         protected void evaluate ()
         {
             super.evaluate();
+            cancelPathRequest();
 
             // find the closest target
             _target.resolve(_agent, _targets);
@@ -718,23 +747,50 @@ public abstract class BehaviorLogic extends Logic
                 return;
             }
 
-            // compute a path to the target
-            Vector2f loc = _currentTarget.getTranslation();
-            Vector2f[] path = _scenemgr.getPathfinder().getPath(
-                _agent, MAX_FOLLOW_PATH_LENGTH, loc.x, loc.y, true, true);
-            if (path == null) {
-                clearPath();
-                _agent.face(_currentTarget);
+            // use the flow field if so configured
+            Vector2f[] path = getFlowPath(_currentTarget, MAX_FOLLOW_PATH_LENGTH);
+            if (path != null) {
+                setPath(path);
                 return;
             }
 
-            // start out on the path
-            setPath(path);
+            // otherwise, request a path to the target (we'll start out on it when it's computed)
+            Vector2f loc = _currentTarget.getTranslation();
+            _pathRequest = _scenemgr.getPathService().getPath(
+                _agent, MAX_FOLLOW_PATH_LENGTH, loc.x, loc.y, true, true, this);
+        }
+
+        /**
+         * Computes a path to the specified target using the flow field shared by all agents
+         * heading for it, if so configured.
+         *
+         * @return the computed path, or null if not using flow fields, the agent lies outside
+         * the field, or the target is unreachable.
+         */
+        protected Vector2f[] getFlowPath (Logic target, float longest)
+        {
+            return (((BehaviorConfig.Follow)_config).pathSource ==
+                BehaviorConfig.PathSource.FLOW_FIELD) ?
+                    _scenemgr.getPathfinder().getFlowPath(_agent, target, longest) : null;
+        }
+
+        /**
+         * Cancels the pending path request, if any.
+         */
+        protected void cancelPathRequest ()
+        {
+            if (_pathRequest != null) {
+                _pathRequest.cancel();
+                _pathRequest = null;
+            }
         }
 
         /** The target to follow. */
         protected TargetLogic _target;
 
+        /** The pending path request, if any. */
+        protected PathService.Request _pathRequest;
+
         /** Holds targets during processing. */
         protected ArrayList<Logic> _targets = Lists.newArrayList();
 
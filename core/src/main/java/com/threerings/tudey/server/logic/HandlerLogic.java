@@ -33,8 +33,6 @@ import java.util.Map;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
-import com.samskivert.util.Interval;
-
 import com.threerings.presents.dobj.EntryAddedEvent;
 import com.threerings.presents.dobj.EntryRemovedEvent;
 import com.threerings.presents.dobj.NamedSetAdapter;
@@ -51,8 +49,8 @@ import com.threerings.tudey.config.ParameterizedHandlerConfig;
 import com.threerings.tudey.data.EntityKey;
 import com.threerings.tudey.data.TudeyOccupantInfo;
 import com.threerings.tudey.server.TudeySceneManager;
+import com.threerings.tudey.server.util.TimerWheel;
 import com.threerings.tudey.shape.Shape;
-import com.threerings.tudey.shape.ShapeElement;
 
 /**
  * Handles the server-side processing for an event handler type.
@@ -200,10 +198,10 @@ public abstract class HandlerLogic extends Logic
             _limit = (config.limit == 0) ? Integer.MAX_VALUE : config.limit;
             // offset -> initialDelay: makes offset 0 behave as before and effects negative offsets.
             float initialDelay = Math.max(0f, config.interval + config.offset);
-            (_interval = new Interval(_scenemgr) {
+            (_timer = new TimerWheel.Timer(_scenemgr.getTimerWheel()) {
                 public void expired () {
                     execute(_scenemgr.getTimestamp());
-                    if (--_limit > 0 && _interval != null) {
+                    if (--_limit > 0 && _timer != null) {
                         schedule((long)(config.interval * 1000f));
                     }
                 }
@@ -213,8 +211,8 @@ public abstract class HandlerLogic extends Logic
         @Override
         public void shutdown (int timestamp, Logic activator, boolean endScene)
         {
-            _interval.cancel();
-            _interval = null;
+            _timer.cancel();
+            _timer = null;
         }
 
         @Override
@@ -229,8 +227,8 @@ public abstract class HandlerLogic extends Logic
         /** The number of times remaining to fire. */
         protected int _limit;
 
-        /** The timer interval. */
-        protected Interval _interval;
+        /** The timer registered with the scene's timer wheel. */
+        protected TimerWheel.Timer _timer;
     }
 
     /**
@@ -248,10 +246,10 @@ public abstract class HandlerLogic extends Logic
                 return;
             }
             float initialDelay = config.interval - config.warn + config.offset;
-            (_warnInterval = new Interval(_scenemgr) {
+            (_warnTimer = new TimerWheel.Timer(_scenemgr.getTimerWheel()) {
                 public void expired () {
                     _warnAction.execute(_scenemgr.getTimestamp(), _source);
-                    if (_limit > 1 && _warnInterval != null) {
+                    if (_limit > 1 && _warnTimer != null) {
                         schedule((long)(config.interval * 1000f));
                     }
                 }
@@ -262,9 +260,9 @@ public abstract class HandlerLogic extends Logic
         public void shutdown (int timestamp, Logic activator, boolean endScene)
         {
             super.shutdown(timestamp, activator, endScene);
-            if (_warnInterval != null) {
-                _warnInterval.cancel();
-                _warnInterval = null;
+            if (_warnTimer != null) {
+                _warnTimer.cancel();
+                _warnTimer = null;
             }
         }
 
@@ -290,8 +288,8 @@ public abstract class HandlerLogic extends Logic
         /** The warning action. */
         protected ActionLogic _warnAction;
 
-        /** The warning interval. */
-        protected Interval _warnInterval;
+        /** The warning timer. */
+        protected TimerWheel.Timer _warnTimer;
     }
 
     /**
@@ -468,7 +466,7 @@ public abstract class HandlerLogic extends Logic
             if (shape == null) {
                 return;
             }
-            _shape = new ShapeElement(shape);
+            _shape = new TudeySceneManager.SensorElement(shape);
             _shape.setUserObject(this);
             _scenemgr.getSensorSpace().add(_shape);
             _source.addShapeObserver(this);
@@ -491,7 +489,7 @@ public abstract class HandlerLogic extends Logic
         }
 
         /** The shape element in the sensor space. */
-        protected ShapeElement _shape;
+        protected TudeySceneManager.SensorElement _shape;
 
         /** Holds the source transform. */
         protected Transform2D _transform = new Transform2D();
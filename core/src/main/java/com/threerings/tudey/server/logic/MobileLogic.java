@@ -75,7 +75,7 @@ public class MobileLogic extends ActorLogic
 
         // update the actor's shape, notify any sensors
         updateShape();
-        _scenemgr.triggerIntersectionSensors(timestamp, this);
+        _scenemgr.queueIntersectionSensors(this);
 
         return true;
     }
@@ -0,0 +1,535 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package com.threerings.tudey.server.util;
+
+import java.util.Arrays;
+
+import com.threerings.media.util.MathUtil;
+
+import com.threerings.tudey.util.Coord;
+
+/**
+ * A reusable A* search over an integer grid.  The search follows the same rules as Nenya's
+ * {@link com.threerings.media.util.AStarPathUtil} (including its step costs, heuristic, tie
+ * breaking and treatment of diagonal steps), so it produces the same paths, but it keeps all of
+ * its state in primitive arrays that are reused from search to search: cells are located through
+ * an open-addressed hash table whose entries are invalidated wholesale by bumping a generation
+ * stamp, the open list is a binary heap of cell indices, and the traversability of each cell is
+ * determined at most once per search.  Instances are not thread-safe; use {@link #getInstance}
+ * to obtain the one belonging to the current thread.
+ */
+public class AStar
+{
+    /**
+     * Determines which cells may be traversed.
+     */
+    public interface Grid
+    {
+        /**
+         * Determines whether the specified cell may be traversed.
+         */
+        public boolean isTraversable (int x, int y);
+    }
+
+    /** The cost of an orthogonal step. */
+    public static final int ADJACENT_COST = 10;
+
+    /** The cost of a diagonal step. */
+    public static final int DIAGONAL_COST = (int)Math.sqrt(ADJACENT_COST * ADJACENT_COST * 2);
+
+    /**
+     * Returns the search instance for the current thread.
+     */
+    public static AStar getInstance ()
+    {
+        return _instance.get();
+    }
+
+    /**
+     * Searches for a path between the specified cells.  On success, the cells of the path
+     * (including the start and end) may be retrieved through {@link #getPathX} and
+     * {@link #getPathY}.
+     *
+     * @param longest the maximum path length, in orthogonal steps.
+     * @param partial if true, return a partial path (to the cell closest to the destination)
+     * even if the destination is unreachable.
+     * @return the number of cells in the path, or zero if no path was found.
+     */
+    public int getPath (
+        Grid grid, int longest, int ax, int ay, int bx, int by, boolean partial)
+    {
+        reset();
+        _grid = grid;
+        _bx = bx;
+        _by = by;
+        _maxCost = longest * ADJACENT_COST;
+        try {
+            int start = getCell(ax, ay);
+            createNode(start);
+            _g[start] = 0;
+            _f[start] = getDistanceEstimate(ax, ay, bx, by);
+            push(start);
+
+            float bestDist = Float.MAX_VALUE;
+            int best = -1;
+            while (_heapSize > 0) {
+                int cell = pop();
+                int x = _x[cell], y = _y[cell];
+                if (x == bx && y == by) {
+                    return storePath(cell);
+                }
+                if (partial) {
+                    float dist = MathUtil.distance(x, y, bx, by);
+                    if (dist < bestDist) {
+                        bestDist = dist;
+                        best = cell;
+                    }
+                }
+                considerStep(cell, x, y - 1, ADJACENT_COST);
+                considerStep(cell, x, y + 1, ADJACENT_COST);
+                considerStep(cell, x - 1, y, ADJACENT_COST);
+                considerStep(cell, x + 1, y, ADJACENT_COST);
+                considerStep(cell, x - 1, y - 1, DIAGONAL_COST);
+                considerStep(cell, x + 1, y - 1, DIAGONAL_COST);
+                considerStep(cell, x - 1, y + 1, DIAGONAL_COST);
+                considerStep(cell, x + 1, y + 1, DIAGONAL_COST);
+            }
+            return (best == -1) ? 0 : storePath(best);
+
+        } finally {
+            _grid = null;
+        }
+    }
+
+    /**
+     * Returns the x coordinate of the specified cell of the last path found.
+     */
+    public int getPathX (int idx)
+    {
+        return _pathX[idx];
+    }
+
+    /**
+     * Returns the y coordinate of the specified cell of the last path found.
+     */
+    public int getPathY (int idx)
+    {
+        return _pathY[idx];
+    }
+
+    /**
+     * Returns the cost of the last path found (in the units of {@link #ADJACENT_COST} and
+     * {@link #DIAGONAL_COST}).
+     */
+    public int getPathCost ()
+    {
+        return _pathCost;
+    }
+
+    /**
+     * Returns the number of cells whose traversability was tested in the last search.
+     */
+    public int getCellCount ()
+    {
+        return _cellCount;
+    }
+
+    /**
+     * Returns the number of nodes opened in the last search.
+     */
+    public int getNodeCount ()
+    {
+        return _nodeCount;
+    }
+
+    /**
+     * Considers a step from the specified node to the given coordinates.
+     */
+    protected void considerStep (int from, int x, int y, int cost)
+    {
+        // make sure the destination (and, for diagonal steps, both adjacent cells) is traversable
+        int fx = _x[from], fy = _y[from];
+        int cell = getCell(x, y);
+        if (!isTraversable(cell) || (x != fx && y != fy &&
+                !(isTraversable(getCell(fx, y)) && isTraversable(getCell(x, fy))))) {
+            return;
+        }
+        int g = _g[from] + cost;
+        if (g > _maxCost) {
+            return;
+        }
+        if ((_flags[cell] & NODE) == 0) {
+            createNode(cell);
+        } else if (_g[cell] <= g) {
+            return;
+        }
+        _parent[cell] = from;
+        _g[cell] = g;
+        _f[cell] = g + getDistanceEstimate(x, y, _bx, _by);
+        if (_heapIndex[cell] == -1) {
+            push(cell);
+        } else {
+            siftUp(_heapIndex[cell]);
+        }
+    }
+
+    /**
+     * Checks whether the specified cell is traversable, consulting the grid if necessary.
+     */
+    protected boolean isTraversable (int cell)
+    {
+        int flags = _flags[cell];
+        if ((flags & TESTED) == 0) {
+            flags |= TESTED;
+            if (_grid.isTraversable(_x[cell], _y[cell])) {
+                flags |= TRAVERSABLE;
+            }
+            _flags[cell] = (byte)flags;
+        }
+        return (flags & TRAVERSABLE) != 0;
+    }
+
+    /**
+     * Makes the specified cell a node, assigning it the next node id.
+     */
+    protected void createNode (int cell)
+    {
+        _flags[cell] |= NODE;
+        _id[cell] = _nodeCount++;
+        _parent[cell] = -1;
+    }
+
+    /**
+     * Copies the path ending at the specified node into the path arrays.
+     *
+     * @return the length of the path.
+     */
+    protected int storePath (int cell)
+    {
+        int length = 0;
+        for (int ii = cell; ii != -1; ii = _parent[ii]) {
+            length++;
+        }
+        if (_pathX.length < length) {
+            int nlength = Math.max(length, _pathX.length * 2);
+            _pathX = new int[nlength];
+            _pathY = new int[nlength];
+        }
+        for (int ii = cell, idx = length - 1; ii != -1; ii = _parent[ii], idx--) {
+            _pathX[idx] = _x[ii];
+            _pathY[idx] = _y[ii];
+        }
+        _pathCost = _g[cell];
+        return length;
+    }
+
+    /**
+     * Prepares for a new search.
+     */
+    protected void reset ()
+    {
+        if (++_generation == 0) {
+            // the stamps have wrapped around; clear them out
+            Arrays.fill(_stamps, 0);
+            _generation = 1;
+        }
+        _cellCount = 0;
+        _nodeCount = 0;
+        _heapSize = 0;
+    }
+
+    /**
+     * Returns the index of the cell at the specified coordinates, creating it if necessary.
+     */
+    protected int getCell (int x, int y)
+    {
+        int key = Coord.encode(x, y);
+        int mask = _keys.length - 1;
+        for (int idx = hash(key) & mask;; idx = (idx + 1) & mask) {
+            if (_stamps[idx] != _generation) {
+                return addCell(idx, key, x, y);
+            }
+            if (_keys[idx] == key) {
+                return _cells[idx];
+            }
+        }
+    }
+
+    /**
+     * Adds a cell in the specified (free) hash slot.
+     */
+    protected int addCell (int idx, int key, int x, int y)
+    {
+        int cell = _cellCount++;
+        if (cell == _x.length) {
+            growCells();
+        }
+        _x[cell] = x;
+        _y[cell] = y;
+        _flags[cell] = 0;
+        _heapIndex[cell] = -1;
+        _keys[idx] = key;
+        _cells[idx] = cell;
+        _stamps[idx] = _generation;
+        if (_cellCount * 2 > _keys.length) {
+            growTable();
+        }
+        return cell;
+    }
+
+    /**
+     * Doubles the capacity of the cell arrays.
+     */
+    protected void growCells ()
+    {
+        int ncap = _x.length * 2;
+        _x = grow(_x, ncap);
+        _y = grow(_y, ncap);
+        _g = grow(_g, ncap);
+        _f = grow(_f, ncap);
+        _id = grow(_id, ncap);
+        _parent = grow(_parent, ncap);
+        _heapIndex = grow(_heapIndex, ncap);
+        _heap = grow(_heap, ncap);
+        byte[] nflags = new byte[ncap];
+        System.arraycopy(_flags, 0, nflags, 0, _flags.length);
+        _flags = nflags;
+    }
+
+    /**
+     * Doubles the capacity of the hash table, rehashing the current cells.
+     */
+    protected void growTable ()
+    {
+        int ncap = _keys.length * 2, mask = ncap - 1;
+        int[] okeys = _keys, ocells = _cells, ostamps = _stamps;
+        _keys = new int[ncap];
+        _cells = new int[ncap];
+        _stamps = new int[ncap];
+        for (int ii = 0; ii < okeys.length; ii++) {
+            if (ostamps[ii] != _generation) {
+                continue;
+            }
+            int key = okeys[ii];
+            int idx = hash(key) & mask;
+            while (_stamps[idx] == _generation) {
+                idx = (idx + 1) & mask;
+            }
+            _keys[idx] = key;
+            _cells[idx] = ocells[ii];
+            _stamps[idx] = _generation;
+        }
+    }
+
+    /**
+     * Adds a node to the open heap.
+     */
+    protected void push (int cell)
+    {
+        int idx = _heapSize++;
+        _heap[idx] = cell;
+        _heapIndex[cell] = idx;
+        siftUp(idx);
+    }
+
+    /**
+     * Removes and returns the best node from the open heap.
+     */
+    protected int pop ()
+    {
+        int cell = _heap[0];
+        _heapIndex[cell] = -1;
+        int last = _heap[--_heapSize];
+        if (_heapSize > 0) {
+            _heap[0] = last;
+            _heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return cell;
+    }
+
+    /**
+     * Moves the node at the specified heap index up to its proper position.
+     */
+    protected void siftUp (int idx)
+    {
+        int cell = _heap[idx];
+        while (idx > 0) {
+            int pidx = (idx - 1) >> 1;
+            int parent = _heap[pidx];
+            if (!precedes(cell, parent)) {
+                break;
+            }
+            _heap[idx] = parent;
+            _heapIndex[parent] = idx;
+            idx = pidx;
+        }
+        _heap[idx] = cell;
+        _heapIndex[cell] = idx;
+    }
+
+    /**
+     * Moves the node at the specified heap index down to its proper position.
+     */
+    protected void siftDown (int idx)
+    {
+        int cell = _heap[idx];
+        for (int half = _heapSize >> 1; idx < half; ) {
+            int cidx = (idx << 1) + 1;
+            int child = _heap[cidx];
+            int ridx = cidx + 1;
+            if (ridx < _heapSize && precedes(_heap[ridx], child)) {
+                child = _heap[cidx = ridx];
+            }
+            if (!precedes(child, cell)) {
+                break;
+            }
+            _heap[idx] = child;
+            _heapIndex[child] = idx;
+            idx = cidx;
+        }
+        _heap[idx] = cell;
+        _heapIndex[cell] = idx;
+    }
+
+    /**
+     * Determines whether the first node should be expanded before the second (by estimated
+     * total cost, then by order of creation).
+     */
+    protected boolean precedes (int c1, int c2)
+    {
+        int f1 = _f[c1], f2 = _f[c2];
+        return f1 < f2 || (f1 == f2 && _id[c1] < _id[c2]);
+    }
+
+    /**
+     * Returns the estimated cost of travelling between the specified cells.
+     */
+    public static int getDistanceEstimate (int ax, int ay, int bx, int by)
+    {
+        int dx = bx - ax, dy = by - ay;
+        return (int)(ADJACENT_COST * Math.sqrt(dx*dx + dy*dy));
+    }
+
+    /**
+     * Hashes an encoded coordinate.
+     */
+    protected static int hash (int key)
+    {
+        key *= 0x9E3779B9;
+        return key ^ (key >>> 16);
+    }
+
+    /**
+     * Returns a copy of the specified array with the given length.
+     */
+    protected static int[] grow (int[] array, int length)
+    {
+        int[] narray = new int[length];
+        System.arraycopy(array, 0, narray, 0, array.length);
+        return narray;
+    }
+
+    /** The grid being searched. */
+    protected Grid _grid;
+
+    /** The destination coordinates. */
+    protected int _bx, _by;
+
+    /** The maximum path cost. */
+    protected int _maxCost;
+
+    /** The generation of the current search, used to invalidate hash table entries. */
+    protected int _generation;
+
+    /** The hash table mapping encoded coordinates to cell indices. */
+    protected int[] _keys = new int[INITIAL_TABLE_SIZE];
+
+    /** The cell indices in the hash table. */
+    protected int[] _cells = new int[INITIAL_TABLE_SIZE];
+
+    /** The generation stamps of the hash table entries. */
+    protected int[] _stamps = new int[INITIAL_TABLE_SIZE];
+
+    /** The number of cells in the current search. */
+    protected int _cellCount;
+
+    /** The number of nodes in the current search. */
+    protected int _nodeCount;
+
+    /** The coordinates of the cells. */
+    protected int[] _x = new int[INITIAL_CELL_CAPACITY], _y = new int[INITIAL_CELL_CAPACITY];
+
+    /** The flags of the cells. */
+    protected byte[] _flags = new byte[INITIAL_CELL_CAPACITY];
+
+    /** The cost so far and estimated total cost of the nodes. */
+    protected int[] _g = new int[INITIAL_CELL_CAPACITY], _f = new int[INITIAL_CELL_CAPACITY];
+
+    /** The node ids, assigned in order of creation and used to break ties. */
+    protected int[] _id = new int[INITIAL_CELL_CAPACITY];
+
+    /** The parent of each node, or -1 for none. */
+    protected int[] _parent = new int[INITIAL_CELL_CAPACITY];
+
+    /** The index of each node in the open heap, or -1 if not open. */
+    protected int[] _heapIndex = new int[INITIAL_CELL_CAPACITY];
+
+    /** The open heap. */
+    protected int[] _heap = new int[INITIAL_CELL_CAPACITY];
+
+    /** The number of nodes in the open heap. */
+    protected int _heapSize;
+
+    /** The coordinates of the last path found. */
+    protected int[] _pathX = new int[64], _pathY = new int[64];
+
+    /** The cost of the last path found. */
+    protected int _pathCost;
+
+    /** Cell flag indicating that the cell's traversability has been tested. */
+    protected static final byte TESTED = 1 << 0;
+
+    /** Cell flag indicating that the cell is traversable. */
+    protected static final byte TRAVERSABLE = 1 << 1;
+
+    /** Cell flag indicating that the cell is a node. */
+    protected static final byte NODE = 1 << 2;
+
+    /** The initial capacity of the cell arrays. */
+    protected static final int INITIAL_CELL_CAPACITY = 256;
+
+    /** The initial size of the hash table. */
+    protected static final int INITIAL_TABLE_SIZE = 512;
+
+    /** The per-thread search instances. */
+    protected static final ThreadLocal<AStar> _instance = new ThreadLocal<AStar>() {
+        @Override protected AStar initialValue () {
+            return new AStar();
+        }
+    };
+}
@@ -0,0 +1,227 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.server.util;
+
+import java.util.HashMap;
+
+import com.google.common.collect.Maps;
+
+import com.threerings.tudey.data.actor.Actor;
+import com.threerings.tudey.dobj.ActorDelta;
+
+/**
+ * Memoizes the delta operations that client liaisons perform when assembling their scene deltas.
+ * Clients in a crowded area see mostly the same actors and acknowledge mostly the same ticks, so
+ * they end up merging the very same per-tick snapshot deltas in the very same order.  Results are
+ * keyed on the identities of the operands, so a cached result is exactly what the operation would
+ * have produced.  Results are retained for the current and previous ticks, which means that a
+ * client merging a run of unacknowledged deltas only pays for the newest one on each tick.
+ */
+public class ActorDeltaCache
+{
+    /**
+     * Returns the result of merging the first delta with the second.
+     */
+    public ActorDelta merge (ActorDelta first, ActorDelta second)
+    {
+        ActorDelta merged = (ActorDelta)get(MERGE, first, second);
+        if (merged == null) {
+            put(MERGE, first, second, merged = (ActorDelta)first.merge(second));
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the result of applying the specified delta to the given actor.
+     */
+    public Actor apply (ActorDelta delta, Actor original)
+    {
+        Actor revised = (Actor)get(APPLY, delta, original);
+        if (revised == null) {
+            put(APPLY, delta, original, revised = (Actor)delta.apply(original));
+        }
+        return revised;
+    }
+
+    /**
+     * Returns the (possibly empty) delta between the original and revised actors.
+     */
+    public ActorDelta diff (Actor original, Actor revised)
+    {
+        ActorDelta delta = (ActorDelta)get(DIFF, original, revised);
+        if (delta == null) {
+            put(DIFF, original, revised, delta = new ActorDelta(original, revised));
+        }
+        return delta;
+    }
+
+    /**
+     * Returns the number of lookups satisfied from the cache on the last completed tick.
+     */
+    public int getHits ()
+    {
+        return _lastHits;
+    }
+
+    /**
+     * Returns the number of lookups that required computation on the last completed tick.
+     */
+    public int getMisses ()
+    {
+        return _lastMisses;
+    }
+
+    /**
+     * Ages the cache at the end of a tick, discarding any results that were not used on the tick
+     * just completed.
+     */
+    public void advance ()
+    {
+        HashMap<Key, Object> previous = _previous;
+        previous.clear();
+        _previous = _current;
+        _current = previous;
+
+        _lastHits = _hits;
+        _lastMisses = _misses;
+        _hits = _misses = 0;
+    }
+
+    /**
+     * Clears out all cached results.
+     */
+    public void clear ()
+    {
+        _current.clear();
+        _previous.clear();
+    }
+
+    /**
+     * Looks up a cached result, promoting it to the current generation if it came from the
+     * previous one.
+     */
+    protected Object get (int op, Object first, Object second)
+    {
+        _probe.set(op, first, second);
+        Object result = _current.get(_probe);
+        if (result == null) {
+            result = _previous.get(_probe);
+            if (result != null) {
+                _current.put(new Key(op, first, second), result);
+            }
+        }
+        if (result == null) {
+            _misses++;
+        } else {
+            _hits++;
+        }
+        _probe.set(op, null, null);
+        return result;
+    }
+
+    /**
+     * Stores a result in the current generation.
+     */
+    protected void put (int op, Object first, Object second, Object result)
+    {
+        _current.put(new Key(op, first, second), result);
+    }
+
+    /**
+     * Identifies an operation by its type and the identities of its operands.
+     */
+    protected static class Key
+    {
+        /**
+         * Creates a new key.
+         */
+        public Key (int op, Object first, Object second)
+        {
+            set(op, first, second);
+        }
+
+        /**
+         * (Re)initializes the key.
+         */
+        public void set (int op, Object first, Object second)
+        {
+            _op = op;
+            _first = first;
+            _second = second;
+            _hash = 31 * (31 * op + System.identityHashCode(first)) +
+                System.identityHashCode(second);
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals (Object other)
+        {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key okey = (Key)other;
+            return _op == okey._op && _first == okey._first && _second == okey._second;
+        }
+
+        /** The operation type. */
+        protected int _op;
+
+        /** The operands. */
+        protected Object _first, _second;
+
+        /** The precomputed hash code. */
+        protected int _hash;
+    }
+
+    /** Results computed or used on the current tick. */
+    protected HashMap<Key, Object> _current = Maps.newHashMap();
+
+    /** Results computed or used on the previous tick. */
+    protected HashMap<Key, Object> _previous = Maps.newHashMap();
+
+    /** A reusable key for lookups. */
+    protected Key _probe = new Key(0, null, null);
+
+    /** Hit and miss counts for the current tick. */
+    protected int _hits, _misses;
+
+    /** Hit and miss counts for the last completed tick. */
+    protected int _lastHits, _lastMisses;
+
+    /** Operation type for delta merges. */
+    protected static final int MERGE = 0;
+
+    /** Operation type for delta applications. */
+    protected static final int APPLY = 1;
+
+    /** Operation type for delta computation. */
+    protected static final int DIFF = 2;
+}
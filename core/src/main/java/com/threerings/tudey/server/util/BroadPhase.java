@@ -0,0 +1,319 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.server.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.google.common.collect.Lists;
+
+import com.samskivert.util.HashIntMap;
+
+import com.threerings.math.Rect;
+import com.threerings.math.Vector2f;
+
+import com.threerings.tudey.data.actor.Actor;
+import com.threerings.tudey.data.actor.Mobile;
+import com.threerings.tudey.server.TudeySceneManager;
+import com.threerings.tudey.server.logic.ActorLogic;
+import com.threerings.tudey.server.logic.Logic;
+import com.threerings.tudey.shape.Shape;
+import com.threerings.tudey.shape.ShapeElement;
+import com.threerings.tudey.space.SpaceElement;
+
+/**
+ * A per-tick broad phase for the collision queries that mobile actors make while advancing.
+ * At the start of each tick, we expand the bounds of each mobile actor by the distance it can
+ * travel during the tick and sweep and prune the resulting bounds (along with those of the
+ * other actors) to find, for each mobile, the actors it might touch.  Queries made on behalf of a
+ * mobile whose shape lies within its swept bounds can then consult that short list rather than
+ * the actor space.
+ *
+ * <p> The candidate lists stay conservative for the whole tick: when an actor's shape leaves its
+ * swept bounds (or an actor is added), we grow its bounds and pair it with anything new that it
+ * overlaps.  Queries that can't be answered from the lists fall back to the actor space.
+ */
+public class BroadPhase
+    implements TudeySceneManager.ActorObserver, Logic.ShapeObserver
+{
+    /**
+     * Creates a new broad phase for the specified scene.
+     */
+    public BroadPhase (TudeySceneManager scenemgr)
+    {
+        _scenemgr = scenemgr;
+        _scenemgr.addActorObserver(this);
+    }
+
+    /**
+     * Shuts down the broad phase.
+     */
+    public void shutdown ()
+    {
+        _scenemgr.removeActorObserver(this);
+        for (int ii = 0, nn = _entries.size(); ii < nn; ii++) {
+            Entry entry = _entries.get(ii);
+            if (entry.logic != null) {
+                entry.logic.removeShapeObserver(this);
+            }
+        }
+        _entries.clear();
+        _byId.clear();
+    }
+
+    /**
+     * Computes the swept bounds and candidate lists for a tick of the specified duration.
+     */
+    public void update (float elapsed)
+    {
+        // drop the entries of removed actors and compute the swept bounds of the rest
+        int count = 0;
+        for (int ii = 0, nn = _entries.size(); ii < nn; ii++) {
+            Entry entry = _entries.get(ii);
+            if (entry.logic == null) {
+                continue;
+            }
+            entry.size = 0;
+            entry.swept.set(entry.logic.getShapeElement().getBounds());
+            Actor actor = entry.logic.getActor();
+            if (entry.mobile = (actor instanceof Mobile)) {
+                Mobile mobile = (Mobile)actor;
+                float expansion = mobile.getSpeed() * elapsed + mobile.getMaxStep();
+                entry.swept.expandLocal(expansion, expansion);
+            }
+            _entries.set(count++, entry);
+        }
+        for (int ii = _entries.size() - 1; ii >= count; ii--) {
+            _entries.remove(ii);
+        }
+
+        // sort by minimum x; the order changes little from tick to tick, so insertion sort
+        // runs in close to linear time
+        for (int ii = 1; ii < count; ii++) {
+            Entry entry = _entries.get(ii);
+            float minx = entry.swept.getMinimumExtent().x;
+            int jj = ii - 1;
+            for (; jj >= 0 && _entries.get(jj).swept.getMinimumExtent().x > minx; jj--) {
+                _entries.set(jj + 1, _entries.get(jj));
+            }
+            _entries.set(jj + 1, entry);
+        }
+
+        // sweep along the x axis, pairing the entries that overlap
+        for (int ii = 0; ii < count; ii++) {
+            Entry entry = _entries.get(ii);
+            Vector2f min = entry.swept.getMinimumExtent(), max = entry.swept.getMaximumExtent();
+            for (int jj = ii + 1; jj < count; jj++) {
+                Entry oentry = _entries.get(jj);
+                Vector2f omin = oentry.swept.getMinimumExtent();
+                if (omin.x > max.x) {
+                    break;
+                }
+                Vector2f omax = oentry.swept.getMaximumExtent();
+                if ((entry.mobile || oentry.mobile) && omin.y <= max.y && omax.y >= min.y) {
+                    if (entry.mobile) {
+                        entry.add(oentry);
+                    }
+                    if (oentry.mobile) {
+                        oentry.add(entry);
+                    }
+                }
+            }
+        }
+        _valid = true;
+    }
+
+    /**
+     * Retrieves the elements in the actor space that intersect the specified shape, which
+     * represents the specified actor.
+     *
+     * @return true if the broad phase was able to answer the query (in which case the results
+     * will have been populated), false if the query must be made against the actor space.
+     */
+    public boolean getIntersecting (
+        Actor actor, Shape shape, Collection<SpaceElement> results)
+    {
+        if (!_valid) {
+            return false;
+        }
+        Entry entry = _byId.get(actor.getId());
+        Rect bounds = shape.getBounds();
+        if (entry == null || !entry.mobile || !entry.swept.contains(bounds)) {
+            return false;
+        }
+        Entry[] candidates = entry.candidates;
+        for (int ii = 0, nn = entry.size; ii < nn; ii++) {
+            ActorLogic logic = candidates[ii].logic;
+            if (logic == null) {
+                continue;
+            }
+            ShapeElement element = logic.getShapeElement();
+            if (element.getSpace() != null && element.getBounds().intersects(bounds) &&
+                    shape.intersects(element)) {
+                results.add(element);
+            }
+        }
+        return true;
+    }
+
+    // documentation inherited from interface TudeySceneManager.ActorObserver
+    public void actorAdded (ActorLogic logic)
+    {
+        Entry entry = new Entry(logic);
+        entry.swept.set(logic.getShapeElement().getBounds());
+        Entry oentry = _byId.put(logic.getActor().getId(), entry);
+        if (oentry != null) {
+            // a replacement logic for the same actor
+            oentry.logic = null;
+        }
+        _entries.add(entry);
+        logic.addShapeObserver(this);
+        if (_valid) {
+            pair(entry);
+        }
+    }
+
+    // documentation inherited from interface TudeySceneManager.ActorObserver
+    public void actorRemoved (ActorLogic logic)
+    {
+        logic.removeShapeObserver(this);
+        int id = logic.getActor().getId();
+        Entry entry = _byId.get(id);
+        if (entry != null && entry.logic == logic) {
+            _byId.remove(id);
+            entry.logic = null;
+        }
+    }
+
+    // documentation inherited from interface Logic.ShapeObserver
+    public void shapeWillChange (Logic logic)
+    {
+        // nothing to do
+    }
+
+    // documentation inherited from interface Logic.ShapeObserver
+    public void shapeDidChange (Logic logic)
+    {
+        if (!_valid) {
+            return;
+        }
+        ActorLogic alogic = (ActorLogic)logic;
+        Entry entry = _byId.get(alogic.getActor().getId());
+        if (entry == null || entry.logic != alogic) {
+            return;
+        }
+        Rect bounds = alogic.getShapeElement().getBounds();
+        if (!entry.swept.contains(bounds)) {
+            entry.swept.addLocal(bounds);
+            pair(entry);
+        }
+    }
+
+    /**
+     * Pairs the specified entry with any others whose bounds it overlaps, if they aren't
+     * paired already.
+     */
+    protected void pair (Entry entry)
+    {
+        for (int ii = 0, nn = _entries.size(); ii < nn; ii++) {
+            Entry oentry = _entries.get(ii);
+            if (oentry == entry || oentry.logic == null || !(entry.mobile || oentry.mobile) ||
+                    !oentry.swept.intersects(entry.swept)) {
+                continue;
+            }
+            if (entry.mobile && !entry.contains(oentry)) {
+                entry.add(oentry);
+            }
+            if (oentry.mobile && !oentry.contains(entry)) {
+                oentry.add(entry);
+            }
+        }
+    }
+
+    /**
+     * The broad phase state of a single actor.
+     */
+    protected static class Entry
+    {
+        /** The actor's logic, or <code>null</code> if the actor has been removed. */
+        public ActorLogic logic;
+
+        /** Whether the actor is mobile (and thus has a candidate list). */
+        public boolean mobile;
+
+        /** Bounds containing all shapes the actor has had during the current tick. */
+        public Rect swept = new Rect();
+
+        /** The entries whose swept bounds overlap ours. */
+        public Entry[] candidates = new Entry[4];
+
+        /** The number of candidates. */
+        public int size;
+
+        public Entry (ActorLogic logic)
+        {
+            this.logic = logic;
+        }
+
+        /**
+         * Adds a candidate to the list.
+         */
+        public void add (Entry entry)
+        {
+            if (size == candidates.length) {
+                Entry[] ocandidates = candidates;
+                candidates = new Entry[size * 2];
+                System.arraycopy(ocandidates, 0, candidates, 0, size);
+            }
+            candidates[size++] = entry;
+        }
+
+        /**
+         * Checks whether the specified entry is in the candidate list.
+         */
+        public boolean contains (Entry entry)
+        {
+            for (int ii = 0; ii < size; ii++) {
+                if (candidates[ii] == entry) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** The owning scene manager. */
+    protected TudeySceneManager _scenemgr;
+
+    /** The entries for all actors, sorted by minimum x as of the last update. */
+    protected ArrayList<Entry> _entries = Lists.newArrayList();
+
+    /** The entries mapped by actor id. */
+    protected HashIntMap<Entry> _byId = new HashIntMap<Entry>();
+
+    /** Set once the candidate lists have been computed for the first time. */
+    protected boolean _valid;
+}
@@ -0,0 +1,184 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package com.threerings.tudey.server.util;
+
+import com.samskivert.util.HashIntMap;
+
+import com.threerings.media.util.MathUtil;
+
+import com.threerings.tudey.util.Coord;
+import com.threerings.tudey.util.CoordIntMap;
+
+/**
+ * Tracks, for each cell of a subdivided collision grid, the distance (in cells, measured as the
+ * larger of the horizontal and vertical distances) to the nearest cell blocked for a particular
+ * collision mask.  This allows the pathfinder to determine whether a multi-cell actor fits at a
+ * location by looking up a single cell rather than scanning its whole footprint.  Distances are
+ * computed lazily in square chunks and capped at {@link #MAX_CLEARANCE}.
+ */
+public class ClearanceMap
+{
+    /** The maximum clearance value stored (larger distances are clamped to this value). */
+    public static final int MAX_CLEARANCE = 15;
+
+    /**
+     * Creates a new clearance map.
+     *
+     * @param flags the collision flags of the (unsubdivided) grid.
+     * @param mask the collision mask for which to compute clearance.
+     * @param subdivision the number of cells per grid unit.
+     */
+    public ClearanceMap (CoordIntMap flags, int mask, int subdivision)
+    {
+        _flags = flags;
+        _mask = mask;
+        _subdivision = subdivision;
+    }
+
+    /**
+     * Returns the collision mask for which clearance is computed.
+     */
+    public int getMask ()
+    {
+        return _mask;
+    }
+
+    /**
+     * Returns the clearance of the specified (subdivided) cell: zero if the cell is blocked,
+     * otherwise the distance to the nearest blocked cell, up to {@link #MAX_CLEARANCE}.
+     */
+    public int getClearance (int x, int y)
+    {
+        int key = Coord.encode(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        byte[] chunk = _chunks.get(key);
+        if (chunk == null) {
+            _chunks.put(key, chunk = computeChunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT));
+        }
+        return chunk[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)];
+    }
+
+    /**
+     * Checks whether the specified (subdivided) cell is blocked.
+     */
+    public boolean isBlocked (int x, int y)
+    {
+        return (_mask & _flags.get(
+            MathUtil.floorDiv(x, _subdivision), MathUtil.floorDiv(y, _subdivision))) != 0;
+    }
+
+    /**
+     * Notes that the flags of the specified region of the (unsubdivided) grid have changed,
+     * discarding the clearance values that may have been affected.
+     */
+    public void invalidate (int minx, int miny, int maxx, int maxy)
+    {
+        int cminx = (minx * _subdivision - MAX_CLEARANCE) >> CHUNK_SHIFT;
+        int cminy = (miny * _subdivision - MAX_CLEARANCE) >> CHUNK_SHIFT;
+        int cmaxx = ((maxx + 1) * _subdivision - 1 + MAX_CLEARANCE) >> CHUNK_SHIFT;
+        int cmaxy = ((maxy + 1) * _subdivision - 1 + MAX_CLEARANCE) >> CHUNK_SHIFT;
+        for (int cy = cminy; cy <= cmaxy; cy++) {
+            for (int cx = cminx; cx <= cmaxx; cx++) {
+                _chunks.remove(Coord.encode(cx, cy));
+            }
+        }
+    }
+
+    /**
+     * Discards all computed clearance values.
+     */
+    public void clear ()
+    {
+        _chunks.clear();
+    }
+
+    /**
+     * Computes the clearance values for the specified chunk.
+     */
+    protected byte[] computeChunk (int cx, int cy)
+    {
+        // find the horizontal distance to the nearest blocked cell in each row of the chunk
+        // plus a border wide enough to hold any blocked cell within the maximum clearance
+        int size = WINDOW_SIZE;
+        int x0 = (cx << CHUNK_SHIFT) - MAX_CLEARANCE, y0 = (cy << CHUNK_SHIFT) - MAX_CLEARANCE;
+        int[] dists = _dists;
+        for (int rr = 0; rr < size; rr++) {
+            int y = y0 + rr, row = rr * size;
+            for (int cc = 0, dist = MAX_CLEARANCE; cc < size; cc++) {
+                dist = isBlocked(x0 + cc, y) ? 0 : Math.min(dist + 1, MAX_CLEARANCE);
+                dists[row + cc] = dist;
+            }
+            for (int cc = size - 1, dist = MAX_CLEARANCE; cc >= 0; cc--) {
+                int idx = row + cc;
+                dist = (dists[idx] == 0) ? 0 : Math.min(dist + 1, MAX_CLEARANCE);
+                dists[idx] = Math.min(dists[idx], dist);
+            }
+        }
+
+        // combine with the vertical distances for the cells of the chunk proper
+        byte[] chunk = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        for (int yy = 0; yy < CHUNK_SIZE; yy++) {
+            int rr = yy + MAX_CLEARANCE;
+            for (int xx = 0; xx < CHUNK_SIZE; xx++) {
+                int cc = xx + MAX_CLEARANCE;
+                int clearance = dists[rr*size + cc];
+                for (int dy = 1; dy < clearance; dy++) {
+                    clearance = Math.min(clearance, Math.max(dy, Math.min(
+                        dists[(rr - dy)*size + cc], dists[(rr + dy)*size + cc])));
+                }
+                chunk[(yy << CHUNK_SHIFT) | xx] = (byte)clearance;
+            }
+        }
+        return chunk;
+    }
+
+    /** The collision flags of the grid. */
+    protected CoordIntMap _flags;
+
+    /** The collision mask. */
+    protected int _mask;
+
+    /** The number of cells per grid unit. */
+    protected int _subdivision;
+
+    /** The computed chunks, mapped by encoded chunk coordinates. */
+    protected HashIntMap<byte[]> _chunks = new HashIntMap<byte[]>();
+
+    /** Holds the horizontal distances during chunk computation. */
+    protected int[] _dists = new int[WINDOW_SIZE * WINDOW_SIZE];
+
+    /** The size of the chunks, expressed as a power of two. */
+    protected static final int CHUNK_SHIFT = 4;
+
+    /** The size of the chunks. */
+    protected static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /** Masks out the coordinates within a chunk. */
+    protected static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The size of the window examined when computing a chunk. */
+    protected static final int WINDOW_SIZE = CHUNK_SIZE + MAX_CLEARANCE*2;
+}
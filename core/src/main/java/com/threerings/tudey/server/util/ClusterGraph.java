@@ -0,0 +1,740 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+package com.threerings.tudey.server.util;
+
+import java.util.Arrays;
+
+import com.samskivert.util.HashIntMap;
+
+import com.threerings.tudey.util.Coord;
+
+/**
+ * An abstraction of a traversal grid used for hierarchical (HPA*) path searches.  The grid is
+ * partitioned into square clusters; each maximal run of traversable cells along the border
+ * between two clusters yields a transition cell on either side, and the transitions within a
+ * cluster are linked by the costs of the shortest paths between them that stay inside the
+ * cluster.  Long searches first find a path through this graph, then refine each of its legs
+ * with ordinary (short) A* searches.  Clusters are built lazily as searches reach them and are
+ * discarded when the grid changes beneath them.
+ */
+public class ClusterGraph
+{
+    /** The size of the clusters, expressed as a power of two. */
+    public static final int CLUSTER_SHIFT = 4;
+
+    /** The size of the clusters, in cells. */
+    public static final int CLUSTER_SIZE = 1 << CLUSTER_SHIFT;
+
+    /** Returned by {@link #getPath} when an abstract path could not be refined. */
+    public static final int UNREFINED = -1;
+
+    /**
+     * Creates a new graph over the specified grid.  The grid should reflect only the relatively
+     * static obstructions; transient obstructions may be considered when searching.
+     */
+    public ClusterGraph (AStar.Grid grid)
+    {
+        _bounded.grid = grid;
+    }
+
+    /**
+     * Searches for a path between the specified cells.  On success, the cells of the path
+     * (including the start and end) may be retrieved through {@link #getPathX} and
+     * {@link #getPathY}.
+     *
+     * @param grid the grid to use when refining the abstract path, which may contain
+     * obstructions not reflected in the graph.
+     * @param longest the maximum path length, in orthogonal steps.
+     * @return the number of cells in the path, zero if the destination is unreachable, or
+     * {@link #UNREFINED} if a path was found in the graph but could not be refined on the grid.
+     */
+    public int getPath (AStar.Grid grid, int longest, int ax, int ay, int bx, int by)
+    {
+        // connect the destination to the transitions of its cluster
+        Cluster gcluster = getCluster(bx >> CLUSTER_SHIFT, by >> CLUSTER_SHIFT);
+        if (_goalCosts.length < gcluster.count) {
+            _goalCosts = new int[Math.max(gcluster.count, _goalCosts.length * 2)];
+        }
+        for (int ii = 0; ii < gcluster.count; ii++) {
+            _goalCosts[ii] = getBoundedCost(gcluster, gcluster.x[ii], gcluster.y[ii], bx, by);
+        }
+
+        // connect the start likewise; if it's blocked (as when the actor overlaps an
+        // obstruction), connect each of the cells to which it may step instead
+        _startCount = 0;
+        _directCost = -1;
+        AStar.Grid egrid = _bounded.grid;
+        if (egrid.isTraversable(ax, ay)) {
+            connectStart(ax, ay, 0, gcluster, bx, by);
+        } else {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int x = ax + dx, y = ay + dy;
+                    if ((dx == 0 && dy == 0) || !egrid.isTraversable(x, y)) {
+                        continue;
+                    }
+                    if (dx == 0 || dy == 0) {
+                        connectStart(x, y, AStar.ADJACENT_COST, gcluster, bx, by);
+                    } else if (egrid.isTraversable(ax, y) && egrid.isTraversable(x, ay)) {
+                        connectStart(x, y, AStar.DIAGONAL_COST, gcluster, bx, by);
+                    }
+                }
+            }
+        }
+
+        // search the graph
+        int maxCost = longest * AStar.ADJACENT_COST;
+        _generation++;
+        _heapSize = 0;
+        _nodeX[START] = ax;
+        _nodeY[START] = ay;
+        _nodeX[GOAL] = bx;
+        _nodeY[GOAL] = by;
+        open(START, -1, 0);
+        boolean found = false;
+        while (_heapSize > 0) {
+            int node = pop();
+            if (node == GOAL) {
+                found = true;
+                break;
+            }
+            if (node == START) {
+                for (int ii = 0; ii < _startCount; ii++) {
+                    relax(node, _startNodes[ii], _startCosts[ii], maxCost);
+                }
+                relax(node, GOAL, _directCost, maxCost);
+                continue;
+            }
+            Cluster cluster = _nodeClusters[node];
+            int idx = _nodeIndices[node], count = cluster.count;
+            int x = cluster.x[idx], y = cluster.y[idx];
+            for (int ii = 0; ii < count; ii++) {
+                relax(node, cluster.nodes[ii], cluster.costs[idx*count + ii], maxCost);
+            }
+            int borders = cluster.borders[idx];
+            if ((borders & WEST) != 0) {
+                relax(node, getNode(x - 1, y), AStar.ADJACENT_COST, maxCost);
+            }
+            if ((borders & EAST) != 0) {
+                relax(node, getNode(x + 1, y), AStar.ADJACENT_COST, maxCost);
+            }
+            if ((borders & SOUTH) != 0) {
+                relax(node, getNode(x, y - 1), AStar.ADJACENT_COST, maxCost);
+            }
+            if ((borders & NORTH) != 0) {
+                relax(node, getNode(x, y + 1), AStar.ADJACENT_COST, maxCost);
+            }
+            if (cluster == gcluster) {
+                relax(node, GOAL, _goalCosts[idx], maxCost);
+            }
+        }
+        if (!found) {
+            return 0;
+        }
+
+        // refine each leg of the abstract path
+        int legs = 0;
+        for (int node = GOAL; node != START; node = _parent[node]) {
+            legs++;
+        }
+        if (_legs.length < legs + 1) {
+            _legs = new int[Math.max(legs + 1, _legs.length * 2)];
+        }
+        for (int node = GOAL, idx = legs; idx >= 0; node = _parent[node], idx--) {
+            _legs[idx] = node;
+        }
+        AStar astar = AStar.getInstance();
+        int length = 0;
+        for (int ii = 0; ii < legs; ii++) {
+            int from = _legs[ii], to = _legs[ii + 1];
+            int cost = _g[to] - _g[from];
+            int llength = astar.getPath(
+                grid, cost / AStar.ADJACENT_COST + CLUSTER_SIZE,
+                _nodeX[from], _nodeY[from], _nodeX[to], _nodeY[to], false);
+            if (llength == 0) {
+                return UNREFINED;
+            }
+            int start = (ii == 0) ? 0 : 1;
+            if (_pathX.length < length + llength) {
+                int nlength = Math.max(length + llength, _pathX.length * 2);
+                _pathX = Arrays.copyOf(_pathX, nlength);
+                _pathY = Arrays.copyOf(_pathY, nlength);
+            }
+            for (int jj = start; jj < llength; jj++, length++) {
+                _pathX[length] = astar.getPathX(jj);
+                _pathY[length] = astar.getPathY(jj);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Searches for a path between the specified cells through the graph, falling back to a
+     * direct search of the grid if that fails.  The abstract costs overestimate the true ones,
+     * so the graph search may exceed the maximum length on paths that exist; it may also fail to
+     * refine its path around obstructions not reflected in the graph.  On success, the cells of
+     * the path may be retrieved through {@link #getPathX} and {@link #getPathY}.
+     *
+     * @param partial if true, return a partial path (to the cell closest to the destination)
+     * even if the destination is unreachable.
+     * @return the number of cells in the path, or zero if no path was found.
+     */
+    public int getPath (
+        AStar.Grid grid, int longest, int ax, int ay, int bx, int by, boolean partial)
+    {
+        int length = getPath(grid, longest, ax, ay, bx, by);
+        if (length > 0) {
+            return length;
+        }
+        AStar astar = AStar.getInstance();
+        length = astar.getPath(grid, longest, ax, ay, bx, by, partial);
+        if (_pathX.length < length) {
+            _pathX = new int[length];
+            _pathY = new int[length];
+        }
+        for (int ii = 0; ii < length; ii++) {
+            _pathX[ii] = astar.getPathX(ii);
+            _pathY[ii] = astar.getPathY(ii);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the x coordinate of the specified cell of the last path found.
+     */
+    public int getPathX (int idx)
+    {
+        return _pathX[idx];
+    }
+
+    /**
+     * Returns the y coordinate of the specified cell of the last path found.
+     */
+    public int getPathY (int idx)
+    {
+        return _pathY[idx];
+    }
+
+    /**
+     * Returns the number of clusters currently built.
+     */
+    public int getClusterCount ()
+    {
+        return _clusters.size();
+    }
+
+    /**
+     * Notes that the traversability of the cells in the specified region may have changed,
+     * discarding the clusters that depend on them.
+     */
+    public void invalidate (int minx, int miny, int maxx, int maxy)
+    {
+        // clusters examine the cells just beyond their borders, so expand the region by one
+        int cminx = (minx - 1) >> CLUSTER_SHIFT, cmaxx = (maxx + 1) >> CLUSTER_SHIFT;
+        int cminy = (miny - 1) >> CLUSTER_SHIFT, cmaxy = (maxy + 1) >> CLUSTER_SHIFT;
+        for (int cy = cminy; cy <= cmaxy; cy++) {
+            for (int cx = cminx; cx <= cmaxx; cx++) {
+                Cluster cluster = _clusters.remove(Coord.encode(cx, cy));
+                if (cluster != null) {
+                    releaseNodes(cluster);
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards all clusters.
+     */
+    public void clear ()
+    {
+        _clusters.clear();
+        Arrays.fill(_nodeClusters, null);
+        _freeCount = 0;
+        _nodeCount = FIRST_TRANSITION;
+    }
+
+    /**
+     * Returns the cluster at the specified cluster coordinates, building it if necessary.
+     */
+    protected Cluster getCluster (int cx, int cy)
+    {
+        int key = Coord.encode(cx, cy);
+        Cluster cluster = _clusters.get(key);
+        if (cluster == null) {
+            _clusters.put(key, cluster = buildCluster(cx, cy));
+        }
+        return cluster;
+    }
+
+    /**
+     * Returns the node of the transition at the specified cell, which must exist.
+     */
+    protected int getNode (int x, int y)
+    {
+        Cluster cluster = getCluster(x >> CLUSTER_SHIFT, y >> CLUSTER_SHIFT);
+        for (int ii = 0; ii < cluster.count; ii++) {
+            if (cluster.x[ii] == x && cluster.y[ii] == y) {
+                return cluster.nodes[ii];
+            }
+        }
+        throw new IllegalStateException("Missing transition [x=" + x + ", y=" + y + "]");
+    }
+
+    /**
+     * Builds the cluster at the specified cluster coordinates.
+     */
+    protected Cluster buildCluster (int cx, int cy)
+    {
+        int minx = cx << CLUSTER_SHIFT, maxx = minx + CLUSTER_SIZE - 1;
+        int miny = cy << CLUSTER_SHIFT, maxy = miny + CLUSTER_SIZE - 1;
+        Cluster cluster = new Cluster();
+        cluster.minx = minx;
+        cluster.miny = miny;
+
+        // find the transitions along each border
+        _transitionCount = 0;
+        findTransitions(minx, miny, 1, 0, 0, -1, SOUTH);
+        findTransitions(minx, maxy, 1, 0, 0, 1, NORTH);
+        findTransitions(minx, miny, 0, 1, -1, 0, WEST);
+        findTransitions(maxx, miny, 0, 1, 1, 0, EAST);
+        int count = cluster.count = _transitionCount;
+        cluster.x = Arrays.copyOf(_transitionX, count);
+        cluster.y = Arrays.copyOf(_transitionY, count);
+        cluster.borders = Arrays.copyOf(_transitionBorders, count);
+
+        // compute the costs between them
+        cluster.costs = new int[count * count];
+        for (int ii = 0; ii < count; ii++) {
+            cluster.costs[ii*count + ii] = -1;
+            for (int jj = ii + 1; jj < count; jj++) {
+                int cost = getBoundedCost(
+                    cluster, cluster.x[ii], cluster.y[ii], cluster.x[jj], cluster.y[jj]);
+                cluster.costs[ii*count + jj] = cluster.costs[jj*count + ii] = cost;
+            }
+        }
+
+        // assign the nodes
+        cluster.nodes = new int[count];
+        for (int ii = 0; ii < count; ii++) {
+            int node = (_freeCount > 0) ? _free[--_freeCount] : _nodeCount++;
+            if (node >= _nodeClusters.length) {
+                growNodes(node + 1);
+            }
+            cluster.nodes[ii] = node;
+            _nodeClusters[node] = cluster;
+            _nodeIndices[node] = ii;
+            _nodeX[node] = cluster.x[ii];
+            _nodeY[node] = cluster.y[ii];
+            _stamps[node] = 0;
+        }
+        return cluster;
+    }
+
+    /**
+     * Finds the transitions along one border of a cluster.
+     *
+     * @param x the x coordinate of the first cell of the border.
+     * @param y the y coordinate of the first cell of the border.
+     * @param dx the x step along the border.
+     * @param dy the y step along the border.
+     * @param ox the x offset of the neighboring cells.
+     * @param oy the y offset of the neighboring cells.
+     * @param border the border flag.
+     */
+    protected void findTransitions (int x, int y, int dx, int dy, int ox, int oy, int border)
+    {
+        AStar.Grid grid = _bounded.grid;
+        int start = -1;
+        for (int ii = 0; ii <= CLUSTER_SIZE; ii++) {
+            int xx = x + dx*ii, yy = y + dy*ii;
+            boolean open = (ii < CLUSTER_SIZE) &&
+                grid.isTraversable(xx, yy) && grid.isTraversable(xx + ox, yy + oy);
+            if (open && start == -1) {
+                start = ii;
+            } else if (!open && start != -1) {
+                int mid = (start + ii - 1) / 2;
+                addTransition(x + dx*mid, y + dy*mid, border);
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Adds a transition at the specified location (or adds a border to the existing one).
+     */
+    protected void addTransition (int x, int y, int border)
+    {
+        for (int ii = 0; ii < _transitionCount; ii++) {
+            if (_transitionX[ii] == x && _transitionY[ii] == y) {
+                _transitionBorders[ii] |= border;
+                return;
+            }
+        }
+        if (_transitionCount == _transitionX.length) {
+            int nlength = _transitionCount * 2;
+            _transitionX = Arrays.copyOf(_transitionX, nlength);
+            _transitionY = Arrays.copyOf(_transitionY, nlength);
+            _transitionBorders = Arrays.copyOf(_transitionBorders, nlength);
+        }
+        _transitionX[_transitionCount] = x;
+        _transitionY[_transitionCount] = y;
+        _transitionBorders[_transitionCount++] = border;
+    }
+
+    /**
+     * Adds edges from the start of the search to the transitions reachable from the specified
+     * cell within its cluster (and to the destination, if it lies in the same cluster).
+     *
+     * @param base the cost of reaching the cell from the start.
+     */
+    protected void connectStart (int x, int y, int base, Cluster gcluster, int bx, int by)
+    {
+        Cluster cluster = getCluster(x >> CLUSTER_SHIFT, y >> CLUSTER_SHIFT);
+        for (int ii = 0; ii < cluster.count; ii++) {
+            int cost = getBoundedCost(cluster, x, y, cluster.x[ii], cluster.y[ii]);
+            if (cost != -1) {
+                addStartEdge(cluster.nodes[ii], base + cost);
+            }
+        }
+        if (cluster == gcluster) {
+            int cost = getBoundedCost(cluster, x, y, bx, by);
+            if (cost != -1 && (_directCost == -1 || base + cost < _directCost)) {
+                _directCost = base + cost;
+            }
+        }
+    }
+
+    /**
+     * Adds an edge from the start of the search to the specified node (or lowers the cost of
+     * the existing one).
+     */
+    protected void addStartEdge (int node, int cost)
+    {
+        for (int ii = 0; ii < _startCount; ii++) {
+            if (_startNodes[ii] == node) {
+                _startCosts[ii] = Math.min(_startCosts[ii], cost);
+                return;
+            }
+        }
+        if (_startCount == _startNodes.length) {
+            _startNodes = Arrays.copyOf(_startNodes, _startCount * 2);
+            _startCosts = Arrays.copyOf(_startCosts, _startCount * 2);
+        }
+        _startNodes[_startCount] = node;
+        _startCosts[_startCount++] = cost;
+    }
+
+    /**
+     * Returns the cost of the shortest path between two cells that stays within the specified
+     * cluster, or -1 if there is no such path.
+     */
+    protected int getBoundedCost (Cluster cluster, int ax, int ay, int bx, int by)
+    {
+        _bounded.minx = cluster.minx;
+        _bounded.miny = cluster.miny;
+        AStar astar = AStar.getInstance();
+        return (astar.getPath(_bounded, CLUSTER_SIZE * CLUSTER_SIZE, ax, ay, bx, by, false) == 0) ?
+            -1 : astar.getPathCost();
+    }
+
+    /**
+     * Returns the nodes of a cluster that is being discarded to the free list.
+     */
+    protected void releaseNodes (Cluster cluster)
+    {
+        for (int node : cluster.nodes) {
+            _nodeClusters[node] = null;
+            if (_freeCount == _free.length) {
+                _free = Arrays.copyOf(_free, _freeCount * 2);
+            }
+            _free[_freeCount++] = node;
+        }
+    }
+
+    /**
+     * Considers reaching a node by way of another.
+     *
+     * @param cost the cost of the edge between the nodes, or -1 if there is no edge.
+     */
+    protected void relax (int from, int to, int cost, int maxCost)
+    {
+        if (cost < 0 || to == from) {
+            return;
+        }
+        int g = _g[from] + cost;
+        if (g > maxCost) {
+            return;
+        }
+        if (_stamps[to] == _generation) {
+            if (_g[to] <= g) {
+                return;
+            }
+            if (_heapIndex[to] != -1) {
+                _parent[to] = from;
+                _g[to] = g;
+                _f[to] = g + AStar.getDistanceEstimate(
+                    _nodeX[to], _nodeY[to], _nodeX[GOAL], _nodeY[GOAL]);
+                siftUp(_heapIndex[to]);
+                return;
+            }
+        }
+        open(to, from, g);
+    }
+
+    /**
+     * (Re)opens a node with the specified parent and cost.
+     */
+    protected void open (int node, int parent, int g)
+    {
+        _stamps[node] = _generation;
+        _parent[node] = parent;
+        _g[node] = g;
+        _f[node] = g + AStar.getDistanceEstimate(
+            _nodeX[node], _nodeY[node], _nodeX[GOAL], _nodeY[GOAL]);
+        if (_heapSize == _heap.length) {
+            _heap = Arrays.copyOf(_heap, _heapSize * 2);
+        }
+        _heap[_heapSize] = node;
+        _heapIndex[node] = _heapSize;
+        siftUp(_heapSize++);
+    }
+
+    /**
+     * Removes and returns the node at the top of the heap.
+     */
+    protected int pop ()
+    {
+        int node = _heap[0];
+        _heapIndex[node] = -1;
+        if (--_heapSize > 0) {
+            int last = _heap[_heapSize];
+            _heap[0] = last;
+            _heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return node;
+    }
+
+    /**
+     * Moves the node at the specified heap index up to its proper position.
+     */
+    protected void siftUp (int idx)
+    {
+        int node = _heap[idx];
+        while (idx > 0) {
+            int pidx = (idx - 1) >> 1;
+            int parent = _heap[pidx];
+            if (!precedes(node, parent)) {
+                break;
+            }
+            _heap[idx] = parent;
+            _heapIndex[parent] = idx;
+            idx = pidx;
+        }
+        _heap[idx] = node;
+        _heapIndex[node] = idx;
+    }
+
+    /**
+     * Moves the node at the specified heap index down to its proper position.
+     */
+    protected void siftDown (int idx)
+    {
+        int node = _heap[idx];
+        for (int cidx; (cidx = idx*2 + 1) < _heapSize; idx = cidx) {
+            int child = _heap[cidx];
+            if (cidx + 1 < _heapSize && precedes(_heap[cidx + 1], child)) {
+                child = _heap[++cidx];
+            }
+            if (!precedes(child, node)) {
+                break;
+            }
+            _heap[idx] = child;
+            _heapIndex[child] = idx;
+        }
+        _heap[idx] = node;
+        _heapIndex[node] = idx;
+    }
+
+    /**
+     * Determines whether the first node should be expanded before the second.
+     */
+    protected boolean precedes (int n1, int n2)
+    {
+        int f1 = _f[n1], f2 = _f[n2];
+        return f1 < f2 || (f1 == f2 && _g[n1] > _g[n2]);
+    }
+
+    /**
+     * Grows the per-node arrays to accommodate at least the specified number of nodes.
+     */
+    protected void growNodes (int count)
+    {
+        int nlength = Math.max(count, _nodeClusters.length * 2);
+        _nodeClusters = Arrays.copyOf(_nodeClusters, nlength);
+        _nodeIndices = Arrays.copyOf(_nodeIndices, nlength);
+        _nodeX = Arrays.copyOf(_nodeX, nlength);
+        _nodeY = Arrays.copyOf(_nodeY, nlength);
+        _stamps = Arrays.copyOf(_stamps, nlength);
+        _g = Arrays.copyOf(_g, nlength);
+        _f = Arrays.copyOf(_f, nlength);
+        _parent = Arrays.copyOf(_parent, nlength);
+        _heapIndex = Arrays.copyOf(_heapIndex, nlength);
+    }
+
+    /**
+     * A cluster of the graph.
+     */
+    protected static class Cluster
+    {
+        /** The coordinates of the lower left cell of the cluster. */
+        public int minx, miny;
+
+        /** The number of transitions in the cluster. */
+        public int count;
+
+        /** The coordinates of the transitions. */
+        public int[] x, y;
+
+        /** The border flags of each transition. */
+        public int[] borders;
+
+        /** The costs between pairs of transitions (-1 for none), indexed by from*count + to. */
+        public int[] costs;
+
+        /** The graph nodes of the transitions. */
+        public int[] nodes;
+    }
+
+    /**
+     * Restricts a grid to the bounds of a single cluster.
+     */
+    protected static class BoundedGrid
+        implements AStar.Grid
+    {
+        /** The underlying grid. */
+        public AStar.Grid grid;
+
+        /** The coordinates of the lower left cell of the cluster. */
+        public int minx, miny;
+
+        // documentation inherited from interface AStar.Grid
+        public boolean isTraversable (int x, int y)
+        {
+            return ((x - minx) >>> CLUSTER_SHIFT) == 0 && ((y - miny) >>> CLUSTER_SHIFT) == 0 &&
+                grid.isTraversable(x, y);
+        }
+    }
+
+    /** The grid restricted to the bounds of the cluster being examined. */
+    protected BoundedGrid _bounded = new BoundedGrid();
+
+    /** The built clusters, mapped by encoded cluster coordinates. */
+    protected HashIntMap<Cluster> _clusters = new HashIntMap<Cluster>();
+
+    /** The number of node indices allocated. */
+    protected int _nodeCount = FIRST_TRANSITION;
+
+    /** Node indices released by discarded clusters. */
+    protected int[] _free = new int[INITIAL_NODE_CAPACITY];
+
+    /** The number of free node indices. */
+    protected int _freeCount;
+
+    /** The cluster of each node. */
+    protected Cluster[] _nodeClusters = new Cluster[INITIAL_NODE_CAPACITY];
+
+    /** The transition index of each node within its cluster. */
+    protected int[] _nodeIndices = new int[INITIAL_NODE_CAPACITY];
+
+    /** The coordinates of each node. */
+    protected int[] _nodeX = new int[INITIAL_NODE_CAPACITY], _nodeY = new int[INITIAL_NODE_CAPACITY];
+
+    /** The search generation in which each node was last opened. */
+    protected int[] _stamps = new int[INITIAL_NODE_CAPACITY];
+
+    /** The cost from the start and estimated total cost of each node. */
+    protected int[] _g = new int[INITIAL_NODE_CAPACITY], _f = new int[INITIAL_NODE_CAPACITY];
+
+    /** The parent of each node. */
+    protected int[] _parent = new int[INITIAL_NODE_CAPACITY];
+
+    /** The position of each node in the heap, or -1 if not in the heap. */
+    protected int[] _heapIndex = new int[INITIAL_NODE_CAPACITY];
+
+    /** The open list. */
+    protected int[] _heap = new int[INITIAL_NODE_CAPACITY];
+
+    /** The number of nodes in the heap. */
+    protected int _heapSize;
+
+    /** The current search generation. */
+    protected int _generation;
+
+    /** The nodes to which the start of the search is connected. */
+    protected int[] _startNodes = new int[16];
+
+    /** The costs of the edges from the start of the search. */
+    protected int[] _startCosts = new int[16];
+
+    /** The number of edges from the start of the search. */
+    protected int _startCount;
+
+    /** The cost of the direct edge from the start to the destination, or -1 for none. */
+    protected int _directCost;
+
+    /** The costs from the transitions of the destination's cluster to the destination. */
+    protected int[] _goalCosts = new int[16];
+
+    /** The nodes of the last abstract path. */
+    protected int[] _legs = new int[16];
+
+    /** Holds the transitions of the cluster being built. */
+    protected int[] _transitionX = new int[16], _transitionY = new int[16];
+
+    /** Holds the border flags of the transitions of the cluster being built. */
+    protected int[] _transitionBorders = new int[16];
+
+    /** The number of transitions found for the cluster being built. */
+    protected int _transitionCount;
+
+    /** The coordinates of the last path found. */
+    protected int[] _pathX = new int[64], _pathY = new int[64];
+
+    /** The node index of the start of the search. */
+    protected static final int START = 0;
+
+    /** The node index of the destination of the search. */
+    protected static final int GOAL = 1;
+
+    /** The first node index assigned to a transition. */
+    protected static final int FIRST_TRANSITION = 2;
+
+    /** Border flags. */
+    protected static final int WEST = 1 << 0, EAST = 1 << 1, SOUTH = 1 << 2, NORTH = 1 << 3;
+
+    /** The initial capacity of the per-node arrays. */
+    protected static final int INITIAL_NODE_CAPACITY = 256;
+}
@@ -0,0 +1,394 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+package com.threerings.tudey.server.util;
+
+import java.util.Arrays;
+
+/**
+ * A flow field over a square window of a traversal grid centered on a goal cell: the cost of
+ * the shortest path from each cell in the window to the goal, along with the first step of that
+ * path.  Any number of agents heading for the same goal can then find their way by following
+ * the steps from their own cells, rather than each performing its own search.  Steps follow the
+ * same rules (and costs) as those of {@link AStar}.  The traversability of the cells is cached
+ * between computations, so that when the goal moves (shifting the window) only the newly exposed
+ * cells need to be tested.
+ */
+public class FlowField
+{
+    /**
+     * Creates a new flow field.
+     *
+     * @param radius the distance from the goal to the edges of the window, in cells.
+     */
+    public FlowField (AStar.Grid grid, int radius)
+    {
+        _grid = grid;
+        _radius = radius;
+        _size = radius*2 + 1;
+        int area = _size * _size;
+        _states = new byte[area];
+        _nstates = new byte[area];
+        _costs = new int[area];
+        _next = new int[area];
+        _heap = new int[area];
+        _heapIndex = new int[area];
+    }
+
+    /**
+     * Sets the goal cell, recomputing the field if the goal has moved or the grid has changed.
+     */
+    public void setGoal (int gx, int gy)
+    {
+        if (_valid && gx == _gx && gy == _gy) {
+            return;
+        }
+        if (gx != _gx || gy != _gy) {
+            shiftWindow(gx - _radius, gy - _radius);
+            _gx = gx;
+            _gy = gy;
+        }
+        compute();
+        _valid = true;
+    }
+
+    /**
+     * Returns the x coordinate of the goal cell.
+     */
+    public int getGoalX ()
+    {
+        return _gx;
+    }
+
+    /**
+     * Returns the y coordinate of the goal cell.
+     */
+    public int getGoalY ()
+    {
+        return _gy;
+    }
+
+    /**
+     * Returns the cost of the path from the specified cell to the goal, or -1 if the cell is
+     * outside the window or the goal is unreachable from it.
+     */
+    public int getCost (int x, int y)
+    {
+        int idx = getIndex(x, y);
+        return (idx == -1) ? -1 : _costs[idx];
+    }
+
+    /**
+     * Finds the path from the specified cell to the goal, storing only the cells at which it
+     * changes direction (along with the start and end).  On success, the cells may be retrieved
+     * through {@link #getPathX} and {@link #getPathY}.
+     *
+     * @return the number of cells stored, or zero if there is no path.
+     */
+    public int getPath (int x, int y)
+    {
+        int idx = getIndex(x, y);
+        if (idx == -1 || _costs[idx] == -1) {
+            return 0;
+        }
+        int length = 0;
+        addPathCell(length++, x, y);
+        int odx = 0, ody = 0;
+        for (int next; (next = _next[idx]) != -1; idx = next) {
+            int dx = (next % _size) - (idx % _size), dy = (next / _size) - (idx / _size);
+            if ((odx != 0 || ody != 0) && (dx != odx || dy != ody)) {
+                addPathCell(length++, _ox + idx % _size, _oy + idx / _size);
+            }
+            odx = dx;
+            ody = dy;
+        }
+        if (_gx != x || _gy != y) {
+            addPathCell(length++, _gx, _gy);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the x coordinate of the specified cell of the last path found.
+     */
+    public int getPathX (int idx)
+    {
+        return _pathX[idx];
+    }
+
+    /**
+     * Returns the y coordinate of the specified cell of the last path found.
+     */
+    public int getPathY (int idx)
+    {
+        return _pathY[idx];
+    }
+
+    /**
+     * Notes that the traversability of the cells in the specified region may have changed.
+     */
+    public void invalidate (int minx, int miny, int maxx, int maxy)
+    {
+        int lx = Math.max(minx - _ox, 0), ux = Math.min(maxx - _ox, _size - 1);
+        int ly = Math.max(miny - _oy, 0), uy = Math.min(maxy - _oy, _size - 1);
+        if (lx > ux || ly > uy) {
+            return;
+        }
+        for (int yy = ly; yy <= uy; yy++) {
+            Arrays.fill(_states, yy*_size + lx, yy*_size + ux + 1, UNKNOWN);
+        }
+        _valid = false;
+    }
+
+    /**
+     * Returns the index of the specified cell within the window, or -1 if it lies outside.
+     */
+    protected int getIndex (int x, int y)
+    {
+        int wx = x - _ox, wy = y - _oy;
+        return (wx < 0 || wy < 0 || wx >= _size || wy >= _size) ? -1 : wy*_size + wx;
+    }
+
+    /**
+     * Moves the window to the specified origin, preserving the traversability of the cells that
+     * remain within it.
+     */
+    protected void shiftWindow (int ox, int oy)
+    {
+        Arrays.fill(_nstates, UNKNOWN);
+        int dx = ox - _ox, dy = oy - _oy;
+        int lx = Math.max(0, -dx), ux = Math.min(_size, _size - dx);
+        for (int yy = Math.max(0, -dy), yymax = Math.min(_size, _size - dy); yy < yymax; yy++) {
+            if (lx < ux) {
+                System.arraycopy(_states, (yy + dy)*_size + lx + dx, _nstates, yy*_size + lx,
+                    ux - lx);
+            }
+        }
+        byte[] states = _states;
+        _states = _nstates;
+        _nstates = states;
+        _ox = ox;
+        _oy = oy;
+    }
+
+    /**
+     * Computes the costs and steps by searching outward from the goal.
+     */
+    protected void compute ()
+    {
+        Arrays.fill(_costs, -1);
+        Arrays.fill(_next, -1);
+        Arrays.fill(_heapIndex, -1);
+        _heapSize = 0;
+        int goal = getIndex(_gx, _gy);
+        _costs[goal] = 0;
+        push(goal);
+        while (_heapSize > 0) {
+            int idx = pop();
+
+            // cells that can't be traversed may start paths, but not continue them
+            if (!isTraversable(idx)) {
+                continue;
+            }
+            int wx = idx % _size, wy = idx / _size;
+            considerStep(idx, wx, wy - 1, AStar.ADJACENT_COST);
+            considerStep(idx, wx, wy + 1, AStar.ADJACENT_COST);
+            considerStep(idx, wx - 1, wy, AStar.ADJACENT_COST);
+            considerStep(idx, wx + 1, wy, AStar.ADJACENT_COST);
+            considerStep(idx, wx - 1, wy - 1, AStar.DIAGONAL_COST);
+            considerStep(idx, wx + 1, wy - 1, AStar.DIAGONAL_COST);
+            considerStep(idx, wx - 1, wy + 1, AStar.DIAGONAL_COST);
+            considerStep(idx, wx + 1, wy + 1, AStar.DIAGONAL_COST);
+        }
+    }
+
+    /**
+     * Considers a step from the cell at the specified window coordinates to the given (already
+     * reached) cell.
+     */
+    protected void considerStep (int to, int wx, int wy, int cost)
+    {
+        if (wx < 0 || wy < 0 || wx >= _size || wy >= _size) {
+            return;
+        }
+        // as in AStar, diagonal steps require both adjacent cells to be traversable
+        int tx = to % _size, ty = to / _size;
+        if (wx != tx && wy != ty &&
+                !(isTraversable(ty*_size + wx) && isTraversable(wy*_size + tx))) {
+            return;
+        }
+        int idx = wy*_size + wx;
+        int ncost = _costs[to] + cost;
+        int ocost = _costs[idx];
+        if (ocost != -1 && ocost <= ncost) {
+            return;
+        }
+        _costs[idx] = ncost;
+        _next[idx] = to;
+        if (_heapIndex[idx] == -1) {
+            push(idx);
+        } else {
+            siftUp(_heapIndex[idx]);
+        }
+    }
+
+    /**
+     * Checks whether the cell at the specified index is traversable, consulting the grid if
+     * necessary.
+     */
+    protected boolean isTraversable (int idx)
+    {
+        byte state = _states[idx];
+        if (state == UNKNOWN) {
+            _states[idx] = state = _grid.isTraversable(_ox + idx % _size, _oy + idx / _size) ?
+                OPEN : BLOCKED;
+        }
+        return state == OPEN;
+    }
+
+    /**
+     * Stores a cell of the path, growing the arrays if necessary.
+     */
+    protected void addPathCell (int idx, int x, int y)
+    {
+        if (idx == _pathX.length) {
+            _pathX = Arrays.copyOf(_pathX, idx * 2);
+            _pathY = Arrays.copyOf(_pathY, idx * 2);
+        }
+        _pathX[idx] = x;
+        _pathY[idx] = y;
+    }
+
+    /**
+     * Adds a cell to the heap.
+     */
+    protected void push (int idx)
+    {
+        _heap[_heapSize] = idx;
+        _heapIndex[idx] = _heapSize;
+        siftUp(_heapSize++);
+    }
+
+    /**
+     * Removes and returns the cell at the top of the heap.
+     */
+    protected int pop ()
+    {
+        int idx = _heap[0];
+        _heapIndex[idx] = -1;
+        if (--_heapSize > 0) {
+            int last = _heap[_heapSize];
+            _heap[0] = last;
+            _heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return idx;
+    }
+
+    /**
+     * Moves the cell at the specified heap index up to its proper position.
+     */
+    protected void siftUp (int hidx)
+    {
+        int idx = _heap[hidx], cost = _costs[idx];
+        while (hidx > 0) {
+            int pidx = (hidx - 1) >> 1;
+            int parent = _heap[pidx];
+            if (_costs[parent] <= cost) {
+                break;
+            }
+            _heap[hidx] = parent;
+            _heapIndex[parent] = hidx;
+            hidx = pidx;
+        }
+        _heap[hidx] = idx;
+        _heapIndex[idx] = hidx;
+    }
+
+    /**
+     * Moves the cell at the specified heap index down to its proper position.
+     */
+    protected void siftDown (int hidx)
+    {
+        int idx = _heap[hidx], cost = _costs[idx];
+        for (int cidx; (cidx = hidx*2 + 1) < _heapSize; hidx = cidx) {
+            int child = _heap[cidx];
+            if (cidx + 1 < _heapSize && _costs[_heap[cidx + 1]] < _costs[child]) {
+                child = _heap[++cidx];
+            }
+            if (_costs[child] >= cost) {
+                break;
+            }
+            _heap[hidx] = child;
+            _heapIndex[child] = hidx;
+        }
+        _heap[hidx] = idx;
+        _heapIndex[idx] = hidx;
+    }
+
+    /** The grid over which the field is computed. */
+    protected AStar.Grid _grid;
+
+    /** The distance from the goal to the edges of the window. */
+    protected int _radius;
+
+    /** The width and height of the window. */
+    protected int _size;
+
+    /** The coordinates of the lower left cell of the window. */
+    protected int _ox = Integer.MIN_VALUE / 2, _oy = Integer.MIN_VALUE / 2;
+
+    /** The goal cell. */
+    protected int _gx = Integer.MIN_VALUE, _gy = Integer.MIN_VALUE;
+
+    /** Whether the field reflects the current goal and grid. */
+    protected boolean _valid;
+
+    /** The cached traversability of the cells in the window. */
+    protected byte[] _states;
+
+    /** Holds the traversability states while shifting the window. */
+    protected byte[] _nstates;
+
+    /** The cost from each cell to the goal, or -1 if unreachable. */
+    protected int[] _costs;
+
+    /** The index of the next cell on the path from each cell, or -1 for none. */
+    protected int[] _next;
+
+    /** The open list. */
+    protected int[] _heap;
+
+    /** The position of each cell in the heap, or -1 if not in the heap. */
+    protected int[] _heapIndex;
+
+    /** The number of cells in the heap. */
+    protected int _heapSize;
+
+    /** The cells of the last path found. */
+    protected int[] _pathX = new int[16], _pathY = new int[16];
+
+    /** Traversability states. */
+    protected static final byte UNKNOWN = 0, OPEN = 1, BLOCKED = 2;
+}
@@ -0,0 +1,583 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+package com.threerings.tudey.server.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.threerings.math.FloatMath;
+import com.threerings.math.Rect;
+import com.threerings.math.Vector2f;
+
+import com.threerings.tudey.server.logic.ActorLogic;
+
+import static com.threerings.tudey.Log.log;
+
+/**
+ * Batches and caches path requests on behalf of a {@link Pathfinder}.  Requests made during a
+ * tick are queued and processed together at the end of the tick.  Requests that share a start
+ * cell, destination cell, collision mask and footprint are answered with a single search.  Each
+ * tick spends at most a fixed amount of time searching, and any requests left over are deferred
+ * to the following tick.  Results are cached until the pathfinder reports a change to the flags
+ * in the region they cover.
+ */
+public class PathService
+    implements Pathfinder.FlagObserver
+{
+    /**
+     * Receives the result of a path request.
+     */
+    public interface Listener
+    {
+        /**
+         * Called when the path has been computed.
+         *
+         * @param path the computed path, or null if the destination is unreachable.
+         */
+        public void pathComputed (Vector2f[] path);
+    }
+
+    /**
+     * A pending path request.
+     */
+    public class Request
+    {
+        /**
+         * Checks whether the request is still awaiting its result.
+         */
+        public boolean isPending ()
+        {
+            return _batch != null;
+        }
+
+        /**
+         * Cancels the request, if it is still pending.
+         */
+        public void cancel ()
+        {
+            if (_batch != null) {
+                _batch.requests.remove(this);
+                if (_batch.requests.isEmpty() && _batches.get(_batch.key) == _batch) {
+                    _batches.remove(_batch.key);
+                }
+                _batch = null;
+            }
+        }
+
+        /**
+         * Creates a new request.
+         */
+        protected Request (ActorLogic logic, float bx, float by, Listener listener)
+        {
+            _logic = logic;
+            _bx = bx;
+            _by = by;
+            _listener = listener;
+        }
+
+        /**
+         * Delivers the result of the request.
+         */
+        protected void deliver (Vector2f[] path, float gx, float gy)
+        {
+            _batch = null;
+            try {
+                _listener.pathComputed(adapt(path, gx, gy));
+            } catch (Throwable t) {
+                log.warning("Caught throwable delivering path.", "listener", _listener, t);
+            }
+        }
+
+        /**
+         * Adapts a path computed for another request with the same key to this one.  Each
+         * request receives its own copy, since listeners may modify their paths.
+         *
+         * @param gx the x coordinate of the destination for which the path was computed.
+         * @param gy the y coordinate of the destination for which the path was computed.
+         */
+        protected Vector2f[] adapt (Vector2f[] path, float gx, float gy)
+        {
+            if (path == null) {
+                return null;
+            }
+            Vector2f[] result = new Vector2f[path.length];
+            for (int ii = 0; ii < path.length; ii++) {
+                result[ii] = new Vector2f(path[ii]);
+            }
+            result[0].set(_logic.getTranslation());
+            Vector2f last = result[result.length - 1];
+            if (result.length > 1 && last.x == gx && last.y == gy) {
+                last.set(_bx, _by);
+            }
+            return result;
+        }
+
+        /** The actor for which the path is requested. */
+        protected ActorLogic _logic;
+
+        /** The destination. */
+        protected float _bx, _by;
+
+        /** The listener to notify. */
+        protected Listener _listener;
+
+        /** The batch containing the request, or null if no longer pending. */
+        protected Batch _batch;
+    }
+
+    /**
+     * Creates a new path service.
+     *
+     * @param budget the maximum number of milliseconds to spend computing paths on each tick.
+     */
+    public PathService (Pathfinder pathfinder, float budget)
+    {
+        _pathfinder = pathfinder;
+        _budget = (long)(budget * 1000000L);
+        _pathfinder.addFlagObserver(this);
+    }
+
+    /**
+     * Shuts down the service, discarding any pending requests.
+     */
+    public void shutdown ()
+    {
+        _pathfinder.removeFlagObserver(this);
+        for (Batch batch : _batches.values()) {
+            for (Request request : batch.requests) {
+                request._batch = null;
+            }
+        }
+        _batches.clear();
+        _cache.clear();
+    }
+
+    /**
+     * Requests a path for the specified actor from its current location, considering only the
+     * scene entries (not the actors).  If the path is cached, the listener will be notified
+     * immediately; otherwise, it will be notified at the end of the tick (or a later one, if
+     * the tick's budget has been exhausted).
+     *
+     * @param longest the maximum path length.
+     * @param partial if true, return a partial path even if the destination is unreachable.
+     * @param shortcut if true, use swept shapes to find path shortcuts.
+     * @return the pending request, or null if the listener has already been notified.
+     */
+    public Request getEntryPath (
+        ActorLogic logic, float longest, float bx, float by, boolean partial,
+        boolean shortcut, Listener listener)
+    {
+        return getPath(false, logic, longest, bx, by, partial, shortcut, listener);
+    }
+
+    /**
+     * Requests a path for the specified actor from its current location.  If the path is
+     * cached, the listener will be notified immediately; otherwise, it will be notified at the
+     * end of the tick (or a later one, if the tick's budget has been exhausted).
+     *
+     * @param longest the maximum path length.
+     * @param partial if true, return a partial path even if the destination is unreachable.
+     * @param shortcut if true, use swept shapes to find path shortcuts.
+     * @return the pending request, or null if the listener has already been notified.
+     */
+    public Request getPath (
+        ActorLogic logic, float longest, float bx, float by, boolean partial,
+        boolean shortcut, Listener listener)
+    {
+        return getPath(true, logic, longest, bx, by, partial, shortcut, listener);
+    }
+
+    /**
+     * Checks whether any requests are awaiting processing.
+     */
+    public boolean hasPendingRequests ()
+    {
+        // batches are removed as soon as their last request is delivered or cancelled
+        return !_batches.isEmpty();
+    }
+
+    /**
+     * Processes the pending requests, stopping when the budget has been exhausted.
+     */
+    public void processRequests ()
+    {
+        if (_batches.isEmpty()) {
+            return;
+        }
+        // listeners may make new requests, so we remove each batch before processing it
+        long deadline = System.nanoTime() + _budget;
+        do {
+            Iterator<Batch> it = _batches.values().iterator();
+            Batch batch = it.next();
+            it.remove();
+            processBatch(batch);
+        } while (!_batches.isEmpty() && System.nanoTime() < deadline);
+    }
+
+    // documentation inherited from interface Pathfinder.FlagObserver
+    public void entryFlagsChanged (int minx, int miny, int maxx, int maxy)
+    {
+        invalidate(minx, miny, maxx, maxy, false);
+    }
+
+    // documentation inherited from interface Pathfinder.FlagObserver
+    public void actorFlagsChanged (int minx, int miny, int maxx, int maxy)
+    {
+        if (_actorPaths > 0) {
+            invalidate(minx, miny, maxx, maxy, true);
+        }
+    }
+
+    /**
+     * Requests a path for the specified actor from its current location.
+     */
+    protected Request getPath (
+        boolean collideActor, ActorLogic logic, float longest, float bx, float by,
+        boolean partial, boolean shortcut, Listener listener)
+    {
+        Key key = new Key(collideActor, logic, longest, bx, by, partial, shortcut);
+        Request request = new Request(logic, bx, by, listener);
+        return enqueue(key, request) ? request : null;
+    }
+
+    /**
+     * Delivers the cached result for the specified request or adds it to the batch for its key.
+     *
+     * @return true if the request is pending, false if it has already been notified.
+     */
+    protected boolean enqueue (Key key, Request request)
+    {
+        // check the cache
+        CachedPath cached = _cache.get(key);
+        if (cached != null) {
+            request.deliver(cached.path, cached.gx, cached.gy);
+            return false;
+        }
+
+        // add to the existing batch, if any
+        Batch batch = _batches.get(key);
+        if (batch == null) {
+            _batches.put(key, batch = new Batch(key));
+        }
+        batch.requests.add(request);
+        request._batch = batch;
+        return true;
+    }
+
+    /**
+     * Computes the path for a batch of requests and delivers it.
+     */
+    protected void processBatch (Batch batch)
+    {
+        // compute the path on behalf of the first request, keyed by the cell that it occupies
+        // now (which may not be the one it occupied when the request was made)
+        Request first = batch.requests.get(0);
+        Key key = batch.key.forRequest(first);
+        ActorLogic logic = first._logic;
+        Vector2f translation = logic.getTranslation();
+        Vector2f[] path;
+        try {
+            path = _pathfinder.getPath(
+                key.collideActor, logic, key.longest, translation.x, translation.y,
+                first._bx, first._by, key.partial, key.shortcut);
+        } catch (Throwable t) {
+            log.warning("Caught throwable computing path.", "logic", logic, t);
+            deliver(batch, key, null, first._bx, first._by);
+            return;
+        }
+
+        // cache the result
+        CachedPath cached = new CachedPath(path, first._bx, first._by, key.collideActor);
+        cached.computeBounds(logic, key.longest, translation);
+        if (key.collideActor) {
+            _actorPaths++;
+        }
+        CachedPath ocached = _cache.put(key, cached);
+        if (ocached != null && ocached.collideActor) {
+            _actorPaths--;
+        }
+
+        deliver(batch, key, path, first._bx, first._by);
+    }
+
+    /**
+     * Delivers a result to the requests in a batch whose actors still occupy the start cell for
+     * which the result was computed.  The others are queued again from their current cells.
+     *
+     * @param key the key for which the result was computed.
+     */
+    protected void deliver (Batch batch, Key key, Vector2f[] path, float gx, float gy)
+    {
+        // copy the list, as listeners may cancel other requests
+        _delivering.addAll(batch.requests);
+        batch.requests.clear();
+        for (int ii = 0, nn = _delivering.size(); ii < nn; ii++) {
+            Request request = _delivering.get(ii);
+            if (!request.isPending()) {
+                continue;
+            }
+            Key rkey = key.forRequest(request);
+            if (rkey.equals(key)) {
+                request.deliver(path, gx, gy);
+            } else {
+                request._batch = null;
+                enqueue(rkey, request);
+            }
+        }
+        _delivering.clear();
+    }
+
+    /**
+     * Removes the cached paths that intersect the specified region.
+     *
+     * @param actor if true, remove only the paths that consider actor flags.
+     */
+    protected void invalidate (int minx, int miny, int maxx, int maxy, boolean actor)
+    {
+        for (Iterator<CachedPath> it = _cache.values().iterator(); it.hasNext(); ) {
+            CachedPath cached = it.next();
+            if ((actor && !cached.collideActor) || !cached.intersects(minx, miny, maxx, maxy)) {
+                continue;
+            }
+            it.remove();
+            if (cached.collideActor) {
+                _actorPaths--;
+            }
+        }
+    }
+
+    /**
+     * Identifies requests that may share a result.
+     */
+    protected static class Key
+    {
+        /** Whether to consider actors as well as entries. */
+        public final boolean collideActor;
+
+        /** The start and destination cells. */
+        public final int sx, sy, gx, gy;
+
+        /** The collision mask. */
+        public final int mask;
+
+        /** The dimensions of the actor's footprint, in cells. */
+        public final int width, height;
+
+        /** The maximum path length. */
+        public final float longest;
+
+        /** Whether to return partial paths and find shortcuts. */
+        public final boolean partial, shortcut;
+
+        /**
+         * Creates the key for a request.
+         */
+        public Key (
+            boolean collideActor, ActorLogic logic, float longest, float bx, float by,
+            boolean partial, boolean shortcut)
+        {
+            // quantize the locations as the pathfinder does, so that every request with the
+            // same key would get the same result from a direct search
+            Vector2f translation = logic.getTranslation();
+            Rect bounds = logic.getShape().getBounds();
+            this.collideActor = collideActor;
+            width = Pathfinder.getFootprint(bounds.getWidth());
+            height = Pathfinder.getFootprint(bounds.getHeight());
+            sx = Pathfinder.getCell(translation.x, width);
+            sy = Pathfinder.getCell(translation.y, height);
+            gx = Pathfinder.getCell(bx, width);
+            gy = Pathfinder.getCell(by, height);
+            mask = logic.getActor().getCollisionMask();
+            this.longest = longest;
+            this.partial = partial;
+            this.shortcut = shortcut;
+        }
+
+        /**
+         * Returns the key with these search options for the specified request from its actor's
+         * current location.
+         */
+        public Key forRequest (Request request)
+        {
+            return new Key(collideActor, request._logic, longest, request._bx, request._by,
+                partial, shortcut);
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            int hash = (collideActor ? 1 : 0) | (partial ? 2 : 0) | (shortcut ? 4 : 0);
+            hash = 31*hash + sx;
+            hash = 31*hash + sy;
+            hash = 31*hash + gx;
+            hash = 31*hash + gy;
+            hash = 31*hash + mask;
+            hash = 31*hash + width;
+            hash = 31*hash + height;
+            return 31*hash + Float.floatToIntBits(longest);
+        }
+
+        @Override
+        public boolean equals (Object other)
+        {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key okey = (Key)other;
+            return collideActor == okey.collideActor && sx == okey.sx && sy == okey.sy &&
+                gx == okey.gx && gy == okey.gy && mask == okey.mask && width == okey.width &&
+                height == okey.height && longest == okey.longest && partial == okey.partial &&
+                shortcut == okey.shortcut;
+        }
+    }
+
+    /**
+     * The requests waiting on a single search.
+     */
+    protected static class Batch
+    {
+        /** The key shared by the requests. */
+        public final Key key;
+
+        /** The requests in the batch. */
+        public final ArrayList<Request> requests = Lists.newArrayListWithCapacity(1);
+
+        /**
+         * Creates a new batch.
+         */
+        public Batch (Key key)
+        {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A cached search result.
+     */
+    protected static class CachedPath
+    {
+        /** The computed path, or null if unreachable. */
+        public final Vector2f[] path;
+
+        /** The destination for which the path was computed. */
+        public final float gx, gy;
+
+        /** Whether the path considers actors as well as entries. */
+        public final boolean collideActor;
+
+        /** The region (in unsubdivided cells) on which the result depends. */
+        public int minx, miny, maxx, maxy;
+
+        /**
+         * Creates a new cached path.
+         */
+        public CachedPath (Vector2f[] path, float gx, float gy, boolean collideActor)
+        {
+            this.path = path;
+            this.gx = gx;
+            this.gy = gy;
+            this.collideActor = collideActor;
+        }
+
+        /**
+         * Computes the region on which the result depends.
+         */
+        public void computeBounds (ActorLogic logic, float longest, Vector2f start)
+        {
+            // a path depends on the cells it crosses; a failed or partial search depends on
+            // everything within reach
+            float lx, ly, ux, uy;
+            Vector2f last = (path == null) ? null : path[path.length - 1];
+            if (last == null || last.x != gx || last.y != gy) {
+                lx = start.x - longest;
+                ly = start.y - longest;
+                ux = start.x + longest;
+                uy = start.y + longest;
+            } else {
+                lx = ux = start.x;
+                ly = uy = start.y;
+            }
+            if (path != null) {
+                for (Vector2f waypoint : path) {
+                    lx = Math.min(lx, waypoint.x);
+                    ly = Math.min(ly, waypoint.y);
+                    ux = Math.max(ux, waypoint.x);
+                    uy = Math.max(uy, waypoint.y);
+                }
+            }
+            Rect bounds = logic.getShape().getBounds();
+            float extent = Math.max(bounds.getWidth(), bounds.getHeight()) * 0.5f;
+            minx = FloatMath.ifloor(lx - extent);
+            miny = FloatMath.ifloor(ly - extent);
+            maxx = FloatMath.ifloor(ux + extent);
+            maxy = FloatMath.ifloor(uy + extent);
+        }
+
+        /**
+         * Determines whether the region on which the result depends intersects the one given.
+         */
+        public boolean intersects (int ominx, int ominy, int omaxx, int omaxy)
+        {
+            return ominx <= maxx && omaxx >= minx && ominy <= maxy && omaxy >= miny;
+        }
+    }
+
+    /** The pathfinder that computes the paths. */
+    protected Pathfinder _pathfinder;
+
+    /** The maximum number of nanoseconds to spend computing paths on each tick. */
+    protected long _budget;
+
+    /** The pending batches, in the order in which they were requested. */
+    protected LinkedHashMap<Key, Batch> _batches = Maps.newLinkedHashMap();
+
+    /** The cached results, in access order so that the least recently used may be evicted. */
+    protected LinkedHashMap<Key, CachedPath> _cache =
+        new LinkedHashMap<Key, CachedPath>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry (Map.Entry<Key, CachedPath> eldest) {
+                if (size() <= MAX_CACHED_PATHS) {
+                    return false;
+                }
+                if (eldest.getValue().collideActor) {
+                    _actorPaths--;
+                }
+                return true;
+            }
+        };
+
+    /** The number of cached paths that consider actors. */
+    protected int _actorPaths;
+
+    /** Holds requests during delivery. */
+    protected ArrayList<Request> _delivering = Lists.newArrayList();
+
+    /** The maximum number of paths to cache. */
+    protected static final int MAX_CACHED_PATHS = 256;
+}
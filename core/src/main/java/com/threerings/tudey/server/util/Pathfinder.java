@@ -25,17 +25,16 @@
 
 package com.threerings.tudey.server.util;
 
-import java.awt.Point;
-
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import com.samskivert.util.IntMap;
 import com.samskivert.util.IntMaps;
-
-import com.threerings.media.util.AStarPathUtil;
-import com.threerings.media.util.MathUtil;
+import com.samskivert.util.ObserverList;
 
 import com.threerings.config.ConfigManager;
 import com.threerings.math.FloatMath;
@@ -65,11 +64,57 @@ import com.threerings.tudey.util.CoordIntMap;
  * intersect those cells.  An alternate method that may be worth exploring would be to have the
  * traversal predicate perform a full intersection query (it seems likely that this would be more
  * expensive than maintaining the collision map for all actors, but it's not entirely clear).
+ * Searches for distant destinations go through a {@link ClusterGraph} built over the entry
+ * flags, which is repaired as entries are added and removed.
  */
 public class Pathfinder
     implements TudeySceneModel.Observer, TudeySceneManager.ActorObserver,
         Logic.ShapeObserver, ActorLogic.CollisionFlagObserver
 {
+    /**
+     * An interface for objects interested in changes to the collision flags.  Regions are
+     * expressed in unsubdivided cells.
+     */
+    public interface FlagObserver
+    {
+        /**
+         * Notes that the entry flags within the specified region have changed.
+         */
+        public void entryFlagsChanged (int minx, int miny, int maxx, int maxy);
+
+        /**
+         * Notes that the actor flags within the specified region have changed.
+         */
+        public void actorFlagsChanged (int minx, int miny, int maxx, int maxy);
+    }
+
+    /**
+     * Returns the number of subdivided cells that an actor of the given extent (along one axis)
+     * spans in path searches.
+     */
+    public static int getFootprint (float extent)
+    {
+        return Math.max(1, FloatMath.iceil(extent * SUBDIVISION));
+    }
+
+    /**
+     * Returns the subdivided cell coordinate from which path searches start (or at which they
+     * end) for the given location of an actor whose footprint spans the given number of cells.
+     */
+    public static int getCell (float coord, int footprint)
+    {
+        return Math.round(coord * SUBDIVISION - getCellOffset(footprint));
+    }
+
+    /**
+     * Returns the offset applied to subdivided coordinates when converting them to cells for an
+     * actor whose footprint spans the given number of cells.
+     */
+    protected static float getCellOffset (int footprint)
+    {
+        return (footprint % 2) * 0.5f / SUBDIVISION;
+    }
+
     /**
      * Creates a new pathfinder.
      */
@@ -97,6 +142,22 @@ public class Pathfinder
         _scenemgr.removeActorObserver(this);
     }
 
+    /**
+     * Adds an observer for changes to the collision flags.
+     */
+    public void addFlagObserver (FlagObserver observer)
+    {
+        _flagObservers.add(observer);
+    }
+
+    /**
+     * Removes a flag observer.
+     */
+    public void removeFlagObserver (FlagObserver observer)
+    {
+        _flagObservers.remove(observer);
+    }
+
     /**
      * Computes a path for the specified actor from its current location, considering only the
      * scene entries (not the actors).
@@ -160,6 +221,45 @@ public class Pathfinder
         return getPath(true, actor, longest, ax, ay, bx, by, partial, shortcut);
     }
 
+    /**
+     * Computes a path for the specified actor from its current location to the location of the
+     * given target using a flow field shared by all actors with the same collision mask and
+     * footprint heading for that target.  Only the scene entries (not the actors) are considered.
+     *
+     * @param longest the maximum distance (in path steps) from the target of the cells covered
+     * by the field.
+     * @return the computed path, or null if the actor lies outside the field or the target is
+     * unreachable.
+     */
+    public Vector2f[] getFlowPath (ActorLogic logic, Logic target, float longest)
+    {
+        // determine the actor's extents and the offsets for converting to integer coordinates
+        Rect bounds = logic.getShape().getBounds();
+        int width = getFootprint(bounds.getWidth());
+        int height = getFootprint(bounds.getHeight());
+        float xoff = getCellOffset(width);
+        float yoff = getCellOffset(height);
+
+        // find or create the field and point it at the target's current location
+        FlowField field = getFlowField(
+            target, logic.getActor().getCollisionMask(), width, height, (int)longest);
+        Vector2f goal = target.getTranslation();
+        field.setGoal(getCell(goal.x, width), getCell(goal.y, height));
+
+        // follow it from the actor's location
+        Vector2f start = logic.getTranslation();
+        int length = field.getPath(getCell(start.x, width), getCell(start.y, height));
+        if (length == 0) {
+            return null;
+        }
+        Vector2f[] waypoints = new Vector2f[length];
+        for (int ii = 0; ii < length; ii++) {
+            waypoints[ii] = new Vector2f((field.getPathX(ii) + xoff) / SUBDIVISION,
+                (field.getPathY(ii) + yoff) / SUBDIVISION);
+        }
+        return waypoints;
+    }
+
     // documentation inherited from interface TudeySceneModel.Observer
     public void entryAdded (Entry entry)
     {
@@ -183,6 +283,7 @@ public class Pathfinder
     public void actorAdded (ActorLogic logic)
     {
         addFlags(logic);
+        actorFlagsChanged(logic);
         logic.addShapeObserver(this);
         logic.addCollisionFlagObserver(this);
     }
@@ -191,6 +292,7 @@ public class Pathfinder
     public void actorRemoved (ActorLogic logic)
     {
         removeFlags(logic);
+        actorFlagsChanged(logic);
         logic.removeShapeObserver(this);
         logic.removeCollisionFlagObserver(this);
     }
@@ -199,12 +301,14 @@ public class Pathfinder
     public void shapeWillChange (Logic logic)
     {
         removeFlags((ActorLogic)logic);
+        actorFlagsChanged((ActorLogic)logic);
     }
 
     // documentation inherited from Logic.ShapeObserver
     public void shapeDidChange (Logic logic)
     {
         addFlags((ActorLogic)logic);
+        actorFlagsChanged((ActorLogic)logic);
     }
 
     // documentation inherited from interface ActorLogic.CollisionFlagObserver
@@ -258,6 +362,9 @@ public class Pathfinder
                 }
             }
         }
+        if (oflags != 0 || nflags != 0) {
+            notifyFlagsChanged(false, minx, miny, maxx, maxy);
+        }
     }
 
     /**
@@ -269,7 +376,7 @@ public class Pathfinder
      * @return the computed path, or null if unreachable.
      */
     protected Vector2f[] getPath (
-        final boolean collideActor, ActorLogic logic, float longest, float ax, float ay,
+        boolean collideActor, ActorLogic logic, float longest, float ax, float ay,
         float bx, float by, boolean partial, boolean shortcut)
     {
         // first things first: are we there already?
@@ -286,73 +393,16 @@ public class Pathfinder
 
         // determine the actor's extents
         Rect bounds = logic.getShape().getBounds();
-        int width = Math.max(1, FloatMath.iceil(bounds.getWidth() * SUBDIVISION));
-        int height = Math.max(1, FloatMath.iceil(bounds.getHeight() * SUBDIVISION));
-
-        // create the traversal predicate
-        AStarPathUtil.TraversalPred pred;
-        final Actor actor = logic.getActor();
-        final int collisionMask = actor.getCollisionMask();
-        if (width == 1 && height == 1) {
-            // simpler predicates for the common case of 1x1 actors
-            if (collideActor) {
-                pred = new AStarPathUtil.TraversalPred() {
-                    public boolean canTraverse (Object traverser, int x, int y) {
-                        return (collisionMask & _entryFlags.get(
-                            MathUtil.floorDiv(x, SUBDIVISION),
-                            MathUtil.floorDiv(y, SUBDIVISION))) == 0 &&
-                                (collisionMask & _actorFlags.get(x, y)) == 0;
-                    }
-                };
-            } else {
-                pred = new AStarPathUtil.TraversalPred() {
-                    public boolean canTraverse (Object traverser, int x, int y) {
-                        return (collisionMask & _entryFlags.get(
-                            MathUtil.floorDiv(x, SUBDIVISION),
-                            MathUtil.floorDiv(y, SUBDIVISION))) == 0;
-                    }
-                };
-            }
-        } else {
-            final int left = width / 2, right = (width - 1) / 2;
-            final int bottom = height / 2, top = (height - 1) / 2;
-            if (collideActor) {
-                pred = new AStarPathUtil.TraversalPred() {
-                    public boolean canTraverse (Object traverser, int x, int y) {
-                        for (int yy = y - bottom, yymax = y + top; yy <= yymax; yy++) {
-                            for (int xx = x - left, xxmax = x + right; xx <= xxmax; xx++) {
-                                if ((collisionMask & _entryFlags.get(
-                                        MathUtil.floorDiv(xx, SUBDIVISION),
-                                        MathUtil.floorDiv(yy, SUBDIVISION))) != 0 ||
-                                            (collisionMask & _actorFlags.get(xx, yy)) != 0) {
-                                    return false;
-                                }
-                            }
-                        }
-                        return true;
-                    }
-                };
-            } else {
-                pred = new AStarPathUtil.TraversalPred() {
-                    public boolean canTraverse (Object traverser, int x, int y) {
-                        for (int yy = y - bottom, yymax = y + top; yy <= yymax; yy++) {
-                            for (int xx = x - left, xxmax = x + right; xx <= xxmax; xx++) {
-                                if ((collisionMask & _entryFlags.get(
-                                        MathUtil.floorDiv(xx, SUBDIVISION),
-                                        MathUtil.floorDiv(yy, SUBDIVISION))) != 0) {
-                                    return false;
-                                }
-                            }
-                        }
-                        return true;
-                    }
-                };
-            }
-        }
+        int width = getFootprint(bounds.getWidth());
+        int height = getFootprint(bounds.getHeight());
+
+        // configure the traversal grid
+        Actor actor = logic.getActor();
+        _grid.init(collideActor, actor.getCollisionMask(), width, height);
 
         // compute the offsets for converting to/from integer coordinates
-        float xoff = (width % 2) * 0.5f / SUBDIVISION;
-        float yoff = (height % 2) * 0.5f / SUBDIVISION;
+        float xoff = getCellOffset(width);
+        float yoff = getCellOffset(height);
         ax *= SUBDIVISION;
         ay *= SUBDIVISION;
         bx *= SUBDIVISION;
@@ -366,10 +416,19 @@ public class Pathfinder
             removeFlags(logic);
         }
 
-        // compute the path
-        List<Point> path = AStarPathUtil.getPath(
-            pred, actor, (int)longest, Math.round(ax - xoff), Math.round(ay - yoff),
-            Math.round(bx - xoff), Math.round(by - yoff), partial);
+        // compute the path, searching the cluster graph first if the destination is far away
+        // (the graph falls back to a direct search if it can't find the path itself)
+        int iax = Math.round(ax - xoff), iay = Math.round(ay - yoff);
+        int ibx = Math.round(bx - xoff), iby = Math.round(by - yoff);
+        AStar astar = AStar.getInstance();
+        ClusterGraph graph = null;
+        int length;
+        if (Math.max(Math.abs(ibx - iax), Math.abs(iby - iay)) > HIERARCHICAL_DISTANCE) {
+            graph = getClusterGraph(actor.getCollisionMask(), width, height);
+            length = graph.getPath(_grid, (int)longest, iax, iay, ibx, iby, partial);
+        } else {
+            length = astar.getPath(_grid, (int)longest, iax, iay, ibx, iby, partial);
+        }
 
         // add the flags back if we removed them
         if (remove) {
@@ -377,13 +436,14 @@ public class Pathfinder
         }
 
         // convert to fractional coordinates
-        if (path == null) {
+        if (length == 0) {
             return null;
         }
-        Vector2f[] waypoints = new Vector2f[path.size()];
-        for (int ii = 0; ii < waypoints.length; ii++) {
-            Point pt = path.get(ii);
-            waypoints[ii] = new Vector2f((pt.x + xoff) / SUBDIVISION, (pt.y + yoff) / SUBDIVISION);
+        Vector2f[] waypoints = new Vector2f[length];
+        for (int ii = 0; ii < length; ii++) {
+            int x = (graph == null) ? astar.getPathX(ii) : graph.getPathX(ii);
+            int y = (graph == null) ? astar.getPathY(ii) : graph.getPathY(ii);
+            waypoints[ii] = new Vector2f((x + xoff) / SUBDIVISION, (y + yoff) / SUBDIVISION);
         }
 
         // process for shortcuts if requested
@@ -447,6 +507,8 @@ public class Pathfinder
                 }
             }
         }
+        entryFlagsChanged(_region.x, _region.y,
+            _region.x + _region.width - 1, _region.y + _region.height - 1);
     }
 
     /**
@@ -474,6 +536,8 @@ public class Pathfinder
                 }
             }
         }
+        entryFlagsChanged(_region.x, _region.y,
+            _region.x + _region.width - 1, _region.y + _region.height - 1);
     }
 
     /**
@@ -537,6 +601,9 @@ public class Pathfinder
                 }
             }
         }
+        if (entry) {
+            entryFlagsChanged(minx, miny, maxx, maxy);
+        }
     }
 
     /**
@@ -591,6 +658,122 @@ public class Pathfinder
                 }
             }
         }
+        if (entry) {
+            entryFlagsChanged(minx, miny, maxx, maxy);
+        }
+    }
+
+    /**
+     * Notes that the entry flags within the specified region have changed.
+     */
+    protected void entryFlagsChanged (int minx, int miny, int maxx, int maxy)
+    {
+        for (ClearanceMap map : _clearanceMaps.values()) {
+            map.invalidate(minx, miny, maxx, maxy);
+        }
+        notifyFlagsChanged(true, minx, miny, maxx, maxy);
+        for (IntMap<ClusterGraph> graphs : _clusterGraphs.values()) {
+            for (IntMap.IntEntry<ClusterGraph> entry : graphs.intEntrySet()) {
+                // expand the region by the footprint, which may overlap the changed cells
+                int width = entry.getIntKey() >> 16, height = entry.getIntKey() & 0xFFFF;
+                entry.getValue().invalidate(
+                    minx * SUBDIVISION - width, miny * SUBDIVISION - height,
+                    (maxx + 1) * SUBDIVISION - 1 + width, (maxy + 1) * SUBDIVISION - 1 + height);
+            }
+        }
+        for (CachedFlowField cached : _flowFields.values()) {
+            cached.field.invalidate(
+                minx * SUBDIVISION - cached.width, miny * SUBDIVISION - cached.height,
+                (maxx + 1) * SUBDIVISION - 1 + cached.width,
+                (maxy + 1) * SUBDIVISION - 1 + cached.height);
+        }
+    }
+
+    /**
+     * Returns the flow field for the specified goal, collision mask, footprint and radius,
+     * creating it if necessary.
+     */
+    protected FlowField getFlowField (Object goal, int mask, int width, int height, int radius)
+    {
+        // first, discard any fields that haven't been used in a while
+        int timestamp = _scenemgr.getTimestamp();
+        if (timestamp - _lastFlowFieldPrune >= FLOW_FIELD_LIFETIME) {
+            for (Iterator<CachedFlowField> it = _flowFields.values().iterator(); it.hasNext(); ) {
+                if (timestamp - it.next().lastUsed >= FLOW_FIELD_LIFETIME) {
+                    it.remove();
+                }
+            }
+            _lastFlowFieldPrune = timestamp;
+        }
+        FlowFieldKey key = new FlowFieldKey(goal, mask, width, height, radius);
+        CachedFlowField cached = _flowFields.get(key);
+        if (cached == null) {
+            FootprintGrid grid = new FootprintGrid();
+            grid.init(false, mask, width, height);
+            _flowFields.put(key, cached = new CachedFlowField(
+                new FlowField(grid, radius), width, height));
+        }
+        cached.lastUsed = timestamp;
+        return cached.field;
+    }
+
+    /**
+     * Notes that the actor flags within the bounds of the specified actor have changed.
+     */
+    protected void actorFlagsChanged (ActorLogic logic)
+    {
+        if (logic.getCollisionFlags() == 0 || _flagObservers.size() == 0) {
+            return;
+        }
+        Rect bounds = logic.getShape().getBounds();
+        Vector2f min = bounds.getMinimumExtent(), max = bounds.getMaximumExtent();
+        notifyFlagsChanged(false, FloatMath.ifloor(min.x), FloatMath.ifloor(min.y),
+            FloatMath.ifloor(max.x), FloatMath.ifloor(max.y));
+    }
+
+    /**
+     * Notifies the flag observers of a change.
+     *
+     * @param entry if true, the entry flags changed; otherwise, the actor flags.
+     */
+    protected void notifyFlagsChanged (boolean entry, int minx, int miny, int maxx, int maxy)
+    {
+        if (_flagObservers.size() > 0) {
+            _flagOp.init(entry, minx, miny, maxx, maxy);
+            _flagObservers.apply(_flagOp);
+        }
+    }
+
+    /**
+     * Returns the cluster graph for the specified collision mask and footprint, creating it if
+     * necessary.
+     */
+    protected ClusterGraph getClusterGraph (int mask, int width, int height)
+    {
+        IntMap<ClusterGraph> graphs = _clusterGraphs.get(mask);
+        if (graphs == null) {
+            _clusterGraphs.put(mask, graphs = IntMaps.newHashIntMap());
+        }
+        int key = (width << 16) | height;
+        ClusterGraph graph = graphs.get(key);
+        if (graph == null) {
+            FootprintGrid grid = new FootprintGrid();
+            grid.init(false, mask, width, height);
+            graphs.put(key, graph = new ClusterGraph(grid));
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the clearance map for the specified collision mask, creating it if necessary.
+     */
+    protected ClearanceMap getClearanceMap (int mask)
+    {
+        ClearanceMap map = _clearanceMaps.get(mask);
+        if (map == null) {
+            _clearanceMaps.put(mask, map = new ClearanceMap(_entryFlags, mask, SUBDIVISION));
+        }
+        return map;
     }
 
     /**
@@ -653,6 +836,185 @@ public class Pathfinder
         _entryFlags.put(x, y, flags);
     }
 
+    /**
+     * Identifies a shared flow field.
+     */
+    protected static class FlowFieldKey
+    {
+        /** The goal (compared by identity). */
+        public final Object goal;
+
+        /** The collision mask, footprint dimensions and radius of the field. */
+        public final int mask, width, height, radius;
+
+        /**
+         * Creates a new key.
+         */
+        public FlowFieldKey (Object goal, int mask, int width, int height, int radius)
+        {
+            this.goal = goal;
+            this.mask = mask;
+            this.width = width;
+            this.height = height;
+            this.radius = radius;
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            int hash = System.identityHashCode(goal);
+            hash = 31*hash + mask;
+            hash = 31*hash + width;
+            hash = 31*hash + height;
+            return 31*hash + radius;
+        }
+
+        @Override
+        public boolean equals (Object other)
+        {
+            if (!(other instanceof FlowFieldKey)) {
+                return false;
+            }
+            FlowFieldKey okey = (FlowFieldKey)other;
+            return goal == okey.goal && mask == okey.mask && width == okey.width &&
+                height == okey.height && radius == okey.radius;
+        }
+    }
+
+    /**
+     * A flow field along with its footprint and the time at which it was last used.
+     */
+    protected static class CachedFlowField
+    {
+        /** The field. */
+        public final FlowField field;
+
+        /** The dimensions of the footprint for which the field is computed. */
+        public final int width, height;
+
+        /** The timestamp at which the field was last used. */
+        public int lastUsed;
+
+        /**
+         * Creates a new cached field.
+         */
+        public CachedFlowField (FlowField field, int width, int height)
+        {
+            this.field = field;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Notifies flag observers of a change to a region.
+     */
+    protected static class FlagOp
+        implements ObserverList.ObserverOp<FlagObserver>
+    {
+        /**
+         * (Re)initializes the op.
+         */
+        public void init (boolean entry, int minx, int miny, int maxx, int maxy)
+        {
+            _entry = entry;
+            _minx = minx;
+            _miny = miny;
+            _maxx = maxx;
+            _maxy = maxy;
+        }
+
+        // documentation inherited from interface ObserverList.ObserverOp
+        public boolean apply (FlagObserver observer)
+        {
+            if (_entry) {
+                observer.entryFlagsChanged(_minx, _miny, _maxx, _maxy);
+            } else {
+                observer.actorFlagsChanged(_minx, _miny, _maxx, _maxy);
+            }
+            return true;
+        }
+
+        /** Whether the entry flags (as opposed to the actor flags) changed. */
+        protected boolean _entry;
+
+        /** The changed region. */
+        protected int _minx, _miny, _maxx, _maxy;
+    }
+
+    /**
+     * Determines whether an actor's footprint fits at a location in the subdivided grid.  Entry
+     * flags are checked through the clearance map for the actor's collision mask, so that the
+     * footprint need only be scanned when the nearest obstruction is close to its edges.
+     */
+    protected class FootprintGrid
+        implements AStar.Grid
+    {
+        /**
+         * (Re)initializes the grid for an actor.
+         *
+         * @param collideActor whether to consider the actor flags as well as the entry flags.
+         * @param width the width of the actor's footprint, in cells.
+         * @param height the height of the actor's footprint, in cells.
+         */
+        public void init (boolean collideActor, int mask, int width, int height)
+        {
+            _collideActor = collideActor;
+            _mask = mask;
+            _clearance = getClearanceMap(mask);
+            _left = width / 2;
+            _right = (width - 1) / 2;
+            _bottom = height / 2;
+            _top = (height - 1) / 2;
+            _minExtent = Math.min(Math.min(_left, _right), Math.min(_bottom, _top));
+            _maxExtent = Math.max(Math.max(_left, _right), Math.max(_bottom, _top));
+        }
+
+        // documentation inherited from interface AStar.Grid
+        public boolean isTraversable (int x, int y)
+        {
+            int clearance = _clearance.getClearance(x, y);
+            if (clearance <= _minExtent) {
+                return false;
+            }
+            if (clearance <= _maxExtent) {
+                for (int yy = y - _bottom, yymax = y + _top; yy <= yymax; yy++) {
+                    for (int xx = x - _left, xxmax = x + _right; xx <= xxmax; xx++) {
+                        if (_clearance.isBlocked(xx, yy)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            if (!_collideActor || _actorFlags.size() == 0) {
+                return true;
+            }
+            for (int yy = y - _bottom, yymax = y + _top; yy <= yymax; yy++) {
+                for (int xx = x - _left, xxmax = x + _right; xx <= xxmax; xx++) {
+                    if ((_mask & _actorFlags.get(xx, yy)) != 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Whether to consider the actor flags. */
+        protected boolean _collideActor;
+
+        /** The collision mask. */
+        protected int _mask;
+
+        /** The clearance map for the mask. */
+        protected ClearanceMap _clearance;
+
+        /** The extents of the footprint about its center cell. */
+        protected int _left, _right, _bottom, _top;
+
+        /** The smallest and largest of the extents. */
+        protected int _minExtent, _maxExtent;
+    }
+
     /** The owning scene manager. */
     protected TudeySceneManager _scenemgr;
 
@@ -665,6 +1027,27 @@ public class Pathfinder
     /** Maps encoded coordinates to lists of separate sets of actor flags. */
     protected IntMap<List<Integer>> _actorFlagLists = IntMaps.newHashIntMap();
 
+    /** Clearance maps for the entry flags, mapped by collision mask. */
+    protected IntMap<ClearanceMap> _clearanceMaps = IntMaps.newHashIntMap();
+
+    /** Cluster graphs for hierarchical searches, mapped by collision mask and footprint. */
+    protected IntMap<IntMap<ClusterGraph>> _clusterGraphs = IntMaps.newHashIntMap();
+
+    /** Shared flow fields. */
+    protected Map<FlowFieldKey, CachedFlowField> _flowFields = Maps.newHashMap();
+
+    /** The timestamp at which we last discarded unused flow fields. */
+    protected int _lastFlowFieldPrune;
+
+    /** The observers of flag changes. */
+    protected ObserverList<FlagObserver> _flagObservers = ObserverList.newFastUnsafe();
+
+    /** Used to notify the flag observers. */
+    protected FlagOp _flagOp = new FlagOp();
+
+    /** The grid used for path searches. */
+    protected FootprintGrid _grid = new FootprintGrid();
+
     /** Used to store tile shapes for intersecting testing. */
     protected Polygon _quad = new Polygon(4);
 
@@ -691,4 +1074,10 @@ public class Pathfinder
 
     /** The subdivision of the actor collision map. */
     protected static final int SUBDIVISION = 2;
+
+    /** The time (in milliseconds) after which unused flow fields are discarded. */
+    protected static final int FLOW_FIELD_LIFETIME = 5000;
+
+    /** The distance (in subdivided cells) beyond which searches use the cluster graphs. */
+    protected static final int HIERARCHICAL_DISTANCE = ClusterGraph.CLUSTER_SIZE * 2;
 }
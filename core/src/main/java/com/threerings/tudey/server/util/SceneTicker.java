@@ -27,6 +27,12 @@ package com.threerings.tudey.server.util;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.Lists;
 
@@ -128,6 +134,117 @@ public abstract class SceneTicker
         protected LoopingThread _thread;
     }
 
+    /**
+     * Ticks the scenes in parallel on a bounded pool of worker threads.  A dedicated thread
+     * schedules the ticks and waits for every scene to finish before starting the next interval,
+     * so each scene is still ticked by exactly one thread at a time.
+     */
+    public static class WorkerPool extends DedicatedThread
+    {
+        /**
+         * Creates a new worker pool ticker with one worker per available processor.
+         */
+        public WorkerPool (RunQueue runQueue, int targetInterval)
+        {
+            this(runQueue, targetInterval, Runtime.getRuntime().availableProcessors());
+        }
+
+        /**
+         * Creates a new worker pool ticker.
+         *
+         * @param workers the maximum number of scenes to tick simultaneously.
+         */
+        public WorkerPool (RunQueue runQueue, int targetInterval, int workers)
+        {
+            super(runQueue, targetInterval);
+            _workers = Math.max(workers, 1);
+        }
+
+        @Override
+        protected void start ()
+        {
+            _executor = Executors.newFixedThreadPool(_workers, new ThreadFactory() {
+                public Thread newThread (Runnable runnable) {
+                    Thread thread = new Thread(
+                        runnable, "sceneTickWorker-" + _workerCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            super.start();
+        }
+
+        @Override
+        protected void stop ()
+        {
+            super.stop();
+            if (_executor != null) {
+                // any tick in progress will finish; the running tasks are not interrupted
+                _executor.shutdown();
+                _executor = null;
+            }
+        }
+
+        @Override
+        protected void tickScenes (TudeySceneManager[] sarray)
+        {
+            int count = 0;
+            while (count < sarray.length && sarray[count] != null) {
+                count++;
+            }
+            ExecutorService executor = _executor;
+            if (executor == null || count <= 1) {
+                super.tickScenes(sarray);
+                return;
+            }
+
+            // hand each scene off to the pool, then wait for all of them to finish
+            final CountDownLatch latch = new CountDownLatch(count);
+            for (int ii = 0; ii < count; ii++) {
+                final TudeySceneManager scenemgr = sarray[ii];
+                Runnable task = new Runnable() {
+                    public void run () {
+                        try {
+                            tickScene(scenemgr);
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                };
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // we were stopped mid-tick; finish the scene on this thread
+                    task.run();
+                }
+            }
+
+            // a scene removing itself may stop us and interrupt this thread, but we must not
+            // start the next interval while any scene is still ticking
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /** The number of worker threads. */
+        protected int _workers;
+
+        /** The pool on which the scenes are ticked. */
+        protected volatile ExecutorService _executor;
+
+        /** Used to number the worker threads. */
+        protected static AtomicInteger _workerCount = new AtomicInteger();
+    }
+
     /**
      * Creates a new scene ticker.
      */
@@ -153,6 +270,24 @@ public abstract class SceneTicker
         return _actualInterval;
     }
 
+    /**
+     * Returns the wall-clock duration of the last tick, in milliseconds.
+     */
+    public long getTickDuration ()
+    {
+        return _tickDuration;
+    }
+
+    /**
+     * Returns the sum of the individual scene tick durations for the last tick, in milliseconds.
+     * When ticking in parallel, the ratio of this to {@link #getTickDuration} measures how well
+     * the tick is scaling across the workers.
+     */
+    public long getSceneTickDuration ()
+    {
+        return _sceneTickDuration;
+    }
+
     /**
      * Adds a scene manager to be ticked.
      */
@@ -225,21 +360,22 @@ public abstract class SceneTicker
         synchronized (_scenemgrs) {
             _sarray = _scenemgrs.toArray(_sarray);
         }
+        tickScenes(_sarray);
+
+        // sum up the per-scene durations
+        long sceneDuration = 0L;
         for (TudeySceneManager scenemgr : _sarray) {
             if (scenemgr == null) {
                 break;
             }
-            try {
-                scenemgr.tick();
-            } catch (Exception e) {
-                log.warning("Exception thrown in scene tick.", "where", scenemgr.where(), e);
-            }
+            sceneDuration += scenemgr.getTickDuration();
         }
 
-
         // find out how long we just spent ticking.  if it's longer than 500ms, the omgr will give
         // us a warning, so let's break it down by scene manager
         long duration = System.currentTimeMillis() - _lastTick;
+        _tickDuration = duration;
+        _sceneTickDuration = sceneDuration;
         if (duration >= 500L) {
             StringBuilder buf = new StringBuilder();
             for (TudeySceneManager scenemgr : _sarray) {
@@ -251,7 +387,8 @@ public abstract class SceneTicker
                 }
                 buf.append(scenemgr.where()).append(": ").append(scenemgr.getTickDuration());
             }
-            log.warning("Long tick detected.", "durations", buf);
+            log.warning("Long tick detected.", "duration", duration, "total", sceneDuration,
+                "durations", buf);
         }
         Arrays.fill(_sarray, null);
 
@@ -259,6 +396,33 @@ public abstract class SceneTicker
         return _targetInterval - duration;
     }
 
+    /**
+     * Ticks the scene managers in the supplied (null-terminated) array.  The default
+     * implementation ticks them one after another on the calling thread.
+     */
+    protected void tickScenes (TudeySceneManager[] sarray)
+    {
+        for (TudeySceneManager scenemgr : sarray) {
+            if (scenemgr == null) {
+                break;
+            }
+            tickScene(scenemgr);
+        }
+    }
+
+    /**
+     * Ticks a single scene manager, logging rather than propagating any exception so that one
+     * scene cannot disrupt the others.
+     */
+    protected void tickScene (TudeySceneManager scenemgr)
+    {
+        try {
+            scenemgr.tick();
+        } catch (Exception e) {
+            log.warning("Exception thrown in scene tick.", "where", scenemgr.where(), e);
+        }
+    }
+
     /** The event thread run queue. */
     protected RunQueue _runQueue;
 
@@ -274,6 +438,12 @@ public abstract class SceneTicker
     /** Holds the scene managers during processing. */
     protected TudeySceneManager[] _sarray = new TudeySceneManager[0];
 
+    /** The wall-clock duration of the last tick. */
+    protected volatile long _tickDuration;
+
+    /** The sum of the scene tick durations for the last tick. */
+    protected volatile long _sceneTickDuration;
+
     /** The time of the last tick. */
     protected long _lastTick;
 
@@ -0,0 +1,368 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+package com.threerings.tudey.server.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import com.google.common.collect.Lists;
+
+import static com.threerings.tudey.Log.log;
+
+/**
+ * A hierarchical timing wheel that fires timers against a scene's timestamp.  Timers are kept in
+ * intrusive linked lists, so scheduling and cancelling take constant time regardless of the number
+ * of timers.  The wheel is advanced explicitly (by the scene manager, as part of its tick), and
+ * timers due on the same advance fire in order of expiration time and then of scheduling, so that
+ * firing order is deterministic.  Advancing a wheel with no timers scheduled costs nothing beyond
+ * a comparison.
+ *
+ * <p>The wheel has four levels of 256 slots each, covering the whole range of (millisecond)
+ * timestamps.  A timer is placed on the level of the highest byte in which its expiration time
+ * differs from the current time and moved down (cascaded) as the current time reaches its slot.
+ * Stretches of time with no timers due are skipped rather than stepped through.
+ */
+public class TimerWheel
+{
+    /**
+     * A timer registered with the wheel.  Like {@link com.samskivert.util.Interval}, a timer may
+     * be rescheduled from within its own {@link #expired} method.
+     */
+    public static abstract class Timer
+    {
+        /**
+         * Creates a new timer that will be scheduled on the specified wheel.
+         */
+        public Timer (TimerWheel wheel)
+        {
+            _wheel = wheel;
+        }
+
+        /**
+         * Called when the timer expires.
+         */
+        public abstract void expired ();
+
+        /**
+         * Schedules (or reschedules) the timer to expire after the specified delay (in
+         * milliseconds of scene time).
+         */
+        public void schedule (long delay)
+        {
+            _wheel.schedule(this, delay);
+        }
+
+        /**
+         * Cancels the timer if it is scheduled.
+         */
+        public void cancel ()
+        {
+            _wheel.cancel(this);
+        }
+
+        /**
+         * Checks whether the timer is currently scheduled.
+         */
+        public boolean isScheduled ()
+        {
+            return _level >= 0;
+        }
+
+        /**
+         * Returns the timestamp at which the timer is (or was last) scheduled to expire.
+         */
+        public int getExpiration ()
+        {
+            return _when;
+        }
+
+        /** The wheel with which the timer is registered. */
+        protected TimerWheel _wheel;
+
+        /** The expiration timestamp. */
+        protected int _when;
+
+        /** The scheduling sequence number, used to order timers with the same expiration. */
+        protected int _seq;
+
+        /** The level and slot in which the timer is stored, or a negative level if not stored. */
+        protected int _level = UNSCHEDULED, _slot;
+
+        /** The previous and next timers in the slot. */
+        protected Timer _prev, _next;
+    }
+
+    /**
+     * Returns the timestamp to which the wheel was last advanced (or, while timers are firing,
+     * the timestamp at which they are firing).
+     */
+    public int getTimestamp ()
+    {
+        return _now;
+    }
+
+    /**
+     * Returns the number of timers currently scheduled.
+     */
+    public int getCount ()
+    {
+        return _count;
+    }
+
+    /**
+     * Schedules the specified timer to expire after the given delay (in milliseconds) relative to
+     * the current timestamp.  If the timer is already scheduled, it will be rescheduled.
+     */
+    public void schedule (Timer timer, long delay)
+    {
+        if (timer._level >= 0) {
+            unlink(timer);
+        }
+        long when = Math.max(_now + Math.max(delay, 0L), (long)_time);
+        timer._when = (int)Math.min(when, Integer.MAX_VALUE);
+        timer._seq = _seq++;
+        link(timer);
+    }
+
+    /**
+     * Cancels the specified timer if it is scheduled.
+     */
+    public void cancel (Timer timer)
+    {
+        if (timer._level >= 0) {
+            unlink(timer);
+        } else {
+            timer._level = UNSCHEDULED; // prevents a pending firing
+        }
+    }
+
+    /**
+     * Advances the wheel to the specified timestamp, firing any timers that expire on or before
+     * it.
+     */
+    public void advance (int timestamp)
+    {
+        while (_count > 0 && _time - timestamp <= 0) {
+            // cascade the timers in the slots that the current time has reached
+            int time = _time;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                int shift = level * SLOT_BITS;
+                if ((time & ((1 << shift) - 1)) == 0 && _levelCounts[level] > 0) {
+                    cascade(level, (time >>> shift) & SLOT_MASK);
+                }
+            }
+            _time = time + 1;
+            if (_levelCounts[0] > 0) {
+                fire(time);
+            }
+
+            // if nothing remains on the bottom level, skip to the next time at which a timer
+            // will cascade
+            if (_levelCounts[0] == 0) {
+                for (int level = 1; level < LEVELS; level++) {
+                    if (_levelCounts[level] > 0) {
+                        int shift = level * SLOT_BITS;
+                        int boundary = ((time >>> shift) + 1) << shift;
+                        _time = (boundary - timestamp > 0) ? timestamp + 1 : boundary;
+                        break;
+                    }
+                }
+            }
+        }
+        if (_time - timestamp <= 0) {
+            _time = timestamp + 1;
+        }
+        _now = timestamp;
+    }
+
+    /**
+     * Cancels all scheduled timers.
+     */
+    public void clear ()
+    {
+        if (_slots == null) {
+            return;
+        }
+        for (int ii = 0; ii < _slots.length; ii++) {
+            for (Timer timer = _slots[ii], next; timer != null; timer = next) {
+                next = timer._next;
+                timer._level = UNSCHEDULED;
+                timer._prev = timer._next = null;
+            }
+            _slots[ii] = null;
+        }
+        for (int ii = 0; ii < LEVELS; ii++) {
+            _levelCounts[ii] = 0;
+        }
+        _count = 0;
+    }
+
+    /**
+     * Fires the timers in the bottom-level slot for the specified time.
+     */
+    protected void fire (int time)
+    {
+        int idx = time & SLOT_MASK;
+        for (Timer timer = _slots[idx], next; timer != null; timer = next) {
+            next = timer._next;
+            timer._level = DUE;
+            timer._prev = timer._next = null;
+            _due.add(timer);
+        }
+        _slots[idx] = null;
+        int size = _due.size();
+        _levelCounts[0] -= size;
+        _count -= size;
+        if (size > 1) {
+            Collections.sort(_due, SEQUENCE_ORDER);
+        }
+        _now = time;
+        try {
+            for (int ii = 0; ii < size; ii++) {
+                Timer timer = _due.get(ii);
+                if (timer._level != DUE) {
+                    continue; // cancelled or rescheduled by an earlier timer
+                }
+                timer._level = UNSCHEDULED;
+                try {
+                    timer.expired();
+                } catch (Throwable t) {
+                    log.warning("Timer choked during expiration.", "timer", timer, t);
+                }
+            }
+        } finally {
+            _due.clear();
+        }
+    }
+
+    /**
+     * Moves the timers in the specified slot down to the levels appropriate to the current time.
+     */
+    protected void cascade (int level, int slot)
+    {
+        int idx = level * SLOTS + slot;
+        Timer timer = _slots[idx];
+        _slots[idx] = null;
+        while (timer != null) {
+            Timer next = timer._next;
+            timer._prev = timer._next = null;
+            _levelCounts[level]--;
+            _count--;
+            link(timer);
+            timer = next;
+        }
+    }
+
+    /**
+     * Adds a timer to the slot appropriate to its expiration time.
+     */
+    protected void link (Timer timer)
+    {
+        if (_slots == null) {
+            _slots = new Timer[LEVELS * SLOTS];
+        }
+        int diff = timer._when ^ _time;
+        int level = (diff == 0) ? 0 : (31 - Integer.numberOfLeadingZeros(diff)) / SLOT_BITS;
+        int slot = (timer._when >>> (level * SLOT_BITS)) & SLOT_MASK;
+        int idx = level * SLOTS + slot;
+        Timer head = _slots[idx];
+        if (head != null) {
+            head._prev = timer;
+        }
+        timer._next = head;
+        timer._prev = null;
+        _slots[idx] = timer;
+        timer._level = level;
+        timer._slot = slot;
+        _levelCounts[level]++;
+        _count++;
+    }
+
+    /**
+     * Removes a timer from its slot.
+     */
+    protected void unlink (Timer timer)
+    {
+        if (timer._prev == null) {
+            _slots[timer._level * SLOTS + timer._slot] = timer._next;
+        } else {
+            timer._prev._next = timer._next;
+        }
+        if (timer._next != null) {
+            timer._next._prev = timer._prev;
+        }
+        timer._prev = timer._next = null;
+        _levelCounts[timer._level]--;
+        _count--;
+        timer._level = UNSCHEDULED;
+    }
+
+    /** The heads of the slot lists, by level and slot (created on first use). */
+    protected Timer[] _slots;
+
+    /** The number of timers on each level. */
+    protected int[] _levelCounts = new int[LEVELS];
+
+    /** The total number of timers scheduled. */
+    protected int _count;
+
+    /** The timestamp to which the wheel was last advanced. */
+    protected int _now;
+
+    /** The earliest time not yet processed. */
+    protected int _time;
+
+    /** The next scheduling sequence number. */
+    protected int _seq;
+
+    /** Holds the timers due at a single time while they are fired. */
+    protected ArrayList<Timer> _due = Lists.newArrayList();
+
+    /** The number of bits of the timestamp covered by each level. */
+    protected static final int SLOT_BITS = 8;
+
+    /** The number of slots on each level. */
+    protected static final int SLOTS = 1 << SLOT_BITS;
+
+    /** Masks out the slot index. */
+    protected static final int SLOT_MASK = SLOTS - 1;
+
+    /** The number of levels. */
+    protected static final int LEVELS = 32 / SLOT_BITS;
+
+    /** Level values for timers not stored in a slot. */
+    protected static final int UNSCHEDULED = -1, DUE = -2;
+
+    /** Orders timers by scheduling sequence. */
+    protected static final Comparator<Timer> SEQUENCE_ORDER = new Comparator<Timer>() {
+        public int compare (Timer t1, Timer t2) {
+            int diff = t1._seq - t2._seq;
+            return (diff < 0) ? -1 : (diff > 0 ? 1 : 0);
+        }
+    };
+}
@@ -0,0 +1,268 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.shape;
+
+import com.threerings.math.Vector2f;
+
+import com.threerings.tudey.space.SpaceElement;
+
+/**
+ * Stores a list of space elements along with the centers and radii of those whose shapes are
+ * circles in structure-of-arrays form, so that a query shape can be tested against all of the
+ * circles at once by simple loops over the arrays (which avoids the double dispatch of
+ * {@link Shape#intersects(SpaceElement)} and gives the JIT straight-line code to vectorize).
+ * Circle, capsule, and segment query shapes use the arrays; other query shapes, and all
+ * elements that aren't circles (including capsules), are tested individually in the usual way.
+ *
+ * <p> A circle element's entry must be refreshed (through {@link #update}) whenever its bounds
+ * change.  Since the bounds of a circle determine its center and radius, the notifications
+ * that spaces receive for bounds changes suffice to keep the entries current.
+ */
+public class ShapeBatch
+{
+    /**
+     * Returns the number of elements in the batch.
+     */
+    public int size ()
+    {
+        return _size;
+    }
+
+    /**
+     * Returns the element at the specified index.
+     */
+    public SpaceElement get (int idx)
+    {
+        return _elements[idx];
+    }
+
+    /**
+     * Returns the index of the specified element, or -1 if it isn't in the batch.
+     */
+    public int indexOf (SpaceElement element)
+    {
+        for (int ii = 0; ii < _size; ii++) {
+            if (_elements[ii] == element) {
+                return ii;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an element to the end of the batch.
+     */
+    public void add (SpaceElement element)
+    {
+        if (_size == _elements.length) {
+            resize(_size * 2);
+        }
+        _elements[_size] = element;
+        update(_size++);
+    }
+
+    /**
+     * Removes the element at the specified index, shifting the following elements down.
+     */
+    public void remove (int idx)
+    {
+        int count = _size - idx - 1;
+        System.arraycopy(_elements, idx + 1, _elements, idx, count);
+        System.arraycopy(_x, idx + 1, _x, idx, count);
+        System.arraycopy(_y, idx + 1, _y, idx, count);
+        System.arraycopy(_radii, idx + 1, _radii, idx, count);
+        _elements[--_size] = null;
+    }
+
+    /**
+     * Refreshes the entry for the element at the specified index after its bounds have changed.
+     */
+    public void update (int idx)
+    {
+        SpaceElement element = _elements[idx];
+        Shape shape = (element instanceof ShapeElement) ?
+            ((ShapeElement)element).getWorldShape() : null;
+        if (shape instanceof Circle) {
+            Circle circle = (Circle)shape;
+            Vector2f center = circle.getCenter();
+            _x[idx] = center.x;
+            _y[idx] = center.y;
+            _radii[idx] = circle.radius;
+        } else {
+            _x[idx] = _y[idx] = 0f;
+            _radii[idx] = Float.NaN;
+        }
+    }
+
+    /**
+     * Tests the specified shape against the circles in the batch.  Subsequent calls to
+     * {@link #hit} will return the results for this shape.
+     */
+    public void intersect (Shape shape)
+    {
+        _shape = shape;
+        if (_margins.length < _elements.length) {
+            _margins = new float[_elements.length];
+        }
+        if (shape instanceof Circle) {
+            Circle circle = (Circle)shape;
+            Vector2f center = circle.getCenter();
+            intersectCircle(center.x, center.y, circle.radius, _x, _y, _radii, _margins, _size);
+            _kernel = true;
+
+        } else if (shape instanceof Capsule) {
+            Capsule capsule = (Capsule)shape;
+            intersectCapsule(capsule.getStart(), capsule.getEnd(), capsule.radius);
+            _kernel = true;
+
+        } else if (shape instanceof Segment) {
+            // a segment intersects a circle exactly when a capsule of zero radius does
+            Segment segment = (Segment)shape;
+            intersectCapsule(segment.getStart(), segment.getEnd(), 0f);
+            _kernel = true;
+
+        } else {
+            _kernel = false;
+        }
+    }
+
+    /**
+     * Determines whether the element at the specified index intersects the shape passed to the
+     * last call to {@link #intersect}.
+     */
+    public boolean hit (int idx)
+    {
+        return (_kernel && !Float.isNaN(_radii[idx])) ?
+            (_margins[idx] <= 0f) : _shape.intersects(_elements[idx]);
+    }
+
+    /**
+     * Finishes a round of tests, releasing the reference to the query shape.
+     */
+    public void finish ()
+    {
+        _shape = null;
+    }
+
+    /**
+     * Tests the capsule with the specified segment and radius against the circles in the batch.
+     */
+    protected void intersectCapsule (Vector2f start, Vector2f end, float radius)
+    {
+        float dx = end.x - start.x, dy = end.y - start.y, len2 = dx*dx + dy*dy;
+        if (len2 < Float.MIN_NORMAL) {
+            intersectCircle(start.x, start.y, radius, _x, _y, _radii, _margins, _size);
+        } else {
+            intersectCapsule(start.x, start.y, dx, dy, 1f / len2, radius,
+                _x, _y, _radii, _margins, _size);
+        }
+    }
+
+    /**
+     * Tests a circle against arrays of circles, storing in each margin the squared distance
+     * between the centers minus the squared sum of the radii (so that the circles intersect
+     * where the margin is non-positive).
+     */
+    protected static void intersectCircle (
+        float cx, float cy, float cr, float[] x, float[] y, float[] radii, float[] margins,
+        int count)
+    {
+        for (int ii = 0; ii < count; ii++) {
+            float dx = x[ii] - cx, dy = y[ii] - cy, r = radii[ii] + cr;
+            margins[ii] = dx*dx + dy*dy - r*r;
+        }
+    }
+
+    /**
+     * Tests a capsule (with a non-degenerate segment from (sx, sy) to (sx + dx, sy + dy)) against
+     * arrays of circles, storing margins as in {@link #intersectCircle}.
+     *
+     * @param rlen2 the reciprocal of the squared length of the capsule's segment.
+     */
+    protected static void intersectCapsule (
+        float sx, float sy, float dx, float dy, float rlen2, float cr, float[] x, float[] y,
+        float[] radii, float[] margins, int count)
+    {
+        // first find the parameter of the closest point on the segment to each center, then the
+        // distances to those points (two simple loops being easier for the JIT to vectorize)
+        for (int ii = 0; ii < count; ii++) {
+            float t = ((x[ii] - sx)*dx + (y[ii] - sy)*dy) * rlen2;
+            margins[ii] = Math.min(Math.max(t, 0f), 1f);
+        }
+        for (int ii = 0; ii < count; ii++) {
+            float t = margins[ii], r = radii[ii] + cr;
+            float px = x[ii] - sx - t*dx, py = y[ii] - sy - t*dy;
+            margins[ii] = px*px + py*py - r*r;
+        }
+    }
+
+    /**
+     * Resizes the arrays to the specified capacity.
+     */
+    protected void resize (int capacity)
+    {
+        SpaceElement[] elements = new SpaceElement[capacity];
+        System.arraycopy(_elements, 0, elements, 0, _size);
+        _elements = elements;
+        _x = resize(_x, capacity);
+        _y = resize(_y, capacity);
+        _radii = resize(_radii, capacity);
+    }
+
+    /**
+     * Returns a copy of the array with the specified capacity.
+     */
+    protected float[] resize (float[] array, int capacity)
+    {
+        float[] narray = new float[capacity];
+        System.arraycopy(array, 0, narray, 0, _size);
+        return narray;
+    }
+
+    /** The elements in the batch. */
+    protected SpaceElement[] _elements = new SpaceElement[INITIAL_CAPACITY];
+
+    /** The centers of the circle elements. */
+    protected float[] _x = new float[INITIAL_CAPACITY], _y = new float[INITIAL_CAPACITY];
+
+    /** The radii of the circle elements (NaN for other elements). */
+    protected float[] _radii = new float[INITIAL_CAPACITY];
+
+    /** The results of the last kernel test (non-positive for intersections). */
+    protected float[] _margins = new float[INITIAL_CAPACITY];
+
+    /** The number of elements in the batch. */
+    protected int _size;
+
+    /** The shape passed to the last call to {@link #intersect}. */
+    protected Shape _shape;
+
+    /** Whether the margins hold the results for the last shape. */
+    protected boolean _kernel;
+
+    /** The initial capacity of the arrays. */
+    protected static final int INITIAL_CAPACITY = 4;
+}
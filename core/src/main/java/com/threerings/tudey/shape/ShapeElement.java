@@ -89,9 +89,12 @@ public class ShapeElement extends SimpleSpaceElement
     @Override
     public void updateBounds ()
     {
+        // notify the space if the bounds change or the world shape is replaced (which happens
+        // when the local shape changes type)
+        Shape oshape = _worldShape;
         _worldShape = _localShape.transform(_transform, _worldShape);
         Rect sbounds = _worldShape.getBounds();
-        if (!_bounds.equals(sbounds)) {
+        if (!_bounds.equals(sbounds) || _worldShape != oshape) {
             boundsWillChange();
             _bounds.set(sbounds);
             boundsDidChange();
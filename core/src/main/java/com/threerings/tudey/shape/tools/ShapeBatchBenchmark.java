@@ -0,0 +1,204 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.shape.tools;
+
+import java.util.Random;
+
+import com.threerings.math.Vector2f;
+
+import com.threerings.tudey.shape.Capsule;
+import com.threerings.tudey.shape.Circle;
+import com.threerings.tudey.shape.Segment;
+import com.threerings.tudey.shape.Shape;
+import com.threerings.tudey.shape.ShapeBatch;
+import com.threerings.tudey.shape.ShapeElement;
+
+/**
+ * Compares the time taken to test circle, capsule, and segment query shapes against batches of
+ * circle elements of various sizes one element at a time (through
+ * {@link Shape#intersects(com.threerings.tudey.space.SpaceElement)}) and all at once (through
+ * {@link ShapeBatch}), checking that both give the same results.  The elements are scattered
+ * about a region the size of a space cell, as the actors in a crowded cell would be.
+ */
+public class ShapeBatchBenchmark
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+    {
+        int[] sizes = (args.length > 0) ? new int[args.length] : DEFAULT_SIZES;
+        for (int ii = 0; ii < args.length; ii++) {
+            sizes[ii] = Integer.parseInt(args[ii]);
+        }
+        Random random = new Random(1L);
+        for (int size : sizes) {
+            ShapeBatch batch = createBatch(size, random);
+            System.out.println(size + " elements:");
+            for (int type = 0; type < QUERY_TYPES.length; type++) {
+                Shape[] queries = createQueries(type, random);
+                checkResults(batch, queries);
+                double individual = time(batch, queries, false);
+                double batched = time(batch, queries, true);
+                System.out.printf("  %-8s %8.3f ms/frame individual %8.3f ms/frame batched " +
+                    "(%.1fx)%n", QUERY_TYPES[type], individual, batched, individual / batched);
+            }
+        }
+    }
+
+    /**
+     * Creates a batch of circle elements with random positions and radii.
+     */
+    protected static ShapeBatch createBatch (int size, Random random)
+    {
+        ShapeBatch batch = new ShapeBatch();
+        for (int ii = 0; ii < size; ii++) {
+            float radius = MIN_ELEMENT_RADIUS +
+                random.nextFloat() * (MAX_ELEMENT_RADIUS - MIN_ELEMENT_RADIUS);
+            ShapeElement element = new ShapeElement(new Circle(new Vector2f(), radius));
+            element.getTransform().set(createPoint(random), 0f, 1f);
+            element.updateBounds();
+            batch.add(element);
+        }
+        return batch;
+    }
+
+    /**
+     * Creates a set of random query shapes of the specified type.
+     */
+    protected static Shape[] createQueries (int type, Random random)
+    {
+        Shape[] queries = new Shape[QUERIES];
+        for (int ii = 0; ii < QUERIES; ii++) {
+            float radius = MIN_QUERY_RADIUS +
+                random.nextFloat() * (MAX_QUERY_RADIUS - MIN_QUERY_RADIUS);
+            Vector2f start = createPoint(random);
+            switch (type) {
+                case CIRCLE:
+                    queries[ii] = new Circle(start, radius);
+                    break;
+                case CAPSULE:
+                    queries[ii] = new Capsule(start, createPoint(random), radius);
+                    break;
+                case SEGMENT:
+                    queries[ii] = new Segment(start, createPoint(random));
+                    break;
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Creates a random point within the region.
+     */
+    protected static Vector2f createPoint (Random random)
+    {
+        return new Vector2f(random.nextFloat() * REGION_SIZE, random.nextFloat() * REGION_SIZE);
+    }
+
+    /**
+     * Makes sure that the batch gives the same results as the individual tests.
+     */
+    protected static void checkResults (ShapeBatch batch, Shape[] queries)
+    {
+        for (Shape query : queries) {
+            batch.intersect(query);
+            for (int ii = 0, nn = batch.size(); ii < nn; ii++) {
+                if (batch.hit(ii) != query.intersects(batch.get(ii))) {
+                    throw new IllegalStateException("Mismatched result [query=" + query +
+                        ", element=" + ii + "].");
+                }
+            }
+            batch.finish();
+        }
+    }
+
+    /**
+     * Returns the average time in milliseconds taken to test all of the queries against the
+     * batch.
+     *
+     * @param batched if true, use the batch's tests; otherwise, test each element individually.
+     */
+    protected static double time (ShapeBatch batch, Shape[] queries, boolean batched)
+    {
+        long elapsed = 0L;
+        int hits = 0;
+        for (int ii = 0; ii < WARMUP_FRAMES + FRAMES; ii++) {
+            long start = System.nanoTime();
+            for (Shape query : queries) {
+                if (batched) {
+                    batch.intersect(query);
+                    for (int jj = 0, nn = batch.size(); jj < nn; jj++) {
+                        if (batch.hit(jj)) {
+                            hits++;
+                        }
+                    }
+                    batch.finish();
+                } else {
+                    for (int jj = 0, nn = batch.size(); jj < nn; jj++) {
+                        if (query.intersects(batch.get(jj))) {
+                            hits++;
+                        }
+                    }
+                }
+            }
+            if (ii >= WARMUP_FRAMES) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        if (hits == 0) {
+            System.out.println("  (no hits)");
+        }
+        return elapsed / 1e6 / FRAMES;
+    }
+
+    /** The default batch sizes to test. */
+    protected static final int[] DEFAULT_SIZES = { 8, 32, 128, 512 };
+
+    /** Query shape types. */
+    protected static final int CIRCLE = 0, CAPSULE = 1, SEGMENT = 2;
+
+    /** The names of the query shape types. */
+    protected static final String[] QUERY_TYPES = { "circle", "capsule", "segment" };
+
+    /** The size of the (square) region containing the elements and queries. */
+    protected static final float REGION_SIZE = 8f;
+
+    /** The range of element radii. */
+    protected static final float MIN_ELEMENT_RADIUS = 0.25f, MAX_ELEMENT_RADIUS = 1.5f;
+
+    /** The range of query radii. */
+    protected static final float MIN_QUERY_RADIUS = 0.25f, MAX_QUERY_RADIUS = 4f;
+
+    /** The number of queries per frame. */
+    protected static final int QUERIES = 1000;
+
+    /** The number of frames to run before timing. */
+    protected static final int WARMUP_FRAMES = 100;
+
+    /** The number of frames to time. */
+    protected static final int FRAMES = 100;
+}
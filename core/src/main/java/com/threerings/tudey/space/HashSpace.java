@@ -42,6 +42,7 @@ import com.threerings.math.Rect;
 import com.threerings.math.Vector2f;
 
 import com.threerings.tudey.shape.Shape;
+import com.threerings.tudey.shape.ShapeBatch;
 import com.threerings.tudey.util.Coord;
 
 /**
@@ -425,6 +426,7 @@ public class HashSpace extends Space
         public void add (T object, int level)
         {
             _objects.add(object);
+            _batch.add((SpaceElement)object);
         }
 
         /**
@@ -432,7 +434,11 @@ public class HashSpace extends Space
          */
         public void remove (T object, int level)
         {
-            _objects.remove(object);
+            int idx = _objects.indexOf(object);
+            if (idx != -1) {
+                _objects.remove(idx);
+                _batch.remove(idx);
+            }
         }
 
         /**
@@ -517,13 +523,14 @@ public class HashSpace extends Space
         protected void getIntersecting (
                 Shape shape, Predicate<? super T> filter, Collection<T> results)
         {
+            _batch.intersect(shape);
             for (int ii = 0, nn = _objects.size(); ii < nn; ii++) {
                 T object = _objects.get(ii);
-                if (object.updateLastVisit(_visit) && filter.apply(object) &&
-                        shape.intersects((SpaceElement)object)) {
+                if (object.updateLastVisit(_visit) && filter.apply(object) && _batch.hit(ii)) {
                     results.add(object);
                 }
             }
+            _batch.finish();
         }
 
         /**
@@ -546,6 +553,9 @@ public class HashSpace extends Space
 
         /** The objects in the node. */
         public ArrayList<T> _objects = new ArrayList<T>(4);
+
+        /** The objects in batch form, for shape intersection tests. */
+        public ShapeBatch _batch = new ShapeBatch();
     }
 
     /**
@@ -0,0 +1,538 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.space;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.google.common.base.Predicate;
+
+import com.threerings.math.FloatMath;
+import com.threerings.math.Ray2D;
+import com.threerings.math.Rect;
+import com.threerings.math.Vector2f;
+
+import com.threerings.tudey.shape.Shape;
+import com.threerings.tudey.shape.ShapeBatch;
+
+/**
+ * A space that stores its elements in a loose uniform grid, intended for large numbers of small,
+ * frequently moving elements (such as actors).  Each element lives in exactly one cell: the one
+ * containing the center of its bounds.  Because no element is longer than the cell size, its
+ * bounds never reach more than half a cell beyond its own cell, so queries simply expand their
+ * bounds by that margin.  When an element's bounds change, it only changes cells if its center
+ * crosses a cell boundary.  Cells are kept in an open-addressed table keyed on their packed
+ * coordinates, and empty cells are retained (and reused) until the table is next resized.
+ */
+public class LooseGridSpace extends Space
+{
+    /**
+     * Creates a new loose grid space.
+     *
+     * @param granularity the size of the cells.  Elements whose bounds are longer than this are
+     * stored in a separate list of "oversized" elements.
+     */
+    public LooseGridSpace (float granularity)
+    {
+        _granularity = granularity;
+        _rgran = 1f / granularity;
+        _margin = granularity * 0.5f;
+    }
+
+    @Override
+    public SpaceElement getIntersection (
+        Ray2D ray, Vector2f location, Predicate<? super SpaceElement> filter)
+    {
+        // check for an intersection with the oversized elements
+        SpaceElement closest = getIntersection(_oversizedElements, ray, location, filter);
+        if (_count == 0) {
+            return closest;
+        }
+
+        // find the range of the ray within the (expanded) bounds of the cells
+        Vector2f origin = ray.getOrigin(), dir = ray.getDirection();
+        float gmin = _margin, gmax = _granularity + _margin;
+        float tmin = 0f, tmax = Float.MAX_VALUE;
+        if (dir.x == 0f) {
+            if (origin.x < _minx * _granularity - gmin || origin.x > _maxx * _granularity + gmax) {
+                return closest;
+            }
+        } else {
+            float t1 = (_minx * _granularity - gmin - origin.x) / dir.x;
+            float t2 = (_maxx * _granularity + gmax - origin.x) / dir.x;
+            tmin = Math.max(tmin, Math.min(t1, t2));
+            tmax = Math.min(tmax, Math.max(t1, t2));
+        }
+        if (dir.y == 0f) {
+            if (origin.y < _miny * _granularity - gmin || origin.y > _maxy * _granularity + gmax) {
+                return closest;
+            }
+        } else {
+            float t1 = (_miny * _granularity - gmin - origin.y) / dir.y;
+            float t2 = (_maxy * _granularity + gmax - origin.y) / dir.y;
+            tmin = Math.max(tmin, Math.min(t1, t2));
+            tmax = Math.min(tmax, Math.max(t1, t2));
+        }
+        if (tmin > tmax) {
+            return closest;
+        }
+
+        // the distance to the closest hit so far, in units of the ray parameter
+        float rlength = 1f / dir.length();
+        float tbest = (closest == null) ? Float.MAX_VALUE :
+            origin.distance(location) * rlength;
+
+        // find the starting cell and set up the traversal
+        float px = origin.x + dir.x * tmin, py = origin.y + dir.y * tmin;
+        int cx = FloatMath.ifloor(px * _rgran), cy = FloatMath.ifloor(py * _rgran);
+        int xdir = (int)Math.signum(dir.x), ydir = (int)Math.signum(dir.y);
+        float xt = (xdir == 0) ? Float.MAX_VALUE :
+            ((cx + (xdir > 0 ? 1 : 0)) * _granularity - origin.x) / dir.x;
+        float yt = (ydir == 0) ? Float.MAX_VALUE :
+            ((cy + (ydir > 0 ? 1 : 0)) * _granularity - origin.y) / dir.y;
+        float xdt = (xdir == 0) ? 0f : _granularity / Math.abs(dir.x);
+        float ydt = (ydir == 0) ? 0f : _granularity / Math.abs(dir.y);
+
+        // step through each cell that the ray intersects, checking the cells around it (whose
+        // elements may extend into it).  we can stop once we enter a cell beyond the closest hit
+        _visit++;
+        float t = tmin;
+        while (t <= tbest && t <= tmax) {
+            for (int yy = cy - 1; yy <= cy + 1; yy++) {
+                for (int xx = cx - 1; xx <= cx + 1; xx++) {
+                    Cell cell = getCell(xx, yy);
+                    if (cell == null || cell.visit == _visit) {
+                        continue;
+                    }
+                    cell.visit = _visit;
+                    ShapeBatch elements = cell.elements;
+                    for (int ii = 0, nn = elements.size(); ii < nn; ii++) {
+                        SpaceElement element = elements.get(ii);
+                        if (filter.apply(element) && element.getIntersection(ray, _result)) {
+                            float rt = origin.distance(_result) * rlength;
+                            if (rt < tbest) {
+                                tbest = rt;
+                                closest = element;
+                                location.set(_result);
+                            }
+                        }
+                    }
+                }
+            }
+            if (xdir == 0 && ydir == 0) {
+                break;
+            }
+            if (xt < yt) {
+                t = xt;
+                xt += xdt;
+                cx += xdir;
+            } else {
+                t = yt;
+                yt += ydt;
+                cy += ydir;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    public void getIntersecting (
+            Shape shape, Predicate<? super SpaceElement> filter, Collection<SpaceElement> results)
+    {
+        // get the oversized elements
+        getIntersecting(_oversizedElements, shape, filter, results);
+
+        // visit the cells whose elements may intersect the shape's bounds
+        Rect bounds = shape.getBounds();
+        if (_count == 0 || bounds.isEmpty()) {
+            return;
+        }
+        Vector2f min = bounds.getMinimumExtent(), max = bounds.getMaximumExtent();
+        int minx = Math.max(FloatMath.ifloor((min.x - _margin) * _rgran), _minx);
+        int maxx = Math.min(FloatMath.ifloor((max.x + _margin) * _rgran), _maxx);
+        int miny = Math.max(FloatMath.ifloor((min.y - _margin) * _rgran), _miny);
+        int maxy = Math.min(FloatMath.ifloor((max.y + _margin) * _rgran), _maxy);
+        for (int yy = miny; yy <= maxy; yy++) {
+            for (int xx = minx; xx <= maxx; xx++) {
+                Cell cell = getCell(xx, yy);
+                if (cell == null) {
+                    continue;
+                }
+                ShapeBatch elements = cell.elements;
+                elements.intersect(shape);
+                for (int ii = 0, nn = elements.size(); ii < nn; ii++) {
+                    SpaceElement element = elements.get(ii);
+                    if (element.getBounds().intersects(bounds) && filter.apply(element) &&
+                            elements.hit(ii)) {
+                        results.add(element);
+                    }
+                }
+                elements.finish();
+            }
+        }
+    }
+
+    @Override
+    public void getElements (Rect bounds, Collection<SpaceElement> results)
+    {
+        // get the oversized elements
+        getIntersecting(_oversizedElements, bounds, results);
+
+        // visit the cells whose elements may intersect the bounds
+        if (_count == 0 || bounds.isEmpty()) {
+            return;
+        }
+        Vector2f min = bounds.getMinimumExtent(), max = bounds.getMaximumExtent();
+        int minx = Math.max(FloatMath.ifloor((min.x - _margin) * _rgran), _minx);
+        int maxx = Math.min(FloatMath.ifloor((max.x + _margin) * _rgran), _maxx);
+        int miny = Math.max(FloatMath.ifloor((min.y - _margin) * _rgran), _miny);
+        int maxy = Math.min(FloatMath.ifloor((max.y + _margin) * _rgran), _maxy);
+        for (int yy = miny; yy <= maxy; yy++) {
+            for (int xx = minx; xx <= maxx; xx++) {
+                Cell cell = getCell(xx, yy);
+                if (cell == null) {
+                    continue;
+                }
+                ShapeBatch elements = cell.elements;
+                for (int ii = 0, nn = elements.size(); ii < nn; ii++) {
+                    SpaceElement element = elements.get(ii);
+                    if (element.getBounds().intersects(bounds)) {
+                        results.add(element);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void boundsWillChange (SpaceElement element)
+    {
+        super.boundsWillChange(element);
+        if (_changing != null) {
+            // another element is already mid-change; fall back to removing and re-adding
+            removeFromSpatial(element);
+            _detached.add(element);
+            return;
+        }
+        _changing = element;
+        Rect bounds = element.getBounds();
+        if (_changingOversized = areOversized(bounds)) {
+            return;
+        }
+        Vector2f min = bounds.getMinimumExtent(), max = bounds.getMaximumExtent();
+        _changingX = FloatMath.ifloor((min.x + max.x) * 0.5f * _rgran);
+        _changingY = FloatMath.ifloor((min.y + max.y) * 0.5f * _rgran);
+    }
+
+    @Override
+    public void boundsDidChange (SpaceElement element)
+    {
+        if (element != _changing) {
+            if (_detached.remove(element)) {
+                addToSpatial(element);
+            }
+            super.boundsDidChange(element);
+            return;
+        }
+        _changing = null;
+        Rect bounds = element.getBounds();
+        boolean oversized = areOversized(bounds);
+        if (oversized && _changingOversized) {
+            // remains in the oversized list
+
+        } else if (oversized) {
+            removeFromCell(_changingX, _changingY, element);
+            _oversizedElements.add(element);
+
+        } else {
+            Vector2f min = bounds.getMinimumExtent(), max = bounds.getMaximumExtent();
+            int cx = FloatMath.ifloor((min.x + max.x) * 0.5f * _rgran);
+            int cy = FloatMath.ifloor((min.y + max.y) * 0.5f * _rgran);
+            if (_changingOversized) {
+                _oversizedElements.remove(element);
+                addToCell(cx, cy, element);
+
+            } else if (cx != _changingX || cy != _changingY) {
+                removeFromCell(_changingX, _changingY, element);
+                addToCell(cx, cy, element);
+
+            } else {
+                updateInCell(cx, cy, element);
+            }
+        }
+        super.boundsDidChange(element);
+    }
+
+    @Override
+    protected void addToSpatial (SpaceElement element)
+    {
+        Rect bounds = element.getBounds();
+        if (areOversized(bounds)) {
+            _oversizedElements.add(element);
+            return;
+        }
+        Vector2f min = bounds.getMinimumExtent(), max = bounds.getMaximumExtent();
+        addToCell(
+            FloatMath.ifloor((min.x + max.x) * 0.5f * _rgran),
+            FloatMath.ifloor((min.y + max.y) * 0.5f * _rgran), element);
+    }
+
+    @Override
+    protected void removeFromSpatial (SpaceElement element)
+    {
+        Rect bounds = element.getBounds();
+        if (areOversized(bounds)) {
+            _oversizedElements.remove(element);
+            return;
+        }
+        Vector2f min = bounds.getMinimumExtent(), max = bounds.getMaximumExtent();
+        removeFromCell(
+            FloatMath.ifloor((min.x + max.x) * 0.5f * _rgran),
+            FloatMath.ifloor((min.y + max.y) * 0.5f * _rgran), element);
+    }
+
+    /**
+     * Determines whether the specified bounds qualify as "oversized" with respect to the
+     * cell size.
+     */
+    protected boolean areOversized (Rect bounds)
+    {
+        return bounds.getLongestEdge() > _granularity;
+    }
+
+    /**
+     * Adds an element to the cell at the specified coordinates, creating the cell if necessary.
+     */
+    protected void addToCell (int x, int y, SpaceElement element)
+    {
+        Cell cell = getCell(x, y);
+        if (cell == null) {
+            cell = createCell(x, y);
+        }
+        cell.elements.add(element);
+    }
+
+    /**
+     * Removes an element from the cell at the specified coordinates.  The cell itself is retained
+     * for reuse.
+     */
+    protected void removeFromCell (int x, int y, SpaceElement element)
+    {
+        Cell cell = getCell(x, y);
+        if (cell == null) {
+            return;
+        }
+        int idx = cell.elements.indexOf(element);
+        if (idx != -1) {
+            cell.elements.remove(idx);
+        }
+    }
+
+    /**
+     * Refreshes the entry for an element whose bounds have changed within the cell at the
+     * specified coordinates.
+     */
+    protected void updateInCell (int x, int y, SpaceElement element)
+    {
+        Cell cell = getCell(x, y);
+        if (cell == null) {
+            return;
+        }
+        int idx = cell.elements.indexOf(element);
+        if (idx != -1) {
+            cell.elements.update(idx);
+        }
+    }
+
+    /**
+     * Returns the cell at the specified coordinates, or <code>null</code> if there isn't one.
+     */
+    protected Cell getCell (int x, int y)
+    {
+        if (_cells == null) {
+            return null;
+        }
+        long key = getKey(x, y);
+        int mask = _cells.length - 1;
+        for (int idx = hash(key) & mask;; idx = (idx + 1) & mask) {
+            Cell cell = _cells[idx];
+            if (cell == null || _keys[idx] == key) {
+                return cell;
+            }
+        }
+    }
+
+    /**
+     * Creates and inserts a new cell at the specified coordinates.
+     */
+    protected Cell createCell (int x, int y)
+    {
+        if (_cells == null) {
+            _keys = new long[INITIAL_CAPACITY];
+            _cells = new Cell[INITIAL_CAPACITY];
+        } else if ((_count + 1) * 4 > _cells.length * 3) {
+            rebuildTable();
+        }
+        Cell cell = new Cell(x, y);
+        insertCell(cell);
+        _count++;
+        _minx = Math.min(_minx, x);
+        _maxx = Math.max(_maxx, x);
+        _miny = Math.min(_miny, y);
+        _maxy = Math.max(_maxy, y);
+        return cell;
+    }
+
+    /**
+     * Rebuilds the cell table, dropping any empty cells and doubling the capacity if it remains
+     * more than half full.
+     */
+    protected void rebuildTable ()
+    {
+        Cell[] ocells = _cells;
+        int ncount = 0;
+        for (Cell cell : ocells) {
+            if (cell != null && cell.elements.size() > 0) {
+                ncount++;
+            }
+        }
+        int capacity = ocells.length;
+        while ((ncount + 1) * 2 > capacity) {
+            capacity *= 2;
+        }
+        _keys = new long[capacity];
+        _cells = new Cell[capacity];
+        _count = 0;
+        _minx = _miny = Integer.MAX_VALUE;
+        _maxx = _maxy = Integer.MIN_VALUE;
+        for (Cell cell : ocells) {
+            if (cell != null && cell.elements.size() > 0) {
+                insertCell(cell);
+                _count++;
+                _minx = Math.min(_minx, cell.x);
+                _maxx = Math.max(_maxx, cell.x);
+                _miny = Math.min(_miny, cell.y);
+                _maxy = Math.max(_maxy, cell.y);
+            }
+        }
+    }
+
+    /**
+     * Inserts a cell into the table, which must have room for it.
+     */
+    protected void insertCell (Cell cell)
+    {
+        long key = getKey(cell.x, cell.y);
+        int mask = _cells.length - 1;
+        int idx = hash(key) & mask;
+        while (_cells[idx] != null) {
+            idx = (idx + 1) & mask;
+        }
+        _keys[idx] = key;
+        _cells[idx] = cell;
+    }
+
+    /**
+     * Packs a pair of cell coordinates into a table key.
+     */
+    protected static long getKey (int x, int y)
+    {
+        return ((long)x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Scrambles a table key into a hash code.
+     */
+    protected static int hash (long key)
+    {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32));
+    }
+
+    /**
+     * A single cell of the grid.
+     */
+    protected static class Cell
+    {
+        /** The coordinates of the cell. */
+        public final int x, y;
+
+        /** The elements whose bounds are centered in the cell. */
+        public ShapeBatch elements = new ShapeBatch();
+
+        /** The last visit in which the cell was checked. */
+        public int visit;
+
+        public Cell (int x, int y)
+        {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /** The initial capacity of the cell table. */
+    protected static final int INITIAL_CAPACITY = 64;
+
+    /** The size of the cells. */
+    protected float _granularity;
+
+    /** The reciprocal of the cell size. */
+    protected float _rgran;
+
+    /** The distance by which elements may extend beyond their cells. */
+    protected float _margin;
+
+    /** The cell table keys. */
+    protected long[] _keys;
+
+    /** The cell table values (a <code>null</code> value indicates an empty slot). */
+    protected Cell[] _cells;
+
+    /** The number of cells in the table. */
+    protected int _count;
+
+    /** The coordinate bounds of the cells in the table. */
+    protected int _minx = Integer.MAX_VALUE, _miny = Integer.MAX_VALUE;
+    protected int _maxx = Integer.MIN_VALUE, _maxy = Integer.MIN_VALUE;
+
+    /** Oversized elements. */
+    protected ArrayList<SpaceElement> _oversizedElements = new ArrayList<SpaceElement>();
+
+    /** The element whose bounds are changing, if any. */
+    protected SpaceElement _changing;
+
+    /** The cell of the changing element before the change. */
+    protected int _changingX, _changingY;
+
+    /** Whether the changing element was oversized before the change. */
+    protected boolean _changingOversized;
+
+    /** Elements removed for the duration of an overlapping bounds change. */
+    protected ArrayList<SpaceElement> _detached = new ArrayList<SpaceElement>(0);
+
+    /** The visit counter. */
+    protected int _visit;
+}
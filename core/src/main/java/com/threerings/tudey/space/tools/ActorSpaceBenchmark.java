@@ -0,0 +1,409 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.space.tools;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import com.threerings.math.FloatMath;
+import com.threerings.math.Ray2D;
+import com.threerings.math.Vector2f;
+
+import com.threerings.tudey.shape.Circle;
+import com.threerings.tudey.shape.ShapeElement;
+import com.threerings.tudey.space.HashSpace;
+import com.threerings.tudey.space.LooseGridSpace;
+import com.threerings.tudey.space.Space;
+import com.threerings.tudey.space.SpaceElement;
+
+/**
+ * Compares the time taken to move and query actors in a {@link HashSpace} configured as the
+ * scene manager's actor space used to be and in the {@link LooseGridSpace} that replaced it,
+ * checking that both return the same results.  Most of the actors wander about, turning now and
+ * then; others stand still or chase one of a few moving targets, and a few are too large for the
+ * grid cells.  Each tick, every moving actor looks for the actors around it and some of them cast
+ * rays along their headings, as target and line-of-sight checks do.
+ */
+public class ActorSpaceBenchmark
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+    {
+        int[] sizes = (args.length > 0) ? new int[args.length] : DEFAULT_SIZES;
+        for (int ii = 0; ii < args.length; ii++) {
+            sizes[ii] = Integer.parseInt(args[ii]);
+        }
+        for (int size : sizes) {
+            checkResults(size);
+            double[] hash = time(createHashSpace(), size);
+            double[] grid = time(createGridSpace(), size);
+            System.out.println(size + " actors:");
+            System.out.printf("  move   %8.3f ms/frame hash %8.3f ms/frame grid (%.1fx)%n",
+                hash[0], grid[0], hash[0] / grid[0]);
+            System.out.printf("  query  %8.3f ms/frame hash %8.3f ms/frame grid (%.1fx)%n",
+                hash[1], grid[1], hash[1] / grid[1]);
+        }
+    }
+
+    /**
+     * Creates a hash space configured as the actor space was before the loose grid.
+     */
+    protected static Space createHashSpace ()
+    {
+        return new HashSpace(64f, 6);
+    }
+
+    /**
+     * Creates a loose grid space configured as the actor space is now.
+     */
+    protected static Space createGridSpace ()
+    {
+        return new LooseGridSpace(8f);
+    }
+
+    /**
+     * Runs the same crowd through both spaces, making sure that their intersection queries
+     * return the same actors and that the grid's ray queries return the closest hit.
+     */
+    protected static void checkResults (int size)
+    {
+        Crowd hash = new Crowd(createHashSpace(), size);
+        Crowd grid = new Crowd(createGridSpace(), size);
+        ArrayList<SpaceElement> hresults = Lists.newArrayList();
+        ArrayList<SpaceElement> gresults = Lists.newArrayList();
+        Vector2f location = new Vector2f();
+        for (int ii = 0; ii < CHECK_FRAMES; ii++) {
+            hash.move();
+            grid.move();
+            for (int jj = 0; jj < size; jj++) {
+                hresults.clear();
+                gresults.clear();
+                hash.query(jj, hresults);
+                grid.query(jj, gresults);
+                if (!getIndices(hresults).equals(getIndices(gresults))) {
+                    throw new IllegalStateException("Mismatched intersection [frame=" + ii +
+                        ", actor=" + jj + "].");
+                }
+                if (jj % RAY_INTERVAL != 0) {
+                    continue;
+                }
+                SpaceElement hit = grid.cast(jj, location);
+                float expected = hash.getClosestHit(jj);
+                float actual = (hit == null) ? Float.MAX_VALUE :
+                    grid.getPosition(jj).distance(location);
+                if (Math.abs(actual - expected) > 0.001f) {
+                    throw new IllegalStateException("Mismatched ray hit [frame=" + ii +
+                        ", actor=" + jj + ", expected=" + expected + ", actual=" + actual + "].");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the set of actor indices stored as the user objects of the specified elements.
+     */
+    protected static HashSet<Object> getIndices (ArrayList<SpaceElement> elements)
+    {
+        HashSet<Object> indices = Sets.newHashSet();
+        for (SpaceElement element : elements) {
+            indices.add(element.getUserObject());
+        }
+        return indices;
+    }
+
+    /**
+     * Returns the average times in milliseconds taken to move the actors and to query the space
+     * each frame.
+     */
+    protected static double[] time (Space space, int size)
+    {
+        Crowd crowd = new Crowd(space, size);
+        ArrayList<SpaceElement> results = Lists.newArrayList();
+        Vector2f location = new Vector2f();
+        long moving = 0L, querying = 0L;
+        int hits = 0;
+        for (int ii = 0; ii < WARMUP_FRAMES + FRAMES; ii++) {
+            long start = System.nanoTime();
+            crowd.move();
+            long moved = System.nanoTime();
+            for (int jj = 0; jj < size; jj++) {
+                if (crowd.isIdle(jj)) {
+                    continue;
+                }
+                results.clear();
+                crowd.query(jj, results);
+                hits += results.size();
+                if (jj % RAY_INTERVAL == 0 && crowd.cast(jj, location) != null) {
+                    hits++;
+                }
+            }
+            if (ii >= WARMUP_FRAMES) {
+                moving += moved - start;
+                querying += System.nanoTime() - moved;
+            }
+        }
+        if (hits == 0) {
+            System.out.println("  (no hits)");
+        }
+        return new double[] { moving / 1e6 / FRAMES, querying / 1e6 / FRAMES };
+    }
+
+    /**
+     * A population of actors moving about a space.  Crowds of the same size follow the same
+     * paths.
+     */
+    protected static class Crowd
+    {
+        /**
+         * Creates a new crowd and adds its actors to the specified space.
+         */
+        public Crowd (Space space, int size)
+        {
+            _space = space;
+            _elements = new ShapeElement[size];
+            _positions = new Vector2f[size];
+            _headings = new float[size];
+            _speeds = new float[size];
+            _modes = new int[size];
+            for (int ii = 0; ii < size; ii++) {
+                float radius = (_random.nextFloat() < OVERSIZED_CHANCE) ?
+                    8f + _random.nextFloat() * 8f : 0.25f + _random.nextFloat() * 1.25f;
+                ShapeElement element = _elements[ii] =
+                    new ShapeElement(new Circle(new Vector2f(), radius));
+                element.setUserObject(ii);
+                _positions[ii] = new Vector2f(
+                    _random.nextFloat() * WORLD_SIZE, _random.nextFloat() * WORLD_SIZE);
+                _headings[ii] = _random.nextFloat() * FloatMath.TWO_PI;
+                _speeds[ii] = 2f + _random.nextFloat() * 6f;
+                float mode = _random.nextFloat();
+                _modes[ii] = (mode < IDLE_FRACTION) ? IDLE :
+                    (mode < IDLE_FRACTION + CHASE_FRACTION ? CHASE : WANDER);
+                element.getTransform().set(_positions[ii], 0f, 1f);
+                element.updateBounds();
+                space.add(element);
+            }
+            for (int ii = 0; ii < _targets.length; ii++) {
+                _targets[ii] = new Vector2f(
+                    _random.nextFloat() * WORLD_SIZE, _random.nextFloat() * WORLD_SIZE);
+            }
+        }
+
+        /**
+         * Checks whether the specified actor stands still.
+         */
+        public boolean isIdle (int idx)
+        {
+            return _modes[idx] == IDLE;
+        }
+
+        /**
+         * Returns a reference to the position of the specified actor.
+         */
+        public Vector2f getPosition (int idx)
+        {
+            return _positions[idx];
+        }
+
+        /**
+         * Advances the crowd by one tick.
+         */
+        public void move ()
+        {
+            // the targets circle about the world
+            _time += TICK;
+            for (int ii = 0; ii < _targets.length; ii++) {
+                float angle = _time * 0.1f + ii * FloatMath.TWO_PI / _targets.length;
+                _targets[ii].set(
+                    WORLD_SIZE * (0.5f + 0.3f * FloatMath.cos(angle)),
+                    WORLD_SIZE * (0.5f + 0.3f * FloatMath.sin(angle)));
+            }
+            for (int ii = 0; ii < _elements.length; ii++) {
+                Vector2f position = _positions[ii];
+                switch (_modes[ii]) {
+                    case IDLE:
+                        continue;
+                    case WANDER:
+                        if (_random.nextFloat() < TURN_CHANCE) {
+                            _headings[ii] += (_random.nextFloat() - 0.5f) * FloatMath.PI;
+                        }
+                        break;
+                    case CHASE:
+                        Vector2f target = _targets[ii % _targets.length];
+                        _headings[ii] = FloatMath.atan2(
+                            target.y - position.y, target.x - position.x);
+                        break;
+                }
+                float heading = _headings[ii], distance = _speeds[ii] * TICK;
+                position.addLocal(
+                    FloatMath.cos(heading) * distance, FloatMath.sin(heading) * distance);
+
+                // turn back at the edges of the world
+                if (position.x < 0f || position.x > WORLD_SIZE) {
+                    _headings[ii] = FloatMath.PI - heading;
+                    position.x = FloatMath.clamp(position.x, 0f, WORLD_SIZE);
+                }
+                if (position.y < 0f || position.y > WORLD_SIZE) {
+                    _headings[ii] = -_headings[ii];
+                    position.y = FloatMath.clamp(position.y, 0f, WORLD_SIZE);
+                }
+                ShapeElement element = _elements[ii];
+                element.getTransform().set(position, 0f, 1f);
+                element.updateBounds();
+            }
+        }
+
+        /**
+         * Finds the actors within the query radius of the specified actor.
+         */
+        public void query (int idx, ArrayList<SpaceElement> results)
+        {
+            _circle.getCenter().set(_positions[idx]);
+            _circle.radius = QUERY_RADIUS;
+            _circle.updateBounds();
+            _space.getIntersecting(_circle, results);
+        }
+
+        /**
+         * Casts a ray from the specified actor along its heading, ignoring the actor itself.
+         *
+         * @return the element hit, or <code>null</code> for none.
+         */
+        public SpaceElement cast (int idx, Vector2f location)
+        {
+            setRay(idx);
+            return _space.getIntersection(_ray, location,
+                Predicates.not(Predicates.<SpaceElement>equalTo(_elements[idx])));
+        }
+
+        /**
+         * Finds the distance to the closest hit of the ray cast from the specified actor by
+         * checking every other actor.
+         *
+         * @return the distance, or {@link Float#MAX_VALUE} for none.
+         */
+        public float getClosestHit (int idx)
+        {
+            setRay(idx);
+            Vector2f origin = _positions[idx], result = new Vector2f();
+            float closest = Float.MAX_VALUE;
+            for (int ii = 0; ii < _elements.length; ii++) {
+                if (ii != idx && _elements[ii].getIntersection(_ray, result)) {
+                    closest = Math.min(closest, origin.distance(result));
+                }
+            }
+            return closest;
+        }
+
+        /**
+         * Sets the ray to start at the specified actor and point along its heading.
+         */
+        protected void setRay (int idx)
+        {
+            float heading = _headings[idx];
+            _ray.set(_positions[idx], new Vector2f(
+                FloatMath.cos(heading), FloatMath.sin(heading)));
+        }
+
+        /** The space containing the actors. */
+        protected Space _space;
+
+        /** The actors' elements. */
+        protected ShapeElement[] _elements;
+
+        /** The actors' positions. */
+        protected Vector2f[] _positions;
+
+        /** The actors' headings. */
+        protected float[] _headings;
+
+        /** The actors' speeds in units per second. */
+        protected float[] _speeds;
+
+        /** The actors' modes of movement. */
+        protected int[] _modes;
+
+        /** The positions of the targets chased by the chasing actors. */
+        protected Vector2f[] _targets = new Vector2f[TARGET_COUNT];
+
+        /** The elapsed time in seconds. */
+        protected float _time;
+
+        /** The random number generator, seeded the same way for every crowd. */
+        protected Random _random = new Random(1L);
+
+        /** The shape used for intersection queries. */
+        protected Circle _circle = new Circle();
+
+        /** The ray used for intersection queries. */
+        protected Ray2D _ray = new Ray2D();
+    }
+
+    /** The default crowd sizes to test. */
+    protected static final int[] DEFAULT_SIZES = { 500, 2000, 5000 };
+
+    /** Actor modes: standing still, wandering about, and chasing a target. */
+    protected static final int IDLE = 0, WANDER = 1, CHASE = 2;
+
+    /** The fractions of actors that stand still and chase targets. */
+    protected static final float IDLE_FRACTION = 0.25f, CHASE_FRACTION = 0.25f;
+
+    /** The chance that a wandering actor will turn on any given tick. */
+    protected static final float TURN_CHANCE = 0.05f;
+
+    /** The chance that an actor is too large for the grid cells. */
+    protected static final float OVERSIZED_CHANCE = 0.01f;
+
+    /** The number of targets for the chasing actors. */
+    protected static final int TARGET_COUNT = 4;
+
+    /** The size of the (square) world. */
+    protected static final float WORLD_SIZE = 400f;
+
+    /** The radius of the intersection queries. */
+    protected static final float QUERY_RADIUS = 6f;
+
+    /** One in this many moving actors casts a ray each tick. */
+    protected static final int RAY_INTERVAL = 8;
+
+    /** The length of a tick in seconds. */
+    protected static final float TICK = 0.1f;
+
+    /** The number of frames for which to compare the results. */
+    protected static final int CHECK_FRAMES = 20;
+
+    /** The number of frames to run before timing. */
+    protected static final int WARMUP_FRAMES = 200;
+
+    /** The number of frames to time. */
+    protected static final int FRAMES = 200;
+}
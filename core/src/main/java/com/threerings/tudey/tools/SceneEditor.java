@@ -115,8 +115,8 @@ import com.threerings.editor.tools.BatchValidateDialog;
 import com.threerings.editor.util.Validator;
 import com.threerings.export.BinaryExporter;
 import com.threerings.export.BinaryImporter;
+import com.threerings.export.StreamingXMLImporter;
 import com.threerings.export.XMLExporter;
-import com.threerings.export.XMLImporter;
 import com.threerings.expr.Scoped;
 import com.threerings.math.FloatMath;
 import com.threerings.math.Ray3D;
@@ -1499,7 +1499,7 @@ public class SceneEditor extends TudeyTool
         if (_exportChooser.showOpenDialog(_frame) == JFileChooser.APPROVE_OPTION) {
             File file = _exportChooser.getSelectedFile();
             try {
-                XMLImporter in = new XMLImporter(new FileInputStream(file));
+                StreamingXMLImporter in = new StreamingXMLImporter(new FileInputStream(file));
                 setScene((TudeySceneModel)in.readObject());
                 in.close();
                 setFile(null);
@@ -209,7 +209,7 @@ public class DeepUtil
             } else if (clazz.isArray()) {
                 handler = ARRAY_OBJECT_HANDLER;
             } else {
-                handler = new ReflectiveObjectHandler(clazz);
+                handler = new CompiledObjectHandler(clazz);
             }
             _objectHandlers.put(clazz, handler);
         }
@@ -283,17 +283,7 @@ public class DeepUtil
             _fields = fields.toArray(new Field[fields.size()]);
             _handlers = new FieldHandler[_fields.length];
             for (int ii = 0; ii < _fields.length; ii++) {
-                Field field = _fields[ii];
-                Class<?> type = field.getType();
-                if (type.isPrimitive()) {
-                    _handlers[ii] = PRIMITIVE_FIELD_HANDLERS.get(type);
-                } else if (field.getAnnotation(Deep.class) != null) {
-                    _handlers[ii] = DEEP_OBJECT_FIELD_HANDLER;
-                } else if (field.getAnnotation(Shallow.class) != null) {
-                    _handlers[ii] = SHALLOW_OBJECT_FIELD_HANDLER;
-                } else {
-                    _handlers[ii] = DEFAULT_OBJECT_FIELD_HANDLER;
-                }
+                _handlers[ii] = createFieldHandler(_fields[ii]);
             }
         }
 
@@ -353,6 +343,23 @@ public class DeepUtil
             return tsh.toString();
         }
 
+        /**
+         * Creates the handler for the specified field.
+         */
+        protected FieldHandler createFieldHandler (Field field)
+        {
+            Class<?> type = field.getType();
+            if (type.isPrimitive()) {
+                return PRIMITIVE_FIELD_HANDLERS.get(type);
+            } else if (field.getAnnotation(Deep.class) != null) {
+                return DEEP_OBJECT_FIELD_HANDLER;
+            } else if (field.getAnnotation(Shallow.class) != null) {
+                return SHALLOW_OBJECT_FIELD_HANDLER;
+            } else {
+                return DEFAULT_OBJECT_FIELD_HANDLER;
+            }
+        }
+
         /**
          * Sanitize a field name for toStringing.
          */
@@ -368,6 +375,293 @@ public class DeepUtil
         protected FieldHandler[] _handlers;
     }
 
+    /**
+     * Handles an object according to its reflected fields, using field handlers specialized (when
+     * the handler is created) for the declared type of each field.  Fields of immutable types
+     * are handled by reference, those of primitive array types are bound directly to the handler
+     * for the array type, and the rest cache the object handler for the last class they
+     * encountered so as to avoid looking it up for every value.  The results are the same as
+     * those of the {@link ReflectiveObjectHandler}.
+     */
+    protected static class CompiledObjectHandler extends ReflectiveObjectHandler
+    {
+        public CompiledObjectHandler (Class<?> clazz)
+        {
+            super(clazz);
+            _inner = ReflectionUtil.isInner(clazz);
+        }
+
+        @Override
+        public Object copy (Object source, Object dest, Object outer)
+            throws IllegalAccessException
+        {
+            // create the destination object if it doesn't exist yet
+            if (dest == null) {
+                Object souter = _inner ? ReflectionUtil.getOuter(source) : null;
+                Object douter = (souter == null) ? null : (outer == null ? souter : outer);
+                if ((dest = ReflectionUtil.newInstance(source.getClass(), douter)) == null) {
+                    return null; // an error will have been logged
+                }
+            }
+            // deep-copy the fields
+            for (int ii = 0; ii < _fields.length; ii++) {
+                _handlers[ii].copy(_fields[ii], source, dest);
+            }
+            return dest;
+        }
+
+        @Override
+        protected FieldHandler createFieldHandler (Field field)
+        {
+            Class<?> type = field.getType();
+            if (type.isPrimitive() || field.getAnnotation(Shallow.class) != null) {
+                return super.createFieldHandler(field);
+            } else if (field.getAnnotation(Deep.class) != null) {
+                return new CachedDeepFieldHandler();
+            } else if (isImmutable(type)) {
+                return IMMUTABLE_OBJECT_FIELD_HANDLER;
+            } else if (type.isArray() && type.getComponentType().isPrimitive()) {
+                @SuppressWarnings("unchecked") ObjectHandler<Object> handler =
+                    (ObjectHandler<Object>)getObjectHandler(type);
+                return new PrimitiveArrayFieldHandler(handler);
+            } else {
+                return new CachedObjectFieldHandler();
+            }
+        }
+
+        /**
+         * Determines whether all values of the specified declared type are handled by the
+         * {@link #IMMUTABLE_OBJECT_HANDLER} (and are not {@link Copyable}).
+         */
+        protected static boolean isImmutable (Class<?> type)
+        {
+            if (Copyable.class.isAssignableFrom(type)) {
+                return false;
+            }
+            return Enum.class.isAssignableFrom(type) ||
+                ImmutableCollection.class.isAssignableFrom(type) ||
+                ImmutableMap.class.isAssignableFrom(type) ||
+                ImmutableMultimap.class.isAssignableFrom(type) ||
+                (Modifier.isFinal(type.getModifiers()) &&
+                    _objectHandlers.get(type) == IMMUTABLE_OBJECT_HANDLER);
+        }
+
+        /** Whether or not the class is an inner class. */
+        protected boolean _inner;
+    }
+
+    /**
+     * Caches the object handler for the last class of value encountered by a field.
+     */
+    protected static abstract class CachedFieldHandler extends FieldHandler
+    {
+        /**
+         * Returns the handler for the specified class of value.
+         */
+        protected ObjectHandler<Object> getHandler (Class<?> clazz)
+        {
+            // the entry is immutable, so we can safely share it between threads without locking
+            HandlerEntry entry = _entry;
+            if (entry == null || entry.clazz != clazz) {
+                @SuppressWarnings("unchecked") ObjectHandler<Object> handler =
+                    (ObjectHandler<Object>)getObjectHandler(clazz);
+                _entry = entry = new HandlerEntry(clazz, handler);
+            }
+            return entry.handler;
+        }
+
+        /**
+         * Performs a deep copy as {@link DeepUtil#copy(Object, Object, Object)} does.
+         */
+        protected Object deepCopy (Object source, Object dest, Object outer)
+        {
+            if (source == null) {
+                return null;
+            }
+            Class<?> clazz = source.getClass();
+            if (dest != null && dest.getClass() != clazz) {
+                dest = null;
+            }
+            try {
+                return getHandler(clazz).copy(source, dest, outer);
+            } catch (IllegalAccessException e) {
+                log.warning("Couldn't access fields for deep copy.", e);
+                return null;
+            }
+        }
+
+        /**
+         * Compares two values as {@link DeepUtil#equals} does.
+         */
+        protected boolean deepEquals (Object o1, Object o2)
+        {
+            if (o1 == o2) {
+                return true;
+            }
+            Class<?> c1 = (o1 == null) ? null : o1.getClass();
+            Class<?> c2 = (o2 == null) ? null : o2.getClass();
+            if (c1 != c2) {
+                return false;
+            }
+            try {
+                return getHandler(c1).equals(o1, o2);
+            } catch (IllegalAccessException e) {
+                log.warning("Couldn't access fields for deep equals.", e);
+                return false;
+            }
+        }
+
+        /**
+         * Computes the hash code of a value as {@link DeepUtil#hashCode} does.
+         */
+        protected int deepHashCode (Object object)
+        {
+            if (object == null) {
+                return 0;
+            }
+            try {
+                return getHandler(object.getClass()).hashCode(object);
+            } catch (IllegalAccessException e) {
+                log.warning("Couldn't access fields for deep hash code.", e);
+                return 0;
+            }
+        }
+
+        /** The class last encountered and its handler. */
+        protected HandlerEntry _entry;
+    }
+
+    /**
+     * A class and its object handler.
+     */
+    protected static class HandlerEntry
+    {
+        /** The class of value. */
+        public final Class<?> clazz;
+
+        /** The handler for the class. */
+        public final ObjectHandler<Object> handler;
+
+        public HandlerEntry (Class<?> clazz, ObjectHandler<Object> handler)
+        {
+            this.clazz = clazz;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * Handles object fields as the {@link #DEFAULT_OBJECT_FIELD_HANDLER} does.
+     */
+    protected static class CachedObjectFieldHandler extends CachedFieldHandler
+    {
+        @Override
+        public void copy (Field field, Object source, Object dest)
+            throws IllegalAccessException
+        {
+            Object v1 = field.get(source), v2 = field.get(dest);
+            if (v1 == null) {
+                field.set(dest, null);
+            } else if (v1 instanceof Copyable) {
+                field.set(dest, ((Copyable)v1).copy(v2, dest));
+            } else {
+                field.set(dest, deepCopy(v1, v2, dest));
+            }
+        }
+
+        @Override
+        public boolean equals (Field field, Object o1, Object o2)
+            throws IllegalAccessException
+        {
+            Object v1 = field.get(o1), v2 = field.get(o2);
+            if (v1 == null) {
+                return v2 == null;
+            } else if (v1.getClass().isArray()) {
+                return deepEquals(v1, v2);
+            } else {
+                return v1.equals(v2);
+            }
+        }
+
+        @Override
+        public int hashCode (Field field, Object object)
+            throws IllegalAccessException
+        {
+            Object value = field.get(object);
+            if (value == null) {
+                return 0;
+            } else if (value.getClass().isArray()) {
+                return deepHashCode(value);
+            } else {
+                return value.hashCode();
+            }
+        }
+    }
+
+    /**
+     * Handles deep object fields as the {@link #DEEP_OBJECT_FIELD_HANDLER} does.
+     */
+    protected static class CachedDeepFieldHandler extends CachedFieldHandler
+    {
+        @Override
+        public void copy (Field field, Object source, Object dest)
+            throws IllegalAccessException
+        {
+            field.set(dest, deepCopy(field.get(source), field.get(dest), dest));
+        }
+
+        @Override
+        public boolean equals (Field field, Object o1, Object o2)
+            throws IllegalAccessException
+        {
+            return deepEquals(field.get(o1), field.get(o2));
+        }
+
+        @Override
+        public int hashCode (Field field, Object object)
+            throws IllegalAccessException
+        {
+            return deepHashCode(field.get(object));
+        }
+    }
+
+    /**
+     * Handles fields of a primitive array type using the handler for that type.
+     */
+    protected static class PrimitiveArrayFieldHandler extends FieldHandler
+    {
+        public PrimitiveArrayFieldHandler (ObjectHandler<Object> handler)
+        {
+            _handler = handler;
+        }
+
+        @Override
+        public void copy (Field field, Object source, Object dest)
+            throws IllegalAccessException
+        {
+            Object v1 = field.get(source);
+            field.set(dest, (v1 == null) ? null : _handler.copy(v1, field.get(dest), dest));
+        }
+
+        @Override
+        public boolean equals (Field field, Object o1, Object o2)
+            throws IllegalAccessException
+        {
+            Object v1 = field.get(o1), v2 = field.get(o2);
+            return (v1 == v2) || (v1 != null && v2 != null && _handler.equals(v1, v2));
+        }
+
+        @Override
+        public int hashCode (Field field, Object object)
+            throws IllegalAccessException
+        {
+            Object value = field.get(object);
+            return (value == null) ? 0 : _handler.hashCode(value);
+        }
+
+        /** The handler for the array type. */
+        protected ObjectHandler<Object> _handler;
+    }
+
     /**
      * Copies or compares a field of a single type.
      */
@@ -827,6 +1121,24 @@ public class DeepUtil
         }
     };
 
+    /** Field handler for fields whose values are all immutable. */
+    protected static FieldHandler IMMUTABLE_OBJECT_FIELD_HANDLER = new FieldHandler() {
+        public void copy (Field field, Object source, Object dest)
+                throws IllegalAccessException {
+            field.set(dest, field.get(source));
+        }
+        public boolean equals (Field field, Object o1, Object o2)
+                throws IllegalAccessException {
+            Object v1 = field.get(o1), v2 = field.get(o2);
+            return (v1 == null) ? (v2 == null) : v1.equals(v2);
+        }
+        public int hashCode (Field field, Object object)
+                throws IllegalAccessException {
+            Object value = field.get(object);
+            return (value == null) ? 0 : value.hashCode();
+        }
+    };
+
     /** Field handler for shallow object fields. */
     protected static FieldHandler SHALLOW_OBJECT_FIELD_HANDLER = new FieldHandler() {
         public void copy (Field field, Object source, Object dest)
@@ -29,7 +29,9 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
-import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
 
 import static com.threerings.ClydeLog.log;
 
@@ -169,6 +171,8 @@ public class ReflectionUtil
     {
         Class<?> oclazz = _oclasses.get(clazz);
         if (oclazz == null) {
+            // Void stands for "no outer class," as the concurrent map can't hold nulls
+            oclazz = Void.class;
             Class<?> dclazz = clazz.getDeclaringClass();
             if (dclazz != null && !Modifier.isStatic(clazz.getModifiers())) {
                 oclazz = dclazz;
@@ -181,8 +185,6 @@ public class ReflectionUtil
                         break;
                     }
                 }
-            } else {
-                oclazz = Void.class;
             }
             _oclasses.put(clazz, oclazz);
         }
@@ -211,12 +213,11 @@ public class ReflectionUtil
     }
 
     /** Maps inner classes to their outer class reference fields. */
-    protected static HashMap<Class<?>, Field> _outers = new HashMap<Class<?>, Field>();
+    protected static Map<Class<?>, Field> _outers = Maps.newConcurrentMap();
 
     /** Maps classes to their outer classes, or to {@link Void} if they are not inner classes. */
-    protected static HashMap<Class<?>, Class<?>> _oclasses = new HashMap<Class<?>, Class<?>>();
+    protected static Map<Class<?>, Class<?>> _oclasses = Maps.newConcurrentMap();
 
     /** Maps classes to their default constructors. */
-    protected static HashMap<Class<?>, Constructor<?>> _ctors =
-            new HashMap<Class<?>, Constructor<?>>();
+    protected static Map<Class<?>, Constructor<?>> _ctors = Maps.newConcurrentMap();
 }
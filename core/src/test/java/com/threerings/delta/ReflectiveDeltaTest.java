@@ -0,0 +1,239 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.delta;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.samskivert.util.RandomUtil;
+
+import com.threerings.io.ObjectInputStream;
+import com.threerings.io.ObjectOutputStream;
+import com.threerings.io.Streamable;
+
+import com.threerings.util.DeepUtil;
+
+/**
+ * Tests the {@link ReflectiveDelta} class.
+ */
+public class ReflectiveDeltaTest extends TestCase
+{
+    public ReflectiveDeltaTest (String name)
+    {
+        super(name);
+    }
+
+    @Override
+    public void setUp ()
+    {
+        // use a fixed seed so that our results are reproducible
+        RandomUtil.rand.setSeed(1199325877849L);
+    }
+
+    public void testRoundTrip ()
+        throws Exception
+    {
+        for (int ii = 0; ii < 100; ii++) {
+            Values original = new Values(), revised = new Values();
+            original.randomize();
+            revised.set(original);
+            revised.randomizeSome();
+
+            // the delta must transform the original into the revised object both before and
+            // after streaming, and must stream to the same bytes once read back in
+            ReflectiveDelta delta = new ReflectiveDelta(original, revised);
+            assertTrue(DeepUtil.equals(revised, delta.apply(original)));
+            byte[] bytes = write(delta);
+            ReflectiveDelta read = (ReflectiveDelta)read(bytes);
+            assertEquals(delta.isEmpty(), read.isEmpty());
+            assertTrue(DeepUtil.equals(revised, read.apply(original)));
+            assertTrue(Arrays.equals(bytes, write(read)));
+        }
+    }
+
+    public void testMerge ()
+        throws Exception
+    {
+        for (int ii = 0; ii < 100; ii++) {
+            Values v1 = new Values(), v2 = new Values(), v3 = new Values();
+            v1.randomize();
+            v2.set(v1);
+            v2.randomizeSome();
+            v3.set(v2);
+            v3.randomizeSome();
+
+            // the merged delta must combine the slab values of both deltas
+            ReflectiveDelta d1 = new ReflectiveDelta(v1, v2), d2 = new ReflectiveDelta(v2, v3);
+            Delta merged = d1.merge(d2);
+            assertTrue(DeepUtil.equals(v3, merged.apply(v1)));
+            assertTrue(DeepUtil.equals(v3, ((Delta)read(write(merged))).apply(v1)));
+        }
+    }
+
+    public void testRepopulate ()
+        throws Exception
+    {
+        // repopulating a delta reuses its slabs, which must not leak values between uses
+        ReflectiveDelta delta = new ReflectiveDelta();
+        for (int ii = 0; ii < 100; ii++) {
+            Values original = new Values(), revised = new Values();
+            original.randomize();
+            revised.set(original);
+            revised.randomizeSome();
+            delta.populate(original, revised);
+            byte[] bytes = write(delta);
+            assertTrue(Arrays.equals(bytes, write(new ReflectiveDelta(original, revised))));
+            assertTrue(DeepUtil.equals(revised, ((Delta)read(bytes)).apply(original)));
+        }
+    }
+
+    /**
+     * Writes an object to a byte array.
+     */
+    protected static byte[] write (Object object)
+        throws Exception
+    {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bout);
+        out.writeObject(object);
+        out.flush();
+        return bout.toByteArray();
+    }
+
+    /**
+     * Reads an object from a byte array.
+     */
+    protected static Object read (byte[] bytes)
+        throws Exception
+    {
+        return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+    }
+
+    /**
+     * A class with fields of every primitive type along with some object fields.
+     */
+    public static class Values
+        implements Deltable, Streamable
+    {
+        public boolean v1;
+        public byte v2;
+        public char v3;
+        public short v4;
+        public int v5;
+        public long v6;
+        public float v7;
+        public double v8;
+        public String v9;
+        public int[] v10;
+        public Nested v11;
+        public final int v12 = 12;
+        public transient int v13;
+
+        public void randomize ()
+        {
+            for (int ii = 0; ii < FIELD_COUNT; ii++) {
+                randomize(ii);
+            }
+        }
+
+        public void randomizeSome ()
+        {
+            for (int ii = 0; ii < FIELD_COUNT; ii++) {
+                if (RandomUtil.rand.nextBoolean()) {
+                    randomize(ii);
+                }
+            }
+        }
+
+        public void set (Values other)
+        {
+            DeepUtil.copy(other, this);
+        }
+
+        protected void randomize (int field)
+        {
+            switch (field) {
+                case 0: v1 = RandomUtil.rand.nextBoolean(); break;
+                case 1: v2 = (byte)RandomUtil.rand.nextInt(); break;
+                case 2: v3 = (char)RandomUtil.rand.nextInt(); break;
+                case 3: v4 = (short)RandomUtil.rand.nextInt(); break;
+                case 4: v5 = RandomUtil.rand.nextInt(); break;
+                case 5: v6 = RandomUtil.rand.nextLong(); break;
+                case 6: v7 = RandomUtil.rand.nextFloat(); break;
+                case 7: v8 = RandomUtil.rand.nextDouble(); break;
+                case 8: v9 = RandomUtil.rand.nextBoolean() ? null : ("s" + RandomUtil.getInt(3));
+                    break;
+                case 9: v10 = RandomUtil.rand.nextBoolean() ? null :
+                    new int[] { RandomUtil.getInt(3), RandomUtil.getInt(3) };
+                    break;
+                case 10:
+                    if (v11 == null || RandomUtil.getInt(4) == 0) {
+                        v11 = RandomUtil.rand.nextBoolean() ? null : new Nested();
+                    } else {
+                        // replace with a modified copy so that we get a nested delta
+                        Nested nested = new Nested();
+                        nested.value = RandomUtil.rand.nextInt();
+                        nested.name = v11.name;
+                        v11 = nested;
+                    }
+                    break;
+            }
+        }
+
+        /** The number of randomizable fields. */
+        protected static final int FIELD_COUNT = 11;
+    }
+
+    /**
+     * A deltable class nested within {@link Values}.
+     */
+    public static class Nested
+        implements Deltable, Streamable
+    {
+        public int value;
+        public String name = "nested";
+
+        @Override
+        public boolean equals (Object other)
+        {
+            if (!(other instanceof Nested)) {
+                return false;
+            }
+            Nested onested = (Nested)other;
+            return value == onested.value && name.equals(onested.name);
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.google.common.collect.Lists;
+
+import com.threerings.config.ConfigReference;
+import com.threerings.config.ManagedConfig;
+import com.threerings.math.Quaternion;
+import com.threerings.math.Transform3D;
+import com.threerings.math.Vector3f;
+import com.threerings.util.DeepObject;
+import com.threerings.util.DeepOmit;
+
+import com.threerings.opengl.effect.config.ParticleSystemConfig;
+
+/**
+ * Tests exporting objects with {@link BinaryExporter} and importing them with
+ * {@link BinaryImporter}.
+ */
+public class BinaryImporterTest extends TestCase
+{
+    public BinaryImporterTest (String name)
+    {
+        super(name);
+    }
+
+    public void testRoundTrip ()
+        throws IOException
+    {
+        // an object with only default values, one with every field changed, and a nested one
+        Plain defaults = new Plain();
+        Plain changed = createChanged();
+        Plain nested = new Plain();
+        nested.child = createChanged();
+        nested.child.child = new Plain();
+
+        Custom custom = new Custom();
+        custom.value = 7;
+
+        ConfigReference<?> ref = new ConfigReference<ManagedConfig>(
+            "effect", "count", 3, "name", "spark");
+        Transform3D transform = new Transform3D(
+            new Vector3f(1f, 2f, 3f), new Quaternion(0f, 1f, 0f, 0f), 2f);
+        ParticleSystemConfig.Layer layer = new ParticleSystemConfig.Layer();
+        layer.textureDivisionsS = 4;
+        layer.depthSort = true;
+        layer.moveParticlesWithEmitter = true;
+
+        Object[] objects = { defaults, changed, nested, custom, ref, transform, layer };
+        Object[] read = roundTrip(objects);
+        for (int ii = 0; ii < objects.length; ii++) {
+            assertEquals(objects[ii].getClass(), read[ii].getClass());
+        }
+        for (int ii = 0; ii < 6; ii++) {
+            assertEquals(objects[ii], read[ii]);
+        }
+
+        // the layer config holds state that defeats deep comparison, so check that the layer
+        // read back exports exactly as the original did
+        assertTrue(Arrays.equals(export(new Object[] { layer }), export(new Object[] { read[6] })));
+
+        // the custom reader must have run
+        assertEquals(14, ((Custom)read[3]).derived);
+    }
+
+    public void testNullOverDefault ()
+        throws IOException
+    {
+        // a null value for a field with a non-null default reads back as the default
+        Plain plain = new Plain();
+        plain.string = null;
+        plain.list = null;
+        Plain read = (Plain)roundTrip(new Object[] { plain })[0];
+        assertEquals("default", read.string);
+        assertEquals(new Plain().list, read.list);
+    }
+
+    public void testSharedInstances ()
+        throws IOException
+    {
+        // the same instance written twice reads back as a single instance
+        Plain child = createChanged();
+        Plain p1 = new Plain(), p2 = new Plain();
+        p1.child = p2.child = child;
+        Object[] read = roundTrip(new Object[] { p1, p2 });
+        assertSame(((Plain)read[0]).child, ((Plain)read[1]).child);
+        assertEquals(child, ((Plain)read[0]).child);
+    }
+
+    /**
+     * Creates an object with every field changed from its default.
+     */
+    protected static Plain createChanged ()
+    {
+        Plain plain = new Plain();
+        plain.v1 = false;
+        plain.v2 = -2;
+        plain.v3 = 'z';
+        plain.v4 = -4;
+        plain.v5 = -5;
+        plain.v6 = -6L;
+        plain.v7 = -7.5f;
+        plain.v8 = -8.25;
+        plain.string = "changed";
+        plain.nullString = "not null";
+        plain.ints = new int[] { 1, 2, 3 };
+        plain.kind = Kind.BLUE;
+        plain.boxed = 9;
+        plain.list = Lists.newArrayList("a", "b");
+        return plain;
+    }
+
+    /**
+     * Exports the specified objects and imports them back in.
+     */
+    protected static Object[] roundTrip (Object[] objects)
+        throws IOException
+    {
+        BinaryImporter in = new BinaryImporter(new ByteArrayInputStream(export(objects)));
+        Object[] read = new Object[objects.length];
+        for (int ii = 0; ii < read.length; ii++) {
+            read[ii] = in.readObject();
+        }
+        in.close();
+        return read;
+    }
+
+    /**
+     * Exports the specified objects to a byte array.
+     */
+    protected static byte[] export (Object[] objects)
+        throws IOException
+    {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinaryExporter out = new BinaryExporter(bout);
+        for (Object object : objects) {
+            out.writeObject(object);
+        }
+        out.close();
+        return bout.toByteArray();
+    }
+
+    /** Enumerated values for testing. */
+    public enum Kind { RED, GREEN, BLUE }
+
+    /**
+     * A class read through an import plan, with non-zero defaults for the primitive fields.
+     */
+    public static class Plain extends DeepObject
+        implements Exportable
+    {
+        public boolean v1 = true;
+        public byte v2 = 2;
+        public char v3 = 'c';
+        public short v4 = 4;
+        public int v5 = 5;
+        public long v6 = 6L;
+        public float v7 = 7f;
+        public double v8 = 8.0;
+        public String string = "default";
+        public String nullString;
+        public int[] ints;
+        public Kind kind = Kind.RED;
+        public Integer boxed;
+        public ArrayList<String> list = Lists.newArrayList("default");
+        public Plain child;
+    }
+
+    /**
+     * A class with a custom reader.
+     */
+    public static class Custom extends DeepObject
+        implements Exportable
+    {
+        public int value;
+        @DeepOmit public transient int derived;
+
+        public void writeFields (Exporter out)
+            throws IOException
+        {
+            out.defaultWriteFields();
+            out.write("doubled", value * 2);
+        }
+
+        public void readFields (Importer in)
+            throws IOException
+        {
+            in.defaultReadFields();
+            derived = in.read("doubled", 0);
+        }
+    }
+}
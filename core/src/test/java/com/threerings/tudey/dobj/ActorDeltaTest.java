@@ -0,0 +1,123 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.dobj;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.threerings.io.Streamable;
+
+import com.threerings.config.ConfigReference;
+import com.threerings.math.Vector2f;
+
+import com.threerings.delta.Deltable;
+import com.threerings.util.DeepUtil;
+
+import com.threerings.tudey.config.ActorConfig;
+import com.threerings.tudey.data.actor.Actor;
+
+/**
+ * Tests the {@link ActorDelta} class.
+ */
+public class ActorDeltaTest extends TestCase
+{
+    public ActorDeltaTest (String name)
+    {
+        super(name);
+    }
+
+    public void testCreateFromDirty ()
+    {
+        TestActor actor = new TestActor();
+        Actor snapshot = (Actor)actor.clone();
+
+        // change the actor's arrays and nested objects in place, then snapshot the changes
+        actor.values[0] = 5;
+        ((Part)actor.objects[0]).value = 4;
+        ((Vector2f)actor.objects[1]).set(1f, 2f);
+        actor.part.value = 9;
+        actor.part.values[0] = 3;
+        actor.part.offset.set(3f, 4f);
+        actor.setDirty(true);
+        ActorDelta delta = ActorDelta.createFromDirty(snapshot, actor);
+        Actor expected = (Actor)actor.clone();
+        assertTrue(DeepUtil.equals(expected, delta.apply(snapshot)));
+
+        // further changes to the actor must not leak into the delta
+        actor.values[0] = 6;
+        ((Part)actor.objects[0]).offset.set(5f, 6f);
+        ((Vector2f)actor.objects[1]).set(7f, 8f);
+        actor.part.value = 10;
+        actor.part.values[0] = 11;
+        actor.part.offset.set(9f, 10f);
+        assertTrue(DeepUtil.equals(expected, delta.apply(snapshot)));
+        assertFalse(DeepUtil.equals(actor, expected));
+    }
+
+    /**
+     * An actor with array and nested deltable fields.
+     */
+    public static class TestActor extends Actor
+    {
+        public int[] values = { 1, 2, 3 };
+        public Object[] objects = { new Part(), new Vector2f() };
+        public Part part = new Part();
+
+        public TestActor ()
+        {
+            super(new ConfigReference<ActorConfig>("test"), 1, 0, new Vector2f(), 0f);
+        }
+    }
+
+    /**
+     * A deltable object nested within {@link TestActor}.
+     */
+    public static class Part
+        implements Deltable, Streamable
+    {
+        public int value;
+        public int[] values = { 0 };
+        public Vector2f offset = new Vector2f();
+
+        @Override
+        public boolean equals (Object other)
+        {
+            if (!(other instanceof Part)) {
+                return false;
+            }
+            Part opart = (Part)other;
+            return value == opart.value && Arrays.equals(values, opart.values) &&
+                offset.equals(opart.offset);
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.server;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import com.threerings.math.Vector2f;
+
+import com.threerings.tudey.data.actor.Actor;
+import com.threerings.tudey.server.logic.ActorLogic;
+import com.threerings.tudey.shape.Circle;
+import com.threerings.tudey.shape.Shape;
+
+/**
+ * Tests the sensor handling of the {@link TudeySceneManager} class.
+ */
+public class TudeySceneManagerTest extends TestCase
+{
+    public TudeySceneManagerTest (String name)
+    {
+        super(name);
+    }
+
+    public void testQueuedSensors ()
+    {
+        final TudeySceneManager scenemgr = new TudeySceneManager();
+        final List<String> events = Lists.newArrayList();
+        addSensor(scenemgr, new Vector2f(0f, 0f), "sensor", events);
+        final ActorLogic actor = createActor(new Circle(new Vector2f(0.5f, 0f), 0.5f));
+
+        // the sensor fires after all of the participants have ticked, not when the actor moves
+        scenemgr.addTickParticipant(new TudeySceneManager.TickParticipant() {
+            public boolean tick (int timestamp) {
+                events.add("mover");
+                scenemgr.queueIntersectionSensors(actor);
+                return true;
+            }
+        });
+        scenemgr.addTickParticipant(new TudeySceneManager.TickParticipant() {
+            public boolean tick (int timestamp) {
+                events.add("other");
+                return true;
+            }
+        });
+        scenemgr.tickParticipants(scenemgr._tickOp);
+        assertEquals(Arrays.asList("mover", "other", "sensor"), events);
+
+        // outside of the participant stage, it fires immediately
+        events.clear();
+        scenemgr.queueIntersectionSensors(actor);
+        assertEquals(Arrays.asList("sensor"), events);
+    }
+
+    public void testMultipleShapes ()
+    {
+        TudeySceneManager scenemgr = new TudeySceneManager();
+        List<String> events = Lists.newArrayList();
+        addSensor(scenemgr, new Vector2f(0f, 0f), "first", events);
+        addSensor(scenemgr, new Vector2f(10f, 0f), "second", events);
+        addSensor(scenemgr, new Vector2f(20f, 0f), "third", events);
+        ActorLogic actor = createActor(new Circle(new Vector2f(), 0.5f));
+
+        // each sensor fires once, no matter how many of the shapes it intersects
+        List<Shape> shapes = Lists.<Shape>newArrayList(
+            new Circle(new Vector2f(0.5f, 0f), 0.5f),
+            new Circle(new Vector2f(10f, 0f), 0.5f),
+            new Circle(new Vector2f(-0.5f, 0f), 0.5f),
+            new Circle(new Vector2f(10.5f, 0f), 0.5f));
+        for (int ii = 0; ii < 2; ii++) {
+            events.clear();
+            assertEquals(2, scenemgr.triggerSensors(
+                TudeySceneManager.IntersectionSensor.class, 0, shapes, 1, actor));
+            assertEquals(Arrays.asList("first", "second"), events);
+        }
+    }
+
+    /**
+     * Adds an intersection sensor of unit radius that records its name when triggered.
+     */
+    protected static void addSensor (
+        TudeySceneManager scenemgr, Vector2f center, final String name, final List<String> events)
+    {
+        TudeySceneManager.SensorElement element =
+            new TudeySceneManager.SensorElement(new Circle(center, 1f));
+        element.setUserObject(new TudeySceneManager.IntersectionSensor() {
+            public int getMask () {
+                return 1;
+            }
+            public void trigger (int timestamp, ActorLogic actor) {
+                events.add(name);
+            }
+        });
+        scenemgr.getSensorSpace().add(element);
+    }
+
+    /**
+     * Creates an actor logic with the specified shape and a collision flag matching the
+     * sensors' masks.
+     */
+    protected static ActorLogic createActor (final Shape shape)
+    {
+        final Actor actor = new Actor() {
+            @Override public int getCollisionFlags () {
+                return 1;
+            }
+        };
+        return new ActorLogic() {
+            @Override public Actor getActor () {
+                return actor;
+            }
+            @Override public Shape getShape () {
+                return shape;
+            }
+            @Override public boolean isRemoved () {
+                return false;
+            }
+        };
+    }
+}
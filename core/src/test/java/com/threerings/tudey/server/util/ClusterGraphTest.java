@@ -0,0 +1,80 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.server.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link ClusterGraph} class.
+ */
+public class ClusterGraphTest extends TestCase
+{
+    public ClusterGraphTest (String name)
+    {
+        super(name);
+    }
+
+    public void testTightLongest ()
+    {
+        // a serpentine maze: walls every eight cells, with gaps alternating between the top and
+        // the bottom, so that paths between the ends wind back and forth
+        AStar.Grid grid = new AStar.Grid() {
+            public boolean isTraversable (int x, int y) {
+                if (x < 0 || y < 0 || x >= SIZE || y >= SIZE) {
+                    return false;
+                }
+                if (x % 8 != 7) {
+                    return true;
+                }
+                return ((x / 8) % 2 == 0) ? (y >= SIZE - 2) : (y < 2);
+            }
+        };
+        ClusterGraph graph = new ClusterGraph(grid);
+        AStar astar = AStar.getInstance();
+        for (int ay = 0; ay < SIZE; ay += 9) {
+            for (int by = 0; by < SIZE; by += 11) {
+                // find the optimal cost and search again with just enough length to reach it
+                int ax = 1, bx = SIZE - 2;
+                assertTrue(astar.getPath(grid, Integer.MAX_VALUE / AStar.ADJACENT_COST,
+                    ax, ay, bx, by, false) > 0);
+                int cost = astar.getPathCost();
+                int longest = (cost + AStar.ADJACENT_COST - 1) / AStar.ADJACENT_COST;
+                int length = graph.getPath(grid, longest, ax, ay, bx, by, false);
+                assertTrue(length > 0);
+                assertEquals(ax, graph.getPathX(0));
+                assertEquals(ay, graph.getPathY(0));
+                assertEquals(bx, graph.getPathX(length - 1));
+                assertEquals(by, graph.getPathY(length - 1));
+
+                // with less length, there is no path
+                assertEquals(0, graph.getPath(grid, longest - 2, ax, ay, bx, by, false));
+            }
+        }
+    }
+
+    /** The size of the test grid. */
+    protected static final int SIZE = 80;
+}
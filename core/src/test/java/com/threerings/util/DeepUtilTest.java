@@ -29,6 +29,8 @@ import java.util.Arrays;
 
 import junit.framework.TestCase;
 
+import com.google.common.collect.ImmutableList;
+
 import com.samskivert.util.RandomUtil;
 
 /**
@@ -134,6 +136,112 @@ public class DeepUtilTest extends TestCase
         assertEquals(false, DeepUtil.hashCode(c1) == DeepUtil.hashCode(c2));
     }
 
+    public void testCompiledHandlers ()
+        throws Exception
+    {
+        // the compiled handlers must produce the same results as the reflective ones
+        DeepUtil.ReflectiveObjectHandler reflective =
+            new DeepUtil.ReflectiveObjectHandler(Mixed.class);
+        DeepUtil.CompiledObjectHandler compiled = new DeepUtil.CompiledObjectHandler(Mixed.class);
+        for (int ii = 0; ii < 50; ii++) {
+            Mixed m1 = new Mixed(), m2 = new Mixed();
+            m1.randomize();
+            m2.randomize();
+            if (ii % 2 == 0) {
+                m2.set(m1);
+            }
+            assertEquals(reflective.equals(m1, m2), compiled.equals(m1, m2));
+            assertEquals(reflective.hashCode(m1), compiled.hashCode(m1));
+            assertEquals(reflective.toString(m1), compiled.toString(m1));
+
+            // copy into new objects and into existing ones
+            Mixed r1 = (Mixed)reflective.copy(m1, null, null);
+            Mixed c1 = (Mixed)compiled.copy(m1, null, null);
+            Mixed r2 = (Mixed)reflective.copy(m1, m2.clone(), null);
+            Mixed c2 = (Mixed)compiled.copy(m1, m2.clone(), null);
+            for (Mixed copy : new Mixed[] { r1, c1, r2, c2 }) {
+                assertEquals(true, reflective.equals(m1, copy));
+                assertEquals(true, compiled.equals(m1, copy));
+                assertEquals(reflective.hashCode(copy), compiled.hashCode(copy));
+                assertSame(m1.shallow, copy.shallow);
+                assertEquals(0, copy.omitted);
+                assertSame(copy, ReflectionUtil.getOuter(copy.inner));
+                assertEquals(m1.ints == null, copy.ints == null);
+                assertEquals(false, m1.ints != null && m1.ints == copy.ints);
+            }
+        }
+    }
+
+    protected enum Kind { RED, GREEN, BLUE }
+
+    protected static class Mixed
+        implements Cloneable
+    {
+        public int v1;
+        public double v2;
+        public String v3;
+        public Integer v4;
+        public Kind kind;
+        public ImmutableList<String> list;
+        public int[] ints;
+        public float[][] floats;
+        public Object[] objects;
+        public Other other;
+        @Deep public Object deep;
+        @Shallow public Other shallow;
+        @DeepOmit public int omitted;
+        @Deep public Inner inner = new Inner();
+
+        public class Inner
+        {
+            public long value;
+        }
+
+        public void randomize ()
+        {
+            v1 = RandomUtil.rand.nextInt();
+            v2 = RandomUtil.rand.nextDouble();
+            v3 = RandomUtil.rand.nextBoolean() ? null : ("s" + RandomUtil.getInt(3));
+            v4 = RandomUtil.rand.nextBoolean() ? null : RandomUtil.getInt(3);
+            kind = RandomUtil.rand.nextBoolean() ? null : Kind.values()[RandomUtil.getInt(3)];
+            list = RandomUtil.rand.nextBoolean() ? null : ImmutableList.of("a", "b");
+            ints = RandomUtil.rand.nextBoolean() ? null : new int[] { RandomUtil.getInt(3) };
+            floats = RandomUtil.rand.nextBoolean() ? null :
+                new float[][] { { RandomUtil.rand.nextFloat() }, null };
+            objects = RandomUtil.rand.nextBoolean() ? null : new Object[] { newOther(), 1.5, null };
+            other = newOther();
+            deep = RandomUtil.rand.nextBoolean() ? newOther() : new int[] { 1, 2 };
+            shallow = newOther();
+            omitted = RandomUtil.rand.nextInt();
+            inner.value = RandomUtil.rand.nextLong();
+        }
+
+        public void set (Mixed other)
+        {
+            DeepUtil.copy(other, this);
+            inner.value = other.inner.value;
+            shallow = other.shallow;
+        }
+
+        @Override
+        public Mixed clone ()
+        {
+            Mixed clone = new Mixed();
+            clone.set(this);
+            return clone;
+        }
+
+        protected Other newOther ()
+        {
+            if (RandomUtil.rand.nextBoolean()) {
+                return null;
+            }
+            Other other = new Other();
+            other.randomize();
+            return other;
+        }
+    }
+
     protected abstract class Parent
     {
         public byte v1;